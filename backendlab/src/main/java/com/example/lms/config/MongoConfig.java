@@ -9,7 +9,9 @@ import com.mongodb.client.MongoClients;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-// Spring Data MongoDB configuration base class
+// Spring Data MongoDB configuration base class and transaction support
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 // Enables automatic auditing fields (createdDate, lastModifiedDate, etc.)
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
@@ -27,7 +29,7 @@ import java.util.concurrent.TimeUnit;
  * - Custom connection pool settings for optimal performance
  * - Server monitoring and heartbeat configuration
  * - Connection timeout and lifecycle management
- * - Graceful error handling for connection failures
+ * - Startup fails on an invalid connection string instead of using another server
  * - Auditing support for automatic timestamp fields
  */
 @Configuration // Marks this class as a source of bean definitions
@@ -48,6 +50,37 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
         return "lms"; // Database name for Library Management System
     }
 
+    /**
+     * Enables creation of the indexes declared with @Indexed and @CompoundIndex
+     * 
+     * AbstractMongoClientConfiguration turns index creation off by default and
+     * replaces Spring Boot's auto-configuration, so the
+     * spring.data.mongodb.auto-index-creation property alone has no effect.
+     * Unique constraints, the reservation indexes and the notification TTL
+     * index all depend on this.
+     * 
+     * @return true to create indexes when entities are first mapped
+     */
+    @Override
+    protected boolean autoIndexCreation() {
+        return true;
+    }
+
+    /**
+     * Transaction manager for multi-document transactions
+     * 
+     * Used where several documents must change together, such as a payment
+     * and the fine it pays. Transactions need a replica set (Atlas clusters
+     * are); nothing runs in a transaction unless it asks for one.
+     * 
+     * @param databaseFactory The database factory of this configuration
+     * @return MongoTransactionManager bound to the LMS database
+     */
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+
     /**
      * Creates and configures the MongoDB client with custom settings
      * 
@@ -64,7 +97,12 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
      * - Heartbeat frequency: 5 seconds (checks server health)
      * - Minimum heartbeat frequency: 1 second (fastest health check)
      * 
+     * An invalid or unusable spring.data.mongodb.uri stops the application
+     * at startup: falling back to another server would let it run against
+     * the wrong (or an empty) database.
+     * 
      * @return Configured MongoClient instance
+     * @throws IllegalStateException if the client cannot be created from the configured URI
      */
     @Override
     @Bean
@@ -92,13 +130,10 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
             return MongoClients.create(settings);
             
         } catch (Exception e) {
-            // Log connection error but allow application to continue
+            // Fail fast: never connect to a database other than the configured one
             System.err.println("MongoDB connection error: " + e.getMessage());
-            System.err.println("Application will continue but database operations may fail.");
-            
-            // Return a fallback client with default localhost connection
-            // This allows the application to start even if the configured MongoDB is unavailable
-            return MongoClients.create("mongodb://localhost:27017");
+            throw new IllegalStateException("Cannot create MongoDB client from spring.data.mongodb.uri: "
+                + e.getMessage(), e);
         }
     }
 }
@@ -1,7 +1,9 @@
 package com.example.lms.controller;
 
 import com.example.lms.model.Admin;
+import com.example.lms.repository.projection.AdminSummary;
 import com.example.lms.service.AdminService;
+import com.example.lms.service.EntityCacheService;
 import com.example.lms.service.ProfilePhotoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -23,13 +25,16 @@ public class AdminController {
     @Autowired
     private ProfilePhotoService profilePhotoService;
     
+    @Autowired
+    private EntityCacheService entityCacheService;
+    
     @GetMapping
-    public List<Admin> getAllAdmins() {
+    public List<AdminSummary> getAllAdmins() {
         return adminService.getAllAdmins();
     }
     
     @GetMapping("/active")
-    public List<Admin> getActiveAdmins() {
+    public List<AdminSummary> getActiveAdmins() {
         return adminService.getActiveAdmins();
     }
     
@@ -132,6 +137,14 @@ public class AdminController {
         }
     }
     
+    /**
+     * Hit ratio, size, evictions and change stream state of the book and member caches
+     */
+    @GetMapping("/cache-stats")
+    public Map<String, Object> getCacheStats() {
+        return entityCacheService.getStats();
+    }
+    
     @GetMapping("/permissions")
     public List<String> getAllPermissions() {
         return AdminService.ALL_PERMISSIONS;
@@ -1,6 +1,7 @@
 package com.example.lms.controller;
 
 import com.example.lms.service.AutomatedFineService;
+import com.example.lms.service.OverduePipelineService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -23,6 +24,9 @@ public class AutomatedFineController {
     @Autowired
     private AutomatedFineService automatedFineService;
     
+    @Autowired
+    private OverduePipelineService overduePipelineService;
+    
     /**
      * Manually trigger overdue book processing
      * Useful for administrators who want to process overdue books immediately
@@ -84,7 +88,8 @@ public class AutomatedFineController {
                 "totalOverdueBooks", stats.totalOverdueBooks,
                 "totalUnpaidFines", stats.unpaidFines + stats.partiallyPaidFines,
                 "totalOutstandingAmount", stats.totalOutstandingAmount,
-                "criticalOverdue", stats.overdueOver30Days // Books overdue more than 30 days
+                "criticalOverdue", stats.overdueOver30Days, // Books overdue more than 30 days
+                "lastRun", overduePipelineService.getProgress() // Progress and ETA of the nightly pipeline
             ));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of(
@@ -1,12 +1,20 @@
 package com.example.lms.controller;
 
 import com.example.lms.model.Book;
+import com.example.lms.service.BookSearchService;
 import com.example.lms.service.BookService;
+import com.example.lms.service.CatalogImportService;
+import com.example.lms.service.search.FacetIndex;
+import com.example.lms.service.search.SuggestionTrie;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/books")
@@ -15,6 +23,12 @@ public class BookController {
     
     @Autowired
     private BookService bookService;
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Autowired
+    private BookSearchService bookSearchService;
     
     @GetMapping
     public ResponseEntity<?> getAllBooks() {
@@ -34,16 +48,23 @@ public class BookController {
     }
     
     @PostMapping
-    public Book addBook(@RequestBody Book book) {
-        return bookService.addBook(book);
+    public ResponseEntity<?> addBook(@RequestBody Book book) {
+        try {
+            return ResponseEntity.ok(bookService.addBook(book));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Book> updateBook(@PathVariable String id, @RequestBody Book book) {
+    public ResponseEntity<?> updateBook(@PathVariable String id, @RequestBody Book book) {
         try {
             return ResponseEntity.ok(bookService.updateBook(id, book));
         } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
+            if ("Book not found".equals(e.getMessage())) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
     
@@ -53,18 +74,96 @@ public class BookController {
         return ResponseEntity.ok().build();
     }
     
+    /**
+     * Ranked search: q matches title, author, category and ISBN; title,
+     * author or category match that field only. Tolerates typos.
+     */
     @GetMapping("/search")
-    public List<Book> searchBooks(@RequestParam(required = false) String title,
+    public List<Book> searchBooks(@RequestParam(required = false) String q,
+                                   @RequestParam(required = false) String title,
                                    @RequestParam(required = false) String author,
-                                   @RequestParam(required = false) String category) {
-        if (title != null) return bookService.searchByTitle(title);
-        if (author != null) return bookService.searchByAuthor(author);
-        if (category != null) return bookService.getBooksByCategory(category);
+                                   @RequestParam(required = false) String category,
+                                   @RequestParam(defaultValue = "50") int limit) {
+        int size = Math.max(1, Math.min(limit, 500));
+        if (q != null) return bookService.search(q, null, size);
+        if (title != null) return bookService.search(title, "title", size);
+        if (author != null) return bookService.search(author, "author", size);
+        if (category != null) return bookService.search(category, "category", size);
         return bookService.getAllBooks();
     }
+
+    /**
+     * Typeahead: titles and authors starting with q, most borrowed first
+     */
+    @GetMapping("/suggest")
+    public List<SuggestionTrie.Suggestion> suggest(@RequestParam String q,
+                                                   @RequestParam(defaultValue = "8") int limit) {
+        return bookSearchService.suggest(q, Math.max(1, Math.min(limit, SuggestionTrie.TOP_K)));
+    }
+
+    /**
+     * Faceted browsing: one page of books with counts per category, author
+     * and availability. Repeat a parameter to select several values of a
+     * facet, e.g. /api/books/browse?category=Fiction&category=History&availability=AVAILABLE
+     * Without q the page is sorted by title; with q by relevance.
+     */
+    @GetMapping("/browse")
+    public ResponseEntity<?> browse(@RequestParam(required = false) String q,
+                                    @RequestParam(required = false) List<String> category,
+                                    @RequestParam(required = false) List<String> author,
+                                    @RequestParam(required = false) List<String> availability,
+                                    @RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(defaultValue = "20") int size,
+                                    @RequestParam(defaultValue = "20") int facetLimit) {
+        if (!bookSearchService.isReady()) {
+            return ResponseEntity.status(503).body(Map.of("error", "Search index is not ready"));
+        }
+        Map<String, List<String>> filters = new HashMap<>();
+        if (category != null) filters.put(FacetIndex.CATEGORY, category);
+        if (author != null) filters.put(FacetIndex.AUTHOR, author);
+        if (availability != null) filters.put(FacetIndex.AVAILABILITY, availability);
+        try {
+            return ResponseEntity.ok(bookSearchService.browse(q, filters, Math.max(0, page),
+                Math.max(1, Math.min(size, 100)), Math.max(0, Math.min(facetLimit, 100))));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/search/status")
+    public Map<String, Object> getSearchStatus() {
+        return bookSearchService.getStatus();
+    }
     
     @GetMapping("/available")
     public List<Book> getAvailableBooks() {
         return bookService.getAvailableBooks();
     }
+
+    /**
+     * Import a catalog file sent as the raw request body (not multipart, so
+     * the upload size limit does not apply), e.g.
+     * curl --data-binary @catalog.csv -H "Content-Type: text/csv" /api/books/import?format=csv
+     *
+     * Responds when the whole file is imported, with the counts and the
+     * first row errors.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importCatalog(HttpServletRequest request,
+                                           @RequestParam(defaultValue = "csv") String format,
+                                           @RequestParam(defaultValue = "1") int copies) {
+        try {
+            return ResponseEntity.ok(catalogImportService.importCatalog(request.getInputStream(), format, copies));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Could not read request body: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/import")
+    public ResponseEntity<?> getLastImport() {
+        Map<String, Object> result = catalogImportService.getLastImport();
+        return result != null ? ResponseEntity.ok(result) : ResponseEntity.noContent().build();
+    }
 }
@@ -1,14 +1,24 @@
 package com.example.lms.controller;
 
 import com.example.lms.model.Fine;
+import com.example.lms.model.Money;
 import com.example.lms.model.Payment;
+import com.example.lms.service.FineBulkService;
 import com.example.lms.service.FineService;
+import com.example.lms.service.MemberBalanceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/fines")
@@ -18,6 +28,15 @@ public class FineController {
     @Autowired
     private FineService fineService;
     
+    @Autowired
+    private MemberBalanceService memberBalanceService;
+    
+    @Autowired
+    private FineBulkService fineBulkService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @GetMapping
     public List<Fine> getAllFines() {
         return fineService.getAllFines();
@@ -34,6 +53,82 @@ public class FineController {
         return ResponseEntity.ok(Map.of("outstanding", outstanding));
     }
     
+    // Check every member balance against the fines collection and correct drift
+    @PostMapping("/balances/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcileBalances() {
+        try {
+            return ResponseEntity.ok(memberBalanceService.reconcileNow());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/balances/reconcile")
+    public Map<String, Object> getLastReconciliation() {
+        return memberBalanceService.getLastReconciliation();
+    }
+    
+    // Bulk operations select fines by "fineIDs" and/or a "filter" (see FineBulkService).
+    // With ?dryRun=true they return the counts only; otherwise the running totals
+    // are streamed as one JSON line per batch, ending with the final totals.
+    @PostMapping("/bulk/waive")
+    public ResponseEntity<?> bulkWaive(@RequestBody Map<String, Object> request,
+                                       @RequestParam(defaultValue = "false") boolean dryRun) {
+        return runBulk(() -> fineBulkService.prepareWaive(request), dryRun);
+    }
+    
+    @PostMapping("/bulk/adjust")
+    public ResponseEntity<?> bulkAdjust(@RequestBody Map<String, Object> request,
+                                        @RequestParam(defaultValue = "false") boolean dryRun) {
+        return runBulk(() -> fineBulkService.prepareAdjust(request), dryRun);
+    }
+    
+    @PostMapping("/bulk/import")
+    public ResponseEntity<?> bulkImport(@RequestBody Map<String, Object> request,
+                                        @RequestParam(defaultValue = "false") boolean dryRun) {
+        return runBulk(() -> fineBulkService.prepareImport(request), dryRun);
+    }
+    
+    private ResponseEntity<?> runBulk(Supplier<FineBulkService.BulkOperation> prepare, boolean dryRun) {
+        FineBulkService.BulkOperation operation;
+        try {
+            operation = prepare.get();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+        if (dryRun) {
+            return ResponseEntity.ok(operation.run(true, totals -> { }));
+        }
+        
+        StreamingResponseBody body = out -> {
+            Consumer<Map<String, Object>> writer = lineWriter(out);
+            try {
+                writer.accept(operation.run(false, writer));
+            } catch (RuntimeException e) {
+                System.err.println("Bulk fine operation failed: " + e.getMessage());
+                writer.accept(Map.of("status", "FAILED", "error", String.valueOf(e.getMessage())));
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+    
+    // Writes JSON lines; once the client has gone the operation keeps running unreported
+    private Consumer<Map<String, Object>> lineWriter(OutputStream out) {
+        boolean[] gone = {false};
+        return line -> {
+            if (gone[0]) {
+                return;
+            }
+            try {
+                out.write(objectMapper.writeValueAsBytes(line));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                gone[0] = true;
+            }
+        };
+    }
+    
     @GetMapping("/unpaid")
     public List<Fine> getUnpaidFines() {
         return fineService.getUnpaidFines();
@@ -91,21 +186,26 @@ public class FineController {
     public ResponseEntity<Fine> createManualFine(@RequestBody Map<String, Object> request) {
         try {
             String memberID = (String) request.get("memberID");
-            Double amount = Double.valueOf(request.get("amount").toString());
+            long amountCents = Money.parseCents(request.get("amount"));
             String reason = (String) request.get("reason");
-            return ResponseEntity.ok(fineService.createManualFine(memberID, amount, reason));
+            return ResponseEntity.ok(fineService.createManualFine(memberID, amountCents, reason));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    // A retried request with the same Idempotency-Key header (or "idempotencyKey"
+    // field) returns the payment of the first attempt instead of paying twice
     @PostMapping("/{fineID}/payment")
-    public ResponseEntity<Payment> recordPayment(@PathVariable String fineID, @RequestBody Map<String, Object> request) {
+    public ResponseEntity<Payment> recordPayment(@PathVariable String fineID, @RequestBody Map<String, Object> request,
+                                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            Double amount = Double.valueOf(request.get("amount").toString());
+            long amountCents = Money.parseCents(request.get("amount"));
             String paymentMethod = (String) request.get("paymentMethod");
             String notes = (String) request.getOrDefault("notes", "");
-            return ResponseEntity.ok(fineService.recordPayment(fineID, amount, paymentMethod, notes));
+            String key = idempotencyKey != null ? idempotencyKey : (String) request.get("idempotencyKey");
+            return ResponseEntity.ok(fineService.recordPayment(fineID, amountCents, paymentMethod, notes,
+                key != null && !key.isBlank() ? key : null));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -162,9 +262,9 @@ public class FineController {
     @PutMapping("/{fineID}")
     public ResponseEntity<Fine> updateFine(@PathVariable String fineID, @RequestBody Map<String, Object> request) {
         try {
-            Double amount = Double.valueOf(request.get("amount").toString());
+            long amountCents = Money.parseCents(request.get("amount"));
             String reason = (String) request.get("reason");
-            Fine updatedFine = fineService.updateFine(fineID, amount, reason);
+            Fine updatedFine = fineService.updateFine(fineID, amountCents, reason);
             return ResponseEntity.ok(updatedFine);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
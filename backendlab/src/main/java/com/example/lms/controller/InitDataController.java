@@ -7,6 +7,7 @@ import com.example.lms.model.SystemSettings;
 import com.example.lms.repository.AdminRepository;
 import com.example.lms.repository.LibrarianRepository;
 import com.example.lms.repository.MemberRepository;
+import com.example.lms.service.EntityCacheService;
 import com.example.lms.service.SystemSettingsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -34,6 +35,9 @@ public class InitDataController {
     @Autowired
     private SystemSettingsService systemSettingsService;
 
+    @Autowired
+    private EntityCacheService entityCacheService;
+
     @GetMapping("/test-data")
     public ResponseEntity<?> initializeTestDataGet() {
         return initializeTestData();
@@ -124,7 +128,8 @@ public class InitDataController {
             member.setContact("john@example.com");
             member.setActive(true);
             member.setRole("MEMBER");
-            memberRepository.save(member);
+            Member savedMember = memberRepository.save(member);
+            entityCacheService.invalidateMember(savedMember.getId());
             result.put("member", "Created test member: username=member, password=mem123");
         } else {
             result.put("member", "Member already exists");
@@ -221,6 +226,7 @@ public class InitDataController {
                     String validEmail = member.getUsername() + "@library.com";
                     member.setEmail(validEmail);
                     memberRepository.save(member);
+                    entityCacheService.invalidateMember(member.getId());
                     membersFixed++;
                 }
             }
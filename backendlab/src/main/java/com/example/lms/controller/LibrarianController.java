@@ -1,6 +1,7 @@
 package com.example.lms.controller;
 
 import com.example.lms.model.Librarian;
+import com.example.lms.repository.projection.LibrarianSummary;
 import com.example.lms.service.LibrarianService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -58,12 +59,12 @@ public class LibrarianController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Librarian>> getAllLibrarians() {
+    public ResponseEntity<List<LibrarianSummary>> getAllLibrarians() {
         return ResponseEntity.ok(librarianService.getAllLibrarians());
     }
 
     @GetMapping("/active")
-    public ResponseEntity<List<Librarian>> getActiveLibrarians() {
+    public ResponseEntity<List<LibrarianSummary>> getActiveLibrarians() {
         return ResponseEntity.ok(librarianService.getAllActiveLibrarians());
     }
 }
@@ -5,6 +5,7 @@ import com.example.lms.model.BorrowRecord;
 import com.example.lms.model.Fine;
 import com.example.lms.model.Reservation;
 import com.example.lms.model.Notification;
+import com.example.lms.repository.projection.MemberSummary;
 import com.example.lms.service.MemberService;
 import com.example.lms.service.BorrowService;
 import com.example.lms.service.FineService;
@@ -129,6 +130,7 @@ public class MemberController {
             profile.put("membershipID", member.getMembershipID());
             profile.put("active", member.getActive());
             profile.put("createdAt", member.getCreatedAt());
+            profile.put("digestReminders", member.prefersDigestReminders());
             
             return ResponseEntity.ok(profile);
         } catch (Exception e) {
@@ -161,7 +163,7 @@ public class MemberController {
                 .filter(fine -> "UNPAID".equals(fine.getStatus()) || "PARTIALLY_PAID".equals(fine.getStatus()))
                 .collect(java.util.stream.Collectors.toList());
             
-            Double totalOutstanding = fineService.getMemberTotalOutstanding(memberId);
+            Double totalOutstanding = fineService.getMemberTotalOutstanding(memberId); // Balance ledger read
             
             // Get member's reservations (if service available)
             List<Reservation> activeReservations = new java.util.ArrayList<>();
@@ -316,6 +318,7 @@ public class MemberController {
             profile.put("email", updatedMember.getEmail());
             profile.put("contact", updatedMember.getContact());
             profile.put("membershipID", updatedMember.getMembershipID());
+            profile.put("digestReminders", updatedMember.prefersDigestReminders());
             
             return ResponseEntity.ok(profile);
         } catch (RuntimeException e) {
@@ -326,7 +329,7 @@ public class MemberController {
     // ========== EXISTING ADMIN ENDPOINTS (UNCHANGED) ==========
     
     @GetMapping
-    public List<Member> getAllMembers() {
+    public List<MemberSummary> getAllMembers() {
         return memberService.getAllMembers();
     }
     
@@ -361,7 +364,7 @@ public class MemberController {
     }
     
     @GetMapping("/active")
-    public List<Member> getActiveMembers() {
+    public List<MemberSummary> getActiveMembers() {
         return memberService.getActiveMembers();
     }
     
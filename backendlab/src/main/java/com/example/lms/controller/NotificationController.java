@@ -1,10 +1,18 @@
 package com.example.lms.controller;
 
 import com.example.lms.model.Notification;
+import com.example.lms.model.NotificationTemplate;
+import com.example.lms.service.NotificationRetentionService;
 import com.example.lms.service.NotificationService;
+import com.example.lms.service.NotificationStreamService;
+import com.example.lms.service.NotificationTemplateService;
+import com.example.lms.service.SystemSettingsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -18,6 +26,18 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private NotificationRetentionService notificationRetentionService;
+    
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+    
+    @Autowired
+    private NotificationTemplateService notificationTemplateService;
+    
+    @Autowired
+    private SystemSettingsService systemSettingsService;
+    
     // Get all notifications
     @GetMapping
     public List<Notification> getAllNotifications() {
@@ -30,6 +50,22 @@ public class NotificationController {
         return notificationService.getNotificationsByMember(memberId);
     }
     
+    // Subscribe to a member's new notifications (Server-Sent Events)
+    @GetMapping(value = "/member/{memberId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamNotificationsByMember(@PathVariable String memberId) {
+        try {
+            return ResponseEntity.ok(notificationStreamService.subscribe(memberId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+    }
+    
+    // Open notification stream counts
+    @GetMapping("/stream/statistics")
+    public Map<String, Object> getStreamStatistics() {
+        return notificationStreamService.getStatistics();
+    }
+    
     // Get notifications by status
     @GetMapping("/status/{status}")
     public List<Notification> getNotificationsByStatus(@PathVariable String status) {
@@ -88,6 +124,12 @@ public class NotificationController {
         return notificationService.getNotificationStatistics();
     }
     
+    // Delivery channel status (provider selection, circuit breakers)
+    @GetMapping("/channels")
+    public List<Map<String, Object>> getChannelStatus() {
+        return notificationService.getChannelStatus();
+    }
+    
     // Delete notification
     @DeleteMapping("/{notificationId}")
     public ResponseEntity<Map<String, String>> deleteNotification(@PathVariable String notificationId) {
@@ -100,18 +142,69 @@ public class NotificationController {
         }
     }
     
-    // Delete old notifications
+    // Apply the retention policy; expired notifications are removed by the TTL index
     @DeleteMapping("/cleanup")
     public ResponseEntity<Map<String, Object>> deleteOldNotifications() {
         try {
-            int count = notificationService.deleteOldNotifications();
+            int count = notificationRetentionService.applyRetentionPolicy();
             return ResponseEntity.ok(Map.of(
-                "message", "Old notifications deleted successfully",
+                "message", "Retention policy applied; expired notifications are removed automatically",
                 "count", count
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
-                .body(Map.of("error", "Failed to delete old notifications: " + e.getMessage()));
+                .body(Map.of("error", "Failed to apply notification retention: " + e.getMessage()));
+        }
+    }
+    
+    // Get the template of every notification category
+    @GetMapping("/templates")
+    public List<Map<String, Object>> getTemplates() {
+        return notificationTemplateService.getTemplates();
+    }
+    
+    // Replace a category's template; takes effect for the next notification
+    @PutMapping("/templates/{category}")
+    public ResponseEntity<?> updateTemplate(@PathVariable String category,
+                                            @RequestBody Map<String, String> request,
+                                            @RequestParam(defaultValue = "admin") String updatedBy) {
+        try {
+            NotificationTemplate template = notificationTemplateService.updateTemplate(
+                category, request.get("subject"), request.get("body"), updatedBy);
+            return ResponseEntity.ok(template);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Failed to update template: " + e.getMessage()));
+        }
+    }
+    
+    // Restore a category's built-in template
+    @DeleteMapping("/templates/{category}")
+    public ResponseEntity<Map<String, String>> resetTemplate(@PathVariable String category) {
+        try {
+            notificationTemplateService.resetTemplate(category);
+            return ResponseEntity.ok(Map.of("message", "Template restored to default"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Failed to reset template: " + e.getMessage()));
+        }
+    }
+    
+    // Render a template with sample values without saving it
+    @PostMapping("/templates/{category}/preview")
+    public ResponseEntity<Map<String, String>> previewTemplate(@PathVariable String category,
+                                                               @RequestBody Map<String, String> request) {
+        try {
+            NotificationTemplateService.RenderedTemplate rendered = notificationTemplateService.preview(
+                category, request.get("subject"), request.get("body"),
+                systemSettingsService.getSettings().getLibraryName());
+            Map<String, String> result = new HashMap<>();
+            result.put("subject", rendered.getSubject());
+            result.put("message", rendered.getMessage());
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid template: " + e.getMessage()));
         }
     }
     
@@ -1,9 +1,18 @@
 package com.example.lms.controller;
 
+import com.example.lms.service.CirculationRollupService;
+import com.example.lms.service.DistinctCountService;
+import com.example.lms.service.ReportExportService;
 import com.example.lms.service.ReportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +24,15 @@ public class ReportController {
     @Autowired
     private ReportService reportService;
     
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+    
+    @Autowired
+    private ReportExportService reportExportService;
+    
+    @Autowired
+    private DistinctCountService distinctCountService;
+    
     // Book Reports
     @GetMapping("/books/most-borrowed")
     public List<Map<String, Object>> getMostBorrowedBooks(@RequestParam(defaultValue = "10") int limit) {
@@ -74,4 +92,108 @@ public class ReportController {
     public Map<String, Object> getDashboardSummary() {
         return reportService.getDashboardSummary();
     }
+    
+    // Trend Reports (read from daily/monthly circulation rollups)
+    // Defaults: the last 30 days by day, or the last 12 months by month
+    @GetMapping("/trends")
+    public ResponseEntity<Map<String, Object>> getTrend(
+            @RequestParam(defaultValue = "DAY") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String category) {
+        try {
+            LocalDate end = to != null ? to : LocalDate.now();
+            LocalDate start = from != null ? from : defaultStart(granularity, end);
+            return ResponseEntity.ok(circulationRollupService.getTrend(granularity, start, end, category));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/trends/categories")
+    public ResponseEntity<?> getCategoryTrend(
+            @RequestParam(defaultValue = "MONTH") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            LocalDate end = to != null ? to : LocalDate.now();
+            LocalDate start = from != null ? from : defaultStart(granularity, end);
+            return ResponseEntity.ok(circulationRollupService.getCategoryBreakdown(granularity, start, end));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Rebuild all rollups from borrow records, fines and payments
+    @PostMapping("/trends/backfill")
+    public ResponseEntity<Map<String, Object>> backfillTrends() {
+        try {
+            return ResponseEntity.ok(circulationRollupService.backfill());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Backfill failed: " + e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/trends/backfill")
+    public Map<String, Object> getLastBackfill() {
+        return circulationRollupService.getLastBackfill();
+    }
+    
+    // Unique borrowers and titles over a window, from daily HyperLogLog sketches
+    // (about 0.8% error); exact=true counts the borrow records instead, for audits
+    // Default: the last 30 days
+    @GetMapping("/distinct")
+    public ResponseEntity<Map<String, Object>> getDistinctCounts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean exact) {
+        try {
+            LocalDate end = to != null ? to : LocalDate.now();
+            LocalDate start = from != null ? from : end.minusDays(29);
+            return ResponseEntity.ok(distinctCountService.getDistinctCounts(start, end, exact));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Rebuild all daily sketches from the borrow records
+    @PostMapping("/distinct/backfill")
+    public ResponseEntity<Map<String, Object>> backfillDistinctCounts() {
+        try {
+            return ResponseEntity.ok(distinctCountService.backfill());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Backfill failed: " + e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/distinct/backfill")
+    public Map<String, Object> getLastDistinctBackfill() {
+        return distinctCountService.getLastBackfill();
+    }
+    
+    // Export a report as CSV or XLSX, streamed in chunks while rows are read
+    // Reports: borrows, overdue, fines, payments, most-borrowed, least-borrowed,
+    // most-active, recent-payments, trends
+    @GetMapping("/export/{report}")
+    public ResponseEntity<?> exportReport(@PathVariable String report,
+                                          @RequestParam(defaultValue = "csv") String format,
+                                          @RequestParam(defaultValue = "100") int limit) {
+        String exportFormat = format.toLowerCase();
+        try {
+            reportExportService.checkExport(report, exportFormat);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        
+        StreamingResponseBody body = out -> reportExportService.export(report, exportFormat, limit, out);
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + reportExportService.getFileName(report, exportFormat) + "\"")
+            .contentType(MediaType.parseMediaType(reportExportService.getContentType(exportFormat)))
+            .body(body);
+    }
+    
+    private LocalDate defaultStart(String granularity, LocalDate end) {
+        return "MONTH".equalsIgnoreCase(granularity) ? end.minusMonths(11).withDayOfMonth(1) : end.minusDays(29);
+    }
 }
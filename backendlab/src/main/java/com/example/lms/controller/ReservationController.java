@@ -1,6 +1,7 @@
 package com.example.lms.controller;
 
 import com.example.lms.model.Reservation;
+import com.example.lms.service.ReservationExpiryService;
 import com.example.lms.service.ReservationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +18,9 @@ public class ReservationController {
     @Autowired
     private ReservationService reservationService;
     
+    @Autowired
+    private ReservationExpiryService reservationExpiryService;
+    
     @GetMapping
     public List<Reservation> getAllReservations() {
         return reservationService.getAllReservations();
@@ -105,4 +109,28 @@ public class ReservationController {
     public List<Reservation> getReservationsByBook(@PathVariable String bookID) {
         return reservationService.getReservationsByBook(bookID);
     }
+    
+    @GetMapping("/book/{bookID}/queue")
+    public List<String> getBookQueue(@PathVariable String bookID) {
+        return reservationService.getBookQueue(bookID);
+    }
+    
+    @GetMapping("/{id}/queue-position")
+    public ResponseEntity<Map<String, Object>> getQueuePosition(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(reservationService.getQueuePosition(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    @PostMapping("/expire")
+    public ReservationExpiryService.SweepResult expireReservations() {
+        return reservationExpiryService.expireReservationsManually();
+    }
+    
+    @GetMapping("/expire/statistics")
+    public ReservationExpiryService.SweepStatistics getExpiryStatistics() {
+        return reservationExpiryService.getStatistics();
+    }
 }
@@ -17,7 +17,8 @@ import org.springframework.data.mongodb.core.mapping.Document;
  * - Fine: Calculated based on overdue book returns
  * 
  * MongoDB Collection: "books"
- * Indexes: Should be created on frequently queried fields like title, author, category, isbn
+ * Indexes: isbn (unique, partial: string values only; created by CatalogImportService).
+ * Should also be created on frequently queried fields like title, author, category
  */
 @Document(collection = "books") // Maps this class to the "books" collection in MongoDB
 public class Book {
@@ -51,6 +52,7 @@ public class Book {
     /**
      * International Standard Book Number (ISBN)
      * Unique identifier for book editions, used for cataloging and identification
+     * Stored normalized (no hyphens or spaces, see Isbn.normalize); unique when present
      */
     private String isbn;
     
@@ -2,6 +2,7 @@ package com.example.lms.model;
 
 // Spring Data MongoDB annotations for document mapping
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 // Java time API for date handling (preferred over Date class)
 import java.time.LocalDate;
@@ -31,8 +32,10 @@ import java.time.LocalDate;
  * - Fine: Generated when books are returned overdue
  * 
  * MongoDB Collection: "borrowRecords"
+ * Indexes: (status, dueDate) for the nightly overdue scan
  */
 @Document(collection = "borrowRecords") // Maps this class to the "borrowRecords" collection in MongoDB
+@CompoundIndex(name = "status_due_idx", def = "{ 'status': 1, 'dueDate': 1 }")
 public class BorrowRecord {
     
     /**
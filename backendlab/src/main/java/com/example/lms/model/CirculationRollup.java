@@ -0,0 +1,145 @@
+package com.example.lms.model;
+
+// Spring Data MongoDB annotations for document mapping and indexing
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+// Java time API for the bucket start date
+import java.time.LocalDate;
+
+/**
+ * CirculationRollup Entity - Circulation counters of one time bucket and book category
+ * 
+ * Trend reports read these pre-aggregated buckets instead of scanning the
+ * borrow, fine and payment history. Counters are incremented as borrows,
+ * returns, overdue flags, fines and payments happen, and can be rebuilt
+ * from history with a backfill.
+ * 
+ * Buckets:
+ * - granularity DAY, period "2025-01-15"
+ * - granularity MONTH, period "2025-01"
+ * Every event is counted under its book's category and again under the
+ * category "ALL", so library-wide charts read one document per bucket.
+ * Fines without a borrow record (manual fines) use the category "UNCATEGORIZED".
+ * 
+ * MongoDB Collection: "circulation_rollups"
+ * Document ID: "granularity|period|category"
+ * Indexes: (granularity, category, periodStart) for trend range reads
+ */
+@Document(collection = "circulation_rollups") // Maps this class to the "circulation_rollups" collection in MongoDB
+@CompoundIndex(name = "granularity_category_period_idx", def = "{ 'granularity': 1, 'category': 1, 'periodStart': 1 }")
+public class CirculationRollup {
+    
+    /**
+     * Bucket ID, "granularity|period|category"
+     */
+    @Id
+    private String id;
+    
+    /**
+     * Bucket size: DAY or MONTH
+     */
+    private String granularity;
+    
+    /**
+     * Bucket label, "yyyy-MM-dd" for days and "yyyy-MM" for months
+     */
+    private String period;
+    
+    /**
+     * First day of the bucket, used for range queries
+     */
+    private LocalDate periodStart;
+    
+    /**
+     * Book category, or "ALL" for the library-wide bucket
+     */
+    private String category;
+    
+    /**
+     * Loans handed out (borrow requests approved)
+     */
+    private Long borrows;
+    
+    /**
+     * Books returned (including damaged returns)
+     */
+    private Long returns;
+    
+    /**
+     * Loans flagged overdue
+     */
+    private Long overdue;
+    
+    /**
+     * Fines issued
+     */
+    private Long finesIssued;
+    
+    /**
+     * Total amount of the fines issued in the bucket, in cents
+     * Later increases of a fine (daily overdue accrual, edits) are added to
+     * the bucket the fine was issued in
+     */
+    private Long fineAmountCents;
+    
+    /**
+     * Total amount of payments received, in cents
+     */
+    private Long paymentsAmountCents;
+
+    // =============================================================================
+    // GETTER AND SETTER METHODS
+    // =============================================================================
+    
+    public String getId() { return id; }
+    
+    public void setId(String id) { this.id = id; }
+    
+    public String getGranularity() { return granularity; }
+    
+    public void setGranularity(String granularity) { this.granularity = granularity; }
+    
+    public String getPeriod() { return period; }
+    
+    public void setPeriod(String period) { this.period = period; }
+    
+    public LocalDate getPeriodStart() { return periodStart; }
+    
+    public void setPeriodStart(LocalDate periodStart) { this.periodStart = periodStart; }
+    
+    public String getCategory() { return category; }
+    
+    public void setCategory(String category) { this.category = category; }
+    
+    public Long getBorrows() { return borrows != null ? borrows : 0L; }
+    
+    public void setBorrows(Long borrows) { this.borrows = borrows; }
+    
+    public Long getReturns() { return returns != null ? returns : 0L; }
+    
+    public void setReturns(Long returns) { this.returns = returns; }
+    
+    public Long getOverdue() { return overdue != null ? overdue : 0L; }
+    
+    public void setOverdue(Long overdue) { this.overdue = overdue; }
+    
+    public Long getFinesIssued() { return finesIssued != null ? finesIssued : 0L; }
+    
+    public void setFinesIssued(Long finesIssued) { this.finesIssued = finesIssued; }
+    
+    public long getFineAmountCents() { return fineAmountCents != null ? fineAmountCents : 0L; }
+    
+    public void setFineAmountCents(Long fineAmountCents) { this.fineAmountCents = fineAmountCents; }
+    
+    public long getPaymentsAmountCents() { return paymentsAmountCents != null ? paymentsAmountCents : 0L; }
+    
+    public void setPaymentsAmountCents(Long paymentsAmountCents) { this.paymentsAmountCents = paymentsAmountCents; }
+    
+    @Transient
+    public Double getFineAmount() { return Money.toAmount(getFineAmountCents()); }
+    
+    @Transient
+    public Double getPaymentsAmount() { return Money.toAmount(getPaymentsAmountCents()); }
+}
@@ -0,0 +1,95 @@
+package com.example.lms.model;
+
+// Spring Data MongoDB annotations for document mapping and indexing
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+// Java time API for the sketch day and update timestamp
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DistinctSketch Entity - HyperLogLog registers of one metric on one day
+ *
+ * Distinct counts over a window (unique borrowers in the last 90 days, unique
+ * titles borrowed this year, ...) are answered by merging the daily sketches
+ * of the window, so a query needs one 16 KB sketch in memory however long
+ * the window or the history is.
+ *
+ * Metrics:
+ * - BORROWERS: member IDs of loans handed out that day
+ * - TITLES: book IDs of loans handed out that day
+ * - OVERDUE_MEMBERS: member IDs of loans flagged overdue that day
+ * - OVERDUE_TITLES: book IDs of loans flagged overdue that day
+ *
+ * Sketches are only stored for days with activity. Writers merge their
+ * registers into the stored ones and guard the write with the version
+ * field, so concurrent writers never lose each other's values.
+ *
+ * MongoDB Collection: "distinct_sketches"
+ * Document ID: "metric|yyyy-MM-dd"
+ * Indexes: (metric, day) for window reads
+ */
+@Document(collection = "distinct_sketches") // Maps this class to the "distinct_sketches" collection in MongoDB
+@CompoundIndex(name = "metric_day_idx", def = "{ 'metric': 1, 'day': 1 }")
+public class DistinctSketch {
+
+    /**
+     * Sketch ID, "metric|yyyy-MM-dd"
+     */
+    @Id
+    private String id;
+
+    /**
+     * BORROWERS, TITLES, OVERDUE_MEMBERS or OVERDUE_TITLES
+     */
+    private String metric;
+
+    /**
+     * Day the sketched events happened on
+     */
+    private LocalDate day;
+
+    /**
+     * HyperLogLog registers, one byte each (see HyperLogLog)
+     */
+    private byte[] registers;
+
+    /**
+     * Incremented on every write; writes are conditional on the version read
+     */
+    private Long version;
+
+    /**
+     * Last time values were merged into the sketch
+     */
+    private LocalDateTime updatedAt;
+
+    // =============================================================================
+    // GETTER AND SETTER METHODS
+    // =============================================================================
+
+    public String getId() { return id; }
+
+    public void setId(String id) { this.id = id; }
+
+    public String getMetric() { return metric; }
+
+    public void setMetric(String metric) { this.metric = metric; }
+
+    public LocalDate getDay() { return day; }
+
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public byte[] getRegisters() { return registers; }
+
+    public void setRegisters(byte[] registers) { this.registers = registers; }
+
+    public Long getVersion() { return version != null ? version : 0L; }
+
+    public void setVersion(Long version) { this.version = version; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
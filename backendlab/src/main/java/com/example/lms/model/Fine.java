@@ -2,6 +2,7 @@ package com.example.lms.model;
 
 // Spring Data MongoDB annotations for document mapping
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 // Java time API for date handling
 import java.time.LocalDate;
@@ -37,6 +38,11 @@ import java.time.LocalDate;
  * - BorrowRecord: The transaction that caused the fine (borrowRecordID reference)
  * - Payment: Individual payment transactions against this fine
  * 
+ * Amounts:
+ * - Stored as long cents (amountCents, amountPaidCents), see Money
+ * - getAmount()/getAmountPaid() expose them as decimals for JSON and display;
+ *   arithmetic and comparisons use the cents accessors
+ * 
  * MongoDB Collection: "fines"
  */
 @Document(collection = "fines") // Maps this class to the "fines" collection in MongoDB
@@ -64,18 +70,18 @@ public class Fine {
     private String borrowRecordID;
     
     /**
-     * Total amount of the fine
+     * Total amount of the fine, in cents
      * Original fine amount before any payments
      * Used as baseline for calculating remaining balance
      */
-    private Double amount;
+    private long amountCents;
     
     /**
-     * Total amount paid towards this fine
+     * Total amount paid towards this fine, in cents
      * Sum of all payments made against this fine
      * Used to calculate remaining balance and payment status
      */
-    private Double amountPaid;
+    private long amountPaidCents;
     
     /**
      * Reason for the fine
@@ -165,28 +171,54 @@ public class Fine {
     public void setBorrowRecordID(String borrowRecordID) { this.borrowRecordID = borrowRecordID; }
     
     /**
-     * Gets the total fine amount
+     * Gets the total fine amount in cents
+     * @return The original fine amount in cents
+     */
+    public long getAmountCents() { return amountCents; }
+    
+    /**
+     * Sets the total fine amount in cents
+     * @param amountCents The original fine amount in cents
+     */
+    public void setAmountCents(long amountCents) { this.amountCents = amountCents; }
+    
+    /**
+     * Gets the total amount paid towards this fine in cents
+     * @return The sum of all payments made, in cents
+     */
+    public long getAmountPaidCents() { return amountPaidCents; }
+    
+    /**
+     * Sets the total amount paid towards this fine in cents
+     * @param amountPaidCents The sum of all payments made, in cents
+     */
+    public void setAmountPaidCents(long amountPaidCents) { this.amountPaidCents = amountPaidCents; }
+    
+    /**
+     * Gets the total fine amount as a decimal (derived from the cents)
      * @return The original fine amount
      */
-    public Double getAmount() { return amount; }
+    @Transient
+    public Double getAmount() { return Money.toAmount(amountCents); }
     
     /**
-     * Sets the total fine amount
+     * Sets the total fine amount from a decimal, rounded to the cent
      * @param amount The original fine amount
      */
-    public void setAmount(Double amount) { this.amount = amount; }
+    public void setAmount(Double amount) { this.amountCents = Money.toCents(amount); }
     
     /**
-     * Gets the total amount paid towards this fine
+     * Gets the total amount paid towards this fine as a decimal (derived from the cents)
      * @return The sum of all payments made
      */
-    public Double getAmountPaid() { return amountPaid; }
+    @Transient
+    public Double getAmountPaid() { return Money.toAmount(amountPaidCents); }
     
     /**
-     * Sets the total amount paid towards this fine
+     * Sets the total amount paid towards this fine from a decimal, rounded to the cent
      * @param amountPaid The sum of all payments made
      */
-    public void setAmountPaid(Double amountPaid) { this.amountPaid = amountPaid; }
+    public void setAmountPaid(Double amountPaid) { this.amountPaidCents = Money.toCents(amountPaid); }
     
     /**
      * Gets the reason for the fine
@@ -237,18 +269,25 @@ public class Fine {
     public void setStatus(String status) { this.status = status; }
     
     /**
-     * Calculates the remaining amount due on this fine
+     * Calculates the remaining amount due on this fine, in cents
      * 
      * This is a computed property that calculates the outstanding balance
      * by subtracting total payments from the original fine amount.
      * 
+     * @return The remaining balance due in cents (0 if fully paid or overpaid)
+     */
+    public long getAmountDueCents() {
+        // Calculate remaining balance (amount - payments made)
+        return Math.max(0L, amountCents - amountPaidCents);
+    }
+    
+    /**
+     * Calculates the remaining amount due on this fine as a decimal
+     * 
      * @return The remaining balance due (0.0 if fully paid or overpaid)
      */
+    @Transient
     public Double getAmountDue() {
-        // If no payments have been made, return the full amount
-        if (amountPaid == null) return amount;
-        
-        // Calculate remaining balance (amount - payments made)
-        return amount - amountPaid;
+        return Money.toAmount(getAmountDueCents());
     }
 }
@@ -0,0 +1,108 @@
+package com.example.lms.model;
+
+// Spring Data MongoDB annotations for document mapping
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+// Java time API for lease timestamps
+import java.time.LocalDateTime;
+
+/**
+ * JobLease Entity - Cluster-wide lease for a scheduled job or job partition
+ * 
+ * When the application runs on several nodes, every node fires the same
+ * @Scheduled methods. A lease document lets exactly one node run a job (or one
+ * partition of a job) per scheduled run; the others see the lease taken and skip.
+ * 
+ * Lease Lifecycle:
+ * 1. Acquire: a node claims the lease if it is free or expired, incrementing fencingToken
+ * 2. Heartbeat: the holder extends expiresAt while the job is running
+ * 3. Complete: the holder records the run key and releases the lease
+ * 
+ * A node that stalls past expiresAt loses the lease; the fencing token tells it
+ * (and any write it guards) that another node has taken over.
+ * 
+ * MongoDB Collection: "job_leases"
+ * Document ID: job name, or "jobName#partition" for partitioned jobs
+ */
+@Document(collection = "job_leases") // Maps this class to the "job_leases" collection in MongoDB
+public class JobLease {
+    
+    /**
+     * Name of the leased job or job partition
+     */
+    @Id
+    private String id;
+    
+    /**
+     * Instance ID of the node currently holding the lease
+     */
+    private String owner;
+    
+    /**
+     * Monotonically increasing token, incremented on every acquisition
+     * A holder whose token no longer matches has lost the lease
+     */
+    private Long fencingToken;
+    
+    /**
+     * When the current holder acquired the lease
+     */
+    private LocalDateTime acquiredAt;
+    
+    /**
+     * Last heartbeat of the current holder
+     */
+    private LocalDateTime heartbeatAt;
+    
+    /**
+     * When the lease lapses unless renewed by a heartbeat
+     */
+    private LocalDateTime expiresAt;
+    
+    /**
+     * Key of the last run completed under this lease (e.g. the run date)
+     * Prevents a second node from repeating a run that already finished
+     */
+    private String lastCompletedRun;
+    
+    /**
+     * When the last run was completed
+     */
+    private LocalDateTime completedAt;
+
+    // =============================================================================
+    // GETTER AND SETTER METHODS
+    // =============================================================================
+    
+    public String getId() { return id; }
+    
+    public void setId(String id) { this.id = id; }
+    
+    public String getOwner() { return owner; }
+    
+    public void setOwner(String owner) { this.owner = owner; }
+    
+    public Long getFencingToken() { return fencingToken; }
+    
+    public void setFencingToken(Long fencingToken) { this.fencingToken = fencingToken; }
+    
+    public LocalDateTime getAcquiredAt() { return acquiredAt; }
+    
+    public void setAcquiredAt(LocalDateTime acquiredAt) { this.acquiredAt = acquiredAt; }
+    
+    public LocalDateTime getHeartbeatAt() { return heartbeatAt; }
+    
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) { this.heartbeatAt = heartbeatAt; }
+    
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    
+    public String getLastCompletedRun() { return lastCompletedRun; }
+    
+    public void setLastCompletedRun(String lastCompletedRun) { this.lastCompletedRun = lastCompletedRun; }
+    
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
@@ -94,6 +94,13 @@ public class Member {
      */
     private String role;
     
+    /**
+     * Reminder delivery preference of the member
+     * - true or null: Due-soon and overdue reminders are grouped into one daily digest
+     * - false: One reminder is sent per borrowed book
+     */
+    private Boolean digestReminders;
+    
     /**
      * Timestamp when the member account was created
      * Used for audit trails and membership duration tracking
@@ -234,6 +241,24 @@ public class Member {
      */
     public void setRole(String role) { this.role = role; }
     
+    /**
+     * Gets the reminder delivery preference
+     * @return false for individual reminders, true or null for a daily digest
+     */
+    public Boolean getDigestReminders() { return digestReminders; }
+    
+    /**
+     * Sets the reminder delivery preference
+     * @param digestReminders false for individual reminders, true or null for a daily digest
+     */
+    public void setDigestReminders(Boolean digestReminders) { this.digestReminders = digestReminders; }
+    
+    /**
+     * Whether this member receives reminders as a daily digest (the default)
+     * @return false only if the member opted for individual reminders
+     */
+    public boolean prefersDigestReminders() { return !Boolean.FALSE.equals(digestReminders); }
+    
     /**
      * Gets the account creation timestamp
      * @return Date when the member account was created
@@ -0,0 +1,96 @@
+package com.example.lms.model;
+
+// Spring Data MongoDB annotations for document mapping
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.mapping.Document;
+// Java time API for the update timestamps
+import java.time.LocalDateTime;
+
+/**
+ * MemberBalance Entity - Running total of a member's open fines
+ *
+ * Balance checks (can the member borrow, how much do they owe) read this one
+ * document by member ID instead of loading and filtering all of the member's
+ * fines. Every change to a fine applies the change of its outstanding amount
+ * to the balance with an atomic $inc upsert; payments do so inside the
+ * payment transaction.
+ *
+ * A fine counts towards the balance while it is UNPAID or PARTIALLY_PAID,
+ * with its amount due (amount - amountPaid). PAID and WAIVED fines count zero.
+ * Amounts are in cents, so the $inc updates and the reconciliation compare
+ * exactly.
+ *
+ * The reconciliation job recomputes every balance from the fines collection
+ * and corrects drift (e.g. a balance update lost to a crash between saving
+ * a fine and updating the ledger).
+ *
+ * MongoDB Collection: "member_balances"
+ * Document ID: member ID
+ */
+@Document(collection = "member_balances") // Maps this class to the "member_balances" collection in MongoDB
+public class MemberBalance {
+
+    /**
+     * ID of the member the balance belongs to
+     */
+    @Id
+    private String id;
+
+    /**
+     * Sum of the amounts due of the member's open fines, in cents
+     */
+    private Long outstandingCents;
+
+    /**
+     * Number of the member's open (UNPAID or PARTIALLY_PAID) fines
+     */
+    private Long openFines;
+
+    /**
+     * Incremented on every change; reconciliation only corrects a balance
+     * whose version did not change while it was being checked
+     */
+    private Long version;
+
+    /**
+     * Last time the balance changed
+     */
+    private LocalDateTime updatedAt;
+
+    /**
+     * Last time the reconciliation job corrected the balance
+     */
+    private LocalDateTime reconciledAt;
+
+    // =============================================================================
+    // GETTER AND SETTER METHODS
+    // =============================================================================
+
+    public String getId() { return id; }
+
+    public void setId(String id) { this.id = id; }
+
+    public long getOutstandingCents() { return outstandingCents != null ? outstandingCents : 0L; }
+
+    public void setOutstandingCents(Long outstandingCents) { this.outstandingCents = outstandingCents; }
+
+    @Transient
+    public Double getOutstanding() { return Money.toAmount(getOutstandingCents()); }
+
+    public Long getOpenFines() { return openFines != null ? openFines : 0L; }
+
+    public void setOpenFines(Long openFines) { this.openFines = openFines; }
+
+    public Long getVersion() { return version != null ? version : 0L; }
+
+    public void setVersion(Long version) { this.version = version; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getReconciledAt() { return reconciledAt; }
+
+    public void setReconciledAt(LocalDateTime reconciledAt) { this.reconciledAt = reconciledAt; }
+}
@@ -0,0 +1,67 @@
+package com.example.lms.model;
+
+// Exact decimal arithmetic for converting amounts at the API boundary
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money - Conversions between decimal amounts and integer cents
+ *
+ * Fine, payment, balance and rollup amounts are stored and computed as long
+ * cents (minor units). Sums, comparisons and $inc updates on cents are exact,
+ * so a fine paid in several parts ends exactly at its amount instead of a
+ * fraction of a cent away from it, and the arithmetic needs no boxing.
+ *
+ * Decimal amounts only exist at the edges: request bodies, JSON responses,
+ * notification texts, and the per-day rates in SystemSettings. Conversions
+ * round half up to the nearest cent.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /**
+     * Cents of a decimal amount, e.g. 2.5 -> 250
+     *
+     * @param amount Decimal amount, or null for zero
+     * @return The amount in cents, rounded half up
+     */
+    public static long toCents(Double amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        // BigDecimal.valueOf uses the shortest decimal form, so 1.005 stays 1.005
+        return BigDecimal.valueOf(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Cents of an amount sent by a client (number or numeric string)
+     *
+     * Strings are parsed as decimals directly, without a detour through double.
+     *
+     * @param value Request value such as "12.50" or 12.5
+     * @return The amount in cents, rounded half up
+     * @throws RuntimeException if the value is missing or not a number
+     */
+    public static long parseCents(Object value) {
+        if (value == null) {
+            throw new RuntimeException("Amount is required");
+        }
+        try {
+            return new BigDecimal(value.toString().trim()).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new RuntimeException("Invalid amount: " + value);
+        }
+    }
+
+    /**
+     * Decimal amount of a number of cents, e.g. 250 -> 2.5
+     *
+     * @param cents Amount in cents
+     * @return The decimal amount, for JSON responses and display
+     */
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+}
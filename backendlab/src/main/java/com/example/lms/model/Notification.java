@@ -2,6 +2,7 @@ package com.example.lms.model;
 
 // Spring Data MongoDB annotations for document mapping
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 // Java time API for precise timestamp handling
 import java.time.LocalDateTime;
@@ -41,7 +42,14 @@ import java.time.LocalDateTime;
  * - Member: The recipient of the notification (memberId reference)
  * - BorrowRecord, Reservation, Fine: Related entities (relatedEntityId reference)
  * 
+ * Retention:
+ * - When a notification is sent, expireAt is set to createdAt plus the retention
+ *   period of its category (SystemSettings)
+ * - A TTL index on expireAt lets MongoDB remove expired notifications itself
+ * - PENDING and FAILED notifications have no expireAt and are never removed
+ * 
  * MongoDB Collection: "notifications"
+ * Indexes: expireAt (TTL, expireAfterSeconds = 0)
  */
 @Document(collection = "notifications") // Maps this class to the "notifications" collection in MongoDB
 public class Notification {
@@ -168,6 +176,20 @@ public class Notification {
      */
     private String relatedEntityId; // borrowId, reservationId, fineId, etc.
     
+    /**
+     * Time at which MongoDB's TTL monitor deletes this notification
+     * Derived from createdAt and the category retention when the notification is sent
+     * Null for notifications that must be kept (not yet sent or failed)
+     */
+    @Indexed(name = "expireAt_ttl", expireAfterSeconds = 0)
+    private LocalDateTime expireAt;
+    
+    /**
+     * Whether this notification has already been written to a compressed archive file
+     * Prevents archiving the same notification twice before it expires
+     */
+    private Boolean archived;
+    
     /**
      * Default constructor for MongoDB deserialization
      * Initializes default values for new notifications:
@@ -366,4 +388,28 @@ public class Notification {
      * @param relatedEntityId The related entity ID (borrowId, reservationId, fineId, etc.)
      */
     public void setRelatedEntityId(String relatedEntityId) { this.relatedEntityId = relatedEntityId; }
+    
+    /**
+     * Gets the expiry timestamp used by the TTL index
+     * @return When the notification will be removed, or null if it is kept
+     */
+    public LocalDateTime getExpireAt() { return expireAt; }
+    
+    /**
+     * Sets the expiry timestamp used by the TTL index
+     * @param expireAt When the notification should be removed, or null to keep it
+     */
+    public void setExpireAt(LocalDateTime expireAt) { this.expireAt = expireAt; }
+    
+    /**
+     * Gets the archive flag
+     * @return true if the notification has been written to an archive file
+     */
+    public Boolean getArchived() { return archived; }
+    
+    /**
+     * Sets the archive flag
+     * @param archived true once the notification has been written to an archive file
+     */
+    public void setArchived(Boolean archived) { this.archived = archived; }
 }
@@ -0,0 +1,79 @@
+package com.example.lms.model;
+
+// Spring Data MongoDB annotations for document mapping
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+// Java time API for timestamps
+import java.time.LocalDateTime;
+
+/**
+ * NotificationTemplate Entity - Admin-edited subject and body of one notification category
+ * 
+ * Every notification category (DUE_DATE_REMINDER, FINE_NOTICE, ...) has a
+ * built-in template. Saving a NotificationTemplate overrides it; deleting the
+ * document restores the built-in one.
+ * 
+ * Template Syntax:
+ * - {{variable}}: replaced with the variable's value, e.g. {{memberName}}
+ * - {{variable|money}}: numeric value with two decimals, e.g. {{amount|money}}
+ * - {{libraryName}} is available in every template
+ * 
+ * Templates are parsed once when loaded or edited, never per notification.
+ * 
+ * MongoDB Collection: "notification_templates"
+ * Document ID: the notification category
+ */
+@Document(collection = "notification_templates") // Maps this class to the "notification_templates" collection in MongoDB
+public class NotificationTemplate {
+    
+    /**
+     * Notification category this template renders, e.g. "OVERDUE_REMINDER"
+     */
+    @Id
+    private String id;
+    
+    /**
+     * Subject line template
+     */
+    private String subject;
+    
+    /**
+     * Message body template
+     */
+    private String body;
+    
+    /**
+     * When the template was last edited
+     * Other nodes compare it to pick up edits without a restart
+     */
+    private LocalDateTime updatedAt;
+    
+    /**
+     * Who last edited the template
+     */
+    private String updatedBy;
+
+    // =============================================================================
+    // GETTER AND SETTER METHODS
+    // =============================================================================
+    
+    public String getId() { return id; }
+    
+    public void setId(String id) { this.id = id; }
+    
+    public String getSubject() { return subject; }
+    
+    public void setSubject(String subject) { this.subject = subject; }
+    
+    public String getBody() { return body; }
+    
+    public void setBody(String body) { this.body = body; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    public String getUpdatedBy() { return updatedBy; }
+    
+    public void setUpdatedBy(String updatedBy) { this.updatedBy = updatedBy; }
+}
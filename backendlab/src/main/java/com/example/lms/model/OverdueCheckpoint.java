@@ -0,0 +1,142 @@
+package com.example.lms.model;
+
+// Spring Data MongoDB annotations for document mapping and indexing
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+// Java time API for timestamps
+import java.time.LocalDateTime;
+
+/**
+ * OverdueCheckpoint Entity - Progress of one partition of a nightly overdue run
+ * 
+ * The overdue pipeline splits newly overdue loans into hash partitions of
+ * memberID. Each partition writes a checkpoint after every batch, so a run
+ * that dies midway resumes after the last checkpointed record instead of
+ * starting over, and progress can be reported while the run is in flight.
+ * 
+ * Status Values:
+ * - RUNNING: Partition started and not yet finished (or interrupted)
+ * - DONE: Every record of the partition has been processed
+ * 
+ * MongoDB Collection: "overdue_checkpoints"
+ * Document ID: "runKey#partition"
+ */
+@Document(collection = "overdue_checkpoints") // Maps this class to the "overdue_checkpoints" collection in MongoDB
+public class OverdueCheckpoint {
+    
+    /**
+     * Checkpoint ID, "runKey#partition"
+     */
+    @Id
+    private String id;
+    
+    /**
+     * Run the checkpoint belongs to (the run date)
+     */
+    @Indexed
+    private String runKey;
+    
+    /**
+     * Partition number within the run
+     */
+    private Integer partition;
+    
+    /**
+     * RUNNING or DONE
+     */
+    private String status;
+    
+    /**
+     * Number of records assigned to the partition when it first started
+     */
+    private Integer totalRecords;
+    
+    /**
+     * Number of records processed so far
+     */
+    private Integer processedRecords;
+    
+    /**
+     * Number of fines created so far
+     */
+    private Integer finesCreated;
+    
+    /**
+     * ID of the last processed record; records are processed in ID order
+     */
+    private String lastRecordId;
+    
+    /**
+     * When the partition was first started
+     */
+    private LocalDateTime startedAt;
+    
+    /**
+     * When the checkpoint was last written
+     */
+    private LocalDateTime updatedAt;
+    
+    /**
+     * When the partition finished
+     */
+    private LocalDateTime completedAt;
+    
+    /**
+     * Fencing token of the partition lease under which the checkpoint was last written
+     * A checkpoint is never overwritten under a lower token (see OverduePipelineService)
+     */
+    private Long fencingToken;
+
+    // =============================================================================
+    // GETTER AND SETTER METHODS
+    // =============================================================================
+    
+    public String getId() { return id; }
+    
+    public void setId(String id) { this.id = id; }
+    
+    public String getRunKey() { return runKey; }
+    
+    public void setRunKey(String runKey) { this.runKey = runKey; }
+    
+    public Integer getPartition() { return partition; }
+    
+    public void setPartition(Integer partition) { this.partition = partition; }
+    
+    public String getStatus() { return status; }
+    
+    public void setStatus(String status) { this.status = status; }
+    
+    public Integer getTotalRecords() { return totalRecords; }
+    
+    public void setTotalRecords(Integer totalRecords) { this.totalRecords = totalRecords; }
+    
+    public Integer getProcessedRecords() { return processedRecords; }
+    
+    public void setProcessedRecords(Integer processedRecords) { this.processedRecords = processedRecords; }
+    
+    public Integer getFinesCreated() { return finesCreated; }
+    
+    public void setFinesCreated(Integer finesCreated) { this.finesCreated = finesCreated; }
+    
+    public String getLastRecordId() { return lastRecordId; }
+    
+    public void setLastRecordId(String lastRecordId) { this.lastRecordId = lastRecordId; }
+    
+    public LocalDateTime getStartedAt() { return startedAt; }
+    
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+    
+    public Long getFencingToken() { return fencingToken; }
+    
+    public void setFencingToken(Long fencingToken) { this.fencingToken = fencingToken; }
+}
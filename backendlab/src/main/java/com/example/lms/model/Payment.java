@@ -2,6 +2,8 @@ package com.example.lms.model;
 
 // Spring Data MongoDB annotations for document mapping
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 // Java time API for date handling
 import java.time.LocalDate;
@@ -29,7 +31,15 @@ import java.time.LocalDate;
  * - Fine: The fine being paid (fineID reference)
  * - Member: The person making the payment (memberID reference)
  * 
+ * Idempotency:
+ * - Clients may send an idempotency key with a payment request; the key is
+ *   stored on the payment under a unique index, so a retried request finds
+ *   the payment of the first attempt instead of paying twice
+ * 
+ * The amount is stored as long cents (amountCents), see Money.
+ * 
  * MongoDB Collection: "payments"
+ * Indexes: idempotencyKey (unique, sparse)
  */
 @Document(collection = "payments") // Maps this class to the "payments" collection in MongoDB
 public class Payment {
@@ -56,11 +66,11 @@ public class Payment {
     private String memberID;
     
     /**
-     * Amount paid in this transaction
+     * Amount paid in this transaction, in cents
      * Supports partial payments - may be less than the total fine amount
      * Used for calculating remaining balance on fines
      */
-    private Double amount;
+    private long amountCents;
     
     /**
      * Date when the payment was made
@@ -86,6 +96,13 @@ public class Payment {
      * Useful for payment verification and customer service
      */
     private String notes;
+    
+    /**
+     * Client-supplied key identifying the payment request (optional)
+     * Unique among payments that have one; payments without a key are not indexed
+     */
+    @Indexed(unique = true, sparse = true)
+    private String idempotencyKey;
 
     /**
      * Default constructor required by MongoDB for object deserialization
@@ -137,16 +154,29 @@ public class Payment {
     public void setMemberID(String memberID) { this.memberID = memberID; }
     
     /**
-     * Gets the payment amount
+     * Gets the payment amount in cents
+     * @return The amount paid in this transaction, in cents
+     */
+    public long getAmountCents() { return amountCents; }
+    
+    /**
+     * Sets the payment amount in cents
+     * @param amountCents The amount paid in this transaction, in cents
+     */
+    public void setAmountCents(long amountCents) { this.amountCents = amountCents; }
+    
+    /**
+     * Gets the payment amount as a decimal (derived from the cents)
      * @return The amount paid in this transaction
      */
-    public Double getAmount() { return amount; }
+    @Transient
+    public Double getAmount() { return Money.toAmount(amountCents); }
     
     /**
-     * Sets the payment amount
+     * Sets the payment amount from a decimal, rounded to the cent
      * @param amount The amount paid in this transaction
      */
-    public void setAmount(Double amount) { this.amount = amount; }
+    public void setAmount(Double amount) { this.amountCents = Money.toCents(amount); }
     
     /**
      * Gets the payment date
@@ -183,4 +213,16 @@ public class Payment {
      * @param notes Payment notes or additional details
      */
     public void setNotes(String notes) { this.notes = notes; }
+    
+    /**
+     * Gets the idempotency key of the payment request
+     * @return The client-supplied key, or null if none was sent
+     */
+    public String getIdempotencyKey() { return idempotencyKey; }
+    
+    /**
+     * Sets the idempotency key of the payment request
+     * @param idempotencyKey The client-supplied key
+     */
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
 }
@@ -3,6 +3,7 @@ package com.example.lms.model;
 // Spring Data MongoDB annotations for document mapping
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 // Java time API for date handling
 import java.time.LocalDate;
 
@@ -38,8 +39,12 @@ import java.time.LocalDate;
  * - BorrowRecord: Created when reservation is fulfilled
  * 
  * MongoDB Collection: "reservations"
+ * Indexes: (bookID, status) for per-book waitlist loading,
+ *          (status, expiryDate) for the hold expiry sweep
  */
 @Document(collection = "reservations") // Maps this class to the "reservations" collection in MongoDB
+@CompoundIndex(name = "book_status_idx", def = "{ 'bookID': 1, 'status': 1 }")
+@CompoundIndex(name = "status_expiry_idx", def = "{ 'status': 1, 'expiryDate': 1 }")
 public class Reservation {
     
     /**
@@ -80,7 +85,7 @@ public class Reservation {
      * 
      * Status determines what actions can be taken on the reservation
      */
-    private String status; // PENDING, APPROVED, CANCELLED, FULFILLED
+    private String status; // PENDING, APPROVED, CANCELLED, FULFILLED, EXPIRED
     
     /**
      * Date when the member was notified about book availability
@@ -159,13 +164,13 @@ public class Reservation {
     
     /**
      * Gets the current status of the reservation
-     * @return The status (PENDING, APPROVED, CANCELLED, or FULFILLED)
+     * @return The status (PENDING, APPROVED, CANCELLED, FULFILLED or EXPIRED)
      */
     public String getStatus() { return status; }
     
     /**
      * Sets the current status of the reservation
-     * @param status The status (PENDING, APPROVED, CANCELLED, or FULFILLED)
+     * @param status The status (PENDING, APPROVED, CANCELLED, FULFILLED or EXPIRED)
      */
     public void setStatus(String status) { this.status = status; }
     
@@ -5,6 +5,9 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 // Java time API for timestamp handling
 import java.time.LocalDateTime;
+// Java collections for per-category retention overrides
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * SystemSettings Entity - Represents configurable system parameters
@@ -135,6 +138,33 @@ public class SystemSettings {
      */
     private Integer overdueReminderDays;
     
+    /**
+     * Number of days a sent notification is kept before it expires
+     * Applied to every category without an entry in notificationRetentionByCategory
+     * Default: 90 days
+     */
+    private Integer notificationRetentionDays;
+    
+    /**
+     * Per-category retention overrides in days, keyed by notification category
+     * Example: { "GENERAL": 30, "FINE_NOTICE": 365 }
+     * Default: empty (all categories use notificationRetentionDays)
+     */
+    private Map<String, Integer> notificationRetentionByCategory;
+    
+    /**
+     * Whether sent notifications are written to compressed archive files before they expire
+     * Default: false (expired notifications are simply removed)
+     */
+    private Boolean notificationArchiveEnabled;
+    
+    /**
+     * Directory that receives the gzip-compressed notification archives
+     * Relative paths are resolved against the application working directory
+     * Default: "notification-archive"
+     */
+    private String notificationArchiveDirectory;
+    
     // =============================================================================
     // EMAIL CONFIGURATION SETTINGS
     // =============================================================================
@@ -171,7 +201,7 @@ public class SystemSettings {
     
     /**
      * SMS service provider name
-     * Example: "Twilio", "AWS SNS", "Nexmo"
+     * Example: "Twilio" (the only provider with a delivery channel)
      */
     private String smsProvider;
     
@@ -260,6 +290,10 @@ public class SystemSettings {
         this.smsNotificationsEnabled = false;    // Require explicit SMS setup
         this.dueDateReminderDays = 2;            // Remind 2 days before due date
         this.overdueReminderDays = 1;            // Remind 1 day after overdue
+        this.notificationRetentionDays = 90;     // Keep sent notifications for 90 days
+        this.notificationRetentionByCategory = new HashMap<>();
+        this.notificationArchiveEnabled = false; // No archive unless requested
+        this.notificationArchiveDirectory = "notification-archive";
     }
 
     // =============================================================================
@@ -416,6 +450,69 @@ public class SystemSettings {
      */
     public void setOverdueReminderDays(Integer overdueReminderDays) { this.overdueReminderDays = overdueReminderDays; }
     
+    /**
+     * Gets the default notification retention period
+     * @return Number of days sent notifications are kept
+     */
+    public Integer getNotificationRetentionDays() { return notificationRetentionDays; }
+    
+    /**
+     * Sets the default notification retention period
+     * @param notificationRetentionDays Number of days sent notifications are kept
+     */
+    public void setNotificationRetentionDays(Integer notificationRetentionDays) { this.notificationRetentionDays = notificationRetentionDays; }
+    
+    /**
+     * Gets the per-category retention overrides
+     * @return Map of notification category to retention days
+     */
+    public Map<String, Integer> getNotificationRetentionByCategory() { return notificationRetentionByCategory; }
+    
+    /**
+     * Sets the per-category retention overrides
+     * @param notificationRetentionByCategory Map of notification category to retention days
+     */
+    public void setNotificationRetentionByCategory(Map<String, Integer> notificationRetentionByCategory) { this.notificationRetentionByCategory = notificationRetentionByCategory; }
+    
+    /**
+     * Gets the notification archive toggle
+     * @return true if notifications are archived before they expire
+     */
+    public Boolean getNotificationArchiveEnabled() { return notificationArchiveEnabled; }
+    
+    /**
+     * Sets the notification archive toggle
+     * @param notificationArchiveEnabled true to archive notifications before they expire
+     */
+    public void setNotificationArchiveEnabled(Boolean notificationArchiveEnabled) { this.notificationArchiveEnabled = notificationArchiveEnabled; }
+    
+    /**
+     * Gets the notification archive directory
+     * @return Directory receiving compressed notification archives
+     */
+    public String getNotificationArchiveDirectory() { return notificationArchiveDirectory; }
+    
+    /**
+     * Sets the notification archive directory
+     * @param notificationArchiveDirectory Directory receiving compressed notification archives
+     */
+    public void setNotificationArchiveDirectory(String notificationArchiveDirectory) { this.notificationArchiveDirectory = notificationArchiveDirectory; }
+    
+    /**
+     * Resolves the retention period of a notification category
+     * @param category Notification category
+     * @return The category override if present, otherwise the default retention (90 days if unset)
+     */
+    public int getRetentionDaysFor(String category) {
+        if (category != null && notificationRetentionByCategory != null) {
+            Integer days = notificationRetentionByCategory.get(category);
+            if (days != null) {
+                return days;
+            }
+        }
+        return notificationRetentionDays != null ? notificationRetentionDays : 90;
+    }
+    
     // Email Configuration Getters and Setters
     
     /**
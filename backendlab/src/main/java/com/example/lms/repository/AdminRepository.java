@@ -2,8 +2,11 @@ package com.example.lms.repository;
 
 // Import the Admin model class
 import com.example.lms.model.Admin;
+// Summary projection used by list endpoints
+import com.example.lms.repository.projection.AdminSummary;
 // Spring Data MongoDB repository interface
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 // Spring stereotype annotation for repository beans
 import org.springframework.stereotype.Repository;
 // Java collections and optional classes
@@ -112,4 +115,31 @@ public interface AdminRepository extends MongoRepository<Admin, String> {
      * @return List of admin accounts with the specified role
      */
     List<Admin> findByRole(String role);
+    
+    /**
+     * Retrieves all admin accounts as lightweight summaries
+     * 
+     * Used by the admin list endpoint. The password hash and the Base64
+     * profile photo are excluded at the database level so they are neither
+     * transferred from MongoDB nor serialized to the client.
+     * 
+     * MongoDB Query: { } with projection { "password": 0, "profilePhoto": 0 }
+     * 
+     * @return List of all admin accounts without secret or heavy fields
+     */
+    @Query(value = "{}", fields = "{ 'password': 0, 'profilePhoto': 0 }")
+    List<AdminSummary> findAllSummaries();
+    
+    /**
+     * Finds admins by active status as lightweight summaries
+     * 
+     * Projected variant of findByActive for list endpoints.
+     * 
+     * MongoDB Query: { "active": active } with projection { "password": 0, "profilePhoto": 0 }
+     * 
+     * @param active true to find active admins, false for deactivated admins
+     * @return List of matching admin accounts without secret or heavy fields
+     */
+    @Query(value = "{ 'active': ?0 }", fields = "{ 'password': 0, 'profilePhoto': 0 }")
+    List<AdminSummary> findSummariesByActive(Boolean active);
 }
@@ -4,8 +4,11 @@ package com.example.lms.repository;
 import com.example.lms.model.BorrowRecord;
 // Spring Data MongoDB repository interface
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 // Spring stereotype annotation for repository beans
 import org.springframework.stereotype.Repository;
+// Java time API for due date queries
+import java.time.LocalDate;
 // Java collections class
 import java.util.List;
 
@@ -122,4 +125,21 @@ public interface BorrowRecordRepository extends MongoRepository<BorrowRecord, St
      * @return List of borrow records with the specified status
      */
     List<BorrowRecord> findByStatus(String status);
+    
+    /**
+     * Finds issued, unreturned loans that are past due but not yet marked overdue
+     * 
+     * Input of the nightly overdue pipeline. Served by the (status, dueDate)
+     * index; sorted by ID so each partition is processed in a stable order
+     * and can resume after its last checkpointed record.
+     * 
+     * MongoDB Query: { "status": "APPROVED", "returnDate": null,
+     *                  "dueDate": { $lt: today }, "overdue": { $ne: true } }
+     * 
+     * @param today Loans due strictly before this date are overdue
+     * @return Newly overdue borrow records ordered by ID
+     */
+    @Query(value = "{ 'status': 'APPROVED', 'returnDate': null, 'dueDate': { $lt: ?0 }, 'overdue': { $ne: true } }",
+           sort = "{ '_id': 1 }")
+    List<BorrowRecord> findNewlyOverdue(LocalDate today);
 }
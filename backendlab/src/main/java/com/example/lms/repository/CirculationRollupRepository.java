@@ -0,0 +1,52 @@
+package com.example.lms.repository;
+
+// Import the CirculationRollup model class
+import com.example.lms.model.CirculationRollup;
+// Spring Data MongoDB repository interface
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+// Spring stereotype annotation for repository beans
+import org.springframework.stereotype.Repository;
+// Java time and collection classes
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * CirculationRollupRepository Interface - Data Access Layer for circulation rollup buckets
+ * 
+ * Rollups are written by CirculationRollupService with atomic $inc upserts;
+ * this repository only serves the range reads of the trend reports. A year of
+ * daily buckets for one category is 365 documents, a year of monthly buckets 12.
+ */
+@Repository // Marks this interface as a Spring Data repository component
+public interface CirculationRollupRepository extends MongoRepository<CirculationRollup, String> {
+    
+    /**
+     * Finds the buckets of one category in a date range, oldest first
+     * 
+     * MongoDB Query: { "granularity": "granularity", "category": "category",
+     *                  "periodStart": { $gte: from, $lte: to } } sorted by { "periodStart": 1 }
+     * Served by the (granularity, category, periodStart) index
+     * 
+     * @param granularity DAY or MONTH
+     * @param category    Book category, or "ALL"
+     * @param from        First bucket start (inclusive)
+     * @param to          Last bucket start (inclusive)
+     * @return The buckets that have any activity, in date order
+     */
+    @Query(value = "{ 'granularity': ?0, 'category': ?1, 'periodStart': { $gte: ?2, $lte: ?3 } }", sort = "{ 'periodStart': 1 }")
+    List<CirculationRollup> findRange(String granularity, String category, LocalDate from, LocalDate to);
+    
+    /**
+     * Finds the buckets of every category in a date range
+     * 
+     * MongoDB Query: { "granularity": "granularity", "periodStart": { $gte: from, $lte: to } }
+     * 
+     * @param granularity DAY or MONTH
+     * @param from        First bucket start (inclusive)
+     * @param to          Last bucket start (inclusive)
+     * @return The buckets of all categories, including "ALL"
+     */
+    @Query("{ 'granularity': ?0, 'periodStart': { $gte: ?1, $lte: ?2 } }")
+    List<CirculationRollup> findRangeAllCategories(String granularity, LocalDate from, LocalDate to);
+}
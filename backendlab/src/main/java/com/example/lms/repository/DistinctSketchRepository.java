@@ -0,0 +1,39 @@
+package com.example.lms.repository;
+
+// Import the DistinctSketch model class
+import com.example.lms.model.DistinctSketch;
+// Spring Data MongoDB repository interface
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+// Spring stereotype annotation for repository beans
+import org.springframework.stereotype.Repository;
+// Java time and stream classes
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+/**
+ * DistinctSketchRepository Interface - Data Access Layer for daily distinct-count sketches
+ *
+ * Sketches are merged and written by DistinctCountService with version-guarded
+ * updates; this repository serves the window reads. Reads are streamed so a
+ * window of several years never holds more than one sketch per cursor batch.
+ */
+@Repository // Marks this interface as a Spring Data repository component
+public interface DistinctSketchRepository extends MongoRepository<DistinctSketch, String> {
+
+    /**
+     * Streams the daily sketches of one metric in a date range
+     *
+     * MongoDB Query: { "metric": "metric", "day": { $gte: from, $lte: to } }
+     * Served by the (metric, day) index
+     *
+     * The stream holds an open cursor and must be closed (try-with-resources).
+     *
+     * @param metric BORROWERS, TITLES, OVERDUE_MEMBERS or OVERDUE_TITLES
+     * @param from   First day (inclusive)
+     * @param to     Last day (inclusive)
+     * @return The sketches of the days that have any activity
+     */
+    @Query("{ 'metric': ?0, 'day': { $gte: ?1, $lte: ?2 } }")
+    Stream<DistinctSketch> streamRange(String metric, LocalDate from, LocalDate to);
+}
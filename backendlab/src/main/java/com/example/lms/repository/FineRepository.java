@@ -6,7 +6,8 @@ import com.example.lms.model.Fine;
 import org.springframework.data.mongodb.repository.MongoRepository;
 // Spring stereotype annotation for repository beans
 import org.springframework.stereotype.Repository;
-// Java collections class
+// Java collections classes
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -93,4 +94,17 @@ public interface FineRepository extends MongoRepository<Fine, String> {
      * @return List of fines associated with the specified borrow record
      */
     List<Fine> findByBorrowRecordID(String borrowRecordID);
+    
+    /**
+     * Finds a member's fines that have one of the given statuses
+     * 
+     * Used to list a member's open fines without loading their settled ones.
+     * 
+     * MongoDB Query: { "memberID": "memberID", "status": { $in: statuses } }
+     * 
+     * @param memberID The ID of the member whose fines to retrieve
+     * @param statuses Fine statuses to include (e.g. UNPAID, PARTIALLY_PAID)
+     * @return List of the member's fines with those statuses
+     */
+    List<Fine> findByMemberIDAndStatusIn(String memberID, Collection<String> statuses);
 }
@@ -2,8 +2,11 @@ package com.example.lms.repository;
 
 // Import the Librarian model class
 import com.example.lms.model.Librarian;
+// Summary projection used by list endpoints
+import com.example.lms.repository.projection.LibrarianSummary;
 // Spring Data MongoDB repository interface
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 // Spring stereotype annotation for repository beans
 import org.springframework.stereotype.Repository;
 
@@ -95,4 +98,30 @@ public interface LibrarianRepository extends MongoRepository<Librarian, String>
      * @return List of all active librarian accounts
      */
     List<Librarian> findByActiveTrue();
+    
+    /**
+     * Retrieves all librarian accounts as lightweight summaries
+     * 
+     * Used by the librarian list endpoint. The password hash is excluded at
+     * the database level so it is neither transferred from MongoDB nor
+     * serialized to the client.
+     * 
+     * MongoDB Query: { } with projection { "password": 0 }
+     * 
+     * @return List of all librarian accounts without the password field
+     */
+    @Query(value = "{}", fields = "{ 'password': 0 }")
+    List<LibrarianSummary> findAllSummaries();
+    
+    /**
+     * Finds all active librarian accounts as lightweight summaries
+     * 
+     * Projected variant of findByActiveTrue for list endpoints.
+     * 
+     * MongoDB Query: { "active": true } with projection { "password": 0 }
+     * 
+     * @return List of active librarian accounts without the password field
+     */
+    @Query(value = "{ 'active': true }", fields = "{ 'password': 0 }")
+    List<LibrarianSummary> findActiveSummaries();
 }
@@ -0,0 +1,34 @@
+package com.example.lms.repository;
+
+// Import the MemberBalance model class
+import com.example.lms.model.MemberBalance;
+// Spring Data MongoDB repository interface
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+// Spring stereotype annotation for repository beans
+import org.springframework.stereotype.Repository;
+// Java stream class
+import java.util.stream.Stream;
+
+/**
+ * MemberBalanceRepository Interface - Data Access Layer for member fine balances
+ *
+ * Balances are changed by MemberBalanceService with atomic $inc upserts; this
+ * repository serves the keyed balance reads (findById) and the full scan of
+ * the reconciliation job.
+ */
+@Repository // Marks this interface as a Spring Data repository component
+public interface MemberBalanceRepository extends MongoRepository<MemberBalance, String> {
+
+    /**
+     * Streams every balance for reconciliation
+     *
+     * MongoDB Query: { }
+     *
+     * The stream holds an open cursor and must be closed (try-with-resources).
+     *
+     * @return All member balances
+     */
+    @Query("{}")
+    Stream<MemberBalance> streamAll();
+}
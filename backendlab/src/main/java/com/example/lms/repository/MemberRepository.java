@@ -2,11 +2,15 @@ package com.example.lms.repository;
 
 // Import the Member model class
 import com.example.lms.model.Member;
+// Summary projection used by list endpoints
+import com.example.lms.repository.projection.MemberSummary;
 // Spring Data MongoDB repository interface
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 // Spring stereotype annotation for repository beans
 import org.springframework.stereotype.Repository;
 // Java collections and optional classes
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -127,4 +131,48 @@ public interface MemberRepository extends MongoRepository<Member, String> {
      * @return List of members with the specified role
      */
     List<Member> findByRole(String role);
+    
+    /**
+     * Retrieves all members as lightweight summaries
+     * 
+     * Used by the member list endpoint. The password hash is excluded at the
+     * database level so it is neither transferred from MongoDB nor serialized
+     * to the client.
+     * 
+     * MongoDB Query: { } with projection { "password": 0 }
+     * 
+     * @return List of all members without the password field
+     */
+    @Query(value = "{}", fields = "{ 'password': 0 }")
+    List<MemberSummary> findAllSummaries();
+    
+    /**
+     * Finds members by active status as lightweight summaries
+     * 
+     * Projected variant of findByActive for list endpoints.
+     * 
+     * MongoDB Query: { "active": active } with projection { "password": 0 }
+     * 
+     * @param active true to find active members, false for deactivated members
+     * @return List of matching members without the password field
+     */
+    @Query(value = "{ 'active': ?0 }", fields = "{ 'password': 0 }")
+    List<MemberSummary> findSummariesByActive(Boolean active);
+    
+    /**
+     * Resolves a batch of members with only their contact details loaded
+     * 
+     * Used by scheduled jobs that notify many members at once: one query per
+     * chunk of member IDs replaces a findById per record. The returned Member
+     * objects are partial; only id, name, email, contact and the reminder
+     * preference are populated, so they must never be saved back.
+     * 
+     * MongoDB Query: { "_id": { $in: ids } } with projection
+     *                { "name": 1, "email": 1, "contact": 1, "digestReminders": 1 }
+     * 
+     * @param ids The member IDs to resolve
+     * @return Partial members for the IDs that exist
+     */
+    @Query(value = "{ '_id': { $in: ?0 } }", fields = "{ 'name': 1, 'email': 1, 'contact': 1, 'digestReminders': 1 }")
+    List<Member> findContactsByIdIn(Collection<String> ids);
 }
@@ -0,0 +1,24 @@
+package com.example.lms.repository;
+
+// Import the NotificationTemplate model class
+import com.example.lms.model.NotificationTemplate;
+// Spring Data MongoDB repository interface
+import org.springframework.data.mongodb.repository.MongoRepository;
+// Spring stereotype annotation for repository beans
+import org.springframework.stereotype.Repository;
+
+/**
+ * NotificationTemplateRepository Interface - Data Access Layer for notification templates
+ * 
+ * Holds only the templates an administrator has edited; categories without a
+ * document use their built-in template. The collection is small (one document
+ * per category) and is always read in full, so no custom queries are needed.
+ * 
+ * Inherited Operations (from MongoRepository):
+ * - findAll(): Load every edited template
+ * - save(NotificationTemplate template): Create or replace a category's template
+ * - deleteById(String category): Restore a category's built-in template
+ */
+@Repository // Marks this interface as a Spring Data repository component
+public interface NotificationTemplateRepository extends MongoRepository<NotificationTemplate, String> {
+}
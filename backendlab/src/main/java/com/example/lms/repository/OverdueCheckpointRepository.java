@@ -0,0 +1,40 @@
+package com.example.lms.repository;
+
+// Import the OverdueCheckpoint model class
+import com.example.lms.model.OverdueCheckpoint;
+// Spring Data MongoDB repository interface
+import org.springframework.data.mongodb.repository.MongoRepository;
+// Spring stereotype annotation for repository beans
+import org.springframework.stereotype.Repository;
+// Java collections and optional classes
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * OverdueCheckpointRepository Interface - Data Access Layer for overdue pipeline checkpoints
+ * 
+ * One checkpoint document exists per partition of each nightly overdue run.
+ * Used to resume interrupted partitions and to report run progress.
+ */
+@Repository // Marks this interface as a Spring Data repository component
+public interface OverdueCheckpointRepository extends MongoRepository<OverdueCheckpoint, String> {
+    
+    /**
+     * Finds all partition checkpoints of a run
+     * 
+     * MongoDB Query: { "runKey": "runKey" }
+     * 
+     * @param runKey The run to look up (the run date)
+     * @return Checkpoints of every partition started in that run
+     */
+    List<OverdueCheckpoint> findByRunKey(String runKey);
+    
+    /**
+     * Finds the most recently started checkpoint, identifying the latest run
+     * 
+     * MongoDB Query: { } sorted by { "startedAt": -1 }, limit 1
+     * 
+     * @return The latest checkpoint, if any run has started
+     */
+    Optional<OverdueCheckpoint> findFirstByOrderByStartedAtDesc();
+}
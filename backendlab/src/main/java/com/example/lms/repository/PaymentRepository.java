@@ -8,6 +8,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 // Java collections class
 import java.util.List;
+import java.util.Optional;
 
 /**
  * PaymentRepository Interface - Data Access Layer for Payment entities
@@ -70,4 +71,17 @@ public interface PaymentRepository extends MongoRepository<Payment, String> {
      * @return List of all payments applied to the specified fine
      */
     List<Payment> findByFineID(String fineID);
+    
+    /**
+     * Finds the payment recorded for an idempotency key
+     * 
+     * Used to answer a retried payment request with the payment of the
+     * first attempt. Served by the unique idempotencyKey index.
+     * 
+     * MongoDB Query: { "idempotencyKey": "idempotencyKey" }
+     * 
+     * @param idempotencyKey The client-supplied key of the payment request
+     * @return The payment, or empty if no payment was recorded with the key
+     */
+    Optional<Payment> findByIdempotencyKey(String idempotencyKey);
 }
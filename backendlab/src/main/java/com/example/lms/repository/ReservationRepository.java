@@ -4,8 +4,11 @@ package com.example.lms.repository;
 import com.example.lms.model.Reservation;
 // Spring Data MongoDB repository interface
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 // Spring stereotype annotation for repository beans
 import org.springframework.stereotype.Repository;
+// Java time API for expiry queries
+import java.time.LocalDate;
 // Java collections class
 import java.util.List;
 
@@ -93,4 +96,36 @@ public interface ReservationRepository extends MongoRepository<Reservation, Stri
      * @return List of reservations with the specified status
      */
     List<Reservation> findByStatus(String status);
+    
+    /**
+     * Finds the waitlist of a book in first-come, first-served order
+     * 
+     * A reservation is waiting while it is PENDING or APPROVED and no copy
+     * has been allocated to it yet (notifiedDate not set). Ties on the same
+     * reservation date are broken by the ObjectId, which grows with insertion
+     * time. Used to (re)build the in-memory reservation queue of a book.
+     * 
+     * MongoDB Query: { "bookID": "bookID", "status": { $in: ["PENDING", "APPROVED"] }, "notifiedDate": null }
+     * Sort: { "reservationDate": 1, "_id": 1 }
+     * 
+     * @param bookID The ID of the book whose waitlist to retrieve
+     * @return Waiting reservations for the book, head of the queue first
+     */
+    @Query(value = "{ 'bookID': ?0, 'status': { $in: ['PENDING', 'APPROVED'] }, 'notifiedDate': null }",
+           sort = "{ 'reservationDate': 1, '_id': 1 }")
+    List<Reservation> findWaitingByBookID(String bookID);
+    
+    /**
+     * Finds all reservations with a given status whose expiry date has passed
+     * 
+     * Served by the (status, expiryDate) compound index, so only expired
+     * holds are read instead of every APPROVED reservation.
+     * 
+     * MongoDB Query: { "status": "status", "expiryDate": { $lt: date } }
+     * 
+     * @param status The status to filter by (normally APPROVED)
+     * @param date Reservations expiring strictly before this date are returned
+     * @return All expired reservations with the given status
+     */
+    List<Reservation> findByStatusAndExpiryDateBefore(String status, LocalDate date);
 }
@@ -0,0 +1,45 @@
+package com.example.lms.repository.projection;
+
+// Java time API for timestamp fields
+import java.time.LocalDateTime;
+// Java collections for permissions list
+import java.util.List;
+
+/**
+ * AdminSummary Projection - Lightweight read view of an Admin document
+ * 
+ * Closed interface projection used by the admin list endpoints. Only the
+ * properties declared here are requested from MongoDB, so the password hash
+ * and the Base64 encoded profile photo never leave the database on list calls.
+ * 
+ * Excluded Fields:
+ * - password: Secret, must never be serialized to clients
+ * - profilePhoto: Base64 data URL (can be several MB per admin),
+ *   served separately by GET /api/admins/{id}/profile-photo
+ * 
+ * MongoDB Collection: "admins"
+ */
+public interface AdminSummary {
+    
+    String getId();
+    
+    String getUsername();
+    
+    String getEmail();
+    
+    String getFullName();
+    
+    String getPhone();
+    
+    String getRole();
+    
+    List<String> getPermissions();
+    
+    Boolean getActive();
+    
+    LocalDateTime getCreatedDate();
+    
+    LocalDateTime getLastLogin();
+    
+    String getCreatedBy();
+}
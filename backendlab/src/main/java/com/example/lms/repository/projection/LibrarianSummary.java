@@ -0,0 +1,35 @@
+package com.example.lms.repository.projection;
+
+// Java Date class for timestamp fields
+import java.util.Date;
+
+/**
+ * LibrarianSummary Projection - Lightweight read view of a Librarian document
+ * 
+ * Closed interface projection used by the librarian list endpoints. Only the
+ * properties declared here are requested from MongoDB, so the BCrypt password
+ * hash is never read or serialized on list calls.
+ * 
+ * Excluded Fields:
+ * - password: Secret, must never be serialized to clients
+ * 
+ * MongoDB Collection: "librarians"
+ */
+public interface LibrarianSummary {
+    
+    String getId();
+    
+    String getUsername();
+    
+    String getName();
+    
+    String getEmail();
+    
+    String getPhone();
+    
+    boolean isActive();
+    
+    Date getCreatedAt();
+    
+    Date getUpdatedAt();
+}
@@ -0,0 +1,41 @@
+package com.example.lms.repository.projection;
+
+// Java Date class for timestamp fields
+import java.util.Date;
+
+/**
+ * MemberSummary Projection - Lightweight read view of a Member document
+ * 
+ * Closed interface projection used by the member list endpoints. Only the
+ * properties declared here are requested from MongoDB, so the BCrypt password
+ * hash is never read or serialized on list calls.
+ * 
+ * Excluded Fields:
+ * - password: Secret, must never be serialized to clients
+ * 
+ * MongoDB Collection: "members"
+ */
+public interface MemberSummary {
+    
+    String getId();
+    
+    String getName();
+    
+    String getUsername();
+    
+    String getEmail();
+    
+    String getContact();
+    
+    String getMembershipID();
+    
+    Boolean getActive();
+    
+    String getRole();
+    
+    Boolean getDigestReminders();
+    
+    Date getCreatedAt();
+    
+    Date getUpdatedAt();
+}
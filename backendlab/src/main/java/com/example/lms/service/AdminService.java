@@ -2,6 +2,7 @@ package com.example.lms.service;
 
 import com.example.lms.model.Admin;
 import com.example.lms.repository.AdminRepository;
+import com.example.lms.repository.projection.AdminSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -27,12 +28,13 @@ public class AdminService {
         "MANAGE_ADMINS"
     );
     
-    public List<Admin> getAllAdmins() {
-        return adminRepository.findAll();
+    // List views use the summary projection so passwords and profile photos stay in the database
+    public List<AdminSummary> getAllAdmins() {
+        return adminRepository.findAllSummaries();
     }
     
-    public List<Admin> getActiveAdmins() {
-        return adminRepository.findByActive(true);
+    public List<AdminSummary> getActiveAdmins() {
+        return adminRepository.findSummariesByActive(true);
     }
     
     public Admin getAdminById(String id) {
@@ -2,20 +2,26 @@ package com.example.lms.service;
 
 import com.example.lms.model.BorrowRecord;
 import com.example.lms.model.Fine;
-import com.example.lms.model.Member;
+import com.example.lms.model.Money;
 import com.example.lms.model.SystemSettings;
 import com.example.lms.repository.BorrowRecordRepository;
 import com.example.lms.repository.FineRepository;
-import com.example.lms.repository.MemberRepository;
 import com.example.lms.repository.SystemSettingsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -27,8 +33,11 @@ import java.util.stream.Collectors;
  * 3. Send notifications for new fines
  * 
  * Scheduled Tasks:
- * - Daily overdue check (runs at 2 AM every day)
+ * - Daily overdue check (runs at 2 AM every day, partitioned and resumable; see OverduePipelineService)
  * - Weekly fine report generation (runs every Sunday at 6 AM)
+ * 
+ * When several nodes are running, each task is executed by one node only
+ * (see JobLeaseService); the others skip that run.
  */
 @Service
 public class AutomatedFineService {
@@ -39,9 +48,6 @@ public class AutomatedFineService {
     @Autowired
     private FineRepository fineRepository;
     
-    @Autowired
-    private MemberRepository memberRepository;
-    
     @Autowired
     private SystemSettingsRepository systemSettingsRepository;
     
@@ -51,6 +57,24 @@ public class AutomatedFineService {
     @Autowired(required = false)
     private NotificationService notificationService;
     
+    @Autowired
+    private JobLeaseService jobLeaseService;
+    
+    @Autowired
+    private OverduePipelineService overduePipelineService;
+    
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+    
+    @Autowired
+    private DistinctCountService distinctCountService;
+    
+    @Autowired
+    private MemberBalanceService memberBalanceService;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
     /**
      * Get system settings with defaults if none exist
      */
@@ -69,72 +93,7 @@ public class AutomatedFineService {
      */
     @Scheduled(cron = "0 0 2 * * ?")
     public void processOverdueBooks() {
-        System.out.println("Starting automated overdue book processing...");
-        
-        try {
-            LocalDate today = LocalDate.now();
-            
-            // Find all approved borrows that are overdue but not yet marked as such
-            List<BorrowRecord> overdueBorrows = borrowRecordRepository.findAll().stream()
-                .filter(record -> "APPROVED".equals(record.getStatus()))
-                .filter(record -> record.getReturnDate() == null) // Not yet returned
-                .filter(record -> record.getDueDate() != null && record.getDueDate().isBefore(today))
-                .filter(record -> !Boolean.TRUE.equals(record.getOverdue())) // Not already marked overdue
-                .collect(Collectors.toList());
-            
-            int processedCount = 0;
-            int finesCreated = 0;
-            
-            for (BorrowRecord record : overdueBorrows) {
-                try {
-                    // Mark as overdue
-                    record.setOverdue(true);
-                    borrowRecordRepository.save(record);
-                    processedCount++;
-                    
-                    // Check if fine already exists
-                    List<Fine> existingFines = fineRepository.findByBorrowRecordID(record.getId());
-                    if (existingFines.isEmpty() && fineService != null) {
-                        // Create overdue fine
-                        SystemSettings settings = getSystemSettings();
-                        long daysOverdue = ChronoUnit.DAYS.between(record.getDueDate(), today);
-                        
-                        Fine fine = new Fine();
-                        fine.setMemberID(record.getMemberID());
-                        fine.setBorrowRecordID(record.getId());
-                        fine.setAmount(daysOverdue * settings.getFinePerDay());
-                        fine.setAmountPaid(0.0);
-                        fine.setReason("Overdue return: " + daysOverdue + " days late (auto-generated)");
-                        fine.setIssueDate(today);
-                        fine.setStatus("UNPAID");
-                        
-                        Fine savedFine = fineRepository.save(fine);
-                        finesCreated++;
-                        
-                        // Send notification
-                        if (notificationService != null) {
-                            try {
-                                Optional<Member> optMember = memberRepository.findById(record.getMemberID());
-                                if (optMember.isPresent()) {
-                                    notificationService.createFineNotification(savedFine, optMember.get());
-                                }
-                            } catch (Exception e) {
-                                System.err.println("Failed to send fine notification for record " + record.getId() + ": " + e.getMessage());
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.println("Failed to process overdue record " + record.getId() + ": " + e.getMessage());
-                }
-            }
-            
-            System.out.println("Automated overdue processing completed:");
-            System.out.println("- Records marked as overdue: " + processedCount);
-            System.out.println("- New fines created: " + finesCreated);
-            
-        } catch (Exception e) {
-            System.err.println("Error in automated overdue processing: " + e.getMessage());
-        }
+        overduePipelineService.run(LocalDate.now());
     }
     
     /**
@@ -143,37 +102,64 @@ public class AutomatedFineService {
      */
     @Scheduled(cron = "0 0 3 * * ?")
     public void updateOverdueFines() {
+        jobLeaseService.runOnce("updateOverdueFines", LocalDate.now().toString(), this::updateOverdueFines);
+    }
+    
+    /**
+     * Fine update body, run by the node holding the job lease
+     */
+    private void updateOverdueFines(JobLeaseService.Lease lease) {
         System.out.println("Starting automated overdue fine updates...");
         
         try {
             LocalDate today = LocalDate.now();
             SystemSettings settings = getSystemSettings();
+            long finePerDayCents = Money.toCents(settings.getFinePerDay());
             
-            // Find all unpaid overdue fines
-            List<Fine> overdueFines = fineRepository.findAll().stream()
-                .filter(fine -> "UNPAID".equals(fine.getStatus()) || "PARTIALLY_PAID".equals(fine.getStatus()))
-                .filter(fine -> fine.getReason() != null && fine.getReason().contains("Overdue return"))
-                .filter(fine -> fine.getBorrowRecordID() != null)
-                .collect(Collectors.toList());
+            // Unpaid overdue fines, selected by MongoDB, and their borrow records in one query
+            Query openOverdue = new Query(Criteria.where("status").in("UNPAID", "PARTIALLY_PAID")
+                .and("reason").regex("Overdue return")
+                .and("borrowRecordID").ne(null));
+            List<Fine> overdueFines = mongoTemplate.find(openOverdue, Fine.class);
+            Map<String, BorrowRecord> records = new HashMap<>();
+            borrowRecordRepository.findAllById(overdueFines.stream().map(Fine::getBorrowRecordID).distinct()
+                .collect(Collectors.toList())).forEach(record -> records.put(record.getId(), record));
             
             int updatedCount = 0;
             
             for (Fine fine : overdueFines) {
+                if (!lease.isHeld()) {
+                    System.err.println("Overdue fine updates stopped: job lease lost to another node");
+                    break;
+                }
                 try {
-                    Optional<BorrowRecord> optRecord = borrowRecordRepository.findById(fine.getBorrowRecordID());
-                    if (optRecord.isPresent()) {
-                        BorrowRecord record = optRecord.get();
+                    BorrowRecord record = records.get(fine.getBorrowRecordID());
+                    
+                    // Only update if book is still not returned
+                    if (record != null && record.getReturnDate() == null && record.getDueDate() != null) {
+                        long totalDaysOverdue = ChronoUnit.DAYS.between(record.getDueDate(), today);
+                        long newAmountCents = totalDaysOverdue * finePerDayCents;
                         
-                        // Only update if book is still not returned
-                        if (record.getReturnDate() == null && record.getDueDate() != null) {
-                            long totalDaysOverdue = ChronoUnit.DAYS.between(record.getDueDate(), today);
-                            Double newAmount = totalDaysOverdue * settings.getFinePerDay();
+                        // Only update if the amount has increased
+                        if (newAmountCents > fine.getAmountCents()) {
+                            long delta = newAmountCents - fine.getAmountCents();
                             
-                            // Only update if the amount has increased
-                            if (newAmount > fine.getAmount()) {
-                                fine.setAmount(newAmount);
-                                fine.setReason("Overdue return: " + totalDaysOverdue + " days late (auto-updated)");
-                                fineRepository.save(fine);
+                            // Conditional on the amount read and the fine still being open, so a
+                            // payment, waiver or edit made meanwhile is never overwritten
+                            Query query = new Query(Criteria.where("_id").is(fine.getId())
+                                .and("status").in("UNPAID", "PARTIALLY_PAID")
+                                .and("amountCents").is(fine.getAmountCents()));
+                            Update update = new Update()
+                                .inc("amountCents", delta)
+                                .set("reason", "Overdue return: " + totalDaysOverdue + " days late (auto-updated)");
+                            Fine updated = mongoTemplate.findAndModify(query, update,
+                                FindAndModifyOptions.options().returnNew(true), Fine.class);
+                            if (updated != null) {
+                                // Only amountCents changed: the fine was open and owed delta less
+                                MemberBalanceService.FineState before = new MemberBalanceService.FineState(
+                                    updated.getMemberID(), updated.getAmountDueCents() - delta, true);
+                                circulationRollupService.recordFineAdjustment(updated, delta);
+                                memberBalanceService.recordFineChange(before, updated);
                                 updatedCount++;
                             }
                         }
@@ -206,11 +192,13 @@ public class AutomatedFineService {
                 .filter(record -> record.getDueDate() != null && record.getDueDate().isBefore(today))
                 .collect(Collectors.toList());
             
+            List<BorrowRecord> newlyOverdue = new ArrayList<>();
             for (BorrowRecord record : overdueBorrows) {
                 try {
                     if (!Boolean.TRUE.equals(record.getOverdue())) {
                         record.setOverdue(true);
                         borrowRecordRepository.save(record);
+                        newlyOverdue.add(record);
                         result.recordsProcessed++;
                     }
                     
@@ -224,6 +212,8 @@ public class AutomatedFineService {
                 }
             }
             
+            circulationRollupService.recordOverdue(newlyOverdue);
+            distinctCountService.recordOverdue(newlyOverdue);
             result.success = true;
             
         } catch (Exception e) {
@@ -283,9 +273,9 @@ public class AutomatedFineService {
                 .filter(fine -> "UNPAID".equals(fine.getStatus()) || "PARTIALLY_PAID".equals(fine.getStatus()))
                 .collect(Collectors.toList());
             
-            stats.totalOutstandingAmount = outstandingFines.stream()
-                .mapToDouble(fine -> fine.getAmountDue())
-                .sum();
+            stats.totalOutstandingAmount = Money.toAmount(outstandingFines.stream()
+                .mapToLong(Fine::getAmountDueCents)
+                .sum());
             
         } catch (Exception e) {
             System.err.println("Error calculating overdue statistics: " + e.getMessage());
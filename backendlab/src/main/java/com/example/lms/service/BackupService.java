@@ -24,6 +24,9 @@ public class BackupService {
     @Autowired
     private MemberRepository memberRepository;
     
+    @Autowired
+    private EntityCacheService entityCacheService;
+    
     @Autowired
     private BorrowRecordRepository borrowRecordRepository;
     
@@ -39,6 +42,9 @@ public class BackupService {
     @Autowired
     private SystemSettingsRepository settingsRepository;
     
+    @Autowired
+    private MemberBalanceService memberBalanceService;
+    
     private final ObjectMapper objectMapper;
     
     public BackupService() {
@@ -94,6 +100,7 @@ public class BackupService {
                 for (Map<String, Object> bookData : books) {
                     Book book = objectMapper.convertValue(bookData, Book.class);
                     bookRepository.save(book);
+                    entityCacheService.invalidateBook(book.getId());
                 }
             }
             
@@ -103,6 +110,7 @@ public class BackupService {
                 for (Map<String, Object> memberData : members) {
                     Member member = objectMapper.convertValue(memberData, Member.class);
                     memberRepository.save(member);
+                    entityCacheService.invalidateMember(member.getId());
                 }
             }
             
@@ -131,6 +139,13 @@ public class BackupService {
                     Fine fine = objectMapper.convertValue(fineData, Fine.class);
                     fineRepository.save(fine);
                 }
+                
+                // Restored fines bypass the balance ledger; rebuild it from them
+                try {
+                    memberBalanceService.reconcileNow();
+                } catch (Exception e) {
+                    System.err.println("Balance reconciliation after restore failed: " + e.getMessage());
+                }
             }
             
             // Restore payments
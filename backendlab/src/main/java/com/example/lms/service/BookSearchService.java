@@ -0,0 +1,381 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Book;
+import com.example.lms.repository.BookRepository;
+import com.example.lms.service.search.BookSearchIndex;
+import com.example.lms.service.search.FacetIndex;
+import com.example.lms.service.search.SuggestionTrie;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * BookSearchService - Ranked, typo-tolerant search and typeahead over the catalog
+ *
+ * Keeps three in-memory structures of the catalog:
+ * - BookSearchIndex of every book's title, author, category and ISBN, so a
+ *   search is a few postings-list scans plus one findAllById for the page
+ *   of results, instead of an unanchored $regex over the whole collection
+ * - SuggestionTrie of titles and authors, weighted by how often each book
+ *   was borrowed, answering prefix completions without touching MongoDB
+ * - FacetIndex bitmaps per category, author and availability, so browse
+ *   pages come with facet counts computed by bitwise ANDs
+ *
+ * All three are kept in sync with writes:
+ * - BookService and CatalogImportService report every book they add, change
+ *   or delete; BorrowService and MemberService report copies lent and
+ *   returned (availability) and approved loans (suggestion weights)
+ * - A full rebuild from MongoDB runs at startup (in the background; searches
+ *   fall back to the repository queries until it completes) and every 15
+ *   minutes, picking up changes made by other nodes or outside the
+ *   application and dropping the documents of replaced books. Changes that
+ *   arrive while a rebuild streams the collection are replayed onto the new
+ *   index before it is swapped in.
+ *
+ * Only whether copies are available is indexed (as a facet); results are
+ * read from MongoDB, so they always show the current number of copies.
+ */
+@Service
+public class BookSearchService implements SmartInitializingSingleton {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    // Statuses of loans that were handed out, as in the circulation rollups
+    private static final List<String> HANDED_OUT = List.of("APPROVED", "RETURNED", "LOST", "DAMAGED");
+
+    // Ranked results a faceted search filters and pages
+    private static final int MAX_RANKED = 1000;
+
+    // Null until the first build completes
+    private volatile Indexes indexes;
+
+    // Guards index swaps against concurrent changes
+    private final Object changeLock = new Object();
+
+    // Changes made during a rebuild, replayed onto the new structures; null when no rebuild runs
+    private List<Consumer<Indexes>> replay;
+
+    private volatile Map<String, Object> lastRebuild;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Thread.ofVirtual().name("book-search-index").start(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                System.err.println("Book search index build failed: " + e.getMessage());
+            }
+        });
+    }
+
+    @Scheduled(initialDelay = 900000, fixedDelay = 900000)
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("Book search index rebuild failed: " + e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return indexes != null;
+    }
+
+    /**
+     * Add or replace a book in the index after it was saved
+     */
+    public void indexBook(Book book) {
+        apply(current -> current.add(book, null));
+    }
+
+    public void indexBooks(List<Book> books) {
+        apply(current -> books.forEach(book -> current.add(book, null)));
+    }
+
+    public void removeBook(String bookId) {
+        apply(current -> {
+            current.search.remove(bookId);
+            current.suggestions.remove(bookId);
+            current.facets.remove(bookId);
+        });
+    }
+
+    /**
+     * Count an approved loan towards the book's popularity in the suggestions
+     */
+    public void recordBorrow(String bookId) {
+        apply(current -> current.suggestions.addPopularity(bookId, 1));
+    }
+
+    /**
+     * Update the availability facet after copies were lent or returned
+     */
+    public void recordAvailability(Book book) {
+        apply(current -> current.facets.put(book));
+    }
+
+    /**
+     * Titles and authors starting with the typed text, most borrowed first
+     *
+     * @param prefix Typed text
+     * @param limit  Maximum suggestions (at most SuggestionTrie.TOP_K)
+     * @return The suggestions; empty while the first build runs
+     */
+    public List<SuggestionTrie.Suggestion> suggest(String prefix, int limit) {
+        Indexes current = indexes;
+        return current != null ? current.suggestions.suggest(prefix, limit) : new ArrayList<>();
+    }
+
+    /**
+     * Books matching the query, most relevant first
+     *
+     * @param query     Free text, e.g. "tolkein hobit" or an ISBN
+     * @param fieldMask Fields to match (BookSearchIndex.TITLE etc. as bits)
+     * @param limit     Maximum number of books
+     * @throws RuntimeException if the index is still being built (see isReady)
+     */
+    public List<Book> search(String query, int fieldMask, int limit) {
+        List<String> ids = new ArrayList<>();
+        ready().search.search(query, fieldMask, limit).forEach(hit -> ids.add(hit.getBookId()));
+        return loadInOrder(ids);
+    }
+
+    /**
+     * One page of books with facet counts
+     *
+     * Without a query the books are sorted by title and the page is read
+     * with one filtered query; with a query the best MAX_RANKED results are
+     * filtered and paged in relevance order. Counts and the total always
+     * come from the facet bitmaps and cover every book the query matches;
+     * totalPages only counts the pages that can be read.
+     *
+     * @param query      Free text, or null to browse the whole catalog
+     * @param filters    Selected values per facet (category, author, availability)
+     * @param page       Page number, starting at 0
+     * @param size       Books per page
+     * @param facetLimit Values returned per facet
+     * @throws RuntimeException if the index is still being built or a filter value is invalid
+     */
+    public Map<String, Object> browse(String query, Map<String, List<String>> filters, int page, int size,
+                                      int facetLimit) {
+        Indexes current = ready();
+        List<String> availability = filters.getOrDefault(FacetIndex.AVAILABILITY, List.of());
+        for (String value : availability) {
+            if (!FacetIndex.AVAILABLE.equals(value) && !FacetIndex.UNAVAILABLE.equals(value)) {
+                throw new RuntimeException("Unknown availability: " + value);
+            }
+        }
+
+        FacetIndex.Counts counts;
+        List<Book> books;
+        boolean ranked = query != null && !query.isBlank();
+        int pageable;
+        if (ranked) {
+            List<String> ids = new ArrayList<>();
+            current.search.search(query, BookSearchIndex.ALL_FIELDS, MAX_RANKED).forEach(hit -> ids.add(hit.getBookId()));
+            List<String> matching = current.search.matchingBookIds(query, BookSearchIndex.ALL_FIELDS);
+            counts = current.facets.count(ids, matching, filters, facetLimit);
+            List<String> matches = counts.getMatches();
+            pageable = matches.size();
+            int from = (int) Math.min((long) page * size, matches.size());
+            books = loadInOrder(matches.subList(from, Math.min(from + size, matches.size())));
+        } else {
+            counts = current.facets.count(null, filters, facetLimit);
+            pageable = counts.getTotal();
+            books = counts.getTotal() == 0 ? new ArrayList<>() : mongoTemplate.find(
+                pageQuery(filters).with(Sort.by("title", "_id")).skip((long) page * size).limit(size),
+                Book.class);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", counts.getTotal());
+        result.put("page", page);
+        result.put("size", size);
+        result.put("totalPages", (pageable + size - 1) / size);
+        result.put("order", ranked ? "RELEVANCE" : "TITLE");
+        result.put("books", books);
+        result.put("facets", counts.getFacets());
+        return result;
+    }
+
+    /**
+     * Build new indexes from the books collection and swap them in
+     *
+     * @return Books and terms indexed and the duration, or null if a rebuild is already running
+     */
+    public Map<String, Object> rebuild() {
+        synchronized (changeLock) {
+            if (replay != null) {
+                return null;
+            }
+            replay = new ArrayList<>();
+        }
+        try {
+            long started = System.currentTimeMillis();
+            Map<String, Long> borrows = borrowCounts();
+            Indexes fresh = new Indexes();
+            fresh.suggestions.startLoading();
+            try (Stream<Book> books = mongoTemplate.stream(new Query(), Book.class)) {
+                Iterator<Book> cursor = books.iterator();
+                while (cursor.hasNext()) {
+                    Book book = cursor.next();
+                    fresh.add(book, borrows.getOrDefault(book.getId(), 0L));
+                }
+            }
+            fresh.suggestions.finishLoading();
+            synchronized (changeLock) {
+                replay.forEach(change -> change.accept(fresh));
+                indexes = fresh;
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("books", fresh.search.size());
+            result.put("terms", fresh.search.termCount());
+            result.put("suggestions", fresh.suggestions.size());
+            result.put("facetBooks", fresh.facets.size());
+            result.put("durationMs", System.currentTimeMillis() - started);
+            result.put("builtAt", LocalDateTime.now());
+            lastRebuild = result;
+            System.out.println("Book search index: " + result);
+            return result;
+        } finally {
+            synchronized (changeLock) {
+                replay = null;
+            }
+        }
+    }
+
+    /**
+     * @return Size of the indexes and the last rebuild, for monitoring
+     */
+    public Map<String, Object> getStatus() {
+        Indexes current = indexes;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("ready", current != null);
+        if (current != null) {
+            status.put("books", current.search.size());
+            status.put("terms", current.search.termCount());
+            status.put("deletedRatio", current.search.deletedRatio());
+            status.put("suggestions", current.suggestions.size());
+            status.put("facetBooks", current.facets.size());
+        }
+        status.put("lastRebuild", lastRebuild);
+        return status;
+    }
+
+    private Indexes ready() {
+        Indexes current = indexes;
+        if (current == null) {
+            throw new RuntimeException("Search index is not ready");
+        }
+        return current;
+    }
+
+    // The books of the IDs, in the order of the IDs (findAllById does not keep it)
+    private List<Book> loadInOrder(List<String> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, Book> books = new HashMap<>();
+        bookRepository.findAllById(ids).forEach(book -> books.put(book.getId(), book));
+        List<Book> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Book book = books.get(id);
+            if (book != null) {
+                results.add(book);
+            }
+        }
+        return results;
+    }
+
+    // The facet filters as a MongoDB query, for the page of a browse without a query
+    private static Query pageQuery(Map<String, List<String>> filters) {
+        Query query = new Query();
+        List<String> categories = filters.get(FacetIndex.CATEGORY);
+        if (categories != null && !categories.isEmpty()) {
+            query.addCriteria(Criteria.where("category").in(categories));
+        }
+        List<String> authors = filters.get(FacetIndex.AUTHOR);
+        if (authors != null && !authors.isEmpty()) {
+            query.addCriteria(Criteria.where("author").in(authors));
+        }
+        List<String> availability = filters.getOrDefault(FacetIndex.AVAILABILITY, List.of());
+        boolean available = availability.contains(FacetIndex.AVAILABLE);
+        boolean unavailable = availability.contains(FacetIndex.UNAVAILABLE);
+        if (available && !unavailable) {
+            query.addCriteria(Criteria.where("copiesAvailable").gt(0));
+        } else if (unavailable && !available) {
+            // Also matches books without a copiesAvailable value, as FacetIndex does
+            query.addCriteria(Criteria.where("copiesAvailable").not().gt(0));
+        }
+        return query;
+    }
+
+    // Times each book was handed out, for the suggestion weights
+    private Map<String, Long> borrowCounts() {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("status").in(HANDED_OUT)),
+            Aggregation.group("bookID").count().as("borrows"));
+        Map<String, Long> counts = new HashMap<>();
+        try (Stream<Document> results = mongoTemplate.aggregateStream(aggregation, "borrowRecords", Document.class)) {
+            Iterator<Document> cursor = results.iterator();
+            while (cursor.hasNext()) {
+                Document row = cursor.next();
+                if (row.get("_id") != null) {
+                    counts.put(row.get("_id").toString(), ((Number) row.get("borrows")).longValue());
+                }
+            }
+        }
+        return counts;
+    }
+
+    private void apply(Consumer<Indexes> change) {
+        synchronized (changeLock) {
+            Indexes current = indexes;
+            if (current != null) {
+                change.accept(current);
+            }
+            if (replay != null) {
+                replay.add(change);
+            }
+        }
+    }
+
+    // The structures built together by one rebuild
+    private static class Indexes {
+        final BookSearchIndex search = new BookSearchIndex();
+        final SuggestionTrie suggestions = new SuggestionTrie();
+        final FacetIndex facets = new FacetIndex();
+
+        // Popularity null keeps the borrow count the trie already has for the book
+        void add(Book book, Long popularity) {
+            if (book.getId() == null) {
+                return;
+            }
+            search.add(book);
+            suggestions.put(book.getId(), book.getTitle(), book.getAuthor(), popularity);
+            facets.put(book);
+        }
+    }
+}
@@ -2,7 +2,15 @@ package com.example.lms.service;
 
 import com.example.lms.model.Book;
 import com.example.lms.repository.BookRepository;
+import com.example.lms.service.catalog.Isbn;
+import com.example.lms.service.search.BookSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
@@ -12,6 +20,15 @@ public class BookService {
     
     @Autowired
     private BookRepository bookRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
     
     public List<Book> getAllBooks() {
         return bookRepository.findAll();
@@ -22,7 +39,8 @@ public class BookService {
     }
     
     public Book addBook(Book book) {
-        return bookRepository.save(book);
+        book.setIsbn(Isbn.normalize(book.getIsbn()));
+        return save(book);
     }
     
     public Book updateBook(String id, Book bookDetails) {
@@ -31,14 +49,73 @@ public class BookService {
         book.setTitle(bookDetails.getTitle());
         book.setAuthor(bookDetails.getAuthor());
         book.setCategory(bookDetails.getCategory());
-        book.setIsbn(bookDetails.getIsbn());
+        book.setIsbn(Isbn.normalize(bookDetails.getIsbn()));
         book.setCopiesAvailable(bookDetails.getCopiesAvailable());
         book.setTotalCopies(bookDetails.getTotalCopies());
-        return bookRepository.save(book);
+        return save(book);
+    }
+
+    // ISBNs are unique (index isbn_unique, see CatalogImportService)
+    private Book save(Book book) {
+        try {
+            Book saved = bookRepository.save(book);
+            entityCacheService.invalidateBook(saved.getId());
+            bookSearchService.indexBook(saved);
+            return saved;
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("A book with ISBN " + book.getIsbn() + " already exists");
+        }
+    }
+    
+    /**
+     * Change the copies on the shelf with one conditional $inc
+     *
+     * A decrement only applies while enough copies are available, so two
+     * concurrent borrows can never take the same last copy.
+     *
+     * @param delta Copies put back (positive) or taken (negative)
+     * @return The updated book, or null if it does not exist or too few copies are available
+     */
+    public Book adjustCopiesAvailable(String id, int delta) {
+        Criteria criteria = Criteria.where("_id").is(id);
+        if (delta < 0) {
+            criteria = criteria.and("copiesAvailable").gte(-delta);
+        }
+        Book updated = mongoTemplate.findAndModify(new Query(criteria), new Update().inc("copiesAvailable", delta),
+            FindAndModifyOptions.options().returnNew(true), Book.class);
+        if (updated != null) {
+            entityCacheService.invalidateBook(id);
+            bookSearchService.recordAvailability(updated);
+        }
+        return updated;
     }
     
     public void deleteBook(String id) {
         bookRepository.deleteById(id);
+        entityCacheService.invalidateBook(id);
+        bookSearchService.removeBook(id);
+    }
+
+    /**
+     * Ranked search, see BookSearchService
+     *
+     * @param query Search text
+     * @param field "title", "author", "category", "isbn", or null for all fields
+     * @param limit Maximum number of books
+     */
+    public List<Book> search(String query, String field, int limit) {
+        if (!bookSearchService.isReady()) {
+            // Index still building after startup: unranked repository queries
+            if ("author".equals(field)) return searchByAuthor(query);
+            if ("category".equals(field)) return getBooksByCategory(query);
+            return searchByTitle(query);
+        }
+        int fieldMask = BookSearchIndex.ALL_FIELDS;
+        if ("title".equals(field)) fieldMask = 1 << BookSearchIndex.TITLE;
+        if ("author".equals(field)) fieldMask = 1 << BookSearchIndex.AUTHOR;
+        if ("category".equals(field)) fieldMask = 1 << BookSearchIndex.CATEGORY;
+        if ("isbn".equals(field)) fieldMask = 1 << BookSearchIndex.ISBN;
+        return bookSearchService.search(query, fieldMask, limit);
     }
     
     public List<Book> searchByTitle(String title) {
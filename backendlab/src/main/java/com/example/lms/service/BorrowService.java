@@ -5,7 +5,6 @@ import com.example.lms.model.BorrowRecord;
 import com.example.lms.model.Member;
 import com.example.lms.repository.BookRepository;
 import com.example.lms.repository.BorrowRecordRepository;
-import com.example.lms.repository.MemberRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.time.LocalDate;
@@ -22,7 +21,7 @@ public class BorrowService {
     private BookRepository bookRepository;
     
     @Autowired
-    private MemberRepository memberRepository;
+    private EntityCacheService entityCacheService;
     
     @Autowired(required = false)
     private NotificationService notificationService;
@@ -30,6 +29,24 @@ public class BorrowService {
     @Autowired(required = false)
     private FineService fineService;
     
+    @Autowired(required = false)
+    private ReservationService reservationService;
+    
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+    
+    @Autowired
+    private DistinctCountService distinctCountService;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private ReservationQueueService reservationQueueService;
+    
     public BorrowRecord issueBook(String memberID, String bookID) {
         // Validate inputs
         if (memberID == null || memberID.isEmpty()) {
@@ -42,7 +59,8 @@ public class BorrowService {
         Book book = bookRepository.findById(bookID)
             .orElseThrow(() -> new RuntimeException("Book not found with ID: " + bookID));
         
-        if (book.getCopiesAvailable() <= 0) {
+        // A copy held for the member is not counted in copiesAvailable
+        if (book.getCopiesAvailable() <= 0 && !reservationQueueService.hasReadyHold(memberID, bookID)) {
             throw new RuntimeException("No copies available for this book");
         }
         
@@ -73,20 +91,26 @@ public class BorrowService {
         Book book = bookRepository.findById(record.getBookID())
             .orElseThrow(() -> new RuntimeException("Book not found with ID: " + record.getBookID() + ". Please check if the book exists in the system."));
         
-        if (book.getCopiesAvailable() <= 0) {
-            throw new RuntimeException("No copies available for this book");
+        // The member takes the copy held for them, otherwise one from the shelf
+        if (reservationQueueService.collectHold(record.getMemberID(), book.getId()) == null) {
+            Book updated = bookService.adjustCopiesAvailable(book.getId(), -1);
+            if (updated == null) {
+                throw new RuntimeException("No copies available for this book");
+            }
+            book = updated;
         }
-        
-        book.setCopiesAvailable(book.getCopiesAvailable() - 1);
-        bookRepository.save(book);
+        reservationQueueService.fulfil(record.getMemberID(), book.getId());
         
         record.setStatus("APPROVED");
         BorrowRecord savedRecord = borrowRecordRepository.save(record);
+        circulationRollupService.recordBorrow(savedRecord, book);
+        distinctCountService.recordBorrow(savedRecord);
+        bookSearchService.recordBorrow(book.getId());
         
         // Send borrow approval notification
         if (notificationService != null) {
             try {
-                Optional<Member> optMember = memberRepository.findById(record.getMemberID());
+                Optional<Member> optMember = entityCacheService.findMember(record.getMemberID());
                 if (optMember.isPresent()) {
                     notificationService.createBorrowApprovalNotification(savedRecord, optMember.get(), book);
                 }
@@ -112,8 +136,8 @@ public class BorrowService {
         // Send borrow rejection notification
         if (notificationService != null) {
             try {
-                Optional<Member> optMember = memberRepository.findById(record.getMemberID());
-                Optional<Book> optBook = bookRepository.findById(record.getBookID());
+                Optional<Member> optMember = entityCacheService.findMember(record.getMemberID());
+                Optional<Book> optBook = entityCacheService.findBook(record.getBookID());
                 if (optMember.isPresent() && optBook.isPresent()) {
                     notificationService.createBorrowRejectionNotification(savedRecord, optMember.get(), optBook.get());
                 }
@@ -164,13 +188,20 @@ public class BorrowService {
             record.setOverdue(false);
         }
         
-        // Update book availability (except for lost books)
+        // Hold the returned copy for the next member in the reservation queue,
+        // or put it back on the shelf (except for lost books)
         if (!"LOST".equals(bookCondition)) {
-            book.setCopiesAvailable(book.getCopiesAvailable() + 1);
-            bookRepository.save(book);
+            if (reservationService != null) {
+                reservationService.releaseCopy(book.getId());
+            } else {
+                bookService.adjustCopiesAvailable(book.getId(), 1);
+            }
         }
         
         BorrowRecord savedRecord = borrowRecordRepository.save(record);
+        if (!"LOST".equals(bookCondition)) {
+            circulationRollupService.recordReturn(savedRecord, book);
+        }
         
         // Automatically create fine if applicable
         if (fineService != null) {
@@ -186,7 +217,7 @@ public class BorrowService {
         // Send return confirmation notification
         if (notificationService != null) {
             try {
-                Optional<Member> optMember = memberRepository.findById(record.getMemberID());
+                Optional<Member> optMember = entityCacheService.findMember(record.getMemberID());
                 if (optMember.isPresent()) {
                     notificationService.createBookReturnConfirmationNotification(savedRecord, optMember.get(), book);
                 }
@@ -236,7 +267,7 @@ public class BorrowService {
         // Send notification
         if (notificationService != null) {
             try {
-                Optional<Member> optMember = memberRepository.findById(record.getMemberID());
+                Optional<Member> optMember = entityCacheService.findMember(record.getMemberID());
                 if (optMember.isPresent()) {
                     // Create a custom notification for lost book
                     notificationService.createCustomNotification(
@@ -0,0 +1,448 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Book;
+import com.example.lms.service.catalog.CatalogReader;
+import com.example.lms.service.catalog.CatalogRecord;
+import com.example.lms.service.catalog.Isbn;
+import com.example.lms.service.sketch.BloomFilter;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * CatalogImportService - Bulk import of books from CSV, JSON Lines or MARC files
+ *
+ * The file is read as a stream, one batch of rows at a time, so an import of
+ * millions of rows needs no more memory than one batch plus the ISBN filter:
+ *
+ * 1. Read BATCH_SIZE records (CatalogReader) and validate them in parallel
+ * 2. Drop rows whose ISBN is already in the catalog (see below)
+ * 3. Insert the rest with one unordered bulk insert, on a writer thread, while
+ *    the next batch is read and validated
+ *
+ * ISBN de-duplication: a Bloom filter of every stored ISBN is built when the
+ * import starts, and each inserted ISBN is added to it. Rows the filter has
+ * never seen are new without a lookup; the few positives are confirmed with
+ * one "isbn in" query per batch. The unique index on books.isbn is the final
+ * guard: a row that loses a race with another writer fails with a duplicate
+ * key error and is counted as a duplicate, not as an error.
+ *
+ * Rows without an ISBN are always inserted. Only one import runs at a time;
+ * rows inserted before a failure stay in the catalog.
+ */
+@Service
+public class CatalogImportService implements SmartInitializingSingleton {
+
+    // Rows per validated and inserted batch
+    private static final int BATCH_SIZE = 1000;
+
+    // Row errors kept in the result
+    private static final int MAX_REPORTED = 100;
+
+    // Bloom filter false-positive rate and room for ISBNs added by the import
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long FILTER_HEADROOM = 1_000_000;
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private volatile Map<String, Object> lastImport;
+
+    /**
+     * Normalizes stored ISBNs and creates the unique ISBN index before the
+     * first request, so imports and BookService compare the same keys
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            long normalized = normalizeStoredIsbns();
+            if (normalized > 0) {
+                entityCacheService.invalidateAllBooks();
+                System.out.println("Catalog: normalized " + normalized + " stored ISBNs");
+            }
+        } catch (Exception e) {
+            System.err.println("Catalog ISBN normalization failed: " + e.getMessage());
+        }
+        try {
+            // Partial: only string ISBNs are unique, books without one may repeat
+            mongoTemplate.indexOps(Book.class).ensureIndex(new Index()
+                .on("isbn", Sort.Direction.ASC)
+                .unique()
+                .named("isbn_unique")
+                .partial(PartialIndexFilter.of(Criteria.where("isbn").type(2))));
+        } catch (Exception e) {
+            // Typically duplicate ISBNs already in the catalog; they have to be merged by hand
+            System.err.println("Could not create unique index on books.isbn: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Import a catalog file
+     *
+     * @param in            File content; read to the end but not closed
+     * @param format        "csv", "jsonl" or "marc"
+     * @param defaultCopies Copies of a row that does not give totalCopies
+     * @return Counts, the first row errors and the throughput of the import
+     * @throws RuntimeException for an unknown format or while another import is running
+     */
+    public Map<String, Object> importCatalog(InputStream in, String format, int defaultCopies) {
+        String normalizedFormat = format == null ? "csv" : format.toLowerCase(Locale.ROOT);
+        if (!CatalogReader.FORMATS.contains(normalizedFormat)) {
+            throw new RuntimeException("Unsupported format: " + format + " (expected one of " + CatalogReader.FORMATS + ")");
+        }
+        if (defaultCopies < 0) {
+            throw new RuntimeException("Default copies must not be negative");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("A catalog import is already running");
+        }
+        try {
+            Totals totals = new Totals(normalizedFormat);
+            try (CatalogReader reader = CatalogReader.create(normalizedFormat, in);
+                 ExecutorService writer = Executors.newSingleThreadExecutor()) {
+                BloomFilter knownIsbns = loadStoredIsbns();
+                Future<?> pending = null;
+                List<CatalogRecord> records;
+                while (!(records = readBatch(reader, totals)).isEmpty()) {
+                    List<Row> rows = records.parallelStream()
+                        .map(record -> validate(record, defaultCopies))
+                        .collect(Collectors.toList());
+
+                    // The previous batch must be stored before its ISBNs are looked up
+                    await(pending);
+                    List<Book> books = newBooks(rows, knownIsbns, totals);
+                    pending = books.isEmpty() ? null : writer.submit(() -> insert(books, totals));
+                }
+                await(pending);
+            } catch (IOException e) {
+                totals.fail("Catalog file could not be read: " + e.getMessage());
+            } catch (RuntimeException e) {
+                totals.fail(e.getMessage());
+            }
+            Map<String, Object> result = totals.toMap();
+            lastImport = result;
+            System.out.println("Catalog import (" + normalizedFormat + "): " + result.get("inserted") + " of "
+                + result.get("rowsRead") + " rows inserted in " + result.get("durationMs") + " ms");
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * @return the result of the last import since startup, or null
+     */
+    public Map<String, Object> getLastImport() {
+        return lastImport;
+    }
+
+    private List<CatalogRecord> readBatch(CatalogReader reader, Totals totals) throws IOException {
+        List<CatalogRecord> batch = new ArrayList<>(BATCH_SIZE);
+        CatalogRecord record;
+        while (batch.size() < BATCH_SIZE && (record = reader.next()) != null) {
+            batch.add(record);
+        }
+        totals.read(batch.size());
+        return batch;
+    }
+
+    /**
+     * Drop invalid rows and rows whose ISBN exists, in the catalog or earlier in the file
+     */
+    private List<Book> newBooks(List<Row> rows, BloomFilter knownIsbns, Totals totals) {
+        Set<String> candidates = new HashSet<>();
+        for (Row row : rows) {
+            if (row.book != null && row.book.getIsbn() != null && knownIsbns.mightContain(row.book.getIsbn())) {
+                candidates.add(row.book.getIsbn());
+            }
+        }
+        Set<String> stored = storedIsbns(candidates);
+
+        List<Book> books = new ArrayList<>(rows.size());
+        Set<String> batchIsbns = new HashSet<>();
+        for (Row row : rows) {
+            if (row.book == null) {
+                totals.invalid(row.row, row.error);
+                continue;
+            }
+            String isbn = row.book.getIsbn();
+            if (isbn != null) {
+                if (stored.contains(isbn) || !batchIsbns.add(isbn)) {
+                    totals.duplicate(row.row, isbn);
+                    continue;
+                }
+                knownIsbns.add(isbn);
+            }
+            books.add(row.book);
+        }
+        return books;
+    }
+
+    private void insert(List<Book> books, Totals totals) {
+        try {
+            int inserted = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)
+                .insert(books)
+                .execute()
+                .getInsertedCount();
+            totals.inserted(inserted);
+            bookSearchService.indexBooks(books);
+        } catch (BulkOperationException e) {
+            totals.inserted(e.getResult().getInsertedCount());
+            List<Book> stored = new ArrayList<>(books);
+            for (BulkWriteError error : e.getErrors()) {
+                Book book = books.get(error.getIndex());
+                stored.remove(book);
+                if (error.getCode() == DUPLICATE_KEY) {
+                    totals.duplicate(-1, book.getIsbn());
+                } else {
+                    totals.invalid(-1, "\"" + book.getTitle() + "\" could not be stored: " + error.getMessage());
+                }
+            }
+            bookSearchService.indexBooks(stored);
+        }
+    }
+
+    private Row validate(CatalogRecord record, int defaultCopies) {
+        if (record.getError() != null) {
+            return Row.invalid(record.getRow(), record.getError());
+        }
+        String title = trimmed(record.get("title"));
+        if (title == null) {
+            return Row.invalid(record.getRow(), "Title is required");
+        }
+        String isbn = Isbn.normalize(record.get("isbn"));
+        if (isbn != null && !Isbn.isValid(isbn)) {
+            return Row.invalid(record.getRow(), "Invalid ISBN: " + record.get("isbn"));
+        }
+        Integer totalCopies;
+        Integer copiesAvailable;
+        try {
+            totalCopies = count(record.get("totalCopies"), defaultCopies);
+            copiesAvailable = count(record.get("copiesAvailable"), totalCopies);
+        } catch (NumberFormatException e) {
+            return Row.invalid(record.getRow(), "Invalid number of copies: " + e.getMessage());
+        }
+        if (totalCopies < 0 || copiesAvailable < 0 || copiesAvailable > totalCopies) {
+            return Row.invalid(record.getRow(), "Copies must satisfy 0 <= copiesAvailable <= totalCopies");
+        }
+
+        Book book = new Book();
+        // Assigned here so the search index knows the IDs without reading the books back
+        book.setId(new ObjectId().toHexString());
+        book.setTitle(title);
+        book.setAuthor(trimmed(record.get("author")));
+        book.setCategory(trimmed(record.get("category")));
+        book.setIsbn(isbn);
+        book.setTotalCopies(totalCopies);
+        book.setCopiesAvailable(copiesAvailable);
+        return new Row(record.getRow(), book, null);
+    }
+
+    // ISBNs of the catalog, sized so that the ISBNs of a large import still fit
+    private BloomFilter loadStoredIsbns() {
+        long count = mongoTemplate.estimatedCount(Book.class);
+        BloomFilter filter = BloomFilter.create(count + FILTER_HEADROOM, FALSE_POSITIVE_RATE);
+        Query query = new Query(Criteria.where("isbn").type(2));
+        query.fields().include("isbn").exclude("_id");
+        try (Stream<Document> results = mongoTemplate.stream(query, Document.class, "books")) {
+            Iterator<Document> cursor = results.iterator();
+            while (cursor.hasNext()) {
+                filter.add(cursor.next().getString("isbn"));
+            }
+        }
+        return filter;
+    }
+
+    private Set<String> storedIsbns(Set<String> candidates) {
+        if (candidates.isEmpty()) {
+            return Set.of();
+        }
+        Query query = new Query(Criteria.where("isbn").in(candidates));
+        query.fields().include("isbn").exclude("_id");
+        return mongoTemplate.find(query, Document.class, "books").stream()
+            .map(document -> document.getString("isbn"))
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Strip hyphens and spaces from stored ISBNs, upper-case the check
+     * character and remove empty ones, in one server-side update
+     *
+     * @return the number of books changed
+     */
+    private long normalizeStoredIsbns() {
+        Document stripped = new Document("$toUpper", "$isbn");
+        for (String separator : List.of("-", " ")) {
+            stripped = new Document("$replaceAll", new Document("input", stripped)
+                .append("find", separator)
+                .append("replacement", ""));
+        }
+        Document isbn = stripped;
+        AggregationOperation setIsbn = context -> new Document("$set", new Document("isbn", isbn));
+        Query query = new Query(Criteria.where("isbn").type(2).regex("[^0-9X]"));
+        long changed = mongoTemplate.updateMulti(query, AggregationUpdate.from(List.of(setIsbn)), Book.class)
+            .getModifiedCount();
+
+        changed += mongoTemplate.updateMulti(new Query(Criteria.where("isbn").is("")),
+            new Update().unset("isbn"), Book.class).getModifiedCount();
+        return changed;
+    }
+
+    private static void await(Future<?> pending) {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Catalog import interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Catalog batch could not be stored: " + e.getCause().getMessage());
+        }
+    }
+
+    private static Integer count(String value, int fallback) {
+        String text = trimmed(value);
+        return text == null ? fallback : Integer.parseInt(text);
+    }
+
+    private static String trimmed(String value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    // A validated row: the book to insert, or the reason it was rejected
+    private static class Row {
+        final long row;
+        final Book book;
+        final String error;
+
+        Row(long row, Book book, String error) {
+            this.row = row;
+            this.book = book;
+            this.error = error;
+        }
+
+        static Row invalid(long row, String error) {
+            return new Row(row, null, error);
+        }
+    }
+
+    // Counters shared by the reading and the writer thread
+    private static class Totals {
+        private final String format;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long started = System.nanoTime();
+        private long rowsRead;
+        private long inserted;
+        private long duplicates;
+        private long invalid;
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private String failure;
+
+        Totals(String format) {
+            this.format = format;
+        }
+
+        synchronized void read(int rows) {
+            rowsRead += rows;
+        }
+
+        synchronized void inserted(int count) {
+            inserted += count;
+        }
+
+        synchronized void duplicate(long row, String isbn) {
+            duplicates++;
+            report(row, "Duplicate ISBN " + isbn);
+        }
+
+        synchronized void invalid(long row, String error) {
+            invalid++;
+            report(row, error);
+        }
+
+        synchronized void fail(String message) {
+            failure = message;
+        }
+
+        private void report(long row, String error) {
+            if (errors.size() < MAX_REPORTED) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                // Rows rejected by the database are reported without a row number
+                if (row > 0) {
+                    entry.put("row", row);
+                }
+                entry.put("error", error);
+                errors.add(entry);
+            }
+        }
+
+        synchronized Map<String, Object> toMap() {
+            long durationMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("status", failure == null ? "COMPLETED" : "FAILED");
+            if (failure != null) {
+                result.put("failure", failure);
+            }
+            result.put("format", format);
+            result.put("startedAt", startedAt);
+            result.put("rowsRead", rowsRead);
+            result.put("inserted", inserted);
+            result.put("duplicates", duplicates);
+            result.put("invalid", invalid);
+            result.put("errors", new ArrayList<>(errors));
+            result.put("errorsTruncated", duplicates + invalid > errors.size());
+            result.put("durationMs", durationMs);
+            result.put("rowsPerSecond", Math.round(rowsRead * 1000.0 / durationMs));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,665 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Book;
+import com.example.lms.model.BorrowRecord;
+import com.example.lms.model.CirculationRollup;
+import com.example.lms.model.Fine;
+import com.example.lms.model.Money;
+import com.example.lms.model.Payment;
+import com.example.lms.repository.BorrowRecordRepository;
+import com.example.lms.repository.CirculationRollupRepository;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * CirculationRollupService - Maintains daily and monthly circulation buckets for trend reports
+ *
+ * Every circulation event increments its day and month buckets, both under
+ * the book's category and under "ALL", with one unordered bulk of $inc
+ * upserts. Rollup writes never fail the operation that triggered them; a
+ * missed increment is corrected by the next backfill.
+ *
+ * Event days (the same ones a backfill derives from the stored records, so
+ * live and rebuilt buckets agree):
+ * - borrows: the record's issue date
+ * - returns: the return date
+ * - overdue: the day after the due date
+ * - fines and later fine increases: the fine's issue date
+ * - payments: the payment date
+ */
+@Service
+public class CirculationRollupService {
+
+    public static final String DAY = "DAY";
+    public static final String MONTH = "MONTH";
+    public static final String ALL_CATEGORIES = "ALL";
+    public static final String UNCATEGORIZED = "UNCATEGORIZED";
+
+    // Longest range a trend request may cover, in buckets
+    private static final int MAX_BUCKETS = 1000;
+
+    // Collection a backfill is built in before it replaces circulation_rollups
+    private static final String STAGING_COLLECTION = "circulation_rollups_backfill";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CirculationRollupRepository rollupRepository;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    // Result of the last backfill
+    private volatile Map<String, Object> lastBackfill;
+
+    // Events recorded on this node while a backfill runs, replayed into the rebuilt collection
+    private volatile Increments backfillJournal;
+
+    // Event writes hold the read lock; the backfill takes the write lock to replay the journal and swap
+    private final ReentrantReadWriteLock backfillLock = new ReentrantReadWriteLock();
+
+    // =============================================================================
+    // EVENT RECORDING
+    // =============================================================================
+
+    public void recordBorrow(BorrowRecord record, Book book) {
+        Increments increments = new Increments();
+        LocalDate day = record.getIssueDate() != null ? record.getIssueDate() : LocalDate.now();
+        increments.add(day, categoryOf(book), "borrows", 1L);
+        flush(increments);
+    }
+
+    public void recordReturn(BorrowRecord record, Book book) {
+        Increments increments = new Increments();
+        LocalDate day = record.getReturnDate() != null ? record.getReturnDate() : LocalDate.now();
+        increments.add(day, categoryOf(book), "returns", 1L);
+        flush(increments);
+    }
+
+    /**
+     * Count loans flagged overdue on the day after their due date; book categories are resolved with one query
+     */
+    public void recordOverdue(List<BorrowRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            Set<String> bookIds = new HashSet<>();
+            records.forEach(record -> bookIds.add(record.getBookID()));
+            Map<String, String> categories = loadCategories(bookIds);
+
+            Increments increments = new Increments();
+            LocalDate today = LocalDate.now();
+            for (BorrowRecord record : records) {
+                LocalDate day = record.getDueDate() != null ? record.getDueDate().plusDays(1) : today;
+                increments.add(day, categories.getOrDefault(record.getBookID(), UNCATEGORIZED), "overdue", 1L);
+            }
+            flush(increments);
+        } catch (Exception e) {
+            System.err.println("Failed to record overdue rollups: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Count newly issued fines; categories are resolved through their borrow records
+     */
+    public void recordFinesIssued(List<Fine> fines) {
+        if (fines.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, String> categories = loadFineCategories(fines);
+            Increments increments = new Increments();
+            for (Fine fine : fines) {
+                LocalDate day = fine.getIssueDate() != null ? fine.getIssueDate() : LocalDate.now();
+                String category = categories.getOrDefault(fine.getId(), UNCATEGORIZED);
+                increments.add(day, category, "finesIssued", 1L);
+                increments.add(day, category, "fineAmountCents", fine.getAmountCents());
+            }
+            flush(increments);
+        } catch (Exception e) {
+            System.err.println("Failed to record fine rollups: " + e.getMessage());
+        }
+    }
+
+    public void recordFineIssued(Fine fine) {
+        recordFinesIssued(List.of(fine));
+    }
+
+    /**
+     * Add a change of a fine's amount to the bucket the fine was issued in
+     */
+    public void recordFineAdjustment(Fine fine, long deltaCents) {
+        if (deltaCents == 0) {
+            return;
+        }
+        try {
+            Increments increments = new Increments();
+            LocalDate day = fine.getIssueDate() != null ? fine.getIssueDate() : LocalDate.now();
+            String category = loadFineCategories(List.of(fine)).getOrDefault(fine.getId(), UNCATEGORIZED);
+            increments.add(day, category, "fineAmountCents", deltaCents);
+            flush(increments);
+        } catch (Exception e) {
+            System.err.println("Failed to record fine adjustment rollup: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add changes of many fines' amounts, resolving categories with two queries
+     *
+     * @param deltaCents Change of each fine's amount, by fine ID
+     */
+    public void recordFineAdjustments(List<Fine> fines, Map<String, Long> deltaCents) {
+        if (fines.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, String> categories = loadFineCategories(fines);
+            Increments increments = new Increments();
+            for (Fine fine : fines) {
+                long delta = deltaCents.getOrDefault(fine.getId(), 0L);
+                if (delta != 0) {
+                    LocalDate day = fine.getIssueDate() != null ? fine.getIssueDate() : LocalDate.now();
+                    increments.add(day, categories.getOrDefault(fine.getId(), UNCATEGORIZED), "fineAmountCents", delta);
+                }
+            }
+            flush(increments);
+        } catch (Exception e) {
+            System.err.println("Failed to record fine adjustment rollups: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Take a deleted fine out of the bucket it was issued in
+     */
+    public void recordFineDeleted(Fine fine) {
+        try {
+            Increments increments = new Increments();
+            LocalDate day = fine.getIssueDate() != null ? fine.getIssueDate() : LocalDate.now();
+            String category = loadFineCategories(List.of(fine)).getOrDefault(fine.getId(), UNCATEGORIZED);
+            increments.add(day, category, "finesIssued", -1L);
+            increments.add(day, category, "fineAmountCents", -fine.getAmountCents());
+            flush(increments);
+        } catch (Exception e) {
+            System.err.println("Failed to record fine deletion rollup: " + e.getMessage());
+        }
+    }
+
+    public void recordPayment(Fine fine, Payment payment) {
+        try {
+            Increments increments = new Increments();
+            LocalDate day = payment.getPaymentDate() != null ? payment.getPaymentDate() : LocalDate.now();
+            String category = loadFineCategories(List.of(fine)).getOrDefault(fine.getId(), UNCATEGORIZED);
+            increments.add(day, category, "paymentsAmountCents", payment.getAmountCents());
+            flush(increments);
+        } catch (Exception e) {
+            System.err.println("Failed to record payment rollup: " + e.getMessage());
+        }
+    }
+
+    // =============================================================================
+    // TREND QUERIES
+    // =============================================================================
+
+    /**
+     * Counters of every bucket in a range, with empty buckets filled in
+     *
+     * @param granularity DAY or MONTH
+     * @param category    Book category, or null for the whole library
+     */
+    public Map<String, Object> getTrend(String granularity, LocalDate from, LocalDate to, String category) {
+        String unit = normalizeGranularity(granularity);
+        LocalDate start = bucketStart(unit, from);
+        LocalDate end = bucketStart(unit, to);
+        checkRange(unit, start, end);
+        String key = category != null && !category.isEmpty() ? category : ALL_CATEGORIES;
+
+        Map<LocalDate, CirculationRollup> buckets = new HashMap<>();
+        for (CirculationRollup rollup : rollupRepository.findRange(unit, key, start, end)) {
+            buckets.put(rollup.getPeriodStart(), rollup);
+        }
+
+        List<Map<String, Object>> points = new ArrayList<>();
+        Map<String, Object> totals = emptyCounters();
+        for (LocalDate day = start; !day.isAfter(end); day = next(unit, day)) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("period", periodOf(unit, day));
+            point.putAll(countersOf(buckets.get(day)));
+            addCounters(totals, point);
+            points.add(withAmounts(point));
+        }
+
+        Map<String, Object> trend = new LinkedHashMap<>();
+        trend.put("granularity", unit);
+        trend.put("category", key);
+        trend.put("from", start);
+        trend.put("to", end);
+        trend.put("points", points);
+        trend.put("totals", withAmounts(totals));
+        return trend;
+    }
+
+    /**
+     * Totals per book category over a range, read from monthly (or daily) buckets
+     */
+    public List<Map<String, Object>> getCategoryBreakdown(String granularity, LocalDate from, LocalDate to) {
+        String unit = normalizeGranularity(granularity);
+        LocalDate start = bucketStart(unit, from);
+        LocalDate end = bucketStart(unit, to);
+        checkRange(unit, start, end);
+
+        Map<String, Map<String, Object>> byCategory = new TreeMap<>();
+        for (CirculationRollup rollup : rollupRepository.findRangeAllCategories(unit, start, end)) {
+            if (ALL_CATEGORIES.equals(rollup.getCategory())) {
+                continue;
+            }
+            Map<String, Object> totals = byCategory.computeIfAbsent(rollup.getCategory(), c -> emptyCounters());
+            addCounters(totals, countersOf(rollup));
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : byCategory.entrySet()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("category", entry.getKey());
+            item.putAll(withAmounts(entry.getValue()));
+            result.add(item);
+        }
+        return result;
+    }
+
+    public Map<String, Object> getLastBackfill() {
+        return lastBackfill != null ? lastBackfill : Map.of("status", "NEVER_RUN");
+    }
+
+    // =============================================================================
+    // BACKFILL
+    // =============================================================================
+
+    /**
+     * Rebuild every bucket from borrow records, fines and payments
+     *
+     * History is streamed with cursors and aggregated in memory (one entry per
+     * bucket, not per record) and written to a staging collection. The live
+     * collection keeps serving trends meanwhile, and is replaced by renaming
+     * the staging collection over it only once every bucket was written. If
+     * anything fails the live collection is left untouched and the backfill
+     * is reported FAILED.
+     *
+     * Events this node records while the backfill runs are also kept in a
+     * journal and replayed into the staging collection right before the
+     * swap, so they are not lost. An event whose record the scan had not
+     * reached yet is then counted twice until the next backfill; events
+     * recorded by other nodes during the run are not replayed.
+     */
+    public synchronized Map<String, Object> backfill() {
+        long started = System.currentTimeMillis();
+        backfillJournal = new Increments();
+        try {
+            return rebuild(started);
+        } catch (Exception e) {
+            dropStaging();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("status", "FAILED");
+            result.put("failedAt", LocalDateTime.now());
+            result.put("error", e.getMessage());
+            result.put("durationMs", System.currentTimeMillis() - started);
+            lastBackfill = result;
+            System.err.println("Circulation rollup backfill failed: " + e.getMessage());
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            backfillJournal = null;
+        }
+    }
+
+    // Scan the history into the staging collection and swap it in; throws on any failure
+    private Map<String, Object> rebuild(long started) {
+        Map<String, String> bookCategories = new HashMap<>();
+        try (Stream<Book> books = mongoTemplate.stream(categoryQuery(), Book.class)) {
+            books.forEach(book -> bookCategories.put(book.getId(), categoryOf(book)));
+        }
+
+        Increments increments = new Increments();
+        Map<String, String> recordCategories = new HashMap<>();
+        long records = 0;
+        try (Stream<BorrowRecord> results = mongoTemplate.stream(new Query(), BorrowRecord.class)) {
+            Iterator<BorrowRecord> cursor = results.iterator();
+            while (cursor.hasNext()) {
+                BorrowRecord record = cursor.next();
+                records++;
+                String category = bookCategories.getOrDefault(record.getBookID(), UNCATEGORIZED);
+                recordCategories.put(record.getId(), category);
+
+                String status = record.getStatus();
+                boolean handedOut = "APPROVED".equals(status) || "RETURNED".equals(status)
+                    || "LOST".equals(status) || "DAMAGED".equals(status);
+                if (handedOut && record.getIssueDate() != null) {
+                    increments.add(record.getIssueDate(), category, "borrows", 1L);
+                }
+                if (handedOut && !"LOST".equals(status) && record.getReturnDate() != null) {
+                    increments.add(record.getReturnDate(), category, "returns", 1L);
+                }
+                if (Boolean.TRUE.equals(record.getOverdue()) && record.getDueDate() != null) {
+                    increments.add(record.getDueDate().plusDays(1), category, "overdue", 1L);
+                }
+            }
+        }
+
+        Map<String, String> fineCategories = new HashMap<>();
+        long fines = 0;
+        try (Stream<Fine> results = mongoTemplate.stream(new Query(), Fine.class)) {
+            Iterator<Fine> cursor = results.iterator();
+            while (cursor.hasNext()) {
+                Fine fine = cursor.next();
+                fines++;
+                String category = fine.getBorrowRecordID() != null
+                    ? recordCategories.getOrDefault(fine.getBorrowRecordID(), UNCATEGORIZED)
+                    : UNCATEGORIZED;
+                fineCategories.put(fine.getId(), category);
+                if (fine.getIssueDate() != null) {
+                    increments.add(fine.getIssueDate(), category, "finesIssued", 1L);
+                    increments.add(fine.getIssueDate(), category, "fineAmountCents", fine.getAmountCents());
+                }
+            }
+        }
+
+        long payments = 0;
+        try (Stream<Payment> results = mongoTemplate.stream(new Query(), Payment.class)) {
+            Iterator<Payment> cursor = results.iterator();
+            while (cursor.hasNext()) {
+                Payment payment = cursor.next();
+                payments++;
+                if (payment.getPaymentDate() != null) {
+                    String category = fineCategories.getOrDefault(payment.getFineID(), UNCATEGORIZED);
+                    increments.add(payment.getPaymentDate(), category, "paymentsAmountCents", payment.getAmountCents());
+                }
+            }
+        }
+
+        // Build the new buckets next to the live ones, with the same indexes
+        dropStaging();
+        mongoTemplate.createCollection(STAGING_COLLECTION);
+        IndexOperations stagingIndexes = mongoTemplate.indexOps(STAGING_COLLECTION);
+        IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+            .resolveIndexFor(CirculationRollup.class)
+            .forEach(stagingIndexes::ensureIndex);
+        int buckets = write(increments, STAGING_COLLECTION);
+
+        // No event write runs while the journal is replayed and the collections are swapped
+        backfillLock.writeLock().lock();
+        try {
+            write(backfillJournal, STAGING_COLLECTION);
+            MongoNamespace live = new MongoNamespace(mongoTemplate.getDb().getName(),
+                mongoTemplate.getCollectionName(CirculationRollup.class));
+            mongoTemplate.getCollection(STAGING_COLLECTION)
+                .renameCollection(live, new RenameCollectionOptions().dropTarget(true));
+        } finally {
+            backfillLock.writeLock().unlock();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", "COMPLETED");
+        result.put("completedAt", LocalDateTime.now());
+        result.put("borrowRecordsScanned", records);
+        result.put("finesScanned", fines);
+        result.put("paymentsScanned", payments);
+        result.put("bucketsWritten", buckets);
+        result.put("durationMs", System.currentTimeMillis() - started);
+        lastBackfill = result;
+        System.out.println("Circulation rollup backfill completed: " + buckets + " buckets from "
+            + records + " borrow records, " + fines + " fines, " + payments + " payments");
+        return result;
+    }
+
+    // =============================================================================
+    // HELPERS
+    // =============================================================================
+
+    /**
+     * Apply the increments of recorded events to the live buckets
+     *
+     * Also journals them while a backfill runs. Failures are logged, never thrown.
+     */
+    private void flush(Increments increments) {
+        if (increments.buckets.isEmpty()) {
+            return;
+        }
+        backfillLock.readLock().lock();
+        try {
+            Increments journal = backfillJournal;
+            if (journal != null) {
+                synchronized (journal) {
+                    journal.addAll(increments);
+                }
+            }
+            write(increments, mongoTemplate.getCollectionName(CirculationRollup.class));
+        } catch (Exception e) {
+            System.err.println("Failed to update circulation rollups: " + e.getMessage());
+        } finally {
+            backfillLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write accumulated increments to a collection with unordered bulks of upserts
+     *
+     * @return the number of buckets touched
+     */
+    private int write(Increments increments, String collectionName) {
+        if (increments.buckets.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CirculationRollup.class, collectionName);
+        int pending = 0;
+        for (Map.Entry<String, Bucket> entry : increments.buckets.entrySet()) {
+            Bucket bucket = entry.getValue();
+            Update update = new Update()
+                .setOnInsert("granularity", bucket.granularity)
+                .setOnInsert("period", bucket.period)
+                .setOnInsert("periodStart", bucket.periodStart)
+                .setOnInsert("category", bucket.category);
+            bucket.counters.forEach(update::inc);
+            bulk.upsert(new Query(Criteria.where("_id").is(entry.getKey())), update);
+            if (++pending == 1000) {
+                bulk.execute();
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CirculationRollup.class, collectionName);
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            bulk.execute();
+        }
+        return increments.buckets.size();
+    }
+
+    private void dropStaging() {
+        try {
+            mongoTemplate.dropCollection(STAGING_COLLECTION);
+        } catch (Exception e) {
+            System.err.println("Failed to drop " + STAGING_COLLECTION + ": " + e.getMessage());
+        }
+    }
+
+    private Map<String, String> loadCategories(Collection<String> bookIds) {
+        Map<String, String> categories = new HashMap<>();
+        Query query = categoryQuery();
+        query.addCriteria(Criteria.where("_id").in(bookIds));
+        for (Book book : mongoTemplate.find(query, Book.class)) {
+            categories.put(book.getId(), categoryOf(book));
+        }
+        return categories;
+    }
+
+    // Fine ID -> category of the fine's book, with two queries for the whole list
+    private Map<String, String> loadFineCategories(List<Fine> fines) {
+        Map<String, String> recordIds = new HashMap<>();
+        for (Fine fine : fines) {
+            if (fine.getBorrowRecordID() != null) {
+                recordIds.put(fine.getId(), fine.getBorrowRecordID());
+            }
+        }
+        if (recordIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<String, String> recordBooks = new HashMap<>();
+        for (BorrowRecord record : borrowRecordRepository.findAllById(new HashSet<>(recordIds.values()))) {
+            recordBooks.put(record.getId(), record.getBookID());
+        }
+        Map<String, String> bookCategories = loadCategories(new HashSet<>(recordBooks.values()));
+
+        Map<String, String> categories = new HashMap<>();
+        recordIds.forEach((fineId, recordId) -> {
+            String bookId = recordBooks.get(recordId);
+            categories.put(fineId, bookId != null ? bookCategories.getOrDefault(bookId, UNCATEGORIZED) : UNCATEGORIZED);
+        });
+        return categories;
+    }
+
+    private static Query categoryQuery() {
+        Query query = new Query();
+        query.fields().include("category");
+        return query;
+    }
+
+    private static String categoryOf(Book book) {
+        return book != null && book.getCategory() != null && !book.getCategory().isEmpty()
+            ? book.getCategory()
+            : UNCATEGORIZED;
+    }
+
+    private static String normalizeGranularity(String granularity) {
+        String unit = granularity != null ? granularity.toUpperCase() : DAY;
+        if (!DAY.equals(unit) && !MONTH.equals(unit)) {
+            throw new RuntimeException("Granularity must be DAY or MONTH");
+        }
+        return unit;
+    }
+
+    private static void checkRange(String unit, LocalDate start, LocalDate end) {
+        if (end.isBefore(start)) {
+            throw new RuntimeException("'from' must not be after 'to'");
+        }
+        long buckets = DAY.equals(unit)
+            ? ChronoUnit.DAYS.between(start, end) + 1
+            : ChronoUnit.MONTHS.between(start, end) + 1;
+        if (buckets > MAX_BUCKETS) {
+            throw new RuntimeException("Range too long: at most " + MAX_BUCKETS + " " + unit.toLowerCase() + " buckets");
+        }
+    }
+
+    private static LocalDate bucketStart(String unit, LocalDate day) {
+        return DAY.equals(unit) ? day : day.withDayOfMonth(1);
+    }
+
+    private static LocalDate next(String unit, LocalDate start) {
+        return DAY.equals(unit) ? start.plusDays(1) : start.plusMonths(1);
+    }
+
+    private static String periodOf(String unit, LocalDate start) {
+        return DAY.equals(unit) ? start.toString() : start.toString().substring(0, 7);
+    }
+
+    private static Map<String, Object> emptyCounters() {
+        return countersOf(null);
+    }
+
+    // Amounts stay in cents while counters are summed; withAmounts converts them for the response
+    private static Map<String, Object> countersOf(CirculationRollup rollup) {
+        Map<String, Object> counters = new LinkedHashMap<>();
+        counters.put("borrows", rollup != null ? rollup.getBorrows() : 0L);
+        counters.put("returns", rollup != null ? rollup.getReturns() : 0L);
+        counters.put("overdue", rollup != null ? rollup.getOverdue() : 0L);
+        counters.put("finesIssued", rollup != null ? rollup.getFinesIssued() : 0L);
+        counters.put("fineAmount", rollup != null ? rollup.getFineAmountCents() : 0L);
+        counters.put("paymentsAmount", rollup != null ? rollup.getPaymentsAmountCents() : 0L);
+        return counters;
+    }
+
+    private static void addCounters(Map<String, Object> totals, Map<String, Object> counters) {
+        for (Map.Entry<String, Object> entry : totals.entrySet()) {
+            entry.setValue((Long) entry.getValue() + ((Number) counters.get(entry.getKey())).longValue());
+        }
+    }
+
+    private static Map<String, Object> withAmounts(Map<String, Object> counters) {
+        Map<String, Object> result = new LinkedHashMap<>(counters);
+        result.put("fineAmount", Money.toAmount((Long) counters.get("fineAmount")));
+        result.put("paymentsAmount", Money.toAmount((Long) counters.get("paymentsAmount")));
+        return result;
+    }
+
+    /**
+     * Counter increments grouped by bucket document
+     * Each event lands in four buckets: day and month, for its category and for "ALL"
+     */
+    private static class Increments {
+        final Map<String, Bucket> buckets = new HashMap<>();
+
+        void add(LocalDate day, String category, String counter, long amount) {
+            LocalDate month = day.withDayOfMonth(1);
+            bucket(DAY, day, category).add(counter, amount);
+            bucket(DAY, day, ALL_CATEGORIES).add(counter, amount);
+            bucket(MONTH, month, category).add(counter, amount);
+            bucket(MONTH, month, ALL_CATEGORIES).add(counter, amount);
+        }
+
+        void addAll(Increments other) {
+            for (Map.Entry<String, Bucket> entry : other.buckets.entrySet()) {
+                Bucket source = entry.getValue();
+                Bucket target = buckets.computeIfAbsent(entry.getKey(),
+                    id -> new Bucket(source.granularity, source.period, source.periodStart, source.category));
+                source.counters.forEach(target::add);
+            }
+        }
+
+        private Bucket bucket(String unit, LocalDate start, String category) {
+            String period = periodOf(unit, start);
+            return buckets.computeIfAbsent(unit + "|" + period + "|" + category,
+                id -> new Bucket(unit, period, start, category));
+        }
+    }
+
+    private static class Bucket {
+        final String granularity;
+        final String period;
+        final LocalDate periodStart;
+        final String category;
+        final Map<String, Long> counters = new HashMap<>();
+
+        Bucket(String granularity, String period, LocalDate periodStart, String category) {
+            this.granularity = granularity;
+            this.period = period;
+            this.periodStart = periodStart;
+            this.category = category;
+        }
+
+        void add(String counter, long amount) {
+            counters.merge(counter, amount, Long::sum);
+        }
+    }
+}
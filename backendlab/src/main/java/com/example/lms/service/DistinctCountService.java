@@ -0,0 +1,376 @@
+package com.example.lms.service;
+
+import com.example.lms.model.BorrowRecord;
+import com.example.lms.model.DistinctSketch;
+import com.example.lms.repository.DistinctSketchRepository;
+import com.example.lms.service.sketch.HyperLogLog;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * DistinctCountService - Unique borrower and title counts for any date window
+ *
+ * Borrow and overdue events add their member and book IDs to HyperLogLog
+ * sketches of the event day (see DistinctSketch). A window is answered by
+ * merging the daily sketches it covers, in constant memory and with about
+ * 0.8% standard error, instead of collecting every ID into a set.
+ *
+ * Events are first added to in-memory sketches and merged into MongoDB every
+ * 30 seconds; reads include the values not yet written. Because a merge keeps
+ * the register-wise maximum, writing the same values twice is harmless, so a
+ * failed write is simply retried on the next flush. Events are counted on
+ * the day of the record they belong to, as the backfill does, so a late
+ * approval or a delayed overdue run lands in the same sketch either way.
+ *
+ * Exact mode answers the same question with server-side $group aggregations
+ * over the borrow records, for audits.
+ */
+@Service
+public class DistinctCountService {
+
+    public static final String BORROWERS = "BORROWERS";
+    public static final String TITLES = "TITLES";
+    public static final String OVERDUE_MEMBERS = "OVERDUE_MEMBERS";
+    public static final String OVERDUE_TITLES = "OVERDUE_TITLES";
+
+    // Version-guarded write attempts before a flush gives up until the next run
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
+    // Sketches held in memory by the backfill before they are merged into MongoDB
+    private static final int BACKFILL_FLUSH_SKETCHES = 256;
+
+    // Collection a backfill is built in before it replaces distinct_sketches
+    private static final String STAGING_COLLECTION = "distinct_sketches_backfill";
+
+    // Statuses of loans that were handed out, as in the circulation rollups
+    private static final List<String> HANDED_OUT = List.of("APPROVED", "RETURNED", "LOST", "DAMAGED");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DistinctSketchRepository sketchRepository;
+
+    // Values recorded since the last flush, keyed by "metric|yyyy-MM-dd"
+    private final Map<String, HyperLogLog> pending = new ConcurrentHashMap<>();
+
+    // Result of the last backfill
+    private volatile Map<String, Object> lastBackfill;
+
+    // =============================================================================
+    // EVENT RECORDING
+    // =============================================================================
+
+    /**
+     * Count a loan handed out, on its issue date
+     */
+    public void recordBorrow(BorrowRecord record) {
+        LocalDate day = record.getIssueDate() != null ? record.getIssueDate() : LocalDate.now();
+        add(pending, BORROWERS, day, record.getMemberID());
+        add(pending, TITLES, day, record.getBookID());
+    }
+
+    /**
+     * Count loans flagged overdue, on the day after their due date
+     */
+    public void recordOverdue(List<BorrowRecord> records) {
+        for (BorrowRecord record : records) {
+            LocalDate day = record.getDueDate() != null ? record.getDueDate().plusDays(1) : LocalDate.now();
+            add(pending, OVERDUE_MEMBERS, day, record.getMemberID());
+            add(pending, OVERDUE_TITLES, day, record.getBookID());
+        }
+    }
+
+    private static void add(Map<String, HyperLogLog> sketches, String metric, LocalDate day, String value) {
+        if (value == null || day == null) {
+            return;
+        }
+        sketches.compute(keyOf(metric, day), (key, sketch) -> {
+            HyperLogLog target = sketch != null ? sketch : new HyperLogLog();
+            target.add(value);
+            return target;
+        });
+    }
+
+    /**
+     * Merge the in-memory sketches into MongoDB
+     *
+     * Synchronized with backfill: while a backfill runs, recorded values stay
+     * pending and are merged into the rebuilt collection once it is in place.
+     */
+    @Scheduled(fixedDelay = 30000, initialDelay = 30000)
+    public synchronized void flushPending() {
+        int written = flush(pending, mongoTemplate.getCollectionName(DistinctSketch.class));
+        if (written > 0) {
+            System.out.println("Flushed " + written + " distinct-count sketches");
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushPending();
+    }
+
+    /**
+     * Merge every sketch of the map into a sketch collection and remove it from the map
+     *
+     * A sketch that cannot be written is put back (merged with any values
+     * recorded meanwhile) and retried on the next flush.
+     *
+     * @return the number of sketches written
+     */
+    private int flush(Map<String, HyperLogLog> sketches, String collectionName) {
+        int written = 0;
+        for (String key : sketches.keySet()) {
+            HyperLogLog sketch = sketches.remove(key);
+            if (sketch == null) {
+                continue;
+            }
+            try {
+                mergeIntoStored(key, sketch, collectionName);
+                written++;
+            } catch (Exception e) {
+                System.err.println("Failed to write distinct-count sketch " + key + ": " + e.getMessage());
+                sketches.merge(key, sketch, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                });
+            }
+        }
+        return written;
+    }
+
+    private void mergeIntoStored(String key, HyperLogLog sketch, String collectionName) {
+        for (int attempt = 0; attempt < MAX_WRITE_ATTEMPTS; attempt++) {
+            DistinctSketch stored = mongoTemplate.findById(key, DistinctSketch.class, collectionName);
+            if (stored == null) {
+                String[] parts = key.split("\\|");
+                DistinctSketch created = new DistinctSketch();
+                created.setId(key);
+                created.setMetric(parts[0]);
+                created.setDay(LocalDate.parse(parts[1]));
+                created.setRegisters(sketch.toBytes());
+                created.setVersion(1L);
+                created.setUpdatedAt(LocalDateTime.now());
+                try {
+                    mongoTemplate.insert(created, collectionName);
+                    return;
+                } catch (DuplicateKeyException e) {
+                    continue; // Another writer created it first; merge into theirs
+                }
+            }
+
+            HyperLogLog merged = HyperLogLog.fromBytes(stored.getRegisters());
+            merged.merge(sketch);
+            Query query = new Query(Criteria.where("_id").is(key).and("version").is(stored.getVersion()));
+            Update update = new Update()
+                .set("registers", merged.toBytes())
+                .set("updatedAt", LocalDateTime.now())
+                .inc("version", 1);
+            if (mongoTemplate.updateFirst(query, update, DistinctSketch.class, collectionName).getModifiedCount() == 1) {
+                return;
+            }
+        }
+        throw new RuntimeException("Sketch " + key + " is being written concurrently");
+    }
+
+    // =============================================================================
+    // QUERIES
+    // =============================================================================
+
+    /**
+     * Distinct borrowers and titles over a window, inclusive on both ends
+     *
+     * Borrows count on the day they were handed out; overdue loans on the day
+     * they were flagged (exact mode: the day after the due date).
+     *
+     * @param exact true to count exactly with aggregations over the borrow records
+     */
+    public Map<String, Object> getDistinctCounts(LocalDate from, LocalDate to, boolean exact) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("'from' must not be after 'to'");
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("from", from);
+        result.put("to", to);
+        result.put("mode", exact ? "EXACT" : "APPROXIMATE");
+        if (exact) {
+            Criteria borrowed = Criteria.where("status").in(HANDED_OUT).and("issueDate").gte(from).lte(to);
+            Criteria overdue = Criteria.where("overdue").is(true).and("dueDate").gte(from.minusDays(1)).lte(to.minusDays(1));
+            result.put("uniqueBorrowers", countDistinct(borrowed, "memberID"));
+            result.put("uniqueTitles", countDistinct(borrowed, "bookID"));
+            result.put("uniqueOverdueMembers", countDistinct(overdue, "memberID"));
+            result.put("uniqueOverdueTitles", countDistinct(overdue, "bookID"));
+        } else {
+            result.put("uniqueBorrowers", estimate(BORROWERS, from, to));
+            result.put("uniqueTitles", estimate(TITLES, from, to));
+            result.put("uniqueOverdueMembers", estimate(OVERDUE_MEMBERS, from, to));
+            result.put("uniqueOverdueTitles", estimate(OVERDUE_TITLES, from, to));
+            result.put("standardError", 1.04 / Math.sqrt(HyperLogLog.REGISTERS));
+        }
+        return result;
+    }
+
+    /**
+     * Estimated distinct values of one metric over a window
+     */
+    public long estimate(String metric, LocalDate from, LocalDate to) {
+        HyperLogLog window = new HyperLogLog();
+        try (Stream<DistinctSketch> sketches = sketchRepository.streamRange(metric, from, to)) {
+            sketches.forEach(stored -> window.merge(HyperLogLog.fromBytes(stored.getRegisters())));
+        }
+        // Values recorded since the last flush
+        for (LocalDate day = from; !day.isAfter(to) && !day.isAfter(LocalDate.now()); day = day.plusDays(1)) {
+            pending.computeIfPresent(keyOf(metric, day), (key, sketch) -> {
+                window.merge(sketch);
+                return sketch;
+            });
+        }
+        return window.estimate();
+    }
+
+    /**
+     * Exact number of distinct values of a BorrowRecord field among matching records
+     *
+     * Counted by MongoDB ($match, $group, $count), so the application never
+     * holds the IDs.
+     */
+    public long countDistinct(Criteria criteria, String field) {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(new Criteria().andOperator(criteria, Criteria.where(field).ne(null))),
+            Aggregation.group(field),
+            Aggregation.count().as("count"))
+            .withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+        Document result = mongoTemplate.aggregate(aggregation, BorrowRecord.class, Document.class).getUniqueMappedResult();
+        return result != null ? ((Number) result.get("count")).longValue() : 0L;
+    }
+
+    public Map<String, Object> getLastBackfill() {
+        return lastBackfill != null ? lastBackfill : Map.of("status", "NEVER_RUN");
+    }
+
+    // =============================================================================
+    // BACKFILL
+    // =============================================================================
+
+    /**
+     * Rebuild every daily sketch from the borrow records
+     *
+     * Records are streamed in issue-date order and sketches are merged into a
+     * staging collection every BACKFILL_FLUSH_SKETCHES sketches, so memory
+     * stays bounded. The current sketches keep answering queries meanwhile;
+     * the staging collection is renamed over them only once every sketch was
+     * written. If anything fails they are left untouched and the backfill is
+     * reported FAILED.
+     *
+     * Events recorded while the backfill runs stay pending (flushPending
+     * waits for the backfill) and are merged into the new sketches by the
+     * next flush; merging is idempotent, so nothing is counted twice.
+     */
+    public synchronized Map<String, Object> backfill() {
+        long started = System.currentTimeMillis();
+        try {
+            return rebuild(started);
+        } catch (Exception e) {
+            dropStaging();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("status", "FAILED");
+            result.put("failedAt", LocalDateTime.now());
+            result.put("error", e.getMessage());
+            result.put("durationMs", System.currentTimeMillis() - started);
+            lastBackfill = result;
+            System.err.println("Distinct-count backfill failed: " + e.getMessage());
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    // Build every sketch in the staging collection and swap it in; throws on any failure
+    private Map<String, Object> rebuild(long started) {
+        dropStaging();
+        mongoTemplate.createCollection(STAGING_COLLECTION);
+        IndexOperations stagingIndexes = mongoTemplate.indexOps(STAGING_COLLECTION);
+        IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+            .resolveIndexFor(DistinctSketch.class)
+            .forEach(stagingIndexes::ensureIndex);
+
+        Map<String, HyperLogLog> sketches = new ConcurrentHashMap<>();
+        long records = 0;
+        int written = 0;
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "issueDate"));
+        query.fields().include("memberID", "bookID", "status", "issueDate", "dueDate", "overdue");
+        try (Stream<BorrowRecord> results = mongoTemplate.stream(query, BorrowRecord.class)) {
+            Iterator<BorrowRecord> cursor = results.iterator();
+            while (cursor.hasNext()) {
+                BorrowRecord record = cursor.next();
+                records++;
+                if (HANDED_OUT.contains(record.getStatus())) {
+                    add(sketches, BORROWERS, record.getIssueDate(), record.getMemberID());
+                    add(sketches, TITLES, record.getIssueDate(), record.getBookID());
+                }
+                if (Boolean.TRUE.equals(record.getOverdue()) && record.getDueDate() != null) {
+                    LocalDate flagged = record.getDueDate().plusDays(1);
+                    add(sketches, OVERDUE_MEMBERS, flagged, record.getMemberID());
+                    add(sketches, OVERDUE_TITLES, flagged, record.getBookID());
+                }
+                if (sketches.size() >= BACKFILL_FLUSH_SKETCHES) {
+                    written += flush(sketches, STAGING_COLLECTION);
+                }
+            }
+        }
+        written += flush(sketches, STAGING_COLLECTION);
+        if (!sketches.isEmpty()) {
+            throw new RuntimeException(sketches.size() + " sketches could not be written");
+        }
+
+        MongoNamespace live = new MongoNamespace(mongoTemplate.getDb().getName(),
+            mongoTemplate.getCollectionName(DistinctSketch.class));
+        mongoTemplate.getCollection(STAGING_COLLECTION)
+            .renameCollection(live, new RenameCollectionOptions().dropTarget(true));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", "COMPLETED");
+        result.put("completedAt", LocalDateTime.now());
+        result.put("borrowRecordsScanned", records);
+        result.put("sketchWrites", written);
+        result.put("durationMs", System.currentTimeMillis() - started);
+        lastBackfill = result;
+        System.out.println("Distinct-count backfill completed: " + written + " sketch writes from "
+            + records + " borrow records");
+        return result;
+    }
+
+    private void dropStaging() {
+        try {
+            mongoTemplate.dropCollection(STAGING_COLLECTION);
+        } catch (Exception e) {
+            System.err.println("Failed to drop " + STAGING_COLLECTION + ": " + e.getMessage());
+        }
+    }
+
+    private static String keyOf(String metric, LocalDate day) {
+        return metric + "|" + day;
+    }
+}
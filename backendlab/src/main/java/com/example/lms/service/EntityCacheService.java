@@ -0,0 +1,274 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Book;
+import com.example.lms.model.Member;
+import com.example.lms.repository.BookRepository;
+import com.example.lms.repository.MemberRepository;
+import com.example.lms.service.cache.NearCache;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EntityCacheService - Near-cache of books and members for read-only lookups
+ *
+ * Approving, returning, fining and reserving each load the same book and
+ * member several times (the operation itself, then every notification it
+ * sends). findBook and findMember answer repeated lookups from memory, in
+ * a NearCache bounded by size and age.
+ *
+ * Only for reads: code that changes a book or member and saves it must load
+ * it from its repository, so it never decides on a cached copy. Each call
+ * returns a new instance (entries are kept as documents and mapped on every
+ * read), so callers may modify what they get without affecting the cache.
+ *
+ * Entries are invalidated:
+ * - by the services of this node right after they save or delete a book or
+ *   member (invalidateBook, invalidateMember)
+ * - by a change stream on the books and members collections, which also
+ *   covers writes of other nodes and of bulk updates; if the stream
+ *   disconnects it resumes after the last event, and the cache is cleared
+ *   whenever events may have been missed
+ * - after ttl-seconds in any case. Change streams need a replica set (Atlas
+ *   clusters are); on a standalone server the TTL alone bounds staleness.
+ *
+ * Configuration:
+ * - lms.cache.entities.enabled (default true)
+ * - lms.cache.entities.max-entries per collection (default 10000)
+ * - lms.cache.entities.ttl-seconds (default 300)
+ */
+@Service
+public class EntityCacheService implements SmartInitializingSingleton {
+
+    // Error codes of the change stream: not a replica set, and resume token no longer in the oplog
+    private static final int CHANGE_STREAM_UNSUPPORTED = 40573;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private static final long MAX_RETRY_DELAY_MS = 60000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Value("${lms.cache.entities.enabled:true}")
+    private boolean enabled;
+
+    @Value("${lms.cache.entities.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${lms.cache.entities.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private NearCache<String, Document> books;
+    private NearCache<String, Document> members;
+
+    // Collection -> state of its change stream, for getStats
+    private final Map<String, String> watchers = new ConcurrentHashMap<>();
+    private final List<Thread> watcherThreads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        books = new NearCache<>("books", maxEntries, TimeUnit.SECONDS.toMillis(ttlSeconds));
+        members = new NearCache<>("members", maxEntries, TimeUnit.SECONDS.toMillis(ttlSeconds));
+        if (enabled) {
+            watcherThreads.add(Thread.ofVirtual().name("entity-cache-books").start(() -> watch("books", books)));
+            watcherThreads.add(Thread.ofVirtual().name("entity-cache-members").start(() -> watch("members", members)));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        watcherThreads.forEach(Thread::interrupt);
+    }
+
+    /**
+     * The book, from the cache when possible. Not for read-modify-write.
+     */
+    public Optional<Book> findBook(String bookId) {
+        if (bookId == null) {
+            return Optional.empty();
+        }
+        if (!enabled) {
+            return bookRepository.findById(bookId);
+        }
+        Document document = books.get(bookId, id -> bookRepository.findById(id).map(this::toDocument).orElse(null));
+        return Optional.ofNullable(document).map(d -> mongoTemplate.getConverter().read(Book.class, d));
+    }
+
+    /**
+     * The member, from the cache when possible. Not for read-modify-write.
+     */
+    public Optional<Member> findMember(String memberId) {
+        if (memberId == null) {
+            return Optional.empty();
+        }
+        if (!enabled) {
+            return memberRepository.findById(memberId);
+        }
+        Document document = members.get(memberId, id -> memberRepository.findById(id).map(this::toDocument).orElse(null));
+        return Optional.ofNullable(document).map(d -> mongoTemplate.getConverter().read(Member.class, d));
+    }
+
+    public void invalidateBook(String bookId) {
+        if (books != null && bookId != null) {
+            books.invalidate(bookId);
+        }
+    }
+
+    public void invalidateMember(String memberId) {
+        if (members != null && memberId != null) {
+            members.invalidate(memberId);
+        }
+    }
+
+    /**
+     * Drop every cached book, after a bulk update of the collection
+     */
+    public void invalidateAllBooks() {
+        if (books != null) {
+            books.clear();
+        }
+    }
+
+    /**
+     * @return Hit ratio, size and evictions per cache and the state of its change stream
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        for (NearCache<String, Document> cache : List.of(books, members)) {
+            Map<String, Object> cacheStats = cache.getStats();
+            cacheStats.put("changeStream", watchers.getOrDefault((String) cacheStats.get("name"), "OFF"));
+            stats.put((String) cacheStats.get("name"), cacheStats);
+        }
+        return stats;
+    }
+
+    private Document toDocument(Object entity) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(entity, document);
+        return document;
+    }
+
+    /**
+     * Invalidate entries as the collection changes, until shutdown
+     *
+     * Reconnects with growing delays after errors, resuming after the last
+     * event seen. Without a resume token (first start, or the token fell
+     * out of the oplog) the cache is cleared once the stream is open, since
+     * changes made before that point would never be reported.
+     */
+    private void watch(String collection, NearCache<String, Document> cache) {
+        BsonDocument resumeToken = null;
+        long retryDelay = 1000;
+        while (running) {
+            try {
+                ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(collection)
+                    .watch(List.of(Aggregates.project(Projections.include("operationType", "documentKey"))))
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+                if (resumeToken != null) {
+                    stream = stream.resumeAfter(resumeToken);
+                }
+                try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                    if (resumeToken == null) {
+                        cache.clear();
+                    }
+                    watchers.put(collection, "WATCHING");
+                    retryDelay = 1000;
+                    while (running) {
+                        ChangeStreamDocument<Document> change = cursor.tryNext();
+                        if (change != null && change.getOperationType() == OperationType.INVALIDATE) {
+                            // The collection was dropped or renamed; the stream ends here
+                            resumeToken = null;
+                            break;
+                        }
+                        if (change != null) {
+                            apply(cache, change);
+                        }
+                        if (cursor.getResumeToken() != null) {
+                            resumeToken = cursor.getResumeToken();
+                        }
+                    }
+                }
+            } catch (MongoException e) {
+                if (!running) {
+                    break;
+                }
+                if (e.getCode() == CHANGE_STREAM_UNSUPPORTED) {
+                    watchers.put(collection, "UNSUPPORTED");
+                    System.out.println("Change streams are not available; cached " + collection + " expire after "
+                        + ttlSeconds + " seconds");
+                    return;
+                }
+                if (e.getCode() == CHANGE_STREAM_HISTORY_LOST) {
+                    resumeToken = null;
+                }
+                watchers.put(collection, "RECONNECTING");
+                System.err.println("Change stream on " + collection + " failed, retrying in " + retryDelay + " ms: "
+                    + e.getMessage());
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                watchers.put(collection, "RECONNECTING");
+                System.err.println("Change stream on " + collection + " failed, retrying in " + retryDelay + " ms: "
+                    + e.getMessage());
+            }
+            try {
+                Thread.sleep(retryDelay);
+            } catch (InterruptedException e) {
+                break;
+            }
+            retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+        }
+        watchers.put(collection, "STOPPED");
+    }
+
+    private static void apply(NearCache<String, Document> cache, ChangeStreamDocument<Document> change) {
+        OperationType type = change.getOperationType();
+        if (type == OperationType.INSERT) {
+            // Misses are not cached, so a new document has no entry
+            return;
+        }
+        BsonDocument key = change.getDocumentKey();
+        BsonValue id = key != null ? key.get("_id") : null;
+        if (id == null) {
+            // Drop or rename of the collection
+            cache.clear();
+        } else if (id.isObjectId()) {
+            cache.invalidate(id.asObjectId().getValue().toHexString());
+        } else if (id.isString()) {
+            cache.invalidate(id.asString().getValue());
+        } else {
+            cache.clear();
+        }
+    }
+}
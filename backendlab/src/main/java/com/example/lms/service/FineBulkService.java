@@ -0,0 +1,520 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Fine;
+import com.example.lms.model.Member;
+import com.example.lms.model.Money;
+import com.example.lms.repository.MemberRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * FineBulkService - Waive, adjust and import many fines per request
+ *
+ * Waive and adjust select fines by an ID list ("fineIDs"), a "filter", or
+ * both (all conditions must hold):
+ * - memberID, memberIDs, status (one status or a list)
+ * - issuedFrom, issuedTo (ISO dates, inclusive)
+ * - reasonContains (case-insensitive), minAmount, maxAmount
+ *
+ * Fines are processed in batches of BATCH_SIZE: one query loads the batch,
+ * one unordered bulk write (or insert) writes it, one query re-reads which
+ * fines were written, and the balance ledger, rollups and waiver
+ * notifications are written once per batch instead of once per fine.
+ *
+ * An operation is prepared first (input validated, selection resolved to fine
+ * IDs), so an invalid request fails before anything is written. It then runs
+ * either as a dry run, which only counts what would change, or for real,
+ * reporting progress after every batch.
+ *
+ * Each update only matches a fine still in the status, amounts and reason it
+ * was loaded with, so a fine paid, edited or waived by someone else meanwhile
+ * is skipped ("changedMeanwhile"), not overwritten. Updates stamp the batch's
+ * bulkOpId on the fines they change; the ledger gets the loaded and written
+ * states of exactly those fines, so it never counts a concurrent change.
+ */
+@Service
+public class FineBulkService {
+
+    private static final int BATCH_SIZE = 500;
+
+    // Most fines one request may select or import
+    private static final int MAX_FINES = 100_000;
+
+    // Row errors listed in a result
+    private static final int MAX_REPORTED = 50;
+
+    // Marker stamped on the fines a batch changed, to tell them from the ones it skipped
+    private static final String BULK_OP_ID = "bulkOpId";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private MemberBalanceService memberBalanceService;
+
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+
+    @Autowired(required = false)
+    private NotificationService notificationService;
+
+    /**
+     * A validated bulk operation, ready to run
+     */
+    public interface BulkOperation {
+
+        /**
+         * @param dryRun   Only count what would change
+         * @param progress Receives the running totals after each batch
+         * @return the totals of the run
+         */
+        Map<String, Object> run(boolean dryRun, Consumer<Map<String, Object>> progress);
+    }
+
+    private interface BatchStep<T> {
+        void apply(List<T> batch, int offset, Totals totals);
+    }
+
+    // =============================================================================
+    // OPERATIONS
+    // =============================================================================
+
+    /**
+     * Waive the selected open fines
+     *
+     * Request: selection, "reason" (optional), "notify" (default true)
+     */
+    public BulkOperation prepareWaive(Map<String, Object> request) {
+        String reason = text(request.get("reason"), "Waived by librarian");
+        boolean notify = !Boolean.FALSE.equals(request.get("notify"));
+        List<String> ids = targetIds(selection(request));
+        return (dryRun, progress) -> runBatches("WAIVE", ids, dryRun, progress,
+            (batch, offset, totals) -> waiveBatch(batch, reason, notify, dryRun, totals));
+    }
+
+    /**
+     * Change the amount of the selected open fines
+     *
+     * Request: selection, either "amount" (new amount) or "delta" (added to the
+     * amount, may be negative), "reason" (optional, replaces the reason).
+     * Fines whose new amount would be below the amount already paid are skipped.
+     */
+    public BulkOperation prepareAdjust(Map<String, Object> request) {
+        boolean setAmount = request.get("amount") != null;
+        if (setAmount == (request.get("delta") != null)) {
+            throw new RuntimeException("Give either amount or delta");
+        }
+        long value = Money.parseCents(setAmount ? request.get("amount") : request.get("delta"));
+        if (setAmount && value < 0) {
+            throw new RuntimeException("Fine amount cannot be negative");
+        }
+        if (!setAmount && value == 0) {
+            throw new RuntimeException("delta must not be zero");
+        }
+        String reason = request.get("reason") != null ? request.get("reason").toString() : null;
+        List<String> ids = targetIds(selection(request));
+        return (dryRun, progress) -> runBatches("ADJUST", ids, dryRun, progress,
+            (batch, offset, totals) -> adjustBatch(batch, setAmount, value, reason, dryRun, totals));
+    }
+
+    /**
+     * Create manual fines from a list of rows
+     *
+     * Request: "fines": [{ memberID, amount, reason, issueDate (optional) }].
+     * Invalid rows and rows of unknown members are reported and skipped.
+     */
+    public BulkOperation prepareImport(Map<String, Object> request) {
+        if (!(request.get("fines") instanceof List) || ((List<?>) request.get("fines")).isEmpty()) {
+            throw new RuntimeException("fines must be a non-empty list");
+        }
+        List<?> rows = (List<?>) request.get("fines");
+        if (rows.size() > MAX_FINES) {
+            throw new RuntimeException("At most " + MAX_FINES + " fines per import");
+        }
+        return (dryRun, progress) -> runBatches("IMPORT", rows, dryRun, progress,
+            (batch, offset, totals) -> importBatch(batch, offset, dryRun, totals));
+    }
+
+    // =============================================================================
+    // BATCHES
+    // =============================================================================
+
+    private <T> Map<String, Object> runBatches(String operation, List<T> items, boolean dryRun,
+                                               Consumer<Map<String, Object>> progress, BatchStep<T> step) {
+        long started = System.currentTimeMillis();
+        Totals totals = new Totals();
+        for (int from = 0; from < items.size(); from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, items.size());
+            step.apply(items.subList(from, to), from, totals);
+            progress.accept(totals.toMap(operation, dryRun, "RUNNING", to, items.size()));
+        }
+        Map<String, Object> result = totals.toMap(operation, dryRun, "COMPLETED", items.size(), items.size());
+        result.put("durationMs", System.currentTimeMillis() - started);
+        if (!dryRun) {
+            System.out.println("Bulk fine " + operation.toLowerCase() + " completed: " + result);
+        }
+        return result;
+    }
+
+    private void waiveBatch(List<String> ids, String reason, boolean notify, boolean dryRun, Totals totals) {
+        List<Fine> fines = mongoTemplate.find(openFines(ids), Fine.class);
+        if (dryRun) {
+            totals.add("skipped", ids.size() - fines.size());
+            fines.forEach(fine -> totals.changed("waived", fine, fine.getAmountDueCents()));
+            return;
+        }
+        if (fines.isEmpty()) {
+            totals.add("skipped", ids.size());
+            return;
+        }
+
+        Map<String, Long> waivedCents = new HashMap<>();
+        fines.forEach(fine -> waivedCents.put(fine.getId(), fine.getAmountDueCents()));
+        LocalDate today = LocalDate.now();
+        List<Fine> waived = applyIfUnchanged(fines, fine -> {
+            fine.setStatus("WAIVED");
+            fine.setPaidDate(today);
+            fine.setReason((fine.getReason() != null ? fine.getReason() : "") + " [WAIVED: " + reason + "]");
+        }, totals);
+        totals.add("skipped", ids.size() - fines.size());
+        waived.forEach(fine -> totals.changed("waived", fine, waivedCents.get(fine.getId())));
+
+        if (notify && notificationService != null && !waived.isEmpty()) {
+            try {
+                Set<String> memberIds = new HashSet<>();
+                waived.forEach(fine -> memberIds.add(fine.getMemberID()));
+                Map<String, Member> members = new HashMap<>();
+                memberRepository.findContactsByIdIn(memberIds).forEach(member -> members.put(member.getId(), member));
+                totals.add("notified", notificationService.createFineWaiverNotifications(waived, members, reason));
+            } catch (Exception e) {
+                System.err.println("Failed to queue bulk waiver notifications: " + e.getMessage());
+            }
+        }
+    }
+
+    private void adjustBatch(List<String> ids, boolean setAmount, long value, String reason, boolean dryRun,
+                             Totals totals) {
+        List<Fine> eligible = new ArrayList<>();
+        for (Fine fine : mongoTemplate.find(openFines(ids), Fine.class)) {
+            long amount = adjusted(fine, setAmount, value);
+            if (amount >= fine.getAmountPaidCents() && amount != fine.getAmountCents()) {
+                eligible.add(fine);
+            }
+        }
+        if (dryRun) {
+            totals.add("skipped", ids.size() - eligible.size());
+            eligible.forEach(fine -> totals.changed("adjusted", fine, adjusted(fine, setAmount, value) - fine.getAmountCents()));
+            return;
+        }
+        if (eligible.isEmpty()) {
+            totals.add("skipped", ids.size());
+            return;
+        }
+
+        // The amounts are guarded by the update, so the new status follows from the loaded fine
+        Map<String, Long> deltas = new HashMap<>();
+        LocalDate today = LocalDate.now();
+        List<Fine> adjusted = applyIfUnchanged(eligible, fine -> {
+            long amount = adjusted(fine, setAmount, value);
+            deltas.put(fine.getId(), amount - fine.getAmountCents());
+            fine.setAmountCents(amount);
+            if (reason != null) {
+                fine.setReason(reason);
+            }
+            if (fine.getAmountPaidCents() >= amount) {
+                fine.setStatus("PAID");
+                fine.setPaidDate(today);
+            } else if (fine.getAmountPaidCents() > 0) {
+                fine.setStatus("PARTIALLY_PAID");
+            }
+        }, totals);
+        totals.add("skipped", ids.size() - eligible.size());
+        deltas.keySet().retainAll(idsOf(adjusted));
+        adjusted.forEach(fine -> totals.changed("adjusted", fine, deltas.get(fine.getId())));
+        circulationRollupService.recordFineAdjustments(adjusted, deltas);
+    }
+
+    private void importBatch(List<?> rows, int offset, boolean dryRun, Totals totals) {
+        Map<Fine, Integer> rowNumbers = new LinkedHashMap<>();
+        Set<String> memberIds = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            try {
+                Fine fine = importedFine(rows.get(i));
+                rowNumbers.put(fine, offset + i);
+                memberIds.add(fine.getMemberID());
+            } catch (RuntimeException e) {
+                totals.failed(offset + i, e.getMessage());
+            }
+        }
+
+        Set<String> knownMembers = new HashSet<>();
+        if (!memberIds.isEmpty()) {
+            memberRepository.findContactsByIdIn(memberIds).forEach(member -> knownMembers.add(member.getId()));
+        }
+        List<Fine> fines = new ArrayList<>();
+        rowNumbers.forEach((fine, row) -> {
+            if (knownMembers.contains(fine.getMemberID())) {
+                fines.add(fine);
+            } else {
+                totals.failed(row, "Member not found: " + fine.getMemberID());
+            }
+        });
+        if (fines.isEmpty()) {
+            return;
+        }
+
+        List<Fine> imported = fines;
+        if (!dryRun) {
+            imported = new ArrayList<>(mongoTemplate.insert(fines, Fine.class));
+            circulationRollupService.recordFinesIssued(imported);
+            List<MemberBalanceService.FineState> after = new ArrayList<>();
+            imported.forEach(fine -> after.add(MemberBalanceService.FineState.of(fine)));
+            memberBalanceService.recordFineChanges(Collections.nCopies(after.size(), MemberBalanceService.FineState.NONE), after);
+        }
+        imported.forEach(fine -> totals.changed("imported", fine, fine.getAmountCents()));
+    }
+
+    /**
+     * Write the changes of a batch in one unordered bulk write and keep the fines it changed
+     *
+     * change sets the new values on each loaded fine. Each updateOne only
+     * matches the fine in the state it was loaded in and stamps the batch's
+     * bulkOpId; re-reading the batch by that marker (on the _id index) tells
+     * which fines were written. Updates the member balances from the loaded
+     * (before) and changed (after) states of exactly those fines.
+     *
+     * @return the written fines, with their new values
+     */
+    private List<Fine> applyIfUnchanged(List<Fine> loaded, Consumer<Fine> change, Totals totals) {
+        String bulkOpId = UUID.randomUUID().toString();
+        Map<String, MemberBalanceService.FineState> loadedStates = new HashMap<>();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Fine.class);
+        for (Fine fine : loaded) {
+            Query unchanged = new Query(Criteria.where("_id").is(fine.getId())
+                .and("status").is(fine.getStatus())
+                .and("amountCents").is(fine.getAmountCents())
+                .and("amountPaidCents").is(fine.getAmountPaidCents())
+                .and("reason").is(fine.getReason()));
+            loadedStates.put(fine.getId(), MemberBalanceService.FineState.of(fine));
+            change.accept(fine);
+            bulk.updateOne(unchanged, new Update()
+                .set("amountCents", fine.getAmountCents())
+                .set("status", fine.getStatus())
+                .set("paidDate", fine.getPaidDate())
+                .set("reason", fine.getReason())
+                .set(BULK_OP_ID, bulkOpId));
+        }
+        bulk.execute();
+
+        Query marked = new Query(Criteria.where("_id").in(idsOf(loaded)).and(BULK_OP_ID).is(bulkOpId));
+        marked.fields().include("_id");
+        Set<String> written = new HashSet<>();
+        mongoTemplate.find(marked, Fine.class).forEach(fine -> written.add(fine.getId()));
+
+        List<Fine> applied = new ArrayList<>();
+        List<MemberBalanceService.FineState> before = new ArrayList<>();
+        List<MemberBalanceService.FineState> after = new ArrayList<>();
+        for (Fine fine : loaded) {
+            if (written.contains(fine.getId())) {
+                applied.add(fine);
+                before.add(loadedStates.get(fine.getId()));
+                after.add(MemberBalanceService.FineState.of(fine));
+            }
+        }
+        memberBalanceService.recordFineChanges(before, after);
+        totals.add("changedMeanwhile", loaded.size() - applied.size());
+        return applied;
+    }
+
+    // =============================================================================
+    // HELPERS
+    // =============================================================================
+
+    /**
+     * Criteria of a request's "fineIDs" and "filter"; at least one is required
+     */
+    private static Criteria selection(Map<String, Object> request) {
+        List<Criteria> parts = new ArrayList<>();
+        if (request.get("fineIDs") != null) {
+            List<String> fineIds = strings(request.get("fineIDs"));
+            if (fineIds.isEmpty()) {
+                throw new RuntimeException("fineIDs must not be empty");
+            }
+            parts.add(Criteria.where("_id").in(fineIds));
+        }
+        if (request.get("filter") != null) {
+            if (!(request.get("filter") instanceof Map)) {
+                throw new RuntimeException("filter must be an object");
+            }
+            Map<?, ?> filter = (Map<?, ?>) request.get("filter");
+            if (filter.get("memberID") != null) {
+                parts.add(Criteria.where("memberID").is(filter.get("memberID").toString()));
+            }
+            if (filter.get("memberIDs") != null) {
+                parts.add(Criteria.where("memberID").in(strings(filter.get("memberIDs"))));
+            }
+            if (filter.get("status") != null) {
+                parts.add(Criteria.where("status").in(strings(filter.get("status"))));
+            }
+            if (filter.get("issuedFrom") != null) {
+                parts.add(Criteria.where("issueDate").gte(date(filter.get("issuedFrom"))));
+            }
+            if (filter.get("issuedTo") != null) {
+                parts.add(Criteria.where("issueDate").lte(date(filter.get("issuedTo"))));
+            }
+            if (filter.get("reasonContains") != null) {
+                parts.add(Criteria.where("reason").regex(Pattern.quote(filter.get("reasonContains").toString()), "i"));
+            }
+            if (filter.get("minAmount") != null) {
+                parts.add(Criteria.where("amountCents").gte(Money.parseCents(filter.get("minAmount"))));
+            }
+            if (filter.get("maxAmount") != null) {
+                parts.add(Criteria.where("amountCents").lte(Money.parseCents(filter.get("maxAmount"))));
+            }
+        }
+        if (parts.isEmpty()) {
+            throw new RuntimeException("Select fines with fineIDs or a filter");
+        }
+        return new Criteria().andOperator(parts);
+    }
+
+    // IDs of the selected fines, in _id order
+    private List<String> targetIds(Criteria selection) {
+        Query query = new Query(selection).with(Sort.by(Sort.Direction.ASC, "_id")).limit(MAX_FINES + 1);
+        query.fields().include("_id");
+        List<String> ids = new ArrayList<>();
+        try (Stream<Fine> fines = mongoTemplate.stream(query, Fine.class)) {
+            fines.forEach(fine -> ids.add(fine.getId()));
+        }
+        if (ids.size() > MAX_FINES) {
+            throw new RuntimeException("Selection matches more than " + MAX_FINES + " fines");
+        }
+        return ids;
+    }
+
+    private static Query openFines(List<String> ids) {
+        return new Query(Criteria.where("_id").in(ids).and("status").in(MemberBalanceService.OPEN_STATUSES));
+    }
+
+    private static long adjusted(Fine fine, boolean setAmount, long value) {
+        return setAmount ? value : fine.getAmountCents() + value;
+    }
+
+    private static Fine importedFine(Object row) {
+        if (!(row instanceof Map)) {
+            throw new RuntimeException("Row must be an object");
+        }
+        Map<?, ?> values = (Map<?, ?>) row;
+        String memberID = text(values.get("memberID"), null);
+        if (memberID == null) {
+            throw new RuntimeException("memberID is required");
+        }
+        long amountCents = Money.parseCents(values.get("amount"));
+        if (amountCents <= 0) {
+            throw new RuntimeException("Fine amount must be positive");
+        }
+        Fine fine = new Fine();
+        fine.setMemberID(memberID);
+        fine.setAmountCents(amountCents);
+        fine.setAmountPaidCents(0L);
+        fine.setReason(text(values.get("reason"), "Imported fine"));
+        fine.setIssueDate(values.get("issueDate") != null ? date(values.get("issueDate")) : LocalDate.now());
+        fine.setStatus("UNPAID");
+        return fine;
+    }
+
+    private static List<String> idsOf(List<Fine> fines) {
+        List<String> ids = new ArrayList<>(fines.size());
+        fines.forEach(fine -> ids.add(fine.getId()));
+        return ids;
+    }
+
+    private static List<String> strings(Object value) {
+        List<String> strings = new ArrayList<>();
+        if (value instanceof List) {
+            ((List<?>) value).forEach(item -> strings.add(String.valueOf(item)));
+        } else {
+            strings.add(value.toString());
+        }
+        return strings;
+    }
+
+    private static LocalDate date(Object value) {
+        try {
+            return LocalDate.parse(value.toString());
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid date: " + value);
+        }
+    }
+
+    private static String text(Object value, String fallback) {
+        return value != null && !value.toString().isBlank() ? value.toString().trim() : fallback;
+    }
+
+    /**
+     * Running totals of an operation
+     */
+    private static class Totals {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        final Set<String> members = new HashSet<>();
+        final List<Map<String, Object>> errors = new ArrayList<>();
+        long amountCents = 0;
+
+        void add(String key, long n) {
+            counts.merge(key, n, Long::sum);
+        }
+
+        // A fine that was (or in a dry run would be) changed, with the change of its amount
+        void changed(String key, Fine fine, long cents) {
+            add(key, 1);
+            amountCents += cents;
+            members.add(fine.getMemberID());
+        }
+
+        void failed(int row, String error) {
+            add("failed", 1);
+            if (errors.size() < MAX_REPORTED) {
+                errors.add(Map.of("row", row, "error", String.valueOf(error)));
+            }
+        }
+
+        Map<String, Object> toMap(String operation, boolean dryRun, String status, int processed, int total) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("operation", operation);
+            map.put("dryRun", dryRun);
+            map.put("status", status);
+            map.put("processed", processed);
+            map.put("total", total);
+            map.putAll(counts);
+            map.put("amount", Money.toAmount(amountCents));
+            map.put("membersAffected", members.size());
+            if (!errors.isEmpty()) {
+                map.put("errors", new ArrayList<>(errors));
+            }
+            return map;
+        }
+    }
+}
@@ -3,28 +3,54 @@ package com.example.lms.service;
 import com.example.lms.model.BorrowRecord;
 import com.example.lms.model.Fine;
 import com.example.lms.model.Member;
+import com.example.lms.model.Money;
 import com.example.lms.model.Payment;
 import com.example.lms.model.SystemSettings;
 import com.example.lms.repository.BorrowRecordRepository;
 import com.example.lms.repository.FineRepository;
-import com.example.lms.repository.MemberRepository;
 import com.example.lms.repository.PaymentRepository;
 import com.example.lms.repository.SystemSettingsRepository;
+import com.mongodb.MongoException;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 public class FineService {
     
+    // Attempts of a payment transaction that hit a write conflict with a concurrent payment
+    private static final int MAX_PAYMENT_ATTEMPTS = 3;
+    
     @Autowired
     private FineRepository fineRepository;
     
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private MongoTransactionManager transactionManager;
+    
+    @Autowired
+    private MemberBalanceService memberBalanceService;
+    
     @Autowired
     private PaymentRepository paymentRepository;
     
@@ -32,7 +58,7 @@ public class FineService {
     private BorrowRecordRepository borrowRecordRepository;
     
     @Autowired
-    private MemberRepository memberRepository;
+    private EntityCacheService entityCacheService;
     
     @Autowired
     private SystemSettingsRepository systemSettingsRepository;
@@ -40,6 +66,9 @@ public class FineService {
     @Autowired(required = false)
     private NotificationService notificationService;
     
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+    
     /**
      * Get system settings with defaults if none exist
      */
@@ -70,7 +99,7 @@ public class FineService {
         Fine fine = new Fine();
         fine.setMemberID(record.getMemberID());
         fine.setBorrowRecordID(borrowRecordID);
-        fine.setAmountPaid(0.0);
+        fine.setAmountPaidCents(0L);
         fine.setIssueDate(LocalDate.now());
         fine.setStatus("UNPAID");
         
@@ -88,18 +117,20 @@ public class FineService {
                    record.getReturnDate().isAfter(record.getDueDate())) {
             // Overdue fine
             long daysOverdue = ChronoUnit.DAYS.between(record.getDueDate(), record.getReturnDate());
-            fine.setAmount(daysOverdue * settings.getFinePerDay());
+            fine.setAmountCents(daysOverdue * Money.toCents(settings.getFinePerDay()));
             fine.setReason("Overdue return: " + daysOverdue + " days late");
         } else {
             throw new RuntimeException("No fine applicable for this borrow record");
         }
         
         Fine savedFine = fineRepository.save(fine);
+        circulationRollupService.recordFineIssued(savedFine);
+        memberBalanceService.recordFineCreated(savedFine);
         
         // Send fine notification based on fine type
         if (notificationService != null) {
             try {
-                Optional<Member> optMember = memberRepository.findById(record.getMemberID());
+                Optional<Member> optMember = entityCacheService.findMember(record.getMemberID());
                 if (optMember.isPresent()) {
                     Member member = optMember.get();
                     if ("LOST".equals(record.getBookCondition()) || "LOST".equals(record.getStatus())) {
@@ -179,18 +210,20 @@ public class FineService {
         Fine fine = new Fine();
         fine.setMemberID(record.getMemberID());
         fine.setBorrowRecordID(borrowRecordID);
-        fine.setAmount(daysOverdue * settings.getFinePerDay());
-        fine.setAmountPaid(0.0);
+        fine.setAmountCents(daysOverdue * Money.toCents(settings.getFinePerDay()));
+        fine.setAmountPaidCents(0L);
         fine.setReason("Overdue return: " + daysOverdue + " days late");
         fine.setIssueDate(LocalDate.now());
         fine.setStatus("UNPAID");
         
         Fine savedFine = fineRepository.save(fine);
+        circulationRollupService.recordFineIssued(savedFine);
+        memberBalanceService.recordFineCreated(savedFine);
         
         // Send fine notification
         if (notificationService != null) {
             try {
-                Optional<Member> optMember = memberRepository.findById(record.getMemberID());
+                Optional<Member> optMember = entityCacheService.findMember(record.getMemberID());
                 if (optMember.isPresent()) {
                     notificationService.createFineNotification(savedFine, optMember.get());
                 }
@@ -202,134 +235,266 @@ public class FineService {
         return savedFine;
     }
     
-    public Fine createManualFine(String memberID, Double amount, String reason) {
+    public Fine createManualFine(String memberID, long amountCents, String reason) {
         Fine fine = new Fine();
         fine.setMemberID(memberID);
-        fine.setAmount(amount);
-        fine.setAmountPaid(0.0);
+        fine.setAmountCents(amountCents);
+        fine.setAmountPaidCents(0L);
         fine.setReason(reason);
         fine.setIssueDate(LocalDate.now());
         fine.setStatus("UNPAID");
         
-        return fineRepository.save(fine);
+        Fine savedFine = fineRepository.save(fine);
+        circulationRollupService.recordFineIssued(savedFine);
+        memberBalanceService.recordFineCreated(savedFine);
+        return savedFine;
     }
     
-    public Payment recordPayment(String fineID, Double amount, String paymentMethod, String notes) {
-        Fine fine = fineRepository.findById(fineID)
-            .orElseThrow(() -> new RuntimeException("Fine not found"));
-        
-        if ("PAID".equals(fine.getStatus()) || "WAIVED".equals(fine.getStatus())) {
-            throw new RuntimeException("Fine is already settled");
+    public Payment recordPayment(String fineID, long amountCents, String paymentMethod, String notes) {
+        return recordPayment(fineID, amountCents, paymentMethod, notes, null);
+    }
+    
+    /**
+     * Record a payment against a fine
+     * 
+     * The fine is updated with one conditional findAndModify: it only matches
+     * while the fine is open and amountPaid + amount stays within the fine
+     * amount, and the same pipeline update sets the new status. The payment is
+     * inserted in the same transaction, so a payment exists exactly when its
+     * amount was added to the fine. Two clerks paying the same fine at once
+     * cannot both pass the guard: the second transaction hits a write conflict
+     * and is retried against the committed balance.
+     * 
+     * Amounts are integer cents, so the guard and the PAID check compare
+     * exactly: parts that add up to the fine amount settle it.
+     * 
+     * @param amountCents    Amount paid, in cents
+     * @param idempotencyKey Optional client key; a retried request with the same
+     *                       key returns the payment of the first attempt
+     */
+    public Payment recordPayment(String fineID, long amountCents, String paymentMethod, String notes,
+                                 String idempotencyKey) {
+        if (amountCents <= 0) {
+            throw new RuntimeException("Payment amount must be positive");
         }
-        
-        Double currentPaid = fine.getAmountPaid() != null ? fine.getAmountPaid() : 0.0;
-        Double newPaid = currentPaid + amount;
-        
-        if (newPaid > fine.getAmount()) {
-            throw new RuntimeException("Payment amount exceeds fine amount");
+        if (idempotencyKey != null) {
+            Optional<Payment> previous = findIdempotentPayment(idempotencyKey, fineID, amountCents);
+            if (previous.isPresent()) {
+                return previous.get();
+            }
         }
         
-        // Create payment record
-        Payment payment = new Payment();
-        payment.setFineID(fineID);
-        payment.setMemberID(fine.getMemberID());
-        payment.setAmount(amount);
-        payment.setPaymentDate(LocalDate.now());
-        payment.setPaymentMethod(paymentMethod);
-        payment.setNotes(notes);
-        paymentRepository.save(payment);
-        
-        // Update fine
-        fine.setAmountPaid(newPaid);
-        if (newPaid.equals(fine.getAmount())) {
-            fine.setStatus("PAID");
-            fine.setPaidDate(LocalDate.now());
-        } else {
-            fine.setStatus("PARTIALLY_PAID");
+        LocalDate today = LocalDate.now();
+        PaymentOutcome outcome;
+        try {
+            outcome = inPaymentTransaction(() -> {
+                Query query = openFineQuery(fineID).addCriteria(balanceCovers(amountCents));
+                Fine fine = mongoTemplate.findAndModify(query, applyPayment(amountCents, today),
+                    FindAndModifyOptions.options().returnNew(true), Fine.class);
+                if (fine == null) {
+                    throw paymentRejected(fineID);
+                }
+                // Open before the payment (the guard only matches open fines)
+                MemberBalanceService.FineState before = new MemberBalanceService.FineState(
+                    fine.getMemberID(), fine.getAmountDueCents() + amountCents, true);
+                memberBalanceService.applyChange(before, MemberBalanceService.FineState.of(fine));
+                
+                Payment payment = new Payment();
+                payment.setFineID(fineID);
+                payment.setMemberID(fine.getMemberID());
+                payment.setAmountCents(amountCents);
+                payment.setPaymentDate(today);
+                payment.setPaymentMethod(paymentMethod);
+                payment.setNotes(notes);
+                payment.setIdempotencyKey(idempotencyKey);
+                return new PaymentOutcome(fine, mongoTemplate.insert(payment));
+            });
+        } catch (DuplicateKeyException e) {
+            // A concurrent request with the same key committed first; the fine was not touched
+            if (idempotencyKey == null) {
+                throw e;
+            }
+            return findIdempotentPayment(idempotencyKey, fineID, amountCents).orElseThrow(() -> e);
         }
         
-        Fine savedFine = fineRepository.save(fine);
+        afterPayment(outcome.fine, outcome.payment);
+        return outcome.payment;
+    }
+    
+    /**
+     * Settle the remaining balance of a fine with a cash payment
+     * 
+     * The fine is marked paid with one conditional findAndModify that returns
+     * the previous state; the payment for the balance it had is inserted in
+     * the same transaction.
+     */
+    public Fine markAsPaid(String fineID) {
+        LocalDate today = LocalDate.now();
+        PaymentOutcome outcome = inPaymentTransaction(() -> {
+            Fine previous = mongoTemplate.findAndModify(openFineQuery(fineID), settle(today),
+                FindAndModifyOptions.options().returnNew(false), Fine.class);
+            if (previous == null) {
+                Fine fine = fineRepository.findById(fineID)
+                    .orElseThrow(() -> new RuntimeException("Fine not found"));
+                throw new RuntimeException("PAID".equals(fine.getStatus())
+                    ? "Fine is already paid" : "Fine is already waived");
+            }
+            
+            // Create a payment record for the remaining amount
+            long remainingCents = previous.getAmountDueCents();
+            Payment payment = null;
+            if (remainingCents > 0) {
+                payment = new Payment();
+                payment.setFineID(fineID);
+                payment.setMemberID(previous.getMemberID());
+                payment.setAmountCents(remainingCents);
+                payment.setPaymentDate(today);
+                payment.setPaymentMethod("CASH");
+                payment.setNotes("Marked as paid by librarian");
+                payment = mongoTemplate.insert(payment);
+            }
+            
+            // State written by the update
+            MemberBalanceService.FineState before = MemberBalanceService.FineState.of(previous);
+            previous.setAmountPaidCents(previous.getAmountCents());
+            previous.setStatus("PAID");
+            previous.setPaidDate(today);
+            memberBalanceService.applyChange(before, MemberBalanceService.FineState.of(previous));
+            return new PaymentOutcome(previous, payment);
+        });
+        
+        if (outcome.payment != null) {
+            afterPayment(outcome.fine, outcome.payment);
+        }
+        return outcome.fine;
+    }
+    
+    // Rollups and the payment confirmation, once the payment is committed
+    private void afterPayment(Fine fine, Payment payment) {
+        circulationRollupService.recordPayment(fine, payment);
         
         // Send payment confirmation notification
-        if (notificationService != null && newPaid.equals(fine.getAmount())) {
+        if (notificationService != null && "PAID".equals(fine.getStatus())) {
             try {
-                Optional<Member> optMember = memberRepository.findById(fine.getMemberID());
+                Optional<Member> optMember = entityCacheService.findMember(fine.getMemberID());
                 if (optMember.isPresent()) {
-                    notificationService.createPaymentConfirmationNotification(savedFine, optMember.get(), payment);
+                    notificationService.createPaymentConfirmationNotification(fine, optMember.get(), payment);
                 }
             } catch (Exception e) {
                 System.err.println("Failed to send payment confirmation notification: " + e.getMessage());
             }
         }
-        
-        return payment;
     }
     
-    public Fine markAsPaid(String fineID) {
-        Fine fine = fineRepository.findById(fineID)
-            .orElseThrow(() -> new RuntimeException("Fine not found"));
-        
-        if ("PAID".equals(fine.getStatus())) {
-            throw new RuntimeException("Fine is already paid");
+    private Optional<Payment> findIdempotentPayment(String idempotencyKey, String fineID, long amountCents) {
+        Optional<Payment> previous = paymentRepository.findByIdempotencyKey(idempotencyKey);
+        if (previous.isPresent() && (!fineID.equals(previous.get().getFineID())
+                || previous.get().getAmountCents() != amountCents)) {
+            throw new RuntimeException("Idempotency key was already used for a different payment");
         }
-        
-        if ("WAIVED".equals(fine.getStatus())) {
-            throw new RuntimeException("Fine is already waived");
+        return previous;
+    }
+    
+    // Fines that can still take payments
+    private static Query openFineQuery(String fineID) {
+        return new Query(Criteria.where("_id").is(fineID).and("status").nin("PAID", "WAIVED"));
+    }
+    
+    // amountPaidCents + amount <= amountCents, evaluated by the server on the current document
+    private static Criteria balanceCovers(long amountCents) {
+        Document newPaid = new Document("$add", List.of("$amountPaidCents", amountCents));
+        return Criteria.expr(() -> new Document("$lte", List.of(newPaid, "$amountCents")));
+    }
+    
+    // Add the amount, then derive the status and paid date from the new balance
+    private AggregationUpdate applyPayment(long amountCents, LocalDate today) {
+        Object paidDate = mongoTemplate.getConverter().convertToMongoType(today);
+        Document newPaid = new Document("$add", List.of("$amountPaidCents", amountCents));
+        Document settled = new Document("$gte", List.of("$amountPaidCents", "$amountCents"));
+        AggregationOperation addAmount = context -> new Document("$set", new Document("amountPaidCents", newPaid));
+        AggregationOperation setStatus = context -> new Document("$set",
+            new Document("status", new Document("$cond", List.of(settled, "PAID", "PARTIALLY_PAID")))
+                .append("paidDate", new Document("$cond", List.of(settled, paidDate, "$paidDate"))));
+        return AggregationUpdate.from(List.of(addAmount, setStatus));
+    }
+    
+    private AggregationUpdate settle(LocalDate today) {
+        Object paidDate = mongoTemplate.getConverter().convertToMongoType(today);
+        AggregationOperation markPaid = context -> new Document("$set", new Document("amountPaidCents", "$amountCents")
+            .append("status", "PAID")
+            .append("paidDate", paidDate));
+        return AggregationUpdate.from(List.of(markPaid));
+    }
+    
+    // Why the guarded update did not match, with the messages clients already know
+    private RuntimeException paymentRejected(String fineID) {
+        Fine fine = fineRepository.findById(fineID).orElse(null);
+        if (fine == null) {
+            return new RuntimeException("Fine not found");
         }
-        
-        // Calculate remaining amount to pay
-        Double currentPaid = fine.getAmountPaid() != null ? fine.getAmountPaid() : 0.0;
-        Double remainingAmount = fine.getAmount() - currentPaid;
-        
-        // Create a payment record for the remaining amount
-        Payment payment = null;
-        if (remainingAmount > 0) {
-            payment = new Payment();
-            payment.setFineID(fineID);
-            payment.setMemberID(fine.getMemberID());
-            payment.setAmount(remainingAmount);
-            payment.setPaymentDate(LocalDate.now());
-            payment.setPaymentMethod("CASH");
-            payment.setNotes("Marked as paid by librarian");
-            paymentRepository.save(payment);
+        if ("PAID".equals(fine.getStatus()) || "WAIVED".equals(fine.getStatus())) {
+            return new RuntimeException("Fine is already settled");
         }
-        
-        // Mark as fully paid
-        fine.setAmountPaid(fine.getAmount());
-        fine.setStatus("PAID");
-        fine.setPaidDate(LocalDate.now());
-        
-        Fine savedFine = fineRepository.save(fine);
-        
-        // Send payment confirmation notification
-        if (notificationService != null && payment != null) {
+        return new RuntimeException("Payment amount exceeds fine amount");
+    }
+    
+    /**
+     * Run payment work in a multi-document transaction
+     * 
+     * Transactions aborted with a TransientTransactionError (a write conflict
+     * with a concurrent payment on the same fine) left nothing behind and are
+     * retried; every other failure is rethrown.
+     */
+    private <T> T inPaymentTransaction(Supplier<T> work) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
             try {
-                Optional<Member> optMember = memberRepository.findById(fine.getMemberID());
-                if (optMember.isPresent()) {
-                    notificationService.createPaymentConfirmationNotification(savedFine, optMember.get(), payment);
+                return transaction.execute(status -> work.get());
+            } catch (DataAccessException e) {
+                if (attempt >= MAX_PAYMENT_ATTEMPTS || !isTransientTransactionError(e)) {
+                    throw e;
                 }
-            } catch (Exception e) {
-                System.err.println("Failed to send payment confirmation notification: " + e.getMessage());
             }
         }
+    }
+    
+    private static boolean isTransientTransactionError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException
+                    && ((MongoException) cause).hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static class PaymentOutcome {
+        final Fine fine;
+        final Payment payment;
         
-        return savedFine;
+        PaymentOutcome(Fine fine, Payment payment) {
+            this.fine = fine;
+            this.payment = payment;
+        }
     }
     
     public Fine waiveFine(String fineID, String reason) {
         Fine fine = fineRepository.findById(fineID)
             .orElseThrow(() -> new RuntimeException("Fine not found"));
         
-        fine.setStatus("WAIVED");
-        fine.setReason(fine.getReason() + " [WAIVED: " + reason + "]");
-        fine.setPaidDate(LocalDate.now());
+        MemberBalanceService.FineState before = MemberBalanceService.FineState.of(fine);
+        Update update = new Update()
+            .set("status", "WAIVED")
+            .set("reason", fine.getReason() + " [WAIVED: " + reason + "]")
+            .set("paidDate", LocalDate.now());
         
-        Fine savedFine = fineRepository.save(fine);
+        Fine savedFine = updateIfUnchanged(fine, update);
+        memberBalanceService.recordFineChange(before, savedFine);
         
         // Send fine waiver notification
         if (notificationService != null) {
             try {
-                Optional<Member> optMember = memberRepository.findById(fine.getMemberID());
+                Optional<Member> optMember = entityCacheService.findMember(fine.getMemberID());
                 if (optMember.isPresent()) {
                     notificationService.createFineWaiverNotification(savedFine, optMember.get(), reason);
                 }
@@ -372,26 +537,26 @@ public class FineService {
     public Map<String, Object> generateFineReport() {
         List<Fine> allFines = fineRepository.findAll();
         
-        Double totalFines = 0.0;
-        Double totalPaid = 0.0;
-        Double totalOutstanding = 0.0;
+        long totalFines = 0;
+        long totalPaid = 0;
+        long totalOutstanding = 0;
         int unpaidCount = 0;
         int partiallyPaidCount = 0;
         int paidCount = 0;
         int waivedCount = 0;
         
         for (Fine fine : allFines) {
-            totalFines += fine.getAmount();
-            totalPaid += (fine.getAmountPaid() != null ? fine.getAmountPaid() : 0.0);
+            totalFines += fine.getAmountCents();
+            totalPaid += fine.getAmountPaidCents();
             
             switch (fine.getStatus()) {
                 case "UNPAID":
                     unpaidCount++;
-                    totalOutstanding += fine.getAmount();
+                    totalOutstanding += fine.getAmountCents();
                     break;
                 case "PARTIALLY_PAID":
                     partiallyPaidCount++;
-                    totalOutstanding += fine.getAmountDue();
+                    totalOutstanding += fine.getAmountDueCents();
                     break;
                 case "PAID":
                     paidCount++;
@@ -403,9 +568,9 @@ public class FineService {
         }
         
         Map<String, Object> report = new HashMap<>();
-        report.put("totalFines", totalFines);
-        report.put("totalPaid", totalPaid);
-        report.put("totalOutstanding", totalOutstanding);
+        report.put("totalFines", Money.toAmount(totalFines));
+        report.put("totalPaid", Money.toAmount(totalPaid));
+        report.put("totalOutstanding", Money.toAmount(totalOutstanding));
         report.put("unpaidCount", unpaidCount);
         report.put("partiallyPaidCount", partiallyPaidCount);
         report.put("paidCount", paidCount);
@@ -415,17 +580,9 @@ public class FineService {
         return report;
     }
     
+    // One keyed read of the member's balance ledger
     public Double getMemberTotalOutstanding(String memberID) {
-        List<Fine> memberFines = fineRepository.findByMemberID(memberID);
-        Double total = 0.0;
-        
-        for (Fine fine : memberFines) {
-            if ("UNPAID".equals(fine.getStatus()) || "PARTIALLY_PAID".equals(fine.getStatus())) {
-                total += fine.getAmountDue();
-            }
-        }
-        
-        return total;
+        return memberBalanceService.getOutstanding(memberID);
     }
     
     public Fine getFineById(String fineID) {
@@ -433,7 +590,7 @@ public class FineService {
             .orElseThrow(() -> new RuntimeException("Fine not found with ID: " + fineID));
     }
     
-    public Fine updateFine(String fineID, Double amount, String reason) {
+    public Fine updateFine(String fineID, long amountCents, String reason) {
         Fine fine = getFineById(fineID);
         
         // Only allow editing if fine hasn't been paid or waived
@@ -442,23 +599,51 @@ public class FineService {
         }
         
         // If there are payments, ensure new amount is not less than amount paid
-        Double amountPaid = fine.getAmountPaid() != null ? fine.getAmountPaid() : 0.0;
-        if (amount < amountPaid) {
-            throw new RuntimeException("New fine amount cannot be less than amount already paid: " + amountPaid);
+        long amountPaidCents = fine.getAmountPaidCents();
+        if (amountCents < amountPaidCents) {
+            throw new RuntimeException("New fine amount cannot be less than amount already paid: " + fine.getAmountPaid());
         }
         
-        fine.setAmount(amount);
-        fine.setReason(reason);
+        long previousCents = fine.getAmountCents();
+        MemberBalanceService.FineState before = MemberBalanceService.FineState.of(fine);
+        Update update = new Update()
+            .set("amountCents", amountCents)
+            .set("reason", reason);
         
         // Update status based on new amount and existing payments
-        if (amountPaid >= amount) {
-            fine.setStatus("PAID");
-            fine.setPaidDate(LocalDate.now());
-        } else if (amountPaid > 0) {
-            fine.setStatus("PARTIALLY_PAID");
+        if (amountPaidCents >= amountCents) {
+            update.set("status", "PAID").set("paidDate", LocalDate.now());
+        } else if (amountPaidCents > 0) {
+            update.set("status", "PARTIALLY_PAID");
         }
         
-        return fineRepository.save(fine);
+        Fine savedFine = updateIfUnchanged(fine, update);
+        circulationRollupService.recordFineAdjustment(savedFine, amountCents - previousCents);
+        memberBalanceService.recordFineChange(before, savedFine);
+        return savedFine;
+    }
+    
+    /**
+     * Apply an edit to a fine only if it still has the status and amounts it was read with
+     * 
+     * Those fields are what the edit was decided on, and every other writer
+     * (payments, waivers, the daily fine update) changes at least one of
+     * them, so they act as the fine's version: a concurrent change makes the
+     * update match nothing instead of being overwritten.
+     * 
+     * @return the fine after the edit
+     */
+    private Fine updateIfUnchanged(Fine read, Update update) {
+        Query query = new Query(Criteria.where("_id").is(read.getId())
+            .and("status").is(read.getStatus())
+            .and("amountCents").is(read.getAmountCents())
+            .and("amountPaidCents").is(read.getAmountPaidCents()));
+        Fine updated = mongoTemplate.findAndModify(query, update,
+            FindAndModifyOptions.options().returnNew(true), Fine.class);
+        if (updated == null) {
+            throw new RuntimeException("Fine was changed by another request, please reload it and try again");
+        }
+        return updated;
     }
     
     public void deleteFine(String fineID) {
@@ -470,5 +655,7 @@ public class FineService {
         }
         
         fineRepository.deleteById(fineID);
+        circulationRollupService.recordFineDeleted(fine);
+        memberBalanceService.recordFineDeleted(fine);
     }
 }
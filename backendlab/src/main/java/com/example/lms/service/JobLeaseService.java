@@ -0,0 +1,320 @@
+package com.example.lms.service;
+
+import com.example.lms.model.JobLease;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * JobLeaseService - Runs scheduled jobs once per cluster using leases stored in MongoDB
+ * 
+ * Every node fires the same @Scheduled methods; wrapping the job body in
+ * runOnce makes only the node that wins the lease execute it. A run key (for
+ * daily jobs, the date) is recorded on completion so a node whose trigger fires
+ * a little later does not repeat a finished run.
+ * 
+ * Leases are kept alive by a background heartbeat while the job runs. A node
+ * that stops heartbeating loses its lease after LEASE_TTL_SECONDS and the next
+ * acquirer receives a higher fencing token. Heartbeats and completion only
+ * match the lease under the holder's own token. Jobs can check Lease.isHeld()
+ * between batches, but that only sees a takeover at the next heartbeat; jobs
+ * whose writes must not be repeated by a stale holder also pass the token
+ * into those writes (OverduePipelineService conditions its checkpoints on it).
+ * 
+ * For large jobs, runPartitioned splits the work into numbered partitions with
+ * one lease each, so all nodes work on disjoint partitions of the same run.
+ */
+@Service
+public class JobLeaseService {
+    
+    // A lease lapses this long after its last heartbeat
+    private static final long LEASE_TTL_SECONDS = 120;
+    
+    // Held leases are renewed at this interval (well inside the TTL)
+    private static final long HEARTBEAT_SECONDS = 30;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    // Identifies this node as lease owner
+    private final String instanceId;
+    
+    // Leases currently held by this node, by lease name
+    private final Map<String, Lease> heldLeases = new ConcurrentHashMap<>();
+    
+    private final ScheduledExecutorService heartbeat;
+    
+    public JobLeaseService() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        this.instanceId = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat.scheduleAtFixedRate(this::renewHeldLeases, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * ID under which this node holds leases
+     */
+    public String getInstanceId() {
+        return instanceId;
+    }
+    
+    /**
+     * Run a job unless another node holds its lease or already completed this run
+     * 
+     * @param jobName Lease name of the job
+     * @param runKey  Identifies the scheduled run (e.g. the date for a daily job)
+     * @param job     Job body; receives the lease to check between batches
+     * @return true if this node ran the job
+     */
+    public boolean runOnce(String jobName, String runKey, Consumer<Lease> job) {
+        Lease lease = tryAcquire(jobName, runKey);
+        if (lease == null) {
+            System.out.println("Skipping job " + jobName + " (" + runKey + "): lease held or run already completed");
+            return false;
+        }
+        
+        boolean completed = false;
+        try {
+            job.accept(lease);
+            completed = lease.isHeld();
+        } finally {
+            if (completed) {
+                complete(lease);
+            } else {
+                release(lease);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Run a job split into partitions; each node works through the partitions it can lease
+     * 
+     * Nodes start at different partitions and move on to the next free one when
+     * they finish, so the partitions of a run are spread across the cluster and
+     * each is processed once.
+     * 
+     * @param jobName    Lease name prefix of the job
+     * @param runKey     Identifies the scheduled run
+     * @param partitions Number of partitions the work is split into
+     * @param work       Partition body; receives the partition number and its lease
+     * @return number of partitions processed by this node
+     */
+    public int runPartitioned(String jobName, String runKey, int partitions, BiConsumer<Integer, Lease> work) {
+        int start = Math.floorMod(instanceId.hashCode(), partitions);
+        int processed = 0;
+        for (int i = 0; i < partitions; i++) {
+            int partition = (start + i) % partitions;
+            if (runOnce(partitionLeaseName(jobName, partition), runKey, lease -> work.accept(partition, lease))) {
+                processed++;
+            }
+        }
+        return processed;
+    }
+    
+    /**
+     * Parallel variant of runPartitioned: every partition is attempted on the given executor
+     * 
+     * @param executor Executor running the partition tasks; waited on before returning
+     * @return number of partitions processed by this node
+     */
+    public int runPartitioned(String jobName, String runKey, int partitions, ExecutorService executor,
+                              BiConsumer<Integer, Lease> work) {
+        int start = Math.floorMod(instanceId.hashCode(), partitions);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            int partition = (start + i) % partitions;
+            futures.add(executor.submit(() ->
+                runOnce(partitionLeaseName(jobName, partition), runKey, lease -> work.accept(partition, lease))));
+        }
+        
+        int processed = 0;
+        for (Future<Boolean> future : futures) {
+            try {
+                if (future.get()) {
+                    processed++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                System.err.println("Partition of job " + jobName + " failed: " + e.getCause().getMessage());
+            }
+        }
+        return processed;
+    }
+    
+    /**
+     * Lease document name of one partition of a job
+     */
+    public static String partitionLeaseName(String jobName, int partition) {
+        return jobName + "#" + partition;
+    }
+    
+    /**
+     * Current state of every lease, for monitoring
+     */
+    public List<JobLease> getLeases() {
+        return mongoTemplate.findAll(JobLease.class);
+    }
+    
+    /**
+     * Claim a lease if it is free or expired and the run is not completed yet
+     * 
+     * @return the lease, or null if another node holds it or the run already completed
+     */
+    private Lease tryAcquire(String name, String runKey) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().andOperator(
+            Criteria.where("_id").is(name),
+            Criteria.where("lastCompletedRun").ne(runKey),
+            new Criteria().orOperator(
+                Criteria.where("owner").is(null),
+                Criteria.where("expiresAt").lt(now))));
+        Update update = new Update()
+            .set("owner", instanceId)
+            .set("acquiredAt", now)
+            .set("heartbeatAt", now)
+            .set("expiresAt", now.plusSeconds(LEASE_TTL_SECONDS))
+            .inc("fencingToken", 1);
+        
+        JobLease acquired;
+        try {
+            acquired = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), JobLease.class);
+        } catch (DuplicateKeyException e) {
+            // The document exists but is held or completed; the upsert lost the race
+            return null;
+        }
+        if (acquired == null) {
+            return null;
+        }
+        
+        Lease lease = new Lease(name, runKey, acquired.getFencingToken());
+        heldLeases.put(name, lease);
+        return lease;
+    }
+    
+    // Record the completed run and free the lease
+    private void complete(Lease lease) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+            .set("lastCompletedRun", lease.runKey)
+            .set("completedAt", now)
+            .set("owner", null)
+            .set("expiresAt", now);
+        if (mongoTemplate.updateFirst(ownedBy(lease), update, JobLease.class).getMatchedCount() == 0) {
+            System.err.println("Lease " + lease.name + " was taken over before the run completed (token " + lease.fencingToken + ")");
+        }
+        forget(lease);
+    }
+    
+    // Free the lease without marking the run completed, so it can be retried
+    private void release(Lease lease) {
+        try {
+            mongoTemplate.updateFirst(ownedBy(lease),
+                new Update().set("owner", null).set("expiresAt", LocalDateTime.now()), JobLease.class);
+        } catch (Exception e) {
+            System.err.println("Failed to release lease " + lease.name + ": " + e.getMessage());
+        }
+        forget(lease);
+    }
+    
+    private void forget(Lease lease) {
+        lease.held = false;
+        heldLeases.remove(lease.name, lease);
+    }
+    
+    // Extend every held lease; a lease whose token no longer matches has been lost
+    private void renewHeldLeases() {
+        for (Lease lease : heldLeases.values()) {
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                Update update = new Update()
+                    .set("heartbeatAt", now)
+                    .set("expiresAt", now.plusSeconds(LEASE_TTL_SECONDS));
+                if (mongoTemplate.updateFirst(ownedBy(lease), update, JobLease.class).getMatchedCount() == 0) {
+                    System.err.println("Lost lease " + lease.name + " (token " + lease.fencingToken + ")");
+                    forget(lease);
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to renew lease " + lease.name + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    // Matches the lease document only while this node still holds it under the same token
+    private Query ownedBy(Lease lease) {
+        return new Query(Criteria.where("_id").is(lease.name)
+            .and("owner").is(instanceId)
+            .and("fencingToken").is(lease.fencingToken));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        for (Lease lease : heldLeases.values()) {
+            release(lease);
+        }
+    }
+    
+    /**
+     * A lease held by this node
+     */
+    public static class Lease {
+        private final String name;
+        private final String runKey;
+        private final long fencingToken;
+        private volatile boolean held = true;
+        
+        Lease(String name, String runKey, long fencingToken) {
+            this.name = name;
+            this.runKey = runKey;
+            this.fencingToken = fencingToken;
+        }
+        
+        public String getName() { return name; }
+        
+        public String getRunKey() { return runKey; }
+        
+        public long getFencingToken() { return fencingToken; }
+        
+        /**
+         * Whether this node still holds the lease
+         * False once a heartbeat found the lease taken over; the job should stop
+         */
+        public boolean isHeld() { return held; }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.lms.service;
 
 import com.example.lms.model.Librarian;
 import com.example.lms.repository.LibrarianRepository;
+import com.example.lms.repository.projection.LibrarianSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -68,11 +69,12 @@ public class LibrarianService {
         return librarianRepository.findByUsername(username);
     }
 
-    public List<Librarian> getAllActiveLibrarians() {
-        return librarianRepository.findByActiveTrue();
+    // List views use the summary projection so password hashes stay in the database
+    public List<LibrarianSummary> getAllActiveLibrarians() {
+        return librarianRepository.findActiveSummaries();
     }
 
-    public List<Librarian> getAllLibrarians() {
-        return librarianRepository.findAll();
+    public List<LibrarianSummary> getAllLibrarians() {
+        return librarianRepository.findAllSummaries();
     }
 }
@@ -0,0 +1,478 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Fine;
+import com.example.lms.model.JobLease;
+import com.example.lms.model.MemberBalance;
+import com.example.lms.model.Money;
+import com.example.lms.repository.FineRepository;
+import com.example.lms.repository.MemberBalanceRepository;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * MemberBalanceService - Per-member ledger of outstanding fines
+ *
+ * Every change to a fine (created, accrued, paid, waived, edited, deleted)
+ * applies the change of its outstanding amount to the member's balance with
+ * one atomic $inc upsert, so balance checks are one keyed read. Ledger writes
+ * outside a payment never fail the fine operation; a lost write is corrected
+ * by the nightly reconciliation.
+ *
+ * Outside payments the fine is written first and its ledger $inc follows,
+ * so for a moment the fines are ahead of the ledger. The reconciliation
+ * must not take such an in-flight change for drift, see reconcile.
+ *
+ * Until the first reconciliation has built the ledger, reads fall back to
+ * the fines collection.
+ *
+ * Balances are kept in cents, so increments and the reconciliation's
+ * comparison are exact.
+ */
+@Service
+public class MemberBalanceService {
+
+    public static final List<String> OPEN_STATUSES = List.of("UNPAID", "PARTIALLY_PAID");
+
+    private static final String RECONCILE_JOB = "member-balance-reconcile";
+
+    // Drifted members listed in a reconciliation result
+    private static final int MAX_REPORTED = 20;
+
+    // How long a "ledger not built yet" answer is trusted before checking again
+    private static final long READY_CHECK_MILLIS = 60_000;
+
+    // Wait between finding drift and correcting it, so in-flight ledger increments land first
+    private static final long SETTLE_MILLIS = 30_000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MemberBalanceRepository balanceRepository;
+
+    @Autowired
+    private FineRepository fineRepository;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    private volatile boolean ledgerReady = false;
+    private volatile long readyCheckedAt = 0;
+
+    // Result of the last reconciliation run on this node
+    private volatile Map<String, Object> lastReconciliation;
+
+    // =============================================================================
+    // BALANCE READS
+    // =============================================================================
+
+    /**
+     * Sum of the amounts due of the member's open fines
+     */
+    public double getOutstanding(String memberID) {
+        return Money.toAmount(getOutstandingCents(memberID));
+    }
+
+    /**
+     * Sum of the amounts due of the member's open fines, in cents
+     */
+    public long getOutstandingCents(String memberID) {
+        if (!isLedgerReady()) {
+            long total = 0;
+            for (Fine fine : fineRepository.findByMemberIDAndStatusIn(memberID, OPEN_STATUSES)) {
+                total += fine.getAmountDueCents();
+            }
+            return total;
+        }
+        return balanceRepository.findById(memberID)
+            .map(MemberBalance::getOutstandingCents)
+            .orElse(0L);
+    }
+
+    /**
+     * Whether the member has any UNPAID or PARTIALLY_PAID fine
+     */
+    public boolean hasOutstandingFines(String memberID) {
+        if (!isLedgerReady()) {
+            Query query = new Query(Criteria.where("memberID").is(memberID).and("status").in(OPEN_STATUSES));
+            return mongoTemplate.exists(query, Fine.class);
+        }
+        return balanceRepository.findById(memberID)
+            .map(balance -> balance.getOpenFines() > 0)
+            .orElse(false);
+    }
+
+    /**
+     * The ledger is built once a reconciliation has completed
+     */
+    public boolean isLedgerReady() {
+        if (ledgerReady) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - readyCheckedAt >= READY_CHECK_MILLIS) {
+            JobLease lease = mongoTemplate.findById(RECONCILE_JOB, JobLease.class);
+            ledgerReady = lease != null && lease.getCompletedAt() != null;
+            readyCheckedAt = now;
+        }
+        return ledgerReady;
+    }
+
+    // =============================================================================
+    // BALANCE CHANGES
+    // =============================================================================
+
+    public void recordFineCreated(Fine fine) {
+        recordFineChange(FineState.NONE, fine);
+    }
+
+    public void recordFineDeleted(Fine fine) {
+        recordFineChange(FineState.of(fine), null);
+    }
+
+    /**
+     * Apply the change of a fine to its member's balance; failures are logged only
+     *
+     * @param before State of the fine before the change (FineState.of before mutating it)
+     * @param after  The fine after the change, or null if it was deleted
+     */
+    public void recordFineChange(FineState before, Fine after) {
+        try {
+            applyChange(before, FineState.of(after));
+        } catch (Exception e) {
+            String memberID = after != null ? after.getMemberID() : before.memberID;
+            System.err.println("Failed to update balance of member " + memberID + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Apply the changes of many fines with one bulk of upserts, one per member
+     *
+     * Used by bulk fine operations; failures are logged only.
+     *
+     * @param before States before the changes (FineState.NONE for created fines)
+     * @param after  States after the changes, in the same order
+     */
+    public void recordFineChanges(List<FineState> before, List<FineState> after) {
+        Map<String, long[]> deltas = new LinkedHashMap<>();
+        for (int i = 0; i < before.size(); i++) {
+            addDelta(deltas, before.get(i), -1);
+            addDelta(deltas, after.get(i), 1);
+        }
+        deltas.values().removeIf(delta -> delta[0] == 0 && delta[1] == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MemberBalance.class);
+            LocalDateTime now = LocalDateTime.now();
+            deltas.forEach((memberID, delta) -> bulk.upsert(new Query(Criteria.where("_id").is(memberID)), new Update()
+                .inc("outstandingCents", delta[0])
+                .inc("openFines", delta[1])
+                .inc("version", 1)
+                .set("updatedAt", now)));
+            bulk.execute();
+        } catch (Exception e) {
+            System.err.println("Failed to update balances of " + deltas.size() + " members: " + e.getMessage());
+        }
+    }
+
+    private static void addDelta(Map<String, long[]> deltas, FineState state, int sign) {
+        if (state.memberID == null) {
+            return;
+        }
+        long[] delta = deltas.computeIfAbsent(state.memberID, id -> new long[2]);
+        delta[0] += sign * state.outstanding;
+        delta[1] += state.open ? sign : 0;
+    }
+
+    /**
+     * Apply a fine change to the ledger, throwing on failure
+     *
+     * Used inside payment transactions, where a failed ledger write must roll
+     * the payment back.
+     */
+    public void applyChange(FineState before, FineState after) {
+        if (before.memberID != null && after.memberID != null && !before.memberID.equals(after.memberID)) {
+            applyDelta(before.memberID, -before.outstanding, before.open ? -1 : 0);
+            applyDelta(after.memberID, after.outstanding, after.open ? 1 : 0);
+            return;
+        }
+        String memberID = after.memberID != null ? after.memberID : before.memberID;
+        applyDelta(memberID, after.outstanding - before.outstanding, (after.open ? 1 : 0) - (before.open ? 1 : 0));
+    }
+
+    private void applyDelta(String memberID, long outstandingDelta, long openFinesDelta) {
+        if (memberID == null || (outstandingDelta == 0 && openFinesDelta == 0)) {
+            return;
+        }
+        Update update = new Update()
+            .inc("outstandingCents", outstandingDelta)
+            .inc("openFines", openFinesDelta)
+            .inc("version", 1)
+            .set("updatedAt", LocalDateTime.now());
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(memberID)), update, MemberBalance.class);
+    }
+
+    /**
+     * What a fine contributes to its member's balance
+     */
+    public static class FineState {
+
+        public static final FineState NONE = new FineState(null, 0L, false);
+
+        private final String memberID;
+        private final long outstanding;
+        private final boolean open;
+
+        /**
+         * @param outstanding Amount due, in cents
+         */
+        public FineState(String memberID, long outstanding, boolean open) {
+            this.memberID = memberID;
+            this.outstanding = outstanding;
+            this.open = open;
+        }
+
+        public static FineState of(Fine fine) {
+            if (fine == null) {
+                return NONE;
+            }
+            boolean open = OPEN_STATUSES.contains(fine.getStatus());
+            long due = open ? fine.getAmountDueCents() : 0L;
+            return new FineState(fine.getMemberID(), due, open);
+        }
+
+        public String getMemberID() { return memberID; }
+
+        public long getOutstanding() { return outstanding; }
+
+        public boolean isOpen() { return open; }
+    }
+
+    // =============================================================================
+    // RECONCILIATION
+    // =============================================================================
+
+    /**
+     * Nightly check of every balance against the fines collection
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void scheduledReconciliation() {
+        jobLeaseService.runOnce(RECONCILE_JOB, LocalDate.now().toString(), lease -> reconcile());
+    }
+
+    /**
+     * Build the ledger shortly after the first start with this feature
+     */
+    @Scheduled(initialDelay = 60000, fixedDelay = 3600000)
+    public void buildLedgerIfMissing() {
+        if (!isLedgerReady()) {
+            jobLeaseService.runOnce(RECONCILE_JOB, "initial-build", lease -> reconcile());
+        }
+    }
+
+    /**
+     * Run a reconciliation now (admin request)
+     */
+    public Map<String, Object> reconcileNow() {
+        boolean ran = jobLeaseService.runOnce(RECONCILE_JOB, "manual-" + LocalDateTime.now(), lease -> reconcile());
+        if (!ran) {
+            throw new RuntimeException("A balance reconciliation is already running");
+        }
+        return lastReconciliation;
+    }
+
+    public Map<String, Object> getLastReconciliation() {
+        return lastReconciliation != null ? lastReconciliation : Map.of("status", "NEVER_RUN");
+    }
+
+    /**
+     * Recompute every balance from the open fines and correct the ones that drifted
+     *
+     * The ledger is read before the fines are aggregated, and a balance is only
+     * corrected if its version is still the one in that snapshot, so a balance
+     * that changed meanwhile is left for the next run instead of being
+     * overwritten with a stale total.
+     *
+     * A fine written just before the aggregation may have its ledger $inc
+     * still in flight: the aggregation counts the fine, the snapshot lacks
+     * the increment, and the member looks drifted. Corrections are therefore
+     * applied only SETTLE_MILLIS after the aggregation. By then the pending
+     * increment has landed and bumped the version, so the compare-and-set
+     * skips the member instead of setting a total the increment is then
+     * added to a second time.
+     */
+    private void reconcile() {
+        long started = System.currentTimeMillis();
+
+        Map<String, MemberBalance> ledger = new HashMap<>();
+        try (Stream<MemberBalance> balances = balanceRepository.streamAll()) {
+            balances.forEach(balance -> ledger.put(balance.getId(), balance));
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("status").in(OPEN_STATUSES).and("memberID").ne(null)),
+            Aggregation.project("memberID")
+                .and(ArithmeticOperators.Subtract.valueOf("amountCents").subtract("amountPaidCents"))
+                .as("due"),
+            Aggregation.group("memberID").sum("due").as("outstanding").count().as("openFines"));
+
+        long checked = 0;
+        List<Correction> corrections = new ArrayList<>();
+        List<Map<String, Object>> drifted = new ArrayList<>();
+        try (Stream<Document> expected = mongoTemplate.aggregateStream(aggregation, Fine.class, Document.class)) {
+            for (Document row : (Iterable<Document>) expected::iterator) {
+                checked++;
+                String memberID = row.getString("_id");
+                long outstanding = ((Number) row.get("outstanding")).longValue();
+                long openFines = ((Number) row.get("openFines")).longValue();
+                MemberBalance balance = ledger.remove(memberID);
+                if (!matches(balance, outstanding, openFines)) {
+                    corrections.add(new Correction(memberID, balance, outstanding, openFines));
+                }
+            }
+        }
+        long aggregated = System.currentTimeMillis();
+
+        // Balances of members without any open fine must be zero
+        for (MemberBalance balance : ledger.values()) {
+            checked++;
+            if (!matches(balance, 0L, 0)) {
+                corrections.add(new Correction(balance.getId(), balance, 0L, 0));
+            }
+        }
+
+        if (!corrections.isEmpty()) {
+            settle(aggregated);
+        }
+        long corrected = 0;
+        long skipped = 0;
+        for (Correction correction : corrections) {
+            if (correct(correction.memberID, correction.balance, correction.outstanding, correction.openFines)) {
+                report(drifted, correction);
+                corrected++;
+            } else {
+                skipped++;
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", "COMPLETED");
+        result.put("completedAt", LocalDateTime.now());
+        result.put("membersChecked", checked);
+        // A skipped member may only have had an increment in flight, so it does not count as drifted
+        result.put("drifted", corrected);
+        result.put("corrected", corrected);
+        result.put("skippedChangedMeanwhile", skipped);
+        result.put("driftedMembers", drifted);
+        result.put("durationMs", System.currentTimeMillis() - started);
+        lastReconciliation = result;
+        ledgerReady = true;
+        System.out.println("Member balance reconciliation: " + checked + " balances checked, "
+            + corrected + " corrected, " + skipped + " changed while checking");
+    }
+
+    private static boolean matches(MemberBalance balance, long outstanding, long openFines) {
+        if (balance == null) {
+            return false;
+        }
+        return balance.getOutstandingCents() == outstanding && balance.getOpenFines() == openFines;
+    }
+
+    private static void report(List<Map<String, Object>> drifted, Correction correction) {
+        if (drifted.size() >= MAX_REPORTED) {
+            return;
+        }
+        MemberBalance balance = correction.balance;
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("memberID", correction.memberID);
+        entry.put("ledgerOutstanding", balance != null ? balance.getOutstanding() : null);
+        entry.put("finesOutstanding", Money.toAmount(correction.outstanding));
+        entry.put("ledgerOpenFines", balance != null ? balance.getOpenFines() : null);
+        entry.put("finesOpenFines", correction.openFines);
+        drifted.add(entry);
+    }
+
+    // Wait until SETTLE_MILLIS have passed since the fines were aggregated
+    private static void settle(long aggregatedAt) {
+        long remaining = aggregatedAt + SETTLE_MILLIS - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(remaining);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Balance reconciliation interrupted");
+        }
+    }
+
+    /**
+     * Overwrite a balance with the recomputed values, unless it changed since it was read
+     *
+     * @return true if the balance was corrected
+     */
+    private boolean correct(String memberID, MemberBalance balance, long outstanding, long openFines) {
+        LocalDateTime now = LocalDateTime.now();
+        if (balance == null) {
+            MemberBalance created = new MemberBalance();
+            created.setId(memberID);
+            created.setOutstandingCents(outstanding);
+            created.setOpenFines(openFines);
+            created.setVersion(1L);
+            created.setUpdatedAt(now);
+            created.setReconciledAt(now);
+            try {
+                mongoTemplate.insert(created);
+                return true;
+            } catch (DuplicateKeyException e) {
+                return false; // Created by a fine change meanwhile
+            }
+        }
+        Query query = new Query(Criteria.where("_id").is(memberID).and("version").is(balance.getVersion()));
+        Update update = new Update()
+            .set("outstandingCents", outstanding)
+            .set("openFines", openFines)
+            .inc("version", 1)
+            .set("updatedAt", now)
+            .set("reconciledAt", now);
+        return mongoTemplate.updateFirst(query, update, MemberBalance.class).getModifiedCount() == 1;
+    }
+
+    /**
+     * A balance found to differ from the fines, with the snapshot it was compared against
+     */
+    private static class Correction {
+        final String memberID;
+        final MemberBalance balance;
+        final long outstanding;
+        final long openFines;
+
+        Correction(String memberID, MemberBalance balance, long outstanding, long openFines) {
+            this.memberID = memberID;
+            this.balance = balance;
+            this.outstanding = outstanding;
+            this.openFines = openFines;
+        }
+    }
+}
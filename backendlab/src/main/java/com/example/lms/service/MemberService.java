@@ -4,10 +4,12 @@ import com.example.lms.model.Member;
 import com.example.lms.model.Book;
 import com.example.lms.model.BorrowRecord;
 import com.example.lms.model.Fine;
+import com.example.lms.model.Money;
 import com.example.lms.repository.MemberRepository;
 import com.example.lms.repository.BookRepository;
 import com.example.lms.repository.BorrowRecordRepository;
 import com.example.lms.repository.FineRepository;
+import com.example.lms.repository.projection.MemberSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -36,6 +38,21 @@ public class MemberService {
     @Autowired
     private SystemSettingsService systemSettingsService;
     
+    @Autowired
+    private MemberBalanceService memberBalanceService;
+    
+    @Autowired(required = false)
+    private ReservationService reservationService;
+    
+    @Autowired
+    private EntityCacheService entityCacheService;
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private ReservationQueueService reservationQueueService;
+    
     private BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
     
     // Step 1: Member Registration
@@ -176,17 +193,13 @@ public class MemberService {
         Book book = bookRepository.findById(bookId)
             .orElseThrow(() -> new RuntimeException("Book not found"));
         
-        if (book.getCopiesAvailable() <= 0) {
+        // A copy held for the member is not counted in copiesAvailable
+        if (book.getCopiesAvailable() <= 0 && !reservationQueueService.hasReadyHold(memberId, bookId)) {
             throw new RuntimeException("Book is not available");
         }
         
-        // Check if member has unpaid fines
-        List<Fine> allFines = fineRepository.findByMemberID(memberId);
-        List<Fine> unpaidFines = allFines.stream()
-            .filter(fine -> "UNPAID".equals(fine.getStatus()) || "PARTIALLY_PAID".equals(fine.getStatus()))
-            .collect(Collectors.toList());
-        
-        if (!unpaidFines.isEmpty()) {
+        // Check if member has unpaid fines (one keyed read of the balance ledger)
+        if (memberBalanceService.hasOutstandingFines(memberId)) {
             throw new RuntimeException("Cannot borrow books with unpaid fines");
         }
         
@@ -214,10 +227,8 @@ public class MemberService {
         record.setStatus("PENDING");
         record.setOverdue(false);
         
-        // Decrease available copies
-        book.setCopiesAvailable(book.getCopiesAvailable() - 1);
-        bookRepository.save(book);
-        
+        // The copy (the member's held one, or one from the shelf) is taken when
+        // a librarian approves the request (BorrowService.approveBorrowRequest)
         return borrowRecordRepository.save(record);
     }
     
@@ -236,11 +247,15 @@ public class MemberService {
         record.setStatus("RETURNED");
         borrowRecordRepository.save(record);
         
-        // Increase available copies
+        // Hold the returned copy for the next member in the reservation queue,
+        // otherwise increase available copies
         Book book = bookRepository.findById(record.getBookID())
             .orElseThrow(() -> new RuntimeException("Book not found"));
-        book.setCopiesAvailable(book.getCopiesAvailable() + 1);
-        bookRepository.save(book);
+        if (reservationService != null) {
+            reservationService.releaseCopy(book.getId());
+        } else {
+            bookService.adjustCopiesAvailable(book.getId(), 1);
+        }
         
         // Calculate fine if overdue
         Map<String, Object> response = new HashMap<>();
@@ -252,23 +267,24 @@ public class MemberService {
             long overdueDays = ChronoUnit.DAYS.between(record.getDueDate(), returnDate);
             
             // Calculate fine
-            double finePerDay = systemSettingsService.getSettings().getFinePerDay();
-            double fineAmount = overdueDays * finePerDay;
+            long finePerDayCents = Money.toCents(systemSettingsService.getSettings().getFinePerDay());
+            long fineAmountCents = overdueDays * finePerDayCents;
             
             // Create fine record
             Fine fine = new Fine();
             fine.setMemberID(record.getMemberID());
             fine.setBorrowRecordID(record.getId());
-            fine.setAmount(fineAmount);
-            fine.setAmountPaid(0.0);
+            fine.setAmountCents(fineAmountCents);
+            fine.setAmountPaidCents(0L);
             fine.setReason("Overdue return - " + overdueDays + " days late");
             fine.setStatus("UNPAID");
             fine.setIssueDate(LocalDate.now());
             fineRepository.save(fine);
+            memberBalanceService.recordFineCreated(fine);
             
             response.put("fine", fine);
             response.put("overdueDays", overdueDays);
-            response.put("fineAmount", fineAmount);
+            response.put("fineAmount", Money.toAmount(fineAmountCents));
         }
         
         return response;
@@ -313,11 +329,10 @@ public class MemberService {
             }
         }
         
-        // Get unpaid fines
-        List<Fine> allFines = fineRepository.findByMemberID(memberId);
-        List<Fine> unpaidFines = allFines.stream()
-            .filter(fine -> "UNPAID".equals(fine.getStatus()) || "PARTIALLY_PAID".equals(fine.getStatus()))
-            .collect(Collectors.toList());
+        // Get unpaid fines; the ledger tells whether there are any to load
+        List<Fine> unpaidFines = memberBalanceService.hasOutstandingFines(memberId)
+            ? fineRepository.findByMemberIDAndStatusIn(memberId, MemberBalanceService.OPEN_STATUSES)
+            : List.of();
         
         for (Fine fine : unpaidFines) {
             Map<String, Object> notification = new HashMap<>();
@@ -342,8 +357,9 @@ public class MemberService {
     }
     
     // Existing methods
-    public List<Member> getAllMembers() {
-        return memberRepository.findAll();
+    // List views use the summary projection so password hashes stay in the database
+    public List<MemberSummary> getAllMembers() {
+        return memberRepository.findAllSummaries();
     }
     
     public Optional<Member> getMemberById(String id) {
@@ -486,16 +502,23 @@ public class MemberService {
             member.setRole(memberDetails.getRole());
         }
         
+        if (memberDetails.getDigestReminders() != null) {
+            member.setDigestReminders(memberDetails.getDigestReminders());
+        }
+        
         member.setUpdatedAt(new Date());
-        return memberRepository.save(member);
+        Member saved = memberRepository.save(member);
+        entityCacheService.invalidateMember(id);
+        return saved;
     }
     
     public void deleteMember(String id) {
         memberRepository.deleteById(id);
+        entityCacheService.invalidateMember(id);
     }
     
-    public List<Member> getActiveMembers() {
-        return memberRepository.findByActive(true);
+    public List<MemberSummary> getActiveMembers() {
+        return memberRepository.findSummariesByActive(true);
     }
     
     public Optional<Member> getMemberByMembershipID(String membershipID) {
@@ -0,0 +1,91 @@
+package com.example.lms.service;
+
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * MoneyMigrationService - Converts stored decimal amounts to integer cents
+ *
+ * Runs once all beans are created, before the web server accepts requests
+ * and before scheduled jobs start. Each field is converted with one
+ * server-side pipeline updateMany that computes the cents and removes the
+ * old field, so documents that were already converted no longer match and
+ * the migration can run on every start (and on several nodes at once).
+ *
+ * - fines.amount / amountPaid, payments.amount: the cents field is written
+ * - member_balances.outstanding, circulation_rollups.fineAmount / paymentsAmount:
+ *   the cents are added to the cents field, which $inc updates may already
+ *   have created
+ *
+ * Cents are rounded half up from the decimal value (2.675 -> 268): the
+ * product is first rounded to 6 places to drop binary representation error.
+ *
+ * The models only read the cents fields, so a failed migration stops the
+ * start: running on would show unconverted amounts as zero.
+ */
+@Service
+public class MoneyMigrationService implements SmartInitializingSingleton {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            long converted = 0;
+            converted += convert("fines", "amount", "amountCents", false);
+            converted += convert("fines", "amountPaid", "amountPaidCents", false);
+            converted += convert("payments", "amount", "amountCents", false);
+            converted += convert("member_balances", "outstanding", "outstandingCents", true);
+            converted += convert("circulation_rollups", "fineAmount", "fineAmountCents", true);
+            converted += convert("circulation_rollups", "paymentsAmount", "paymentsAmountCents", true);
+
+            // Fines written without a paid amount; the payment pipelines add to amountPaidCents
+            converted += fillMissing("fines", "amountCents");
+            converted += fillMissing("fines", "amountPaidCents");
+            if (converted > 0) {
+                System.out.println("Money migration: " + converted + " amount fields converted to cents");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Money migration failed: " + e.getMessage());
+            throw new IllegalStateException("Money migration failed, the application cannot start", e);
+        }
+    }
+
+    /**
+     * Convert one decimal field of a collection to cents and remove it
+     *
+     * @param additive Add to an existing cents value instead of overwriting it
+     * @return the number of documents converted
+     */
+    private long convert(String collection, String decimalField, String centsField, boolean additive) {
+        Document decimal = new Document("$ifNull", List.of("$" + decimalField, 0));
+        Document rounded = new Document("$round", List.of(new Document("$multiply", List.of(decimal, 100)), 6));
+        Document cents = new Document("$toLong",
+            new Document("$floor", new Document("$add", List.of(rounded, 0.5))));
+        Object value = additive
+            ? new Document("$add", List.of(new Document("$ifNull", List.of("$" + centsField, 0L)), cents))
+            : cents;
+
+        AggregationOperation setCents = context -> new Document("$set", new Document(centsField, value));
+        AggregationOperation unsetDecimal = context -> new Document("$unset", decimalField);
+        Query query = new Query(Criteria.where(decimalField).exists(true));
+        return mongoTemplate.updateMulti(query, AggregationUpdate.from(List.of(setCents, unsetDecimal)), collection)
+            .getModifiedCount();
+    }
+
+    private long fillMissing(String collection, String centsField) {
+        Query query = new Query(Criteria.where(centsField).exists(false));
+        return mongoTemplate.updateMulti(query, new Update().set(centsField, 0L), collection).getModifiedCount();
+    }
+}
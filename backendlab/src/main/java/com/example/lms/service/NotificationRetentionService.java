@@ -0,0 +1,220 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Notification;
+import com.example.lms.model.SystemSettings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * NotificationRetentionService - Retention and archiving of sent notifications
+ * 
+ * Notifications are removed by MongoDB itself through the TTL index on
+ * Notification.expireAt; this service only decides when each notification
+ * expires. The retention period comes from SystemSettings, per category with a
+ * library-wide default.
+ * 
+ * Without archiving, NotificationService sets expireAt when a notification is
+ * sent. With archiving enabled, sent notifications are kept without expireAt
+ * until the daily archive job has streamed them into a gzip-compressed JSON
+ * Lines file; only then are they given an expireAt of "now".
+ * 
+ * Scheduled Tasks:
+ * - Daily archive of aged notifications (runs at 1:30 AM, only when enabled)
+ */
+@Service
+public class NotificationRetentionService {
+    
+    // Number of archived notification IDs flagged per update
+    private static final int MARK_BATCH_SIZE = 1000;
+    
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private SystemSettingsService systemSettingsService;
+    
+    @Autowired
+    private JobLeaseService jobLeaseService;
+    
+    private final ObjectMapper objectMapper;
+    
+    public NotificationRetentionService() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+    
+    /**
+     * Expiry time of a notification that has just been sent
+     * 
+     * @return createdAt plus the category retention, or null while archiving is
+     *         enabled (the archive job sets it once the notification is archived)
+     */
+    public LocalDateTime computeExpireAt(Notification notification, SystemSettings settings) {
+        if (Boolean.TRUE.equals(settings.getNotificationArchiveEnabled())) {
+            return null;
+        }
+        LocalDateTime createdAt = notification.getCreatedAt() != null ? notification.getCreatedAt() : LocalDateTime.now();
+        return createdAt.plusDays(settings.getRetentionDaysFor(notification.getCategory()));
+    }
+    
+    /**
+     * Apply the current retention policy to all sent notifications
+     * 
+     * Without archiving, expireAt is recomputed server-side with one
+     * updateMulti per overridden category plus one for the rest, so existing
+     * notifications and retention changes are picked up without loading any
+     * document. With archiving, aged notifications are archived immediately.
+     * 
+     * @return number of notifications whose retention has elapsed and that are now due for removal
+     */
+    public int applyRetentionPolicy() {
+        SystemSettings settings = systemSettingsService.getSettings();
+        
+        if (Boolean.TRUE.equals(settings.getNotificationArchiveEnabled())) {
+            return archiveAgedNotifications(settings);
+        }
+        
+        Map<String, Integer> overrides = getOverrides(settings);
+        for (Map.Entry<String, Integer> entry : overrides.entrySet()) {
+            setExpiry(Criteria.where("status").is("SENT").and("category").is(entry.getKey()), entry.getValue());
+        }
+        setExpiry(Criteria.where("status").is("SENT").and("category").nin(overrides.keySet()),
+            settings.getRetentionDaysFor(null));
+        
+        Query expired = new Query(Criteria.where("expireAt").lte(LocalDateTime.now()));
+        return (int) mongoTemplate.count(expired, Notification.class);
+    }
+    
+    /**
+     * Scheduled task to archive aged notifications before they are removed
+     * Runs daily at 1:30 AM; does nothing unless archiving is enabled
+     */
+    @Scheduled(cron = "0 30 1 * * ?")
+    public void archiveNotifications() {
+        SystemSettings settings = systemSettingsService.getSettings();
+        if (!Boolean.TRUE.equals(settings.getNotificationArchiveEnabled())) {
+            return;
+        }
+        
+        jobLeaseService.runOnce("archiveNotifications", LocalDate.now().toString(), lease -> {
+            System.out.println("Starting notification archive...");
+            int archived = archiveAgedNotifications(settings);
+            System.out.println("Notification archive completed: " + archived + " notifications archived");
+        });
+    }
+    
+    /**
+     * Stream every sent notification past its retention period into one
+     * compressed file, then let the TTL index remove them
+     */
+    private int archiveAgedNotifications(SystemSettings settings) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().andOperator(
+            Criteria.where("status").is("SENT"),
+            Criteria.where("archived").ne(true),
+            agedCriteria(settings, now)));
+        
+        Path directory = Paths.get(settings.getNotificationArchiveDirectory() != null
+            ? settings.getNotificationArchiveDirectory()
+            : "notification-archive");
+        Path file = directory.resolve("notifications-"
+            + now.format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jsonl.gz");
+        
+        List<String> archivedIds = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Notification> stream = mongoTemplate.stream(query, Notification.class);
+                 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8))) {
+                for (Notification notification : (Iterable<Notification>) stream::iterator) {
+                    writer.write(objectMapper.writeValueAsString(notification));
+                    writer.newLine();
+                    archivedIds.add(notification.getId());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write notification archive " + file + ": " + e.getMessage());
+        }
+        
+        if (archivedIds.isEmpty()) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Failed to remove empty notification archive " + file + ": " + e.getMessage());
+            }
+            return 0;
+        }
+        
+        // Only flag notifications once the archive file is complete
+        for (int from = 0; from < archivedIds.size(); from += MARK_BATCH_SIZE) {
+            List<String> batch = archivedIds.subList(from, Math.min(from + MARK_BATCH_SIZE, archivedIds.size()));
+            mongoTemplate.updateMulti(
+                new Query(Criteria.where("_id").in(batch)),
+                new Update().set("archived", true).set("expireAt", now),
+                Notification.class);
+        }
+        return archivedIds.size();
+    }
+    
+    // createdAt older than the retention of the notification's category
+    private Criteria agedCriteria(SystemSettings settings, LocalDateTime now) {
+        Map<String, Integer> overrides = getOverrides(settings);
+        List<Criteria> branches = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : overrides.entrySet()) {
+            branches.add(Criteria.where("category").is(entry.getKey())
+                .and("createdAt").lt(now.minusDays(entry.getValue())));
+        }
+        branches.add(Criteria.where("category").nin(overrides.keySet())
+            .and("createdAt").lt(now.minusDays(settings.getRetentionDaysFor(null))));
+        return new Criteria().orOperator(branches);
+    }
+    
+    // expireAt = createdAt + days, evaluated by MongoDB for every matching document
+    private void setExpiry(Criteria criteria, int days) {
+        AggregationUpdate update = AggregationUpdate.update()
+            .set("expireAt").toValue(ArithmeticOperators.valueOf("createdAt").add(days * MILLIS_PER_DAY));
+        mongoTemplate.updateMulti(new Query(criteria), update, Notification.class);
+    }
+    
+    private Map<String, Integer> getOverrides(SystemSettings settings) {
+        Map<String, Integer> overrides = new HashMap<>();
+        if (settings.getNotificationRetentionByCategory() != null) {
+            settings.getNotificationRetentionByCategory().forEach((category, days) -> {
+                if (category != null && days != null) {
+                    overrides.put(category, days);
+                }
+            });
+        }
+        return overrides;
+    }
+}
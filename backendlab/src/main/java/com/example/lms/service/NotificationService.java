@@ -2,21 +2,24 @@ package com.example.lms.service;
 
 import com.example.lms.model.*;
 import com.example.lms.repository.*;
+import com.example.lms.service.channel.DeliveryResult;
+import com.example.lms.service.channel.NotificationChannel;
+import com.example.lms.service.channel.NotificationChannelRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import jakarta.mail.*;
-import jakarta.mail.internet.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class NotificationService {
     
+    // Number of members resolved per query in scheduled reminder runs
+    private static final int MEMBER_BATCH_SIZE = 500;
+    
     @Autowired
     private NotificationRepository notificationRepository;
     
@@ -32,15 +35,74 @@ public class NotificationService {
     @Autowired
     private BookRepository bookRepository;
     
+    @Autowired
+    private EntityCacheService entityCacheService;
+    
     @Autowired
     private FineRepository fineRepository;
     
     @Autowired
     private ReservationRepository reservationRepository;
     
+    @Autowired
+    private NotificationRetentionService notificationRetentionService;
+    
+    @Autowired
+    private NotificationStatisticsService notificationStatisticsService;
+    
+    @Autowired
+    private JobLeaseService jobLeaseService;
+    
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+    
+    @Autowired
+    private NotificationChannelRegistry notificationChannelRegistry;
+    
+    @Autowired
+    private NotificationTemplateService notificationTemplateService;
+    
+    // Store a new notification, count it and push it to the member's open streams
+    private Notification saveNew(Notification notification) {
+        Notification saved = notificationRepository.save(notification);
+        notificationStatisticsService.recordCreated(saved);
+        notificationStreamService.publish(saved);
+        return saved;
+    }
+    
+    // Insert new notifications with one saveAll, then count and publish each
+    private List<Notification> saveAllNew(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return notifications;
+        }
+        List<Notification> saved = notificationRepository.saveAll(notifications);
+        for (Notification notification : saved) {
+            notificationStatisticsService.recordCreated(notification);
+            notificationStreamService.publish(notification);
+        }
+        return saved;
+    }
+    
+    // Fill in subject and message from the template of the notification's category
+    private void applyTemplate(Notification notification, SystemSettings settings, Map<String, Object> variables) {
+        NotificationTemplateService.RenderedTemplate rendered =
+            notificationTemplateService.render(notification.getCategory(), variables, settings.getLibraryName());
+        notification.setSubject(rendered.getSubject());
+        notification.setMessage(rendered.getMessage());
+    }
+    
+    // Template variables from name/value pairs (values may be null)
+    private static Map<String, Object> templateVariables(Object... pairs) {
+        Map<String, Object> variables = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            variables.put((String) pairs[i], pairs[i + 1]);
+        }
+        return variables;
+    }
+    
     // Create a notification
     public Notification createNotification(Notification notification) {
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     // Get all notifications
@@ -70,212 +132,118 @@ public class NotificationService {
             throw new RuntimeException("Notification not found");
         }
         
-        Notification notification = optNotification.get();
+        return sendNotifications(List.of(optNotification.get())).get(0);
+    }
+    
+    /**
+     * Send a list of notifications through the notification channels
+     * 
+     * Notifications are grouped by medium and each medium is handed to its
+     * channel in batches, so a provider with a batch API sends many messages
+     * per call. A BOTH notification is SENT if either medium was delivered.
+     * 
+     * @return the saved notifications, in the same order
+     */
+    public List<Notification> sendNotifications(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return new ArrayList<>();
+        }
         SystemSettings settings = getSystemSettings();
+        List<String> previousStatuses = new ArrayList<>();
+        for (Notification notification : notifications) {
+            previousStatuses.add(notification.getStatus());
+        }
         
-        boolean success = false;
-        String errorMsg = null;
+        Set<Notification> delivered = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<Notification, String> errors = new IdentityHashMap<>();
+        deliverMedium("EMAIL", notifications, settings, delivered, errors);
+        deliverMedium("SMS", notifications, settings, delivered, errors);
         
-        try {
-            if ("EMAIL".equals(notification.getType()) || "BOTH".equals(notification.getType())) {
-                if (!settings.getEmailNotificationsEnabled()) {
-                    errorMsg = "Email notifications are disabled";
-                } else if (notification.getMemberEmail() == null || notification.getMemberEmail().isEmpty()) {
-                    errorMsg = "Member doesn't have an email address";
-                } else if (!isValidEmail(notification.getMemberEmail())) {
-                    errorMsg = "Email address is invalid";
-                } else if (settings.getEmailUsername() == null || settings.getEmailUsername().isEmpty()) {
-                    errorMsg = "Email configuration is incomplete - missing username";
-                } else if (settings.getEmailPassword() == null || settings.getEmailPassword().isEmpty()) {
-                    errorMsg = "Email configuration is incomplete - missing password";
-                } else {
-                    sendEmail(notification, settings);
-                    success = true;
-                }
-            }
-            
-            if ("SMS".equals(notification.getType()) || "BOTH".equals(notification.getType())) {
-                // SMS temporarily disabled - skip SMS sending for now
-                System.out.println("=== SMS SKIPPED (Not Configured) ===");
-                System.out.println("To: " + (notification.getMemberContact() != null ? notification.getMemberContact() : "No phone"));
-                System.out.println("Message: " + notification.getMessage());
-                System.out.println("===================================");
-                
-                // Don't fail the notification if it's BOTH type and email succeeded
-                if ("BOTH".equals(notification.getType()) && success) {
-                    // Email already succeeded, so overall notification is successful
-                } else if ("SMS".equals(notification.getType())) {
-                    // Pure SMS notification - mark as failed but with informative message
-                    if (errorMsg == null) errorMsg = "SMS provider not configured";
-                }
-            }
-            
-            if (success) {
+        for (Notification notification : notifications) {
+            if (delivered.contains(notification)) {
                 notification.setStatus("SENT");
                 notification.setSent(true);
                 notification.setSentAt(LocalDateTime.now());
                 notification.setErrorMessage(null);
+                notification.setExpireAt(notificationRetentionService.computeExpireAt(notification, settings));
             } else {
                 notification.setStatus("FAILED");
-                notification.setErrorMessage(errorMsg != null ? errorMsg : "Unknown error occurred");
+                notification.setErrorMessage(errors.getOrDefault(notification, "Unknown error occurred"));
             }
-        } catch (Exception e) {
-            notification.setStatus("FAILED");
-            notification.setErrorMessage(e.getMessage());
         }
         
-        return notificationRepository.save(notification);
-    }
-
-    private boolean isValidEmail(String email) {
-        if (email == null || email.trim().isEmpty()) {
-            return false;
+        List<Notification> saved = notificationRepository.saveAll(notifications);
+        for (int i = 0; i < saved.size(); i++) {
+            notificationStatisticsService.recordStatusChange(previousStatuses.get(i), saved.get(i).getStatus());
         }
-        // Robust email regex pattern that accepts Gmail and other common formats
-        String emailRegex = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
-        return email.matches(emailRegex);
+        return saved;
     }
     
-    // Send email
-    private void sendEmail(Notification notification, SystemSettings settings) throws Exception {
-        if (notification.getMemberEmail() == null || notification.getMemberEmail().isEmpty()) {
-            throw new Exception("Member email is not available");
-        }
-        
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", settings.getEmailHost() != null ? settings.getEmailHost() : "smtp.gmail.com");
-        props.put("mail.smtp.port", settings.getEmailPort() != null ? settings.getEmailPort() : 587);
-        
-        Session session = Session.getInstance(props, new Authenticator() {
-            @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(
-                    settings.getEmailUsername() != null ? settings.getEmailUsername() : "",
-                    settings.getEmailPassword() != null ? settings.getEmailPassword() : ""
-                );
+    // Deliver the notifications requesting one medium ("EMAIL" or "SMS")
+    private void deliverMedium(String medium, List<Notification> notifications, SystemSettings settings,
+                               Set<Notification> delivered, Map<Notification, String> errors) {
+        List<Notification> batch = new ArrayList<>();
+        for (Notification notification : notifications) {
+            if (medium.equals(notification.getType()) || "BOTH".equals(notification.getType())) {
+                batch.add(notification);
             }
-        });
-        
-        Message message = new MimeMessage(session);
-        message.setFrom(new InternetAddress(settings.getEmailUsername()));
-        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(notification.getMemberEmail()));
-        message.setSubject(notification.getSubject());
-        message.setText(notification.getMessage());
-        
-        Transport.send(message);
-    }
-    
-    // Send SMS (integrate with actual SMS provider)
-    private void sendSMS(Notification notification, SystemSettings settings) throws Exception {
-        if (notification.getMemberContact() == null || notification.getMemberContact().isEmpty()) {
-            throw new Exception("Member contact is not available");
+        }
+        if (batch.isEmpty()) {
+            return;
         }
         
-        String smsProvider = settings.getSmsProvider();
-        String smsApiKey = settings.getSmsApiKey();
-        
-        if (smsProvider == null || smsApiKey == null) {
-            throw new Exception("SMS provider not configured");
+        String errorMsg = null;
+        NotificationChannel channel = null;
+        if ("EMAIL".equals(medium)) {
+            if (!settings.getEmailNotificationsEnabled()) {
+                errorMsg = "Email notifications are disabled";
+            } else if ((channel = notificationChannelRegistry.resolve(medium, settings)) == null) {
+                errorMsg = settings.getEmailUsername() == null || settings.getEmailUsername().isEmpty()
+                    ? "Email configuration is incomplete - missing username"
+                    : "Email configuration is incomplete - missing password";
+            }
+        } else if (!settings.getSmsNotificationsEnabled()
+                || (channel = notificationChannelRegistry.resolve(medium, settings)) == null) {
+            errorMsg = "SMS provider not configured";
         }
         
-        // Implement different SMS providers
-        switch (smsProvider.toUpperCase()) {
-            case "TWILIO":
-                sendTwilioSMS(notification, settings);
-                break;
-            case "AWS_SNS":
-                sendAWSSMS(notification, settings);
-                break;
-            case "NEXMO":
-                sendNexmoSMS(notification, settings);
-                break;
-            default:
-                // For demo purposes, log the SMS
-                System.out.println("=== SMS NOTIFICATION ===");
-                System.out.println("To: " + notification.getMemberContact());
-                System.out.println("Message: " + notification.getMessage());
-                System.out.println("Provider: " + smsProvider);
-                System.out.println("========================");
-                break;
+        if (errorMsg != null) {
+            for (Notification notification : batch) {
+                errors.putIfAbsent(notification, errorMsg);
+            }
+            return;
         }
-    }
-    
-    private void sendTwilioSMS(Notification notification, SystemSettings settings) throws Exception {
-        // Twilio SMS implementation
-        // Note: This requires Twilio Java SDK dependency
-        // Add to pom.xml: <dependency><groupId>com.twilio.sdk</groupId><artifactId>twilio</artifactId><version>9.14.1</version></dependency>
         
-        try {
-            // Initialize Twilio client
-            String accountSid = settings.getSmsUsername(); // Twilio Account SID
-            String authToken = settings.getSmsApiKey();    // Twilio Auth Token
-            String fromNumber = settings.getSmsFromNumber(); // Twilio phone number
-            
-            if (accountSid == null || authToken == null || fromNumber == null) {
-                throw new Exception("Twilio configuration incomplete");
+        List<DeliveryResult> results = notificationChannelRegistry.deliver(channel, batch, medium, settings);
+        for (int i = 0; i < batch.size(); i++) {
+            if (results.get(i).isSuccess()) {
+                delivered.add(batch.get(i));
+            } else {
+                errors.putIfAbsent(batch.get(i), results.get(i).getErrorMessage());
             }
-            
-            // For now, simulate Twilio API call
-            System.out.println("=== TWILIO SMS ===");
-            System.out.println("Account SID: " + accountSid);
-            System.out.println("From: " + fromNumber);
-            System.out.println("To: " + notification.getMemberContact());
-            System.out.println("Message: " + notification.getMessage());
-            System.out.println("==================");
-            
-            // Actual Twilio implementation would be:
-            // Twilio.init(accountSid, authToken);
-            // Message message = Message.creator(
-            //     new PhoneNumber(notification.getMemberContact()),
-            //     new PhoneNumber(fromNumber),
-            //     notification.getMessage()
-            // ).create();
-            
-        } catch (Exception e) {
-            throw new Exception("Twilio SMS failed: " + e.getMessage());
         }
     }
     
-    private void sendAWSSMS(Notification notification, SystemSettings settings) throws Exception {
-        // AWS SNS SMS implementation
-        System.out.println("=== AWS SNS SMS ===");
-        System.out.println("To: " + notification.getMemberContact());
-        System.out.println("Message: " + notification.getMessage());
-        System.out.println("===================");
-        
-        // Actual AWS SNS implementation would require AWS SDK
-        throw new Exception("AWS SNS SMS not implemented yet");
-    }
-    
-    private void sendNexmoSMS(Notification notification, SystemSettings settings) throws Exception {
-        // Nexmo/Vonage SMS implementation
-        System.out.println("=== NEXMO SMS ===");
-        System.out.println("To: " + notification.getMemberContact());
-        System.out.println("Message: " + notification.getMessage());
-        System.out.println("=================");
-        
-        // Actual Nexmo implementation would require Nexmo SDK
-        throw new Exception("Nexmo SMS not implemented yet");
-    }
-    
     // Send bulk notifications
     public Map<String, Object> sendBulkNotifications(@NonNull List<String> notificationIds) {
         int sent = 0;
         int failed = 0;
         
-        for (String id : notificationIds) {
-            try {
-                Notification notification = sendNotification(id);
+        try {
+            List<Notification> notifications = new ArrayList<>();
+            notificationRepository.findAllById(notificationIds).forEach(notifications::add);
+            for (Notification notification : sendNotifications(notifications)) {
                 if ("SENT".equals(notification.getStatus())) {
                     sent++;
                 } else {
                     failed++;
                 }
-            } catch (Exception e) {
-                failed++;
             }
+            // Unknown IDs count as failed
+            failed += notificationIds.size() - notifications.size();
+        } catch (Exception e) {
+            System.err.println("Bulk send failed: " + e.getMessage());
+            failed = notificationIds.size() - sent;
         }
         
         Map<String, Object> result = new HashMap<>();
@@ -309,7 +277,7 @@ public class NotificationService {
         // Get book title from book repository
         String bookTitle = "Unknown Book";
         try {
-            Optional<Book> optBook = bookRepository.findById(borrow.getBookID());
+            Optional<Book> optBook = entityCacheService.findBook(borrow.getBookID());
             if (optBook.isPresent()) {
                 bookTitle = optBook.get().getTitle();
             }
@@ -317,16 +285,11 @@ public class NotificationService {
             System.err.println("Error fetching book title: " + e.getMessage());
         }
         
-        notification.setSubject("Book Due Date Reminder");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nThis is a reminder that your borrowed book '%s' is due on %s.\n\nPlease return it on time to avoid fines.\n\nThank you,\n%s",
-            member.getName(),
-            bookTitle,
-            borrow.getDueDate(),
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "bookTitle", bookTitle, "dueDate", borrow.getDueDate()
         ));
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     // Create overdue reminder notification
@@ -353,7 +316,7 @@ public class NotificationService {
         // Get book title from book repository
         String bookTitle = "Unknown Book";
         try {
-            Optional<Book> optBook = bookRepository.findById(borrow.getBookID());
+            Optional<Book> optBook = entityCacheService.findBook(borrow.getBookID());
             if (optBook.isPresent()) {
                 bookTitle = optBook.get().getTitle();
             }
@@ -361,16 +324,11 @@ public class NotificationService {
             System.err.println("Error fetching book title: " + e.getMessage());
         }
         
-        notification.setSubject("Overdue Book Notice");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nYour borrowed book '%s' is now overdue. It was due on %s.\n\nPlease return it immediately. Late fees may apply.\n\nThank you,\n%s",
-            member.getName(),
-            bookTitle,
-            borrow.getDueDate(),
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "bookTitle", bookTitle, "dueDate", borrow.getDueDate()
         ));
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     // Create reservation ready notification
@@ -397,7 +355,7 @@ public class NotificationService {
         // Get book title from book repository
         String bookTitle = "Unknown Book";
         try {
-            Optional<Book> optBook = bookRepository.findById(reservation.getBookID());
+            Optional<Book> optBook = entityCacheService.findBook(reservation.getBookID());
             if (optBook.isPresent()) {
                 bookTitle = optBook.get().getTitle();
             }
@@ -405,16 +363,11 @@ public class NotificationService {
             System.err.println("Error fetching book title: " + e.getMessage());
         }
         
-        notification.setSubject("Reserved Book Available");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nYour reserved book '%s' is now available for pickup.\n\nPlease collect it within %d days.\n\nThank you,\n%s",
-            member.getName(),
-            bookTitle,
-            settings.getReservationExpiryDays(),
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "bookTitle", bookTitle, "holdDays", settings.getReservationExpiryDays()
         ));
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     // Create fine notice notification
@@ -445,7 +398,7 @@ public class NotificationService {
                 Optional<BorrowRecord> optBorrowRecord = borrowRecordRepository.findById(fine.getBorrowRecordID());
                 if (optBorrowRecord.isPresent()) {
                     BorrowRecord borrowRecord = optBorrowRecord.get();
-                    Optional<Book> optBook = bookRepository.findById(borrowRecord.getBookID());
+                    Optional<Book> optBook = entityCacheService.findBook(borrowRecord.getBookID());
                     if (optBook.isPresent()) {
                         bookTitle = optBook.get().getTitle();
                     }
@@ -455,22 +408,16 @@ public class NotificationService {
             System.err.println("Error fetching book title for fine: " + e.getMessage());
         }
         
-        notification.setSubject("Fine Notice");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nYou have an outstanding fine of $%.2f for %s.\n\nReason: %s\n\nPlease pay at your earliest convenience.\n\nThank you,\n%s",
-            member.getName(),
-            fine.getAmount(),
-            bookTitle,
-            fine.getReason(),
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "amount", fine.getAmount(), "bookTitle", bookTitle, "reason", fine.getReason()
         ));
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     // Create custom notification
     public Notification createCustomNotification(String memberId, String subject, String message, String category) {
-        Optional<Member> optMember = memberRepository.findById(memberId);
+        Optional<Member> optMember = entityCacheService.findMember(memberId);
         if (!optMember.isPresent()) {
             throw new RuntimeException("Member not found");
         }
@@ -497,11 +444,17 @@ public class NotificationService {
         notification.setSubject(subject);
         notification.setMessage(message);
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
-    // Scheduled task to send automatic notifications (runs daily at 9 AM)
+    // Scheduled task to send automatic notifications (runs daily at 9 AM, once per cluster)
     @Scheduled(cron = "0 0 9 * * ?")
+    public void sendScheduledNotifications() {
+        jobLeaseService.runOnce("sendAutomaticNotifications", LocalDate.now().toString(),
+            lease -> sendAutomaticNotifications());
+    }
+    
+    // Send due date and overdue reminders (also triggered manually by admins)
     public void sendAutomaticNotifications() {
         SystemSettings settings = getSystemSettings();
         
@@ -509,103 +462,150 @@ public class NotificationService {
             return; // Skip if notifications are disabled
         }
         
-        // Send due date reminders
-        sendDueDateReminders(settings);
+        LocalDate today = LocalDate.now();
+        LocalDate reminderDate = today.plusDays(settings.getDueDateReminderDays());
         
-        // Send overdue reminders
-        sendOverdueReminders(settings);
-    }
-    
-    // Send due date reminders
-    private void sendDueDateReminders(SystemSettings settings) {
-        LocalDate reminderDate = LocalDate.now().plusDays(settings.getDueDateReminderDays());
-        
-        List<BorrowRecord> upcomingDueBorrows = borrowRecordRepository.findAll().stream()
-            .filter(b -> "APPROVED".equals(b.getStatus()) && b.getReturnDate() == null)
-            .filter(b -> {
-                LocalDate dueDate = b.getDueDate();
-                return dueDate != null && dueDate.equals(reminderDate);
-            })
-            .collect(Collectors.toList());
-        
-        for (BorrowRecord borrow : upcomingDueBorrows) {
-            Optional<Member> optMember = memberRepository.findById(borrow.getMemberID());
-            if (optMember.isPresent()) {
-                Notification notification = createDueDateReminder(borrow, optMember.get());
+        // One pass over open loans, grouped per member
+        Map<String, List<BorrowRecord>> dueSoonByMember = new LinkedHashMap<>();
+        Map<String, List<BorrowRecord>> overdueByMember = new LinkedHashMap<>();
+        for (BorrowRecord borrow : borrowRecordRepository.findAll()) {
+            if (!"APPROVED".equals(borrow.getStatus()) || borrow.getReturnDate() != null || borrow.getDueDate() == null) {
+                continue;
+            }
+            if (borrow.getDueDate().equals(reminderDate)) {
+                dueSoonByMember.computeIfAbsent(borrow.getMemberID(), k -> new ArrayList<>()).add(borrow);
+            } else if (borrow.getDueDate().isBefore(today)) {
+                overdueByMember.computeIfAbsent(borrow.getMemberID(), k -> new ArrayList<>()).add(borrow);
+            }
+        }
+        
+        List<String> memberIds = new ArrayList<>(overdueByMember.keySet());
+        for (String memberId : dueSoonByMember.keySet()) {
+            if (!overdueByMember.containsKey(memberId)) {
+                memberIds.add(memberId);
+            }
+        }
+        
+        // Resolve members one chunk at a time instead of one findById per member
+        for (int from = 0; from < memberIds.size(); from += MEMBER_BATCH_SIZE) {
+            List<String> chunk = memberIds.subList(from, Math.min(from + MEMBER_BATCH_SIZE, memberIds.size()));
+            Map<String, Member> members = new HashMap<>();
+            for (Member member : memberRepository.findContactsByIdIn(chunk)) {
+                members.put(member.getId(), member);
+            }
+            List<Notification> outbox = new ArrayList<>();
+            
+            for (String memberId : chunk) {
+                Member member = members.get(memberId);
+                if (member == null) {
+                    continue;
+                }
+                List<BorrowRecord> dueSoon = dueSoonByMember.getOrDefault(memberId, Collections.emptyList());
+                List<BorrowRecord> overdue = overdueByMember.getOrDefault(memberId, Collections.emptyList());
+                
                 try {
-                    sendNotification(notification.getId());
+                    if (member.prefersDigestReminders() && dueSoon.size() + overdue.size() > 1) {
+                        outbox.add(createReminderDigest(member, dueSoon, overdue, reminderDate));
+                    } else {
+                        for (BorrowRecord borrow : dueSoon) {
+                            outbox.add(createDueDateReminder(borrow, member));
+                        }
+                        for (BorrowRecord borrow : overdue) {
+                            outbox.add(createOverdueReminder(borrow, member));
+                        }
+                    }
                 } catch (Exception e) {
-                    System.err.println("Failed to send due date reminder: " + e.getMessage());
+                    System.err.println("Failed to create reminders for member " + memberId + ": " + e.getMessage());
                 }
             }
+            
+            // Deliver the chunk's reminders together so channels can batch them
+            try {
+                sendNotifications(outbox);
+            } catch (Exception e) {
+                System.err.println("Failed to send reminders: " + e.getMessage());
+            }
         }
     }
     
-    // Send overdue reminders
-    private void sendOverdueReminders(SystemSettings settings) {
-        List<BorrowRecord> overdueBorrows = borrowRecordRepository.findAll().stream()
-            .filter(b -> "APPROVED".equals(b.getStatus()) && b.getReturnDate() == null)
-            .filter(b -> {
-                LocalDate dueDate = b.getDueDate();
-                return dueDate != null && dueDate.isBefore(LocalDate.now());
-            })
-            .collect(Collectors.toList());
-        
-        for (BorrowRecord borrow : overdueBorrows) {
-            Optional<Member> optMember = memberRepository.findById(borrow.getMemberID());
-            if (optMember.isPresent()) {
-                Notification notification = createOverdueReminder(borrow, optMember.get());
-                try {
-                    sendNotification(notification.getId());
-                } catch (Exception e) {
-                    System.err.println("Failed to send overdue reminder: " + e.getMessage());
-                }
+    // Create a digest of a member's overdue and due-soon books
+    public Notification createReminderDigest(Member member, List<BorrowRecord> dueSoon, List<BorrowRecord> overdue, LocalDate dueDate) {
+        Notification notification = new Notification();
+        notification.setMemberId(member.getId());
+        notification.setMemberName(member.getName());
+        notification.setMemberEmail(member.getEmail());
+        notification.setMemberContact(member.getContact());
+        notification.setCategory("REMINDER_DIGEST");
+        
+        SystemSettings settings = getSystemSettings();
+        if (settings.getEmailNotificationsEnabled() && settings.getSmsNotificationsEnabled()) {
+            notification.setType("BOTH");
+        } else if (settings.getEmailNotificationsEnabled()) {
+            notification.setType("EMAIL");
+        } else if (settings.getSmsNotificationsEnabled()) {
+            notification.setType("SMS");
+        } else {
+            notification.setType("EMAIL");
+        }
+        
+        // Resolve all book titles of the digest in one query
+        Set<String> bookIds = new HashSet<>();
+        dueSoon.forEach(b -> bookIds.add(b.getBookID()));
+        overdue.forEach(b -> bookIds.add(b.getBookID()));
+        Map<String, String> bookTitles = new HashMap<>();
+        try {
+            for (Book book : bookRepository.findAllById(bookIds)) {
+                bookTitles.put(book.getId(), book.getTitle());
+            }
+        } catch (Exception e) {
+            System.err.println("Error fetching book titles: " + e.getMessage());
+        }
+        
+        StringBuilder body = new StringBuilder();
+        body.append("Dear ").append(member.getName()).append(",\n\n");
+        if (!overdue.isEmpty()) {
+            body.append("The following books are overdue. Please return them immediately. Late fees may apply.\n");
+            for (BorrowRecord borrow : overdue) {
+                body.append(String.format("  - '%s' (due %s)\n",
+                    bookTitles.getOrDefault(borrow.getBookID(), "Unknown Book"), borrow.getDueDate()));
             }
+            body.append("\n");
+        }
+        if (!dueSoon.isEmpty()) {
+            body.append(String.format("The following books are due on %s. Please return them on time to avoid fines.\n", dueDate));
+            for (BorrowRecord borrow : dueSoon) {
+                body.append(String.format("  - '%s'\n",
+                    bookTitles.getOrDefault(borrow.getBookID(), "Unknown Book")));
+            }
+            body.append("\n");
+        }
+        body.append("Thank you,\n").append(settings.getLibraryName());
+        
+        List<String> parts = new ArrayList<>();
+        if (!overdue.isEmpty()) {
+            parts.add(overdue.size() + " overdue");
+        }
+        if (!dueSoon.isEmpty()) {
+            parts.add(dueSoon.size() + " due soon");
         }
+        notification.setSubject("Library Reminder: " + String.join(", ", parts));
+        notification.setMessage(body.toString());
+        
+        return saveNew(notification);
     }
     
-    // Get notification statistics
+    // Get notification statistics (served from the in-memory counter cache)
     public Map<String, Object> getNotificationStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        long totalNotifications = notificationRepository.count();
-        long sentNotifications = notificationRepository.countByStatus("SENT");
-        long pendingNotifications = notificationRepository.countByStatus("PENDING");
-        long failedNotifications = notificationRepository.countByStatus("FAILED");
-        
-        long dueDateReminders = notificationRepository.countByCategory("DUE_DATE_REMINDER");
-        long overdueReminders = notificationRepository.countByCategory("OVERDUE_REMINDER");
-        long reservationNotifications = notificationRepository.countByCategory("RESERVATION_READY");
-        long fineNotifications = notificationRepository.countByCategory("FINE_NOTICE");
-        long generalNotifications = notificationRepository.countByCategory("GENERAL");
-        
-        stats.put("total", totalNotifications);
-        stats.put("sent", sentNotifications);
-        stats.put("pending", pendingNotifications);
-        stats.put("failed", failedNotifications);
-        stats.put("dueDateReminders", dueDateReminders);
-        stats.put("overdueReminders", overdueReminders);
-        stats.put("reservationNotifications", reservationNotifications);
-        stats.put("fineNotifications", fineNotifications);
-        stats.put("generalNotifications", generalNotifications);
-        
-        return stats;
+        return notificationStatisticsService.getStatistics();
     }
     
     // Delete notification
     public void deleteNotification(String notificationId) {
-        notificationRepository.deleteById(notificationId);
-    }
-    
-    // Delete old notifications (older than 90 days)
-    public int deleteOldNotifications() {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(90);
-        List<Notification> oldNotifications = notificationRepository
-            .findByStatusAndCreatedAtBefore("SENT", cutoffDate);
-        
-        int count = oldNotifications.size();
-        notificationRepository.deleteAll(oldNotifications);
-        return count;
+        Optional<Notification> optNotification = notificationRepository.findById(notificationId);
+        if (optNotification.isPresent()) {
+            notificationRepository.delete(optNotification.get());
+            notificationStatisticsService.recordDeleted(optNotification.get());
+        }
     }
     
     // Test notification configuration
@@ -622,7 +622,7 @@ public class NotificationService {
                 testNotification.setMessage("This is a test email to verify your email configuration.");
                 testNotification.setType("EMAIL");
                 
-                sendEmail(testNotification, settings);
+                sendTestMessage("EMAIL", testNotification, settings);
                 result.put("emailStatus", "SUCCESS");
                 result.put("emailMessage", "Test email sent successfully");
             } catch (Exception e) {
@@ -634,13 +634,52 @@ public class NotificationService {
             result.put("emailMessage", "Email notifications are disabled");
         }
         
-        // Test SMS - temporarily disabled
-        result.put("smsStatus", "SKIPPED");
-        result.put("smsMessage", "SMS provider not configured - feature temporarily disabled");
+        // Test SMS
+        if (!settings.getSmsNotificationsEnabled()) {
+            result.put("smsStatus", "DISABLED");
+            result.put("smsMessage", "SMS notifications are disabled");
+        } else if (testPhone == null || testPhone.isEmpty()) {
+            result.put("smsStatus", "SKIPPED");
+            result.put("smsMessage", "No test phone number given");
+        } else {
+            try {
+                Notification testNotification = new Notification();
+                testNotification.setMemberContact(testPhone);
+                testNotification.setSubject("Test SMS from Library System");
+                testNotification.setMessage("This is a test SMS to verify your SMS configuration.");
+                testNotification.setType("SMS");
+                
+                sendTestMessage("SMS", testNotification, settings);
+                result.put("smsStatus", "SUCCESS");
+                result.put("smsMessage", "Test SMS sent successfully");
+            } catch (Exception e) {
+                result.put("smsStatus", "FAILED");
+                result.put("smsMessage", e.getMessage());
+            }
+        }
         
         return result;
     }
     
+    // Deliver a test message through the channel currently selected for a medium
+    private void sendTestMessage(String medium, Notification notification, SystemSettings settings) throws Exception {
+        NotificationChannel channel = notificationChannelRegistry.resolve(medium, settings);
+        if (channel == null) {
+            throw new Exception("EMAIL".equals(medium)
+                ? "Email configuration is incomplete - missing username or password"
+                : "SMS provider not configured");
+        }
+        DeliveryResult delivery = notificationChannelRegistry.deliver(channel, List.of(notification), medium, settings).get(0);
+        if (!delivery.isSuccess()) {
+            throw new Exception(delivery.getErrorMessage());
+        }
+    }
+    
+    // State of the notification channels (provider, circuit breaker, in-flight batches)
+    public List<Map<String, Object>> getChannelStatus() {
+        return notificationChannelRegistry.getChannelStatus(getSystemSettings());
+    }
+    
     // Create borrow approval notification
     public Notification createBorrowApprovalNotification(BorrowRecord borrow, Member member, Book book) {
         Notification notification = new Notification();
@@ -671,18 +710,12 @@ public class NotificationService {
             notification.setErrorMessage("Member has no email or phone number");
         }
         
-        notification.setSubject("Book Borrow Request Approved");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nGreat news! Your request to borrow '%s' has been approved.\n\nBorrow Details:\n- Book: %s\n- Issue Date: %s\n- Due Date: %s\n\nPlease collect the book from the library.\n\nThank you,\n%s",
-            member.getName(),
-            book.getTitle(),
-            book.getTitle(),
-            borrow.getIssueDate(),
-            borrow.getDueDate(),
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "bookTitle", book.getTitle(),
+            "issueDate", borrow.getIssueDate(), "dueDate", borrow.getDueDate()
         ));
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     // Create borrow rejection notification
@@ -715,15 +748,11 @@ public class NotificationService {
             notification.setErrorMessage("Member has no email or phone number");
         }
         
-        notification.setSubject("Book Borrow Request Rejected");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nWe regret to inform you that your request to borrow '%s' has been rejected.\n\nThis could be due to:\n- Book is currently unavailable\n- Outstanding fines on your account\n- Maximum borrow limit reached\n\nPlease contact the library for more information.\n\nThank you,\n%s",
-            member.getName(),
-            book.getTitle(),
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "bookTitle", book.getTitle()
         ));
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     // Create book return confirmation notification
@@ -756,17 +785,11 @@ public class NotificationService {
             notification.setErrorMessage("Member has no email or phone number");
         }
         
-        notification.setSubject("Book Return Confirmed");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nThank you for returning '%s' on time!\n\nReturn Details:\n- Book: %s\n- Return Date: %s\n- Status: Returned Successfully\n\nWe appreciate your responsible use of library resources.\n\nThank you,\n%s",
-            member.getName(),
-            book.getTitle(),
-            book.getTitle(),
-            borrow.getReturnDate(),
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "bookTitle", book.getTitle(), "returnDate", borrow.getReturnDate()
         ));
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     private SystemSettings getSystemSettings() {
@@ -809,22 +832,39 @@ public class NotificationService {
             notification.setErrorMessage("Member has no email or phone number");
         }
         
-        notification.setSubject("Payment Received - Receipt");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nThank you for your payment!\n\nPayment Details:\n- Amount Paid: $%.2f\n- Payment Date: %s\n- Payment Method: %s\n- Fine Status: %s\n\nYour payment has been successfully processed.\n\nThank you,\n%s",
-            member.getName(),
-            payment.getAmount(),
-            payment.getPaymentDate(),
-            payment.getPaymentMethod(),
-            fine.getStatus(),
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "amount", payment.getAmount(),
+            "paymentDate", payment.getPaymentDate(), "paymentMethod", payment.getPaymentMethod(), "fineStatus", fine.getStatus()
         ));
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     // Create fine waiver notification
     public Notification createFineWaiverNotification(Fine fine, Member member, String reason) {
+        return saveNew(buildFineWaiverNotification(fine, member, reason, getSystemSettings()));
+    }
+    
+    /**
+     * Queue waiver notifications for many fines with one insert
+     * 
+     * @param members Members by ID; fines of unknown members are skipped
+     * @return the number of notifications queued
+     */
+    public int createFineWaiverNotifications(List<Fine> fines, Map<String, Member> members, String reason) {
+        SystemSettings settings = getSystemSettings();
+        List<Notification> notifications = new ArrayList<>();
+        for (Fine fine : fines) {
+            Member member = members.get(fine.getMemberID());
+            if (member != null) {
+                notifications.add(buildFineWaiverNotification(fine, member, reason, settings));
+            }
+        }
+        saveAllNew(notifications);
+        return notifications.size();
+    }
+    
+    private Notification buildFineWaiverNotification(Fine fine, Member member, String reason, SystemSettings settings) {
         Notification notification = new Notification();
         notification.setMemberId(member.getId());
         notification.setMemberName(member.getName());
@@ -833,8 +873,6 @@ public class NotificationService {
         notification.setCategory("FINE_WAIVER");
         notification.setRelatedEntityId(fine.getId());
         
-        SystemSettings settings = getSystemSettings();
-        
         // Determine notification type based on what's available for this member
         boolean hasEmail = member.getEmail() != null && !member.getEmail().isEmpty();
         boolean hasContact = member.getContact() != null && !member.getContact().isEmpty();
@@ -853,17 +891,11 @@ public class NotificationService {
             notification.setErrorMessage("Member has no email or phone number");
         }
         
-        notification.setSubject("Fine Waived - Good News!");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nGreat news! Your fine has been waived.\n\nFine Details:\n- Original Amount: $%.2f\n- Reason for Waiver: %s\n- Waived Date: %s\n\nNo payment is required for this fine.\n\nThank you,\n%s",
-            member.getName(),
-            fine.getAmount(),
-            reason,
-            fine.getPaidDate(),
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "amount", fine.getAmount(), "reason", reason, "waivedDate", fine.getPaidDate()
         ));
 
-        return notificationRepository.save(notification);
+        return notification;
     }
     
     // Create reservation approval notification
@@ -896,17 +928,11 @@ public class NotificationService {
             notification.setErrorMessage("Member has no email or phone number");
         }
         
-        notification.setSubject("Book Reservation Approved");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nGreat news! Your reservation for '%s' has been approved.\n\nReservation Details:\n- Book: %s\n- Reservation Date: %s\n- Status: Approved\n\nWe will notify you when the book becomes available for pickup.\n\nThank you,\n%s",
-            member.getName(),
-            book.getTitle(),
-            book.getTitle(),
-            reservation.getReservationDate(),
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "bookTitle", book.getTitle(), "reservationDate", reservation.getReservationDate()
         ));
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     // Create reservation cancellation notification
@@ -939,18 +965,12 @@ public class NotificationService {
             notification.setErrorMessage("Member has no email or phone number");
         }
         
-        notification.setSubject("Reservation Cancelled");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nWe regret to inform you that your reservation for '%s' has been cancelled.\n\nReservation Details:\n- Book: %s\n- Original Reservation Date: %s\n- Cancellation Date: %s\n\nThis could be due to:\n- Book no longer available\n- System maintenance\n- Administrative decision\n\nPlease contact the library for more information or to make a new reservation.\n\nThank you,\n%s",
-            member.getName(),
-            book.getTitle(),
-            book.getTitle(),
-            reservation.getReservationDate(),
-            LocalDate.now(),
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "bookTitle", book.getTitle(),
+            "reservationDate", reservation.getReservationDate(), "cancellationDate", LocalDate.now()
         ));
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     // Create damaged book notification
@@ -990,7 +1010,7 @@ public class NotificationService {
                 Optional<BorrowRecord> optBorrowRecord = borrowRecordRepository.findById(fine.getBorrowRecordID());
                 if (optBorrowRecord.isPresent()) {
                     BorrowRecord borrowRecord = optBorrowRecord.get();
-                    Optional<Book> optBook = bookRepository.findById(borrowRecord.getBookID());
+                    Optional<Book> optBook = entityCacheService.findBook(borrowRecord.getBookID());
                     if (optBook.isPresent()) {
                         bookTitle = optBook.get().getTitle();
                     }
@@ -1000,17 +1020,12 @@ public class NotificationService {
             System.err.println("Error fetching book title for damaged book fine: " + e.getMessage());
         }
         
-        notification.setSubject("Damaged Book Fine Notice");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nA fine has been applied to your account for returning a damaged book.\n\nBook: %s\nFine Amount: $%.2f\nDamage Description: %s\n\nPlease pay this fine at your earliest convenience. If you have any questions about this charge, please contact the library.\n\nThank you,\n%s",
-            member.getName(),
-            bookTitle,
-            fine.getAmount(),
-            damageDescription != null ? damageDescription : "Book returned in damaged condition",
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "bookTitle", bookTitle, "amount", fine.getAmount(),
+            "description", damageDescription != null ? damageDescription : "Book returned in damaged condition"
         ));
         
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
     
     // Create lost book notification
@@ -1050,7 +1065,7 @@ public class NotificationService {
                 Optional<BorrowRecord> optBorrowRecord = borrowRecordRepository.findById(fine.getBorrowRecordID());
                 if (optBorrowRecord.isPresent()) {
                     BorrowRecord borrowRecord = optBorrowRecord.get();
-                    Optional<Book> optBook = bookRepository.findById(borrowRecord.getBookID());
+                    Optional<Book> optBook = entityCacheService.findBook(borrowRecord.getBookID());
                     if (optBook.isPresent()) {
                         bookTitle = optBook.get().getTitle();
                     }
@@ -1060,16 +1075,11 @@ public class NotificationService {
             System.err.println("Error fetching book title for lost book fine: " + e.getMessage());
         }
         
-        notification.setSubject("Lost Book Fine Notice");
-        notification.setMessage(String.format(
-            "Dear %s,\n\nA replacement cost fine has been applied to your account for a lost book.\n\nBook: %s\nReplacement Cost: $%.2f\nNotes: %s\n\nThis fine covers the cost of replacing the lost book. Please pay this fine to maintain your library privileges.\n\nIf you find the book, please return it to the library and we may be able to adjust the fine.\n\nThank you,\n%s",
-            member.getName(),
-            bookTitle,
-            fine.getAmount(),
-            lostBookNotes != null ? lostBookNotes : "Book reported as lost",
-            settings.getLibraryName()
+        applyTemplate(notification, settings, templateVariables(
+            "memberName", member.getName(), "bookTitle", bookTitle, "amount", fine.getAmount(),
+            "notes", lostBookNotes != null ? lostBookNotes : "Book reported as lost"
         ));
 
-        return notificationRepository.save(notification);
+        return saveNew(notification);
     }
 }
\ No newline at end of file
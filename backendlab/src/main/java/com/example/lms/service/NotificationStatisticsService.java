@@ -0,0 +1,143 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Notification;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NotificationStatisticsService - Cached notification counts by status and category
+ * 
+ * The counts are loaded with a single $facet aggregation (one round trip for
+ * every status and category) and then kept current in memory by
+ * NotificationService on create, send and delete, so the statistics endpoint
+ * does not touch the database.
+ * 
+ * Documents removed by the TTL index or changed by bulk updates bypass those
+ * hooks, so the cache is rebuilt from the aggregation every 10 minutes.
+ */
+@Service
+public class NotificationStatisticsService {
+    
+    // Key used for notifications without a category
+    private static final String NO_CATEGORY = "UNCATEGORIZED";
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    private final Map<String, Long> statusCounts = new HashMap<>();
+    private final Map<String, Long> categoryCounts = new HashMap<>();
+    private long total = 0;
+    private boolean loaded = false;
+    
+    /**
+     * Current statistics, served from memory once loaded
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        if (!loaded) {
+            reload();
+        }
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("total", total);
+        stats.put("sent", statusCounts.getOrDefault("SENT", 0L));
+        stats.put("pending", statusCounts.getOrDefault("PENDING", 0L));
+        stats.put("failed", statusCounts.getOrDefault("FAILED", 0L));
+        stats.put("dueDateReminders", categoryCounts.getOrDefault("DUE_DATE_REMINDER", 0L));
+        stats.put("overdueReminders", categoryCounts.getOrDefault("OVERDUE_REMINDER", 0L));
+        stats.put("reminderDigests", categoryCounts.getOrDefault("REMINDER_DIGEST", 0L));
+        stats.put("reservationNotifications", categoryCounts.getOrDefault("RESERVATION_READY", 0L));
+        stats.put("fineNotifications", categoryCounts.getOrDefault("FINE_NOTICE", 0L));
+        stats.put("generalNotifications", categoryCounts.getOrDefault("GENERAL", 0L));
+        stats.put("byStatus", new HashMap<>(statusCounts));
+        stats.put("byCategory", new HashMap<>(categoryCounts));
+        return stats;
+    }
+    
+    /**
+     * Count a newly stored notification
+     */
+    public synchronized void recordCreated(Notification notification) {
+        if (!loaded) {
+            return; // The first load will include it
+        }
+        total++;
+        increment(statusCounts, notification.getStatus(), 1);
+        increment(categoryCounts, categoryKey(notification.getCategory()), 1);
+    }
+    
+    /**
+     * Move a notification between status counters after a send attempt
+     */
+    public synchronized void recordStatusChange(String oldStatus, String newStatus) {
+        if (!loaded || (oldStatus != null && oldStatus.equals(newStatus))) {
+            return;
+        }
+        increment(statusCounts, oldStatus, -1);
+        increment(statusCounts, newStatus, 1);
+    }
+    
+    /**
+     * Remove a deleted notification from the counters
+     */
+    public synchronized void recordDeleted(Notification notification) {
+        if (!loaded) {
+            return;
+        }
+        total--;
+        increment(statusCounts, notification.getStatus(), -1);
+        increment(categoryCounts, categoryKey(notification.getCategory()), -1);
+    }
+    
+    /**
+     * Rebuild the cache from the database every 10 minutes
+     * Picks up TTL expiry and bulk updates that bypass the create/send/delete hooks
+     */
+    @Scheduled(fixedDelay = 600000, initialDelay = 600000)
+    public synchronized void reload() {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.facet(Aggregation.group("status").count().as("count")).as("byStatus")
+                .and(Aggregation.group("category").count().as("count")).as("byCategory"));
+        AggregationResults<Document> results = mongoTemplate.aggregate(aggregation, Notification.class, Document.class);
+        Document facets = results.getUniqueMappedResult();
+        
+        statusCounts.clear();
+        categoryCounts.clear();
+        total = 0;
+        if (facets != null) {
+            for (Document bucket : facets.getList("byStatus", Document.class)) {
+                long count = ((Number) bucket.get("count")).longValue();
+                increment(statusCounts, bucket.getString("_id"), count);
+                total += count;
+            }
+            for (Document bucket : facets.getList("byCategory", Document.class)) {
+                increment(categoryCounts, categoryKey(bucket.getString("_id")), ((Number) bucket.get("count")).longValue());
+            }
+        }
+        loaded = true;
+    }
+    
+    private static void increment(Map<String, Long> counts, String key, long delta) {
+        if (key == null) {
+            return;
+        }
+        long value = counts.getOrDefault(key, 0L) + delta;
+        if (value > 0) {
+            counts.put(key, value);
+        } else {
+            counts.remove(key);
+        }
+    }
+    
+    private static String categoryKey(String category) {
+        return category != null ? category : NO_CATEGORY;
+    }
+}
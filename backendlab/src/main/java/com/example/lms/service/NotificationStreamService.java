@@ -0,0 +1,197 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Notification;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NotificationStreamService - Pushes new notifications to members over Server-Sent Events
+ * 
+ * Members subscribe once and receive every notification created for them
+ * from then on, instead of polling their notification list.
+ * NotificationService publishes each newly stored notification here.
+ * 
+ * Idle subscriptions hold no thread: the servlet request is async and the
+ * emitter is only touched when there is something to send. Each subscriber
+ * has a bounded buffer drained on a virtual thread, so a slow client can never
+ * block the create path or grow memory without limit; when its buffer is
+ * full the oldest undelivered event is dropped.
+ */
+@Service
+public class NotificationStreamService {
+    
+    // Subscriptions time out after 30 minutes; EventSource clients reconnect automatically
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    
+    // Undelivered events kept per subscriber before the oldest is dropped
+    private static final int BUFFER_CAPACITY = 100;
+    
+    // Concurrent subscriptions allowed per member (tabs, devices)
+    private static final int MAX_SUBSCRIPTIONS_PER_MEMBER = 5;
+    
+    // memberId -> open subscriptions
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    
+    private final AtomicLong droppedEvents = new AtomicLong();
+    
+    /**
+     * Open a subscription for a member
+     * 
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe(String memberId) {
+        Set<Subscriber> memberSubscribers = subscribers.computeIfAbsent(memberId, k -> new CopyOnWriteArraySet<>());
+        if (memberSubscribers.size() >= MAX_SUBSCRIPTIONS_PER_MEMBER) {
+            throw new RuntimeException("Too many open notification streams for this member");
+        }
+        
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(memberId, emitter);
+        memberSubscribers.add(subscriber);
+        
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        
+        // Confirms the stream to the client and flushes the response headers
+        subscriber.enqueue(SseEmitter.event().name("connected").data(Map.of("memberId", memberId)));
+        return emitter;
+    }
+    
+    /**
+     * Fan a newly created notification out to the member's open subscriptions
+     * Never blocks: events are buffered and sent on a virtual thread
+     */
+    public void publish(Notification notification) {
+        if (notification.getMemberId() == null) {
+            return;
+        }
+        Set<Subscriber> memberSubscribers = subscribers.get(notification.getMemberId());
+        if (memberSubscribers == null || memberSubscribers.isEmpty()) {
+            return;
+        }
+        for (Subscriber subscriber : memberSubscribers) {
+            subscriber.enqueue(SseEmitter.event()
+                .id(notification.getId())
+                .name("notification")
+                .data(notification));
+        }
+    }
+    
+    /**
+     * Connection counts for monitoring
+     */
+    public Map<String, Object> getStatistics() {
+        int connections = 0;
+        for (Set<Subscriber> memberSubscribers : subscribers.values()) {
+            connections += memberSubscribers.size();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("members", subscribers.size());
+        stats.put("connections", connections);
+        stats.put("droppedEvents", droppedEvents.get());
+        return stats;
+    }
+    
+    /**
+     * Keep idle connections open through proxies and detect dead clients
+     * Runs every 30 seconds
+     */
+    @Scheduled(fixedRate = 30000)
+    public void sendHeartbeats() {
+        for (Set<Subscriber> memberSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : memberSubscribers) {
+                subscriber.enqueue(SseEmitter.event().comment("ping"));
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        for (Set<Subscriber> memberSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : memberSubscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+        senders.shutdownNow();
+    }
+    
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.memberId, (k, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+    
+    /**
+     * One open SSE connection with its bounded send buffer
+     */
+    private class Subscriber {
+        private final String memberId;
+        private final SseEmitter emitter;
+        private final Deque<SseEmitter.SseEventBuilder> buffer = new ArrayDeque<>();
+        private boolean draining = false;
+        
+        Subscriber(String memberId, SseEmitter emitter) {
+            this.memberId = memberId;
+            this.emitter = emitter;
+        }
+        
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            synchronized (this) {
+                if (buffer.size() >= BUFFER_CAPACITY) {
+                    buffer.pollFirst();
+                    droppedEvents.incrementAndGet();
+                }
+                buffer.addLast(event);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            senders.execute(this::drain);
+        }
+        
+        // Send buffered events in order; only one drain runs per subscriber at a time
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = buffer.pollFirst();
+                    if (event == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away; drop the subscription and its buffer
+                    synchronized (this) {
+                        buffer.clear();
+                        draining = false;
+                    }
+                    unsubscribe(this);
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+    }
+}
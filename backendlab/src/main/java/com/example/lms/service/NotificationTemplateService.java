@@ -0,0 +1,437 @@
+package com.example.lms.service;
+
+import com.example.lms.model.NotificationTemplate;
+import com.example.lms.repository.NotificationTemplateRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NotificationTemplateService - Parses notification templates once and renders them per notification
+ *
+ * Each category's subject and body are compiled into a flat list of literal
+ * and variable segments. {{libraryName}} is folded into the literals at
+ * compile time, so rendering is a single pass appending strings to a
+ * pre-sized buffer with no parsing, no format strings and no settings lookup.
+ * Values are inserted as they are: they are never parsed as template syntax,
+ * and a variable without a value renders as empty text.
+ *
+ * Compiled templates are cached per category and swapped atomically when an
+ * administrator edits a template, so renders in flight keep the old version
+ * and the next render sees the new one. Other nodes pick up edits on their
+ * next periodic reload. A change of library name recompiles lazily.
+ */
+@Service
+public class NotificationTemplateService {
+
+    private static final String LIBRARY_NAME = "libraryName";
+
+    @Autowired
+    private NotificationTemplateRepository templateRepository;
+
+    // category -> compiled subject and body
+    private final Map<String, CompiledPair> compiled = new ConcurrentHashMap<>();
+
+    // category -> edited template as last loaded (absent = built-in template)
+    private volatile Map<String, NotificationTemplate> customTemplates;
+
+    /**
+     * Render the template of a category
+     *
+     * @param category    Notification category, e.g. "FINE_NOTICE"
+     * @param variables   Values of the category's variables
+     * @param libraryName Current library name
+     */
+    public RenderedTemplate render(String category, Map<String, ?> variables, String libraryName) {
+        CompiledPair pair = compiled.get(category);
+        if (pair == null || !Objects.equals(pair.libraryName, libraryName)
+                || pair.source != getCustomTemplates().get(category)) {
+            pair = compile(category, libraryName);
+        }
+        return new RenderedTemplate(pair.subject.render(variables), pair.body.render(variables));
+    }
+
+    /**
+     * Every category's template with its variables and whether it was edited
+     */
+    public List<Map<String, Object>> getTemplates() {
+        Map<String, NotificationTemplate> custom = getCustomTemplates();
+        List<Map<String, Object>> templates = new ArrayList<>();
+        for (Map.Entry<String, DefaultTemplate> entry : DEFAULTS.entrySet()) {
+            NotificationTemplate template = custom.get(entry.getKey());
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("category", entry.getKey());
+            item.put("subject", template != null ? template.getSubject() : entry.getValue().subject);
+            item.put("body", template != null ? template.getBody() : entry.getValue().body);
+            item.put("variables", entry.getValue().variableNames());
+            item.put("custom", template != null);
+            item.put("updatedAt", template != null ? template.getUpdatedAt() : null);
+            item.put("updatedBy", template != null ? template.getUpdatedBy() : null);
+            templates.add(item);
+        }
+        return templates;
+    }
+
+    /**
+     * Replace the template of a category
+     *
+     * The template is compiled before it is saved, so a template with a syntax
+     * error or an unknown variable is rejected and the old one stays in use.
+     */
+    public NotificationTemplate updateTemplate(String category, String subject, String body, String updatedBy) {
+        DefaultTemplate defaults = getDefault(category);
+        if (subject == null || subject.trim().isEmpty() || body == null || body.trim().isEmpty()) {
+            throw new RuntimeException("Template subject and body are required");
+        }
+        Template.parse(subject, defaults.variables, null);
+        Template.parse(body, defaults.variables, null);
+
+        NotificationTemplate template = new NotificationTemplate();
+        template.setId(category);
+        template.setSubject(subject);
+        template.setBody(body);
+        template.setUpdatedAt(LocalDateTime.now());
+        template.setUpdatedBy(updatedBy);
+        NotificationTemplate saved = templateRepository.save(template);
+
+        Map<String, NotificationTemplate> custom = new HashMap<>(getCustomTemplates());
+        custom.put(category, saved);
+        customTemplates = custom;
+        return saved;
+    }
+
+    /**
+     * Restore the built-in template of a category
+     */
+    public void resetTemplate(String category) {
+        getDefault(category);
+        templateRepository.deleteById(category);
+
+        Map<String, NotificationTemplate> custom = new HashMap<>(getCustomTemplates());
+        custom.remove(category);
+        customTemplates = custom;
+    }
+
+    /**
+     * Render an unsaved template with sample values
+     */
+    public RenderedTemplate preview(String category, String subject, String body, String libraryName) {
+        DefaultTemplate defaults = getDefault(category);
+        Template compiledSubject = Template.parse(subject != null ? subject : defaults.subject, defaults.variables, libraryName);
+        Template compiledBody = Template.parse(body != null ? body : defaults.body, defaults.variables, libraryName);
+        return new RenderedTemplate(compiledSubject.render(defaults.samples), compiledBody.render(defaults.samples));
+    }
+
+    /**
+     * Reload edited templates so edits made on other nodes take effect here
+     * 
+     * Unchanged templates keep their loaded instance, so only categories that
+     * were actually edited are recompiled.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void reloadTemplates() {
+        Map<String, NotificationTemplate> previous = customTemplates;
+        Map<String, NotificationTemplate> loaded = loadCustomTemplates();
+        if (previous != null) {
+            for (Map.Entry<String, NotificationTemplate> entry : loaded.entrySet()) {
+                NotificationTemplate before = previous.get(entry.getKey());
+                if (before != null && Objects.equals(before.getUpdatedAt(), entry.getValue().getUpdatedAt())) {
+                    entry.setValue(before);
+                }
+            }
+        }
+        customTemplates = loaded;
+    }
+
+    private CompiledPair compile(String category, String libraryName) {
+        DefaultTemplate defaults = getDefault(category);
+        NotificationTemplate custom = getCustomTemplates().get(category);
+        String subject = custom != null ? custom.getSubject() : defaults.subject;
+        String body = custom != null ? custom.getBody() : defaults.body;
+
+        CompiledPair pair;
+        try {
+            pair = new CompiledPair(
+                Template.parse(subject, defaults.variables, libraryName),
+                Template.parse(body, defaults.variables, libraryName),
+                libraryName, custom);
+        } catch (RuntimeException e) {
+            // A stored template that no longer compiles must not stop notifications
+            System.err.println("Invalid notification template for " + category + ", using built-in: " + e.getMessage());
+            pair = new CompiledPair(
+                Template.parse(defaults.subject, defaults.variables, libraryName),
+                Template.parse(defaults.body, defaults.variables, libraryName),
+                libraryName, custom);
+        }
+        compiled.put(category, pair);
+        return pair;
+    }
+
+    private Map<String, NotificationTemplate> getCustomTemplates() {
+        Map<String, NotificationTemplate> custom = customTemplates;
+        if (custom == null) {
+            synchronized (this) {
+                if (customTemplates == null) {
+                    customTemplates = loadCustomTemplates();
+                }
+                custom = customTemplates;
+            }
+        }
+        return custom;
+    }
+
+    private Map<String, NotificationTemplate> loadCustomTemplates() {
+        Map<String, NotificationTemplate> custom = new HashMap<>();
+        try {
+            for (NotificationTemplate template : templateRepository.findAll()) {
+                if (DEFAULTS.containsKey(template.getId())) {
+                    custom.put(template.getId(), template);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error loading notification templates: " + e.getMessage());
+            return customTemplates != null ? customTemplates : custom;
+        }
+        return custom;
+    }
+
+    private DefaultTemplate getDefault(String category) {
+        DefaultTemplate defaults = DEFAULTS.get(category);
+        if (defaults == null) {
+            throw new RuntimeException("No template for notification category: " + category);
+        }
+        return defaults;
+    }
+
+    /**
+     * Subject and message produced by a template
+     */
+    public static class RenderedTemplate {
+        private final String subject;
+        private final String message;
+
+        public RenderedTemplate(String subject, String message) {
+            this.subject = subject;
+            this.message = message;
+        }
+
+        public String getSubject() { return subject; }
+
+        public String getMessage() { return message; }
+    }
+
+    // Compiled subject and body, with what they were compiled from
+    private static class CompiledPair {
+        final Template subject;
+        final Template body;
+        final String libraryName;
+        final NotificationTemplate source;
+
+        CompiledPair(Template subject, Template body, String libraryName, NotificationTemplate source) {
+            this.subject = subject;
+            this.body = body;
+            this.libraryName = libraryName;
+            this.source = source;
+        }
+    }
+
+    /**
+     * A parsed template: literal segments interleaved with variable references
+     *
+     * literals[i] is written before variables[i]; the last literal follows the
+     * last variable, so there is always one more literal than variable.
+     */
+    static class Template {
+        private final String[] literals;
+        private final String[] variables;
+        private final boolean[] money;
+        private final int literalLength;
+
+        private Template(List<String> literals, List<String> variables, List<Boolean> money) {
+            this.literals = literals.toArray(new String[0]);
+            this.variables = variables.toArray(new String[0]);
+            this.money = new boolean[money.size()];
+            for (int i = 0; i < money.size(); i++) {
+                this.money[i] = money.get(i);
+            }
+            int length = 0;
+            for (String literal : this.literals) {
+                length += literal.length();
+            }
+            this.literalLength = length;
+        }
+
+        /**
+         * Parse a template
+         *
+         * @param allowed     Variables the template may reference
+         * @param libraryName Value folded in for {{libraryName}}, or null to only validate
+         */
+        static Template parse(String source, Set<String> allowed, String libraryName) {
+            List<String> literals = new ArrayList<>();
+            List<String> variables = new ArrayList<>();
+            List<Boolean> money = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+
+            int pos = 0;
+            while (pos < source.length()) {
+                int open = source.indexOf("{{", pos);
+                if (open < 0) {
+                    literal.append(source, pos, source.length());
+                    break;
+                }
+                int close = source.indexOf("}}", open + 2);
+                if (close < 0) {
+                    throw new RuntimeException("Unclosed '{{' at position " + open);
+                }
+                literal.append(source, pos, open);
+
+                String expression = source.substring(open + 2, close).trim();
+                String name = expression;
+                boolean asMoney = false;
+                int pipe = expression.indexOf('|');
+                if (pipe >= 0) {
+                    name = expression.substring(0, pipe).trim();
+                    String filter = expression.substring(pipe + 1).trim();
+                    if (!"money".equals(filter)) {
+                        throw new RuntimeException("Unknown template filter: " + filter);
+                    }
+                    asMoney = true;
+                }
+
+                if (LIBRARY_NAME.equals(name) && !asMoney) {
+                    literal.append(libraryName);
+                } else if (allowed.contains(name)) {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    variables.add(name);
+                    money.add(asMoney);
+                } else {
+                    throw new RuntimeException("Unknown template variable: " + name);
+                }
+                pos = close + 2;
+            }
+            literals.add(literal.toString());
+            return new Template(literals, variables, money);
+        }
+
+        String render(Map<String, ?> values) {
+            StringBuilder out = new StringBuilder(literalLength + variables.length * 24);
+            for (int i = 0; i < variables.length; i++) {
+                out.append(literals[i]);
+                Object value = values.get(variables[i]);
+                if (money[i] && value instanceof Number) {
+                    appendMoney(out, ((Number) value).doubleValue());
+                } else if (value != null) {
+                    out.append(value);
+                }
+            }
+            out.append(literals[variables.length]);
+            return out.toString();
+        }
+
+        // Same output as String.format("%.2f") for the amounts a library charges
+        private static void appendMoney(StringBuilder out, double amount) {
+            if (Double.isNaN(amount) || Double.isInfinite(amount) || Math.abs(amount) >= 1e15) {
+                out.append(String.format("%.2f", amount));
+                return;
+            }
+            long cents = Math.round(amount * 100);
+            if (cents < 0) {
+                out.append('-');
+                cents = -cents;
+            }
+            out.append(cents / 100).append('.');
+            long fraction = cents % 100;
+            if (fraction < 10) {
+                out.append('0');
+            }
+            out.append(fraction);
+        }
+    }
+
+    /**
+     * Built-in template of a category with its variables and preview samples
+     */
+    private static class DefaultTemplate {
+        final String subject;
+        final String body;
+        final Set<String> variables;
+        final Map<String, Object> samples;
+
+        DefaultTemplate(String subject, String body, Map<String, Object> samples) {
+            this.subject = subject;
+            this.body = body;
+            this.samples = samples;
+            this.variables = samples.keySet();
+        }
+
+        List<String> variableNames() {
+            List<String> names = new ArrayList<>(variables);
+            names.add(LIBRARY_NAME);
+            return names;
+        }
+    }
+
+    private static final Map<String, DefaultTemplate> DEFAULTS = new LinkedHashMap<>();
+
+    private static void define(String category, String subject, String body, Object... samples) {
+        Map<String, Object> sampleValues = new LinkedHashMap<>();
+        for (int i = 0; i < samples.length; i += 2) {
+            sampleValues.put((String) samples[i], samples[i + 1]);
+        }
+        DEFAULTS.put(category, new DefaultTemplate(subject, body, sampleValues));
+    }
+
+    static {
+        define("DUE_DATE_REMINDER", "Book Due Date Reminder",
+            "Dear {{memberName}},\n\nThis is a reminder that your borrowed book '{{bookTitle}}' is due on {{dueDate}}.\n\nPlease return it on time to avoid fines.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "bookTitle", "The Hobbit", "dueDate", "2025-01-15");
+        define("OVERDUE_REMINDER", "Overdue Book Notice",
+            "Dear {{memberName}},\n\nYour borrowed book '{{bookTitle}}' is now overdue. It was due on {{dueDate}}.\n\nPlease return it immediately. Late fees may apply.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "bookTitle", "The Hobbit", "dueDate", "2025-01-15");
+        define("RESERVATION_READY", "Reserved Book Available",
+            "Dear {{memberName}},\n\nYour reserved book '{{bookTitle}}' is now available for pickup.\n\nPlease collect it within {{holdDays}} days.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "bookTitle", "The Hobbit", "holdDays", 3);
+        define("FINE_NOTICE", "Fine Notice",
+            "Dear {{memberName}},\n\nYou have an outstanding fine of ${{amount|money}} for {{bookTitle}}.\n\nReason: {{reason}}\n\nPlease pay at your earliest convenience.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "amount", 2.5, "bookTitle", "The Hobbit", "reason", "Overdue");
+        define("BORROW_APPROVAL", "Book Borrow Request Approved",
+            "Dear {{memberName}},\n\nGreat news! Your request to borrow '{{bookTitle}}' has been approved.\n\nBorrow Details:\n- Book: {{bookTitle}}\n- Issue Date: {{issueDate}}\n- Due Date: {{dueDate}}\n\nPlease collect the book from the library.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "bookTitle", "The Hobbit", "issueDate", "2025-01-01", "dueDate", "2025-01-15");
+        define("BORROW_REJECTION", "Book Borrow Request Rejected",
+            "Dear {{memberName}},\n\nWe regret to inform you that your request to borrow '{{bookTitle}}' has been rejected.\n\nThis could be due to:\n- Book is currently unavailable\n- Outstanding fines on your account\n- Maximum borrow limit reached\n\nPlease contact the library for more information.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "bookTitle", "The Hobbit");
+        define("BOOK_RETURN", "Book Return Confirmed",
+            "Dear {{memberName}},\n\nThank you for returning '{{bookTitle}}' on time!\n\nReturn Details:\n- Book: {{bookTitle}}\n- Return Date: {{returnDate}}\n- Status: Returned Successfully\n\nWe appreciate your responsible use of library resources.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "bookTitle", "The Hobbit", "returnDate", "2025-01-10");
+        define("PAYMENT_CONFIRMATION", "Payment Received - Receipt",
+            "Dear {{memberName}},\n\nThank you for your payment!\n\nPayment Details:\n- Amount Paid: ${{amount|money}}\n- Payment Date: {{paymentDate}}\n- Payment Method: {{paymentMethod}}\n- Fine Status: {{fineStatus}}\n\nYour payment has been successfully processed.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "amount", 2.5, "paymentDate", "2025-01-20", "paymentMethod", "CASH", "fineStatus", "PAID");
+        define("FINE_WAIVER", "Fine Waived - Good News!",
+            "Dear {{memberName}},\n\nGreat news! Your fine has been waived.\n\nFine Details:\n- Original Amount: ${{amount|money}}\n- Reason for Waiver: {{reason}}\n- Waived Date: {{waivedDate}}\n\nNo payment is required for this fine.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "amount", 2.5, "reason", "First offence", "waivedDate", "2025-01-20");
+        define("RESERVATION_APPROVAL", "Book Reservation Approved",
+            "Dear {{memberName}},\n\nGreat news! Your reservation for '{{bookTitle}}' has been approved.\n\nReservation Details:\n- Book: {{bookTitle}}\n- Reservation Date: {{reservationDate}}\n- Status: Approved\n\nWe will notify you when the book becomes available for pickup.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "bookTitle", "The Hobbit", "reservationDate", "2025-01-05");
+        define("RESERVATION_CANCELLATION", "Reservation Cancelled",
+            "Dear {{memberName}},\n\nWe regret to inform you that your reservation for '{{bookTitle}}' has been cancelled.\n\nReservation Details:\n- Book: {{bookTitle}}\n- Original Reservation Date: {{reservationDate}}\n- Cancellation Date: {{cancellationDate}}\n\nThis could be due to:\n- Book no longer available\n- System maintenance\n- Administrative decision\n\nPlease contact the library for more information or to make a new reservation.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "bookTitle", "The Hobbit", "reservationDate", "2025-01-05", "cancellationDate", "2025-01-08");
+        define("DAMAGED_BOOK_FINE", "Damaged Book Fine Notice",
+            "Dear {{memberName}},\n\nA fine has been applied to your account for returning a damaged book.\n\nBook: {{bookTitle}}\nFine Amount: ${{amount|money}}\nDamage Description: {{description}}\n\nPlease pay this fine at your earliest convenience. If you have any questions about this charge, please contact the library.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "bookTitle", "The Hobbit", "amount", 15.0, "description", "Water damage");
+        define("LOST_BOOK_FINE", "Lost Book Fine Notice",
+            "Dear {{memberName}},\n\nA replacement cost fine has been applied to your account for a lost book.\n\nBook: {{bookTitle}}\nReplacement Cost: ${{amount|money}}\nNotes: {{notes}}\n\nThis fine covers the cost of replacing the lost book. Please pay this fine to maintain your library privileges.\n\nIf you find the book, please return it to the library and we may be able to adjust the fine.\n\nThank you,\n{{libraryName}}",
+            "memberName", "Jane Doe", "bookTitle", "The Hobbit", "amount", 25.0, "notes", "Book reported as lost");
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.lms.service;
+
+import com.example.lms.model.BorrowRecord;
+import com.example.lms.model.Fine;
+import com.example.lms.model.Member;
+import com.example.lms.model.Money;
+import com.example.lms.model.OverdueCheckpoint;
+import com.example.lms.model.SystemSettings;
+import com.example.lms.repository.BorrowRecordRepository;
+import com.example.lms.repository.FineRepository;
+import com.example.lms.repository.MemberRepository;
+import com.example.lms.repository.OverdueCheckpointRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * OverduePipelineService - Partitioned, resumable nightly overdue processing
+ * 
+ * Newly overdue loans are split into hash partitions of memberID. Partitions
+ * run concurrently on virtual threads and, through JobLeaseService, are spread
+ * across all nodes of the cluster with each partition processed once per run.
+ * 
+ * Each partition writes an OverdueCheckpoint after every batch. If a node
+ * dies midway, its partition leases lapse and the resume check picks the run
+ * up again, continuing each partition after its last checkpointed record.
+ * Checkpoints are written with the fencing token of the partition lease and
+ * never over a checkpoint written under a higher token, so a node that lost
+ * its lease (e.g. after a long GC pause) cannot move a partition's progress
+ * back; its next checkpoint write fails and it stops the partition.
+ * 
+ * Per record, the fine is created before the loan is marked overdue, so a
+ * crash between the two steps is repaired on resume (the existing fine is
+ * found and not created twice).
+ */
+@Service
+public class OverduePipelineService {
+    
+    public static final String JOB_NAME = "processOverdueBooks";
+    
+    // Number of memberID hash partitions per run
+    public static final int PARTITIONS = 8;
+    
+    // Records processed between checkpoints
+    private static final int CHECKPOINT_INTERVAL = 100;
+    
+    // A running partition without a checkpoint for this long is reported as interrupted
+    private static final Duration STALL_THRESHOLD = Duration.ofMinutes(5);
+    
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+    
+    @Autowired
+    private FineRepository fineRepository;
+    
+    @Autowired
+    private MemberRepository memberRepository;
+    
+    @Autowired
+    private OverdueCheckpointRepository checkpointRepository;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private SystemSettingsService systemSettingsService;
+    
+    @Autowired
+    private JobLeaseService jobLeaseService;
+    
+    @Autowired(required = false)
+    private NotificationService notificationService;
+    
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+    
+    @Autowired
+    private DistinctCountService distinctCountService;
+    
+    @Autowired
+    private MemberBalanceService memberBalanceService;
+    
+    /**
+     * Partition of a loan, derived from its member so all of a member's loans share a partition
+     */
+    public static int partitionOf(String memberID) {
+        return Math.floorMod(memberID != null ? memberID.hashCode() : 0, PARTITIONS);
+    }
+    
+    /**
+     * Run (or resume) the overdue pipeline for a day
+     * 
+     * @param today Run date; loans due before it are overdue
+     * @return number of partitions processed by this node
+     */
+    public int run(LocalDate today) {
+        String runKey = today.toString();
+        List<BorrowRecord> candidates = borrowRecordRepository.findNewlyOverdue(today);
+        Map<Integer, List<BorrowRecord>> byPartition = candidates.stream()
+            .collect(Collectors.groupingBy(record -> partitionOf(record.getMemberID())));
+        SystemSettings settings = systemSettingsService.getSettings();
+        
+        System.out.println("Starting overdue pipeline " + runKey + ": " + candidates.size()
+            + " records in " + PARTITIONS + " partitions");
+        
+        int processed;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            processed = jobLeaseService.runPartitioned(JOB_NAME, runKey, PARTITIONS, executor,
+                (partition, lease) -> processPartition(runKey, partition,
+                    byPartition.getOrDefault(partition, List.of()), today, settings, lease));
+        }
+        
+        System.out.println("Overdue pipeline " + runKey + ": " + processed + " partitions processed on this node");
+        return processed;
+    }
+    
+    /**
+     * Resume today's run if it was started but not every partition finished
+     * Runs every 15 minutes; partitions still held by a live node are skipped by their leases
+     */
+    @Scheduled(fixedDelay = 900000, initialDelay = 120000)
+    public void resumeInterruptedRun() {
+        LocalDate today = LocalDate.now();
+        List<OverdueCheckpoint> checkpoints = checkpointRepository.findByRunKey(today.toString());
+        if (checkpoints.isEmpty()) {
+            return;
+        }
+        long done = checkpoints.stream().filter(c -> "DONE".equals(c.getStatus())).count();
+        if (done < PARTITIONS) {
+            System.out.println("Resuming overdue pipeline " + today + " (" + done + "/" + PARTITIONS + " partitions done)");
+            run(today);
+        }
+    }
+    
+    /**
+     * Progress of the latest run, with throughput and ETA
+     */
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new HashMap<>();
+        Optional<OverdueCheckpoint> latest = checkpointRepository.findFirstByOrderByStartedAtDesc();
+        if (!latest.isPresent()) {
+            progress.put("status", "NONE");
+            return progress;
+        }
+        
+        String runKey = latest.get().getRunKey();
+        List<OverdueCheckpoint> checkpoints = checkpointRepository.findByRunKey(runKey);
+        checkpoints.sort(Comparator.comparing(OverdueCheckpoint::getPartition));
+        
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime startedAt = null;
+        LocalDateTime lastUpdate = null;
+        long total = 0;
+        long processed = 0;
+        long finesCreated = 0;
+        int done = 0;
+        List<Map<String, Object>> partitions = new ArrayList<>();
+        
+        for (OverdueCheckpoint checkpoint : checkpoints) {
+            total += checkpoint.getTotalRecords();
+            processed += checkpoint.getProcessedRecords();
+            finesCreated += checkpoint.getFinesCreated();
+            if ("DONE".equals(checkpoint.getStatus())) {
+                done++;
+            }
+            if (startedAt == null || checkpoint.getStartedAt().isBefore(startedAt)) {
+                startedAt = checkpoint.getStartedAt();
+            }
+            if (lastUpdate == null || checkpoint.getUpdatedAt().isAfter(lastUpdate)) {
+                lastUpdate = checkpoint.getUpdatedAt();
+            }
+            
+            Map<String, Object> partition = new HashMap<>();
+            partition.put("partition", checkpoint.getPartition());
+            partition.put("status", checkpoint.getStatus());
+            partition.put("totalRecords", checkpoint.getTotalRecords());
+            partition.put("processedRecords", checkpoint.getProcessedRecords());
+            partition.put("finesCreated", checkpoint.getFinesCreated());
+            partitions.add(partition);
+        }
+        
+        boolean complete = done == PARTITIONS;
+        String status = complete ? "COMPLETED"
+            : Duration.between(lastUpdate, now).compareTo(STALL_THRESHOLD) > 0 ? "INTERRUPTED" : "RUNNING";
+        long elapsedSeconds = Math.max(1, Duration.between(startedAt, complete ? lastUpdate : now).getSeconds());
+        double recordsPerSecond = (double) processed / elapsedSeconds;
+        
+        progress.put("runKey", runKey);
+        progress.put("status", status);
+        progress.put("partitions", PARTITIONS);
+        progress.put("completedPartitions", done);
+        progress.put("totalRecords", total);
+        progress.put("processedRecords", processed);
+        progress.put("finesCreated", finesCreated);
+        progress.put("percentComplete", total == 0 ? 100.0 : Math.round(processed * 1000.0 / total) / 10.0);
+        progress.put("startedAt", startedAt);
+        progress.put("elapsedSeconds", elapsedSeconds);
+        progress.put("recordsPerSecond", Math.round(recordsPerSecond * 10) / 10.0);
+        if (!complete && recordsPerSecond > 0) {
+            progress.put("etaSeconds", Math.round((total - processed) / recordsPerSecond));
+        }
+        progress.put("partitionDetails", partitions);
+        return progress;
+    }
+    
+    /**
+     * Process one partition, checkpointing after every batch
+     */
+    private void processPartition(String runKey, int partition, List<BorrowRecord> records,
+                                  LocalDate today, SystemSettings settings, JobLeaseService.Lease lease) {
+        String checkpointId = runKey + "#" + partition;
+        LocalDateTime now = LocalDateTime.now();
+        OverdueCheckpoint checkpoint = checkpointRepository.findById(checkpointId).orElse(null);
+        if (checkpoint == null) {
+            checkpoint = new OverdueCheckpoint();
+            checkpoint.setId(checkpointId);
+            checkpoint.setRunKey(runKey);
+            checkpoint.setPartition(partition);
+            checkpoint.setStatus("RUNNING");
+            checkpoint.setTotalRecords(records.size());
+            checkpoint.setProcessedRecords(0);
+            checkpoint.setFinesCreated(0);
+            checkpoint.setStartedAt(now);
+        } else if ("DONE".equals(checkpoint.getStatus())) {
+            return;
+        }
+        checkpoint.setUpdatedAt(now);
+        if (!saveCheckpoint(checkpoint, lease)) {
+            return;
+        }
+        
+        // Records are processed in ID order; skip everything up to the last checkpoint
+        String resumeAfter = checkpoint.getLastRecordId();
+        List<BorrowRecord> remaining = resumeAfter == null ? records : records.stream()
+            .filter(record -> record.getId().compareTo(resumeAfter) > 0)
+            .collect(Collectors.toList());
+        if (resumeAfter != null) {
+            System.out.println("Resuming overdue partition " + checkpointId + " after record " + resumeAfter);
+        }
+        
+        for (int from = 0; from < remaining.size(); from += CHECKPOINT_INTERVAL) {
+            if (!lease.isHeld()) {
+                System.err.println("Overdue partition " + checkpointId + " stopped: lease lost to another node");
+                return;
+            }
+            List<BorrowRecord> batch = remaining.subList(from, Math.min(from + CHECKPOINT_INTERVAL, remaining.size()));
+            List<Fine> newFines = new ArrayList<>();
+            List<BorrowRecord> flagged = new ArrayList<>();
+            
+            for (BorrowRecord record : batch) {
+                try {
+                    Fine fine = createOverdueFine(record, today, settings);
+                    if (fine != null) {
+                        newFines.add(fine);
+                    }
+                    record.setOverdue(true);
+                    borrowRecordRepository.save(record);
+                    flagged.add(record);
+                } catch (Exception e) {
+                    System.err.println("Failed to process overdue record " + record.getId() + ": " + e.getMessage());
+                }
+            }
+            circulationRollupService.recordOverdue(flagged);
+            distinctCountService.recordOverdue(flagged);
+            circulationRollupService.recordFinesIssued(newFines);
+            notifyFines(newFines);
+            
+            checkpoint.setProcessedRecords(checkpoint.getProcessedRecords() + batch.size());
+            checkpoint.setFinesCreated(checkpoint.getFinesCreated() + newFines.size());
+            checkpoint.setLastRecordId(batch.get(batch.size() - 1).getId());
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            if (!saveCheckpoint(checkpoint, lease)) {
+                return;
+            }
+        }
+        
+        checkpoint.setStatus("DONE");
+        checkpoint.setCompletedAt(LocalDateTime.now());
+        checkpoint.setUpdatedAt(checkpoint.getCompletedAt());
+        saveCheckpoint(checkpoint, lease);
+    }
+    
+    /**
+     * Write a checkpoint under the partition lease's fencing token
+     * 
+     * The upsert only matches a checkpoint last written under the same or a
+     * lower token. If a later lease holder has written one, the upsert tries
+     * to insert a second document with the same ID and fails.
+     * 
+     * @return false if the lease was fenced off; the partition must stop
+     */
+    private boolean saveCheckpoint(OverdueCheckpoint checkpoint, JobLeaseService.Lease lease) {
+        long token = lease.getFencingToken();
+        Query query = new Query(Criteria.where("_id").is(checkpoint.getId()).orOperator(
+            Criteria.where("fencingToken").lte(token),
+            Criteria.where("fencingToken").exists(false)));
+        Update update = new Update()
+            .set("runKey", checkpoint.getRunKey())
+            .set("partition", checkpoint.getPartition())
+            .set("status", checkpoint.getStatus())
+            .set("totalRecords", checkpoint.getTotalRecords())
+            .set("processedRecords", checkpoint.getProcessedRecords())
+            .set("finesCreated", checkpoint.getFinesCreated())
+            .set("lastRecordId", checkpoint.getLastRecordId())
+            .set("startedAt", checkpoint.getStartedAt())
+            .set("updatedAt", checkpoint.getUpdatedAt())
+            .set("completedAt", checkpoint.getCompletedAt())
+            .set("fencingToken", token);
+        try {
+            mongoTemplate.upsert(query, update, OverdueCheckpoint.class);
+            checkpoint.setFencingToken(token);
+            return true;
+        } catch (DuplicateKeyException e) {
+            System.err.println("Overdue partition " + checkpoint.getId() + " stopped: fenced off (token " + token + ")");
+            return false;
+        }
+    }
+    
+    /**
+     * Create the overdue fine of a loan unless one already exists
+     * 
+     * @return the new fine, or null if the loan already had one
+     */
+    private Fine createOverdueFine(BorrowRecord record, LocalDate today, SystemSettings settings) {
+        if (!fineRepository.findByBorrowRecordID(record.getId()).isEmpty()) {
+            return null;
+        }
+        long daysOverdue = ChronoUnit.DAYS.between(record.getDueDate(), today);
+        
+        Fine fine = new Fine();
+        fine.setMemberID(record.getMemberID());
+        fine.setBorrowRecordID(record.getId());
+        fine.setAmountCents(daysOverdue * Money.toCents(settings.getFinePerDay()));
+        fine.setAmountPaidCents(0L);
+        fine.setReason("Overdue return: " + daysOverdue + " days late (auto-generated)");
+        fine.setIssueDate(today);
+        fine.setStatus("UNPAID");
+        Fine savedFine = fineRepository.save(fine);
+        memberBalanceService.recordFineCreated(savedFine);
+        return savedFine;
+    }
+    
+    /**
+     * Send fine notifications for a batch of new fines
+     * Members of the whole batch are resolved with a single query
+     */
+    private void notifyFines(List<Fine> fines) {
+        if (fines.isEmpty() || notificationService == null) {
+            return;
+        }
+        
+        Map<String, Member> members = new HashMap<>();
+        try {
+            Set<String> memberIds = fines.stream().map(Fine::getMemberID).collect(Collectors.toSet());
+            for (Member member : memberRepository.findContactsByIdIn(memberIds)) {
+                members.put(member.getId(), member);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to resolve members for fine notifications: " + e.getMessage());
+            return;
+        }
+        
+        for (Fine fine : fines) {
+            Member member = members.get(fine.getMemberID());
+            if (member == null) {
+                continue;
+            }
+            try {
+                notificationService.createFineNotification(fine, member);
+            } catch (Exception e) {
+                System.err.println("Failed to send fine notification for record " + fine.getBorrowRecordID() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Book;
+import com.example.lms.model.BorrowRecord;
+import com.example.lms.model.Fine;
+import com.example.lms.model.Member;
+import com.example.lms.model.Payment;
+import com.example.lms.repository.MemberRepository;
+import com.example.lms.service.export.TabularWriter;
+import com.example.lms.service.export.XlsxTabularWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * ReportExportService - Streams reports as CSV or XLSX
+ *
+ * Row reports (borrows, overdue, fines, payments) are read from a MongoDB
+ * cursor in batches; member names, book titles and fine reasons of a batch
+ * are resolved with one query each, the batch is written and flushed, and
+ * only then is the next batch read. Memory therefore stays bounded by the
+ * batch size no matter how many rows are exported, and the client receives
+ * the file in chunks while it is being produced.
+ *
+ * Ranking reports (most borrowed, most active, ...) are small and are
+ * exported from the existing ReportService results.
+ */
+@Service
+public class ReportExportService {
+
+    // Rows read from the cursor and written per batch
+    private static final int BATCH_SIZE = 500;
+
+    public static final List<String> FORMATS = List.of("csv", "xlsx");
+
+    public static final List<String> REPORTS = List.of(
+        "borrows", "overdue", "fines", "payments",
+        "most-borrowed", "least-borrowed", "most-active", "recent-payments", "trends");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+
+    /**
+     * Validate an export request before the response is committed
+     */
+    public void checkExport(String report, String format) {
+        if (!REPORTS.contains(report)) {
+            throw new RuntimeException("Unknown report: " + report + ". Available: " + String.join(", ", REPORTS));
+        }
+        if (!FORMATS.contains(format)) {
+            throw new RuntimeException("Unsupported format: " + format + ". Use csv or xlsx");
+        }
+    }
+
+    public String getContentType(String format) {
+        return "xlsx".equals(format)
+            ? "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"
+            : "text/csv; charset=UTF-8";
+    }
+
+    public String getFileName(String report, String format) {
+        return report + "-" + LocalDate.now() + "." + format;
+    }
+
+    /**
+     * Write a report to the output stream
+     *
+     * @param limit Row limit of the ranking reports
+     */
+    public void export(String report, String format, int limit, OutputStream out) throws IOException {
+        checkExport(report, format);
+        long started = System.currentTimeMillis();
+        long rows;
+        int sheets = 1;
+        try (TabularWriter writer = TabularWriter.create(format, out, report)) {
+            switch (report) {
+                case "borrows":
+                    rows = exportBorrows(writer, new Query(), false);
+                    break;
+                case "overdue":
+                    rows = exportBorrows(writer, new Query(Criteria.where("overdue").is(true)), true);
+                    break;
+                case "fines":
+                    rows = exportFines(writer);
+                    break;
+                case "payments":
+                    rows = exportPayments(writer);
+                    break;
+                case "most-borrowed":
+                    rows = exportList(writer, reportService.getMostBorrowedBooks(limit),
+                        "bookID", "bookTitle", "author", "borrowCount");
+                    break;
+                case "least-borrowed":
+                    rows = exportList(writer, reportService.getLeastBorrowedBooks(limit),
+                        "bookID", "bookTitle", "author", "borrowCount");
+                    break;
+                case "most-active":
+                    rows = exportList(writer, reportService.getMostActiveMembers(limit),
+                        "memberID", "memberName", "email", "borrowCount");
+                    break;
+                case "recent-payments":
+                    rows = exportList(writer, reportService.getRecentPayments(limit),
+                        "paymentID", "memberID", "memberName", "amount", "paymentMethod", "paymentDate", "fineReason");
+                    break;
+                default:
+                    rows = exportTrend(writer);
+                    break;
+            }
+            if (writer instanceof XlsxTabularWriter) {
+                sheets = ((XlsxTabularWriter) writer).getSheetCount();
+            }
+        }
+        out.flush();
+        System.out.println("Exported " + rows + " rows of report '" + report + "' as " + format
+            + (sheets > 1 ? " on " + sheets + " sheets" : "")
+            + " in " + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    private long exportBorrows(TabularWriter writer, Query query, boolean overdueOnly) throws IOException {
+        List<String> columns = new ArrayList<>(List.of(
+            "recordID", "memberID", "memberName", "bookID", "bookTitle",
+            "issueDate", "dueDate", "returnDate", "status", "overdue"));
+        if (overdueOnly) {
+            columns.add("daysOverdue");
+        }
+        writer.writeHeader(columns);
+        LocalDate today = LocalDate.now();
+
+        return forEachBatch(BorrowRecord.class, query, batch -> {
+            Map<String, String> memberNames = memberNames(ids(batch, BorrowRecord::getMemberID));
+            Map<String, String> bookTitles = bookTitles(ids(batch, BorrowRecord::getBookID));
+            for (BorrowRecord record : batch) {
+                List<Object> row = new ArrayList<>(Arrays.asList(
+                    record.getId(),
+                    record.getMemberID(),
+                    memberNames.getOrDefault(record.getMemberID(), "Unknown"),
+                    record.getBookID(),
+                    bookTitles.getOrDefault(record.getBookID(), "Unknown"),
+                    record.getIssueDate(),
+                    record.getDueDate(),
+                    record.getReturnDate(),
+                    record.getStatus(),
+                    Boolean.TRUE.equals(record.getOverdue())));
+                if (overdueOnly) {
+                    row.add(record.getDueDate() != null ? ChronoUnit.DAYS.between(record.getDueDate(), today) : 0);
+                }
+                writer.writeRow(row);
+            }
+            writer.flush();
+        });
+    }
+
+    private long exportFines(TabularWriter writer) throws IOException {
+        writer.writeHeader(List.of(
+            "fineID", "memberID", "memberName", "borrowRecordID", "amount", "amountPaid",
+            "amountDue", "status", "reason", "issueDate", "paidDate"));
+
+        return forEachBatch(Fine.class, new Query(), batch -> {
+            Map<String, String> memberNames = memberNames(ids(batch, Fine::getMemberID));
+            for (Fine fine : batch) {
+                writer.writeRow(Arrays.asList(
+                    fine.getId(),
+                    fine.getMemberID(),
+                    memberNames.getOrDefault(fine.getMemberID(), "Unknown"),
+                    fine.getBorrowRecordID(),
+                    fine.getAmount(),
+                    fine.getAmountPaid(),
+                    fine.getAmountDue(),
+                    fine.getStatus(),
+                    fine.getReason(),
+                    fine.getIssueDate(),
+                    fine.getPaidDate()));
+            }
+            writer.flush();
+        });
+    }
+
+    private long exportPayments(TabularWriter writer) throws IOException {
+        writer.writeHeader(List.of(
+            "paymentID", "memberID", "memberName", "fineID", "fineReason",
+            "amount", "paymentMethod", "paymentDate", "notes"));
+
+        return forEachBatch(Payment.class, new Query(), batch -> {
+            Map<String, String> memberNames = memberNames(ids(batch, Payment::getMemberID));
+            Map<String, String> fineReasons = fineReasons(ids(batch, Payment::getFineID));
+            for (Payment payment : batch) {
+                writer.writeRow(Arrays.asList(
+                    payment.getId(),
+                    payment.getMemberID(),
+                    memberNames.getOrDefault(payment.getMemberID(), "Unknown"),
+                    payment.getFineID(),
+                    fineReasons.getOrDefault(payment.getFineID(), "Unknown"),
+                    payment.getAmount(),
+                    payment.getPaymentMethod(),
+                    payment.getPaymentDate(),
+                    payment.getNotes()));
+            }
+            writer.flush();
+        });
+    }
+
+    // Last 12 months of the library-wide circulation rollups
+    @SuppressWarnings("unchecked")
+    private long exportTrend(TabularWriter writer) throws IOException {
+        LocalDate today = LocalDate.now();
+        Map<String, Object> trend = circulationRollupService.getTrend(
+            CirculationRollupService.MONTH, today.minusMonths(11), today, null);
+        return exportList(writer, (List<Map<String, Object>>) trend.get("points"),
+            "period", "borrows", "returns", "overdue", "finesIssued", "fineAmount", "paymentsAmount");
+    }
+
+    private long exportList(TabularWriter writer, List<Map<String, Object>> rows, String... columns) throws IOException {
+        writer.writeHeader(Arrays.asList(columns));
+        for (Map<String, Object> row : rows) {
+            List<Object> values = new ArrayList<>(columns.length);
+            for (String column : columns) {
+                values.add(row.get(column));
+            }
+            writer.writeRow(values);
+        }
+        return rows.size();
+    }
+
+    /**
+     * Stream a collection in _id order and hand it over in batches
+     *
+     * @return the number of documents read
+     */
+    private <T> long forEachBatch(Class<T> type, Query query, BatchHandler<T> handler) throws IOException {
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(BATCH_SIZE);
+        long count = 0;
+        List<T> batch = new ArrayList<>(BATCH_SIZE);
+        try (Stream<T> results = mongoTemplate.stream(query, type)) {
+            Iterator<T> cursor = results.iterator();
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == BATCH_SIZE) {
+                    handler.handle(batch);
+                    count += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            handler.handle(batch);
+            count += batch.size();
+        }
+        return count;
+    }
+
+    private interface BatchHandler<T> {
+        void handle(List<T> batch) throws IOException;
+    }
+
+    private static <T> Set<String> ids(List<T> batch, Function<T, String> getter) {
+        Set<String> ids = new HashSet<>();
+        for (T item : batch) {
+            String id = getter.apply(item);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private Map<String, String> memberNames(Collection<String> ids) {
+        Map<String, String> names = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Member member : memberRepository.findContactsByIdIn(ids)) {
+                names.put(member.getId(), member.getName());
+            }
+        }
+        return names;
+    }
+
+    private Map<String, String> bookTitles(Collection<String> ids) {
+        Map<String, String> titles = new HashMap<>();
+        if (!ids.isEmpty()) {
+            Query query = new Query(Criteria.where("_id").in(ids));
+            query.fields().include("title");
+            for (Book book : mongoTemplate.find(query, Book.class)) {
+                titles.put(book.getId(), book.getTitle());
+            }
+        }
+        return titles;
+    }
+
+    private Map<String, String> fineReasons(Collection<String> ids) {
+        Map<String, String> reasons = new HashMap<>();
+        if (!ids.isEmpty()) {
+            Query query = new Query(Criteria.where("_id").in(ids));
+            query.fields().include("reason");
+            for (Fine fine : mongoTemplate.find(query, Fine.class)) {
+                reasons.put(fine.getId(), fine.getReason());
+            }
+        }
+        return reasons;
+    }
+}
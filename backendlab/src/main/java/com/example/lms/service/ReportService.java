@@ -4,22 +4,46 @@ import com.example.lms.model.Book;
 import com.example.lms.model.BorrowRecord;
 import com.example.lms.model.Fine;
 import com.example.lms.model.Member;
+import com.example.lms.model.Money;
 import com.example.lms.model.Payment;
 import com.example.lms.repository.BookRepository;
 import com.example.lms.repository.BorrowRecordRepository;
 import com.example.lms.repository.FineRepository;
 import com.example.lms.repository.MemberRepository;
 import com.example.lms.repository.PaymentRepository;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * ReportService - Book, member, overdue and fine reports
+ *
+ * Every report costs a fixed number of database round trips regardless of
+ * its size: counts are computed by aggregation pipelines on the server, and
+ * the books, members and fines referenced by a report are fetched with one
+ * $in query per collection (see booksById, membersById, finesById) instead
+ * of one findById per row.
+ *
+ * $lookup is not used for the joins because memberID/bookID are stored as
+ * hex strings while the referenced _id fields are ObjectIds; the batched $in
+ * lets Spring convert the ids and works for both.
+ */
 @Service
 public class ReportService {
     
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
     @Autowired
     private BorrowRecordRepository borrowRecordRepository;
     
@@ -35,28 +59,30 @@ public class ReportService {
     @Autowired
     private PaymentRepository paymentRepository;
     
+    @Autowired
+    private DistinctCountService distinctCountService;
+    
     // Book Reports
     public List<Map<String, Object>> getMostBorrowedBooks(int limit) {
         try {
-            List<BorrowRecord> allRecords = borrowRecordRepository.findAll();
-            if (allRecords == null || allRecords.isEmpty()) {
+            // 1 aggregation for the top counts + 1 query for their books
+            List<Document> topBooks = countBorrowsBy("bookID", limit);
+            if (topBooks.isEmpty()) {
                 return new ArrayList<>();
             }
             
-            Map<String, Long> bookBorrowCounts = allRecords.stream()
-                .filter(record -> record.getBookID() != null)
-                .collect(Collectors.groupingBy(BorrowRecord::getBookID, Collectors.counting()));
+            Map<String, Book> books = booksById(topBooks.stream()
+                .map(row -> row.getString("_id"))
+                .collect(Collectors.toList()));
             
-            return bookBorrowCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> {
+            return topBooks.stream()
+                .map(row -> {
                     Map<String, Object> result = new HashMap<>();
-                    Book book = bookRepository.findById(entry.getKey()).orElse(null);
-                    result.put("bookID", entry.getKey());
+                    Book book = books.get(row.getString("_id"));
+                    result.put("bookID", row.getString("_id"));
                     result.put("bookTitle", book != null ? book.getTitle() : "Unknown");
                     result.put("author", book != null ? book.getAuthor() : "Unknown");
-                    result.put("borrowCount", entry.getValue());
+                    result.put("borrowCount", ((Number) row.get("count")).longValue());
                     return result;
                 })
                 .collect(Collectors.toList());
@@ -73,16 +99,11 @@ public class ReportService {
                 return new ArrayList<>();
             }
             
-            List<BorrowRecord> allRecords = borrowRecordRepository.findAll();
-            Map<String, Long> bookBorrowCounts = new HashMap<>();
-            
-            if (allRecords != null && !allRecords.isEmpty()) {
-                bookBorrowCounts = allRecords.stream()
-                    .filter(record -> record.getBookID() != null)
-                    .collect(Collectors.groupingBy(BorrowRecord::getBookID, Collectors.counting()));
+            Map<String, Long> finalBookBorrowCounts = new HashMap<>();
+            for (Document row : countBorrowsBy("bookID", 0)) {
+                finalBookBorrowCounts.put(row.getString("_id"), ((Number) row.get("count")).longValue());
             }
             
-            final Map<String, Long> finalBookBorrowCounts = bookBorrowCounts;
             return allBooks.stream()
                 .map(book -> {
                     Map<String, Object> result = new HashMap<>();
@@ -134,25 +155,24 @@ public class ReportService {
     // User Reports
     public List<Map<String, Object>> getMostActiveMembers(int limit) {
         try {
-            List<BorrowRecord> allRecords = borrowRecordRepository.findAll();
-            if (allRecords == null || allRecords.isEmpty()) {
+            // 1 aggregation for the top counts + 1 query for their members
+            List<Document> topMembers = countBorrowsBy("memberID", limit);
+            if (topMembers.isEmpty()) {
                 return new ArrayList<>();
             }
             
-            Map<String, Long> memberBorrowCounts = allRecords.stream()
-                .filter(record -> record.getMemberID() != null)
-                .collect(Collectors.groupingBy(BorrowRecord::getMemberID, Collectors.counting()));
+            Map<String, Member> members = membersById(topMembers.stream()
+                .map(row -> row.getString("_id"))
+                .collect(Collectors.toList()));
             
-            return memberBorrowCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> {
+            return topMembers.stream()
+                .map(row -> {
                     Map<String, Object> result = new HashMap<>();
-                    Member member = memberRepository.findById(entry.getKey()).orElse(null);
-                    result.put("memberID", entry.getKey());
+                    Member member = members.get(row.getString("_id"));
+                    result.put("memberID", row.getString("_id"));
                     result.put("memberName", member != null ? member.getName() : "Unknown");
                     result.put("email", member != null ? member.getContact() : "Unknown");
-                    result.put("borrowCount", entry.getValue());
+                    result.put("borrowCount", ((Number) row.get("count")).longValue());
                     return result;
                 })
                 .collect(Collectors.toList());
@@ -176,13 +196,13 @@ public class ReportService {
             .filter(r -> r.getOverdue() != null && r.getOverdue())
             .count();
         
-        Double totalFines = fines.stream()
-            .mapToDouble(Fine::getAmount)
-            .sum();
+        double totalFines = Money.toAmount(fines.stream()
+            .mapToLong(Fine::getAmountCents)
+            .sum());
         
-        Double totalPaid = payments.stream()
-            .mapToDouble(Payment::getAmount)
-            .sum();
+        double totalPaid = Money.toAmount(payments.stream()
+            .mapToLong(Payment::getAmountCents)
+            .sum());
         
         Map<String, Object> report = new HashMap<>();
         report.put("memberID", memberID);
@@ -200,21 +220,17 @@ public class ReportService {
     
     public Map<String, Object> getMemberStatistics() {
         try {
-            List<Member> allMembers = memberRepository.findAll();
-            List<BorrowRecord> allRecords = borrowRecordRepository.findAll();
-            
-            long activeMembers = 0;
-            if (allRecords != null && !allRecords.isEmpty()) {
-                activeMembers = allRecords.stream()
-                    .filter(r -> r.getReturnDate() == null && r.getMemberID() != null)
-                    .map(BorrowRecord::getMemberID)
-                    .distinct()
-                    .count();
-            }
+            // Distinct counts are computed by MongoDB, not by collecting IDs here
+            long activeMembers = distinctCountService.countDistinct(
+                Criteria.where("returnDate").is(null), "memberID");
+            LocalDate today = LocalDate.now();
             
             Map<String, Object> stats = new HashMap<>();
-            stats.put("totalMembers", allMembers != null ? allMembers.size() : 0);
+            stats.put("totalMembers", memberRepository.count());
             stats.put("activeMembers", activeMembers);
+            // Approximate (HyperLogLog), read from the daily sketches
+            stats.put("uniqueBorrowersLast30Days",
+                distinctCountService.estimate(DistinctCountService.BORROWERS, today.minusDays(29), today));
             
             return stats;
         } catch (Exception e) {
@@ -222,6 +238,7 @@ public class ReportService {
             Map<String, Object> stats = new HashMap<>();
             stats.put("totalMembers", 0);
             stats.put("activeMembers", 0);
+            stats.put("uniqueBorrowersLast30Days", 0);
             return stats;
         }
     }
@@ -229,16 +246,25 @@ public class ReportService {
     // Overdue Reports
     public List<Map<String, Object>> getOverdueReport() {
         try {
+            // 3 queries in total: the overdue records, their members, their books
             List<BorrowRecord> overdueRecords = borrowRecordRepository.findByOverdue(true);
             if (overdueRecords == null || overdueRecords.isEmpty()) {
                 return new ArrayList<>();
             }
             
+            Map<String, Member> members = membersById(overdueRecords.stream()
+                .map(BorrowRecord::getMemberID)
+                .collect(Collectors.toList()));
+            Map<String, Book> books = booksById(overdueRecords.stream()
+                .map(BorrowRecord::getBookID)
+                .collect(Collectors.toList()));
+            LocalDate today = LocalDate.now();
+            
             return overdueRecords.stream()
                 .map(record -> {
                     Map<String, Object> result = new HashMap<>();
-                    Member member = memberRepository.findById(record.getMemberID()).orElse(null);
-                    Book book = bookRepository.findById(record.getBookID()).orElse(null);
+                    Member member = members.get(record.getMemberID());
+                    Book book = books.get(record.getBookID());
                     
                     result.put("recordID", record.getId());
                     result.put("memberID", record.getMemberID());
@@ -249,7 +275,7 @@ public class ReportService {
                     result.put("issueDate", record.getIssueDate());
                     result.put("dueDate", record.getDueDate());
                     result.put("daysOverdue", record.getDueDate() != null ? 
-                        java.time.temporal.ChronoUnit.DAYS.between(record.getDueDate(), LocalDate.now()) : 0);
+                        java.time.temporal.ChronoUnit.DAYS.between(record.getDueDate(), today) : 0);
                     
                     return result;
                 })
@@ -262,25 +288,10 @@ public class ReportService {
     
     public Map<String, Object> getOverdueStatistics() {
         try {
-            List<BorrowRecord> overdueRecords = borrowRecordRepository.findByOverdue(true);
-            
-            long totalOverdue = overdueRecords != null ? overdueRecords.size() : 0;
-            long uniqueMembers = 0;
-            long uniqueBooks = 0;
-            
-            if (overdueRecords != null && !overdueRecords.isEmpty()) {
-                uniqueMembers = overdueRecords.stream()
-                    .filter(r -> r.getMemberID() != null)
-                    .map(BorrowRecord::getMemberID)
-                    .distinct()
-                    .count();
-                
-                uniqueBooks = overdueRecords.stream()
-                    .filter(r -> r.getBookID() != null)
-                    .map(BorrowRecord::getBookID)
-                    .distinct()
-                    .count();
-            }
+            Criteria overdue = Criteria.where("overdue").is(true);
+            long totalOverdue = mongoTemplate.count(new Query(overdue), BorrowRecord.class);
+            long uniqueMembers = distinctCountService.countDistinct(overdue, "memberID");
+            long uniqueBooks = distinctCountService.countDistinct(overdue, "bookID");
             
             Map<String, Object> stats = new HashMap<>();
             stats.put("totalOverdue", totalOverdue);
@@ -304,9 +315,9 @@ public class ReportService {
             List<Fine> allFines = fineRepository.findAll();
             List<Payment> allPayments = paymentRepository.findAll();
             
-            Double totalFines = 0.0;
-            Double totalCollected = 0.0;
-            Double totalOutstanding = 0.0;
+            long totalFines = 0;
+            long totalCollected = 0;
+            long totalOutstanding = 0;
             long unpaidCount = 0;
             long partiallyPaidCount = 0;
             long paidCount = 0;
@@ -314,10 +325,10 @@ public class ReportService {
             int totalCount = 0;
             
             if (allFines != null && !allFines.isEmpty()) {
-                totalFines = allFines.stream().mapToDouble(Fine::getAmount).sum();
+                totalFines = allFines.stream().mapToLong(Fine::getAmountCents).sum();
                 totalOutstanding = allFines.stream()
                     .filter(f -> "UNPAID".equals(f.getStatus()) || "PARTIALLY_PAID".equals(f.getStatus()))
-                    .mapToDouble(Fine::getAmountDue)
+                    .mapToLong(Fine::getAmountDueCents)
                     .sum();
                 unpaidCount = allFines.stream()
                     .filter(f -> "UNPAID".equals(f.getStatus()))
@@ -335,13 +346,13 @@ public class ReportService {
             }
             
             if (allPayments != null && !allPayments.isEmpty()) {
-                totalCollected = allPayments.stream().mapToDouble(Payment::getAmount).sum();
+                totalCollected = allPayments.stream().mapToLong(Payment::getAmountCents).sum();
             }
             
             Map<String, Object> report = new HashMap<>();
-            report.put("totalFines", totalFines);
-            report.put("totalCollected", totalCollected);
-            report.put("totalOutstanding", totalOutstanding);
+            report.put("totalFines", Money.toAmount(totalFines));
+            report.put("totalCollected", Money.toAmount(totalCollected));
+            report.put("totalOutstanding", Money.toAmount(totalOutstanding));
             report.put("unpaidCount", unpaidCount);
             report.put("partiallyPaidCount", partiallyPaidCount);
             report.put("paidCount", paidCount);
@@ -366,19 +377,27 @@ public class ReportService {
     
     public List<Map<String, Object>> getRecentPayments(int limit) {
         try {
-            List<Payment> allPayments = paymentRepository.findAll();
-            if (allPayments == null || allPayments.isEmpty()) {
+            // Sorted and limited by the server, then 1 query each for members and fines
+            Query query = new Query(Criteria.where("paymentDate").ne(null))
+                .with(Sort.by(Sort.Direction.DESC, "paymentDate"))
+                .limit(limit);
+            List<Payment> recentPayments = mongoTemplate.find(query, Payment.class);
+            if (recentPayments.isEmpty()) {
                 return new ArrayList<>();
             }
             
-            return allPayments.stream()
-                .filter(payment -> payment.getPaymentDate() != null)
-                .sorted(Comparator.comparing(Payment::getPaymentDate).reversed())
-                .limit(limit)
+            Map<String, Member> members = membersById(recentPayments.stream()
+                .map(Payment::getMemberID)
+                .collect(Collectors.toList()));
+            Map<String, Fine> fines = finesById(recentPayments.stream()
+                .map(Payment::getFineID)
+                .collect(Collectors.toList()));
+            
+            return recentPayments.stream()
                 .map(payment -> {
                     Map<String, Object> result = new HashMap<>();
-                    Member member = memberRepository.findById(payment.getMemberID()).orElse(null);
-                    Fine fine = fineRepository.findById(payment.getFineID()).orElse(null);
+                    Member member = members.get(payment.getMemberID());
+                    Fine fine = fines.get(payment.getFineID());
                     
                     result.put("paymentID", payment.getId());
                     result.put("memberID", payment.getMemberID());
@@ -397,6 +416,79 @@ public class ReportService {
         }
     }
     
+    // Batched lookups
+    
+    /**
+     * Borrow counts grouped by a BorrowRecord field, highest first
+     *
+     * Ties are broken by id so the ranking is stable between calls.
+     *
+     * @param field "bookID" or "memberID"
+     * @param limit Maximum number of rows, 0 for all
+     * @return documents of the form { _id: <id>, count: <n> }
+     */
+    private List<Document> countBorrowsBy(String field, int limit) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(Criteria.where(field).ne(null)));
+        stages.add(Aggregation.group(field).count().as("count"));
+        stages.add(Aggregation.sort(Sort.by(Sort.Direction.DESC, "count").and(Sort.by(Sort.Direction.ASC, "_id"))));
+        if (limit > 0) {
+            stages.add(Aggregation.limit(limit));
+        }
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), BorrowRecord.class, Document.class)
+            .getMappedResults();
+    }
+    
+    private static Set<String> distinctIds(Collection<String> ids) {
+        Set<String> distinct = new HashSet<>();
+        for (String id : ids) {
+            if (id != null) {
+                distinct.add(id);
+            }
+        }
+        return distinct;
+    }
+    
+    // Title and author of the given books, keyed by id
+    private Map<String, Book> booksById(Collection<String> ids) {
+        Set<String> distinct = distinctIds(ids);
+        Map<String, Book> books = new HashMap<>();
+        if (!distinct.isEmpty()) {
+            Query query = new Query(Criteria.where("_id").in(distinct));
+            query.fields().include("title", "author");
+            for (Book book : mongoTemplate.find(query, Book.class)) {
+                books.put(book.getId(), book);
+            }
+        }
+        return books;
+    }
+    
+    // Name and contact details of the given members, keyed by id
+    private Map<String, Member> membersById(Collection<String> ids) {
+        Set<String> distinct = distinctIds(ids);
+        Map<String, Member> members = new HashMap<>();
+        if (!distinct.isEmpty()) {
+            for (Member member : memberRepository.findContactsByIdIn(distinct)) {
+                members.put(member.getId(), member);
+            }
+        }
+        return members;
+    }
+    
+    // Reasons of the given fines, keyed by id
+    private Map<String, Fine> finesById(Collection<String> ids) {
+        Set<String> distinct = distinctIds(ids);
+        Map<String, Fine> fines = new HashMap<>();
+        if (!distinct.isEmpty()) {
+            Query query = new Query(Criteria.where("_id").in(distinct));
+            query.fields().include("reason");
+            for (Fine fine : mongoTemplate.find(query, Fine.class)) {
+                fines.put(fine.getId(), fine);
+            }
+        }
+        return fines;
+    }
+    
     // Dashboard Summary
     public Map<String, Object> getDashboardSummary() {
         Map<String, Object> summary = new HashMap<>();
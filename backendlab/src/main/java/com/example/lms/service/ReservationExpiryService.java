@@ -0,0 +1,198 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Reservation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * ReservationExpiryService - Expires uncollected reservation holds
+ * 
+ * An APPROVED reservation with a copy allocated (notifiedDate set) whose
+ * expiryDate has passed is a hold the member never collected. This service
+ * finds those holds through the (status, expiryDate) index one page at a
+ * time and moves each one to EXPIRED with a conditional update. Only a hold
+ * this sweep actually expired releases its copy, to the next member in the
+ * book's waitlist or, when nobody is waiting, back on the shelf; a hold that
+ * was collected or cancelled in the meantime is left alone.
+ * 
+ * Scheduled Tasks:
+ * - Daily expiry sweep (runs at 00:05 every day, once per cluster)
+ */
+@Service
+public class ReservationExpiryService {
+    
+    // Number of expired holds read per round trip
+    private static final int SWEEP_PAGE_SIZE = 500;
+    
+    @Autowired
+    private ReservationService reservationService;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private JobLeaseService jobLeaseService;
+    
+    // Metrics of the most recent sweep and running totals since startup
+    private final SweepStatistics statistics = new SweepStatistics();
+    
+    /**
+     * Scheduled task to expire uncollected holds
+     * Runs daily at 00:05, right after expiry dates roll over
+     */
+    @Scheduled(cron = "0 5 0 * * ?")
+    public void expireReservations() {
+        jobLeaseService.runOnce("expireReservations", LocalDate.now().toString(), lease -> {
+            System.out.println("Starting reservation expiry sweep...");
+            SweepResult result = sweep();
+            System.out.println("Reservation expiry sweep completed. Expired: " + result.expired
+                + ", Reallocated: " + result.reallocated + ", Duration: " + result.durationMs + "ms");
+        });
+    }
+    
+    /**
+     * Run the expiry sweep on demand (for testing or admin use)
+     */
+    public SweepResult expireReservationsManually() {
+        return sweep();
+    }
+    
+    /**
+     * Metrics of the last sweep and totals since startup
+     */
+    public SweepStatistics getStatistics() {
+        synchronized (statistics) {
+            SweepStatistics copy = new SweepStatistics();
+            copy.lastRunAt = statistics.lastRunAt;
+            copy.lastDurationMs = statistics.lastDurationMs;
+            copy.lastExpired = statistics.lastExpired;
+            copy.lastReallocated = statistics.lastReallocated;
+            copy.lastPages = statistics.lastPages;
+            copy.lastErrors = statistics.lastErrors;
+            copy.totalRuns = statistics.totalRuns;
+            copy.totalExpired = statistics.totalExpired;
+            copy.totalReallocated = statistics.totalReallocated;
+            return copy;
+        }
+    }
+    
+    private synchronized SweepResult sweep() {
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        SweepResult result = new SweepResult();
+        PageRequest firstPage = PageRequest.of(0, SWEEP_PAGE_SIZE, Sort.by("expiryDate", "_id"));
+        
+        try {
+            while (true) {
+                // Expired holds drop out of the index range, so the first page is always the next batch
+                List<Reservation> page = mongoTemplate.find(new Query(Criteria.where("status").is("APPROVED")
+                    .and("notifiedDate").ne(null)
+                    .and("expiryDate").lt(today)).with(firstPage), Reservation.class);
+                if (page.isEmpty()) {
+                    break;
+                }
+                result.pages++;
+                
+                int expiredOnPage = 0;
+                for (Reservation reservation : page) {
+                    if (!expire(reservation, today)) {
+                        // Collected or cancelled since the read: nothing to release
+                        continue;
+                    }
+                    expiredOnPage++;
+                    try {
+                        if (reservationService.releaseCopy(reservation.getBookID()) != null) {
+                            result.reallocated++;
+                        }
+                    } catch (Exception e) {
+                        result.errors++;
+                        System.err.println("Failed to reallocate copy of book " + reservation.getBookID()
+                            + " after reservation " + reservation.getId() + " expired: " + e.getMessage());
+                    }
+                }
+                result.expired += expiredOnPage;
+                
+                if (expiredOnPage == 0 || page.size() < SWEEP_PAGE_SIZE) {
+                    // A page with nothing left to expire would be read again; stop rather than spin
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            result.errors++;
+            System.err.println("Reservation expiry sweep failed: " + e.getMessage());
+        }
+        
+        result.durationMs = System.currentTimeMillis() - start;
+        record(result);
+        return result;
+    }
+    
+    /**
+     * Move one ready hold from APPROVED to EXPIRED
+     * 
+     * The update repeats the ready/expiry condition, so a hold that was
+     * collected, cancelled or expired by another sweep between the read and
+     * the write is not matched.
+     * 
+     * @return true if this call expired the hold, and so owns its copy
+     */
+    private boolean expire(Reservation reservation, LocalDate today) {
+        Query query = new Query(Criteria.where("_id").is(reservation.getId())
+            .and("status").is("APPROVED")
+            .and("notifiedDate").ne(null)
+            .and("expiryDate").lt(today));
+        return mongoTemplate.updateFirst(query, new Update().set("status", "EXPIRED"), Reservation.class)
+            .getModifiedCount() == 1;
+    }
+    
+    private void record(SweepResult result) {
+        synchronized (statistics) {
+            statistics.lastRunAt = LocalDateTime.now();
+            statistics.lastDurationMs = result.durationMs;
+            statistics.lastExpired = result.expired;
+            statistics.lastReallocated = result.reallocated;
+            statistics.lastPages = result.pages;
+            statistics.lastErrors = result.errors;
+            statistics.totalRuns++;
+            statistics.totalExpired += result.expired;
+            statistics.totalReallocated += result.reallocated;
+        }
+    }
+    
+    /**
+     * Result class for a single expiry sweep
+     */
+    public static class SweepResult {
+        public int expired = 0;
+        public int reallocated = 0;
+        public int pages = 0;
+        public int errors = 0;
+        public long durationMs = 0;
+    }
+    
+    /**
+     * Sweep metrics: last run plus running totals since startup
+     */
+    public static class SweepStatistics {
+        public LocalDateTime lastRunAt;
+        public long lastDurationMs = 0;
+        public int lastExpired = 0;
+        public int lastReallocated = 0;
+        public int lastPages = 0;
+        public int lastErrors = 0;
+        public long totalRuns = 0;
+        public long totalExpired = 0;
+        public long totalReallocated = 0;
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Reservation;
+import com.example.lms.repository.ReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ReservationQueueService - Per-book FIFO waitlists for reservations
+ *
+ * The reservations collection is the persistent store of every waitlist: a
+ * reservation is waiting while its status is PENDING or APPROVED and no copy
+ * has been allocated to it yet (notifiedDate is null). It holds a copy (is
+ * "ready") once status is APPROVED and notifiedDate is set; a held copy is
+ * not counted in the book's copiesAvailable.
+ *
+ * This service keeps an in-memory copy of each book's waitlist, loaded
+ * lazily from MongoDB, so that queue positions can be answered without
+ * touching the database. Writes of this node update it directly; a cached
+ * waitlist is reloaded after WAITLIST_RELOAD_MS so reservations created or
+ * cancelled on other nodes show up. Allocation never trusts the cache: it
+ * claims the head straight from MongoDB.
+ *
+ * Responsibilities:
+ * 1. Maintain the FIFO order of waiting reservations per book
+ * 2. Answer queue-position lookups in O(1)
+ * 3. Atomically allocate a returned copy to the head of the queue
+ * 4. Close a member's reservation when they borrow the book
+ */
+@Service
+public class ReservationQueueService {
+
+    // Statuses of reservations that are still waiting for a copy
+    public static final List<String> WAITING_STATUSES = List.of("PENDING", "APPROVED");
+
+    // Age after which a cached waitlist is reloaded from MongoDB
+    private static final long WAITLIST_RELOAD_MS = 30000;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // bookID -> waitlist of reservation IDs
+    private final Map<String, Waitlist> waitlists = new ConcurrentHashMap<>();
+
+    // reservationID -> bookID for every reservation held in a loaded waitlist
+    private final Map<String, String> reservationBooks = new ConcurrentHashMap<>();
+
+    /**
+     * Whether a reservation is still waiting for a copy of its book
+     */
+    public static boolean isWaiting(Reservation reservation) {
+        return WAITING_STATUSES.contains(reservation.getStatus()) && reservation.getNotifiedDate() == null;
+    }
+
+    /**
+     * Append a newly created reservation to the tail of its book's waitlist
+     */
+    public void enqueue(Reservation reservation) {
+        if (reservation.getBookID() == null || !isWaiting(reservation)) {
+            return;
+        }
+        getWaitlist(reservation.getBookID()).add(reservation.getId());
+        reservationBooks.put(reservation.getId(), reservation.getBookID());
+    }
+
+    /**
+     * Remove a reservation from its waitlist (fulfilled, cancelled, deleted or allocated manually)
+     */
+    public void remove(Reservation reservation) {
+        String bookID = reservation.getBookID() != null
+            ? reservation.getBookID()
+            : reservationBooks.get(reservation.getId());
+        reservationBooks.remove(reservation.getId());
+        if (bookID == null) {
+            return;
+        }
+        Waitlist waitlist = waitlists.get(bookID);
+        if (waitlist != null) {
+            waitlist.remove(reservation.getId());
+        }
+    }
+
+    /**
+     * Drop the cached waitlist of a book so it is reloaded from MongoDB on next use
+     * Used after arbitrary status edits where the FIFO position cannot be derived locally
+     */
+    public void invalidate(String bookID) {
+        if (bookID == null) {
+            return;
+        }
+        Waitlist waitlist = waitlists.remove(bookID);
+        if (waitlist != null) {
+            for (String reservationId : waitlist.snapshot()) {
+                reservationBooks.remove(reservationId);
+            }
+        }
+    }
+
+    /**
+     * 1-based position of a reservation in its book's waitlist
+     *
+     * @return the position, or -1 if the reservation is not waiting
+     */
+    public int getPosition(Reservation reservation) {
+        if (reservation.getBookID() == null || !isWaiting(reservation)) {
+            return -1;
+        }
+        return getWaitlist(reservation.getBookID()).positionOf(reservation.getId());
+    }
+
+    /**
+     * Position lookup by reservation ID only, without reading the reservation
+     *
+     * @return the position, or -1 if the reservation is not in a loaded waitlist
+     */
+    public int getPosition(String reservationId) {
+        String bookID = reservationBooks.get(reservationId);
+        if (bookID == null) {
+            return -1;
+        }
+        return getWaitlist(bookID).positionOf(reservationId);
+    }
+
+    /**
+     * Number of reservations waiting for a book
+     */
+    public int getQueueLength(String bookID) {
+        return getWaitlist(bookID).size();
+    }
+
+    /**
+     * Reservation IDs waiting for a book, head first
+     */
+    public List<String> getQueue(String bookID) {
+        return getWaitlist(bookID).snapshot();
+    }
+
+    /**
+     * Allocate one returned copy of a book to the head of its waitlist
+     *
+     * The head is the oldest waiting reservation in MongoDB, claimed with a
+     * single conditional findAndModify, so two concurrent returns (on any
+     * node) can never hand their copies to the same reservation.
+     *
+     * @param bookID   The book whose copy was returned
+     * @param holdDays Number of days the member has to collect the copy
+     * @return the reservation now holding the copy, or null if nobody is waiting
+     */
+    public Reservation allocateToHead(String bookID, int holdDays) {
+        LocalDate today = LocalDate.now();
+        Query query = new Query(waiting(Criteria.where("bookID").is(bookID)))
+            .with(Sort.by("reservationDate", "_id"));
+        Update update = new Update()
+            .set("status", "APPROVED")
+            .set("notifiedDate", today)
+            .set("expiryDate", today.plusDays(holdDays));
+
+        Reservation allocated = mongoTemplate.findAndModify(
+            query, update, FindAndModifyOptions.options().returnNew(true), Reservation.class);
+        if (allocated != null) {
+            remove(allocated);
+        }
+        return allocated;
+    }
+
+    /**
+     * Whether the member holds a copy of the book, ready to collect
+     */
+    public boolean hasReadyHold(String memberID, String bookID) {
+        return mongoTemplate.exists(new Query(ready(memberID, bookID)), Reservation.class);
+    }
+
+    /**
+     * Mark the member's ready hold on the book collected (FULFILLED)
+     *
+     * Called when the member borrows the book: the held copy is the one they
+     * take, so the caller must not take another one from the shelf.
+     *
+     * @return the collected hold, or null if the member holds no copy of the book
+     */
+    public Reservation collectHold(String memberID, String bookID) {
+        return mongoTemplate.findAndModify(new Query(ready(memberID, bookID)),
+            new Update().set("status", "FULFILLED"), FindAndModifyOptions.options().returnNew(true), Reservation.class);
+    }
+
+    /**
+     * Mark the member's waiting reservations for the book FULFILLED and drop them from the queue
+     *
+     * Called when the member borrows a copy from the shelf while still waiting for one.
+     */
+    public void fulfil(String memberID, String bookID) {
+        Query query = new Query(waiting(Criteria.where("memberID").is(memberID).and("bookID").is(bookID)));
+        List<Reservation> fulfilled = mongoTemplate.find(query, Reservation.class);
+        if (fulfilled.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(query, new Update().set("status", "FULFILLED"), Reservation.class);
+        fulfilled.forEach(this::remove);
+    }
+
+    private static Criteria waiting(Criteria criteria) {
+        return criteria.and("status").in(WAITING_STATUSES).and("notifiedDate").is(null);
+    }
+
+    private static Criteria ready(String memberID, String bookID) {
+        return Criteria.where("memberID").is(memberID).and("bookID").is(bookID)
+            .and("status").is("APPROVED").and("notifiedDate").ne(null);
+    }
+
+    private Waitlist getWaitlist(String bookID) {
+        return waitlists.compute(bookID, (id, cached) ->
+            cached != null && System.currentTimeMillis() - cached.loadedAt < WAITLIST_RELOAD_MS
+                ? cached
+                : loadWaitlist(id));
+    }
+
+    private Waitlist loadWaitlist(String bookID) {
+        Waitlist waitlist = new Waitlist();
+        for (Reservation reservation : reservationRepository.findWaitingByBookID(bookID)) {
+            waitlist.add(reservation.getId());
+            reservationBooks.put(reservation.getId(), bookID);
+        }
+        return waitlist;
+    }
+
+    /**
+     * FIFO queue of reservation IDs with O(1) append, head removal and position lookup
+     *
+     * Entries keep their absolute index; the position of an entry is its index
+     * minus the index of the current head. Removing from the middle (a
+     * cancellation) shifts and re-indexes the entries behind it.
+     */
+    private static class Waitlist {
+        private final List<String> entries = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final long loadedAt = System.currentTimeMillis();
+        private int head = 0;
+
+        synchronized void add(String reservationId) {
+            if (indexes.containsKey(reservationId)) {
+                return;
+            }
+            indexes.put(reservationId, entries.size());
+            entries.add(reservationId);
+        }
+
+        synchronized void remove(String reservationId) {
+            Integer index = indexes.remove(reservationId);
+            if (index == null) {
+                return;
+            }
+            if (index == head) {
+                // The head was allocated: advance instead of shifting the whole list
+                entries.set(head, null);
+                head++;
+                compact();
+                return;
+            }
+            entries.remove((int) index);
+            for (int i = index; i < entries.size(); i++) {
+                indexes.put(entries.get(i), i);
+            }
+        }
+
+        synchronized int positionOf(String reservationId) {
+            Integer index = indexes.get(reservationId);
+            return index != null ? index - head + 1 : -1;
+        }
+
+        synchronized int size() {
+            return entries.size() - head;
+        }
+
+        synchronized List<String> snapshot() {
+            return new ArrayList<>(entries.subList(head, entries.size()));
+        }
+
+        // Drop consumed slots once they make up more than half of the list
+        private void compact() {
+            if (head < 32 || head * 2 < entries.size()) {
+                return;
+            }
+            entries.subList(0, head).clear();
+            head = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                indexes.put(entries.get(i), i);
+            }
+        }
+    }
+}
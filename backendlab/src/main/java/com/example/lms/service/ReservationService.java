@@ -4,14 +4,18 @@ import com.example.lms.model.Book;
 import com.example.lms.model.Member;
 import com.example.lms.model.Reservation;
 import com.example.lms.model.Member;
-import com.example.lms.repository.BookRepository;
-import com.example.lms.repository.MemberRepository;
 import com.example.lms.repository.ReservationRepository;
-import com.example.lms.repository.MemberRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -21,10 +25,19 @@ public class ReservationService {
     private ReservationRepository reservationRepository;
     
     @Autowired
-    private BookRepository bookRepository;
+    private BookService bookService;
     
     @Autowired
-    private MemberRepository memberRepository;
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private EntityCacheService entityCacheService;
+    
+    @Autowired
+    private ReservationQueueService reservationQueueService;
+    
+    @Autowired
+    private SystemSettingsService systemSettingsService;
     
     @Autowired(required = false)
     private NotificationService notificationService;
@@ -35,7 +48,12 @@ public class ReservationService {
         reservation.setBookID(bookID);
         reservation.setReservationDate(LocalDate.now());
         reservation.setStatus("PENDING");
-        return reservationRepository.save(reservation);
+        Reservation savedReservation = reservationRepository.save(reservation);
+        
+        // Join the tail of the book's waitlist
+        reservationQueueService.enqueue(savedReservation);
+        
+        return savedReservation;
     }
     
     public List<Reservation> getAllReservations() {
@@ -68,8 +86,8 @@ public class ReservationService {
         // Send reservation approval notification
         if (notificationService != null) {
             try {
-                Optional<Member> optMember = memberRepository.findById(reservation.getMemberID());
-                Optional<Book> optBook = bookRepository.findById(reservation.getBookID());
+                Optional<Member> optMember = entityCacheService.findMember(reservation.getMemberID());
+                Optional<Book> optBook = entityCacheService.findBook(reservation.getBookID());
                 if (optMember.isPresent() && optBook.isPresent()) {
                     notificationService.createReservationApprovalNotification(savedReservation, optMember.get(), optBook.get());
                 }
@@ -89,16 +107,109 @@ public class ReservationService {
             throw new RuntimeException("Only approved reservations can be notified");
         }
         
-        Book book = bookRepository.findById(reservation.getBookID())
-            .orElseThrow(() -> new RuntimeException("Book not found"));
+        if (reservation.getNotifiedDate() != null) {
+            throw new RuntimeException("A copy is already held for this reservation");
+        }
         
-        if (book.getCopiesAvailable() <= 0) {
+        // The held copy leaves the shelf
+        if (bookService.adjustCopiesAvailable(reservation.getBookID(), -1) == null) {
             throw new RuntimeException("Book is not available yet");
         }
         
         reservation.setNotifiedDate(LocalDate.now());
-        reservation.setExpiryDate(LocalDate.now().plusDays(3)); // 3 days to pick up
-        return reservationRepository.save(reservation);
+        reservation.setExpiryDate(LocalDate.now().plusDays(getHoldDays()));
+        Reservation savedReservation = reservationRepository.save(reservation);
+        
+        // A copy is now held for this member, so it no longer waits in the queue
+        reservationQueueService.remove(savedReservation);
+        
+        return savedReservation;
+    }
+    
+    /**
+     * Hand a returned copy to the member at the head of the book's waitlist
+     * Called through releaseCopy; sets the pickup window from
+     * SystemSettings.reservationExpiryDays and queues a RESERVATION_READY notification
+     * 
+     * @return the reservation now holding the copy, or null if nobody is waiting
+     */
+    public Reservation allocateReturnedCopy(String bookID) {
+        Reservation allocated = reservationQueueService.allocateToHead(bookID, getHoldDays());
+        if (allocated == null) {
+            return null;
+        }
+        
+        // Queue the "reserved book available" notification for the member
+        if (notificationService != null) {
+            try {
+                Optional<Member> optMember = entityCacheService.findMember(allocated.getMemberID());
+                if (optMember.isPresent()) {
+                    notificationService.createReservationReadyNotification(allocated, optMember.get());
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to create reservation ready notification: " + e.getMessage());
+            }
+        }
+        
+        return allocated;
+    }
+    
+    /**
+     * Pass on a copy that came back: a return, or a hold that expired or was cancelled
+     * 
+     * The copy goes to the head of the book's waitlist if anybody is waiting,
+     * otherwise back on the shelf (copiesAvailable + 1).
+     * 
+     * @return the reservation now holding the copy, or null if it went back on the shelf
+     */
+    public Reservation releaseCopy(String bookID) {
+        Reservation allocated = null;
+        try {
+            allocated = allocateReturnedCopy(bookID);
+        } catch (Exception e) {
+            System.err.println("Failed to allocate returned copy to reservation queue: " + e.getMessage());
+        }
+        if (allocated == null) {
+            bookService.adjustCopiesAvailable(bookID, 1);
+        }
+        return allocated;
+    }
+    
+    /**
+     * Queue position of a reservation for the member view
+     * Position is 1-based; 0 means a copy is already held, -1 means not queued
+     */
+    public Map<String, Object> getQueuePosition(String id) {
+        Reservation reservation = reservationRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Reservation not found"));
+        
+        int position;
+        if ("APPROVED".equals(reservation.getStatus()) && reservation.getNotifiedDate() != null) {
+            position = 0;
+        } else {
+            position = reservationQueueService.getPosition(reservation);
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("reservationID", reservation.getId());
+        result.put("bookID", reservation.getBookID());
+        result.put("status", reservation.getStatus());
+        result.put("position", position);
+        result.put("queueLength", reservationQueueService.getQueueLength(reservation.getBookID()));
+        result.put("expiryDate", reservation.getExpiryDate());
+        return result;
+    }
+    
+    /**
+     * Waiting reservation IDs for a book, head of the queue first
+     */
+    public List<String> getBookQueue(String bookID) {
+        return reservationQueueService.getQueue(bookID);
+    }
+    
+    private int getHoldDays() {
+        Integer days = systemSettingsService.getSettings().getReservationExpiryDays();
+        return days != null ? days : 3;
     }
     
     public Reservation fulfillReservation(String id) {
@@ -110,21 +221,21 @@ public class ReservationService {
         }
         
         reservation.setStatus("FULFILLED");
-        return reservationRepository.save(reservation);
+        Reservation savedReservation = reservationRepository.save(reservation);
+        reservationQueueService.remove(savedReservation);
+        return savedReservation;
     }
     
     public Reservation cancelReservationByAdmin(String id) {
-        Reservation reservation = reservationRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Reservation not found"));
-        
-        reservation.setStatus("CANCELLED");
-        Reservation savedReservation = reservationRepository.save(reservation);
+        Reservation reservation = setStatus(id, "CANCELLED");
+        Reservation savedReservation = reservationRepository.findById(id).orElse(reservation);
+        reservationQueueService.remove(savedReservation);
         
         // Send reservation cancellation notification
         if (notificationService != null) {
             try {
-                Optional<Member> optMember = memberRepository.findById(reservation.getMemberID());
-                Optional<Book> optBook = bookRepository.findById(reservation.getBookID());
+                Optional<Member> optMember = entityCacheService.findMember(reservation.getMemberID());
+                Optional<Book> optBook = entityCacheService.findBook(reservation.getBookID());
                 if (optMember.isPresent() && optBook.isPresent()) {
                     notificationService.createReservationCancellationNotification(savedReservation, optMember.get(), optBook.get());
                 }
@@ -137,11 +248,7 @@ public class ReservationService {
     }
     
     public List<Reservation> getExpiredReservations() {
-        List<Reservation> approved = reservationRepository.findByStatus("APPROVED");
-        LocalDate today = LocalDate.now();
-        return approved.stream()
-            .filter(r -> r.getExpiryDate() != null && r.getExpiryDate().isBefore(today))
-            .toList();
+        return reservationRepository.findByStatusAndExpiryDateBefore("APPROVED", LocalDate.now());
     }
     
     public List<Reservation> getReservationsByBook(String bookID) {
@@ -149,13 +256,49 @@ public class ReservationService {
     }
     
     public Reservation updateReservationStatus(String id, String status) {
-        Reservation reservation = reservationRepository.findById(id)
+        setStatus(id, status);
+        Reservation savedReservation = reservationRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Reservation not found"));
-        reservation.setStatus(status);
-        return reservationRepository.save(reservation);
+        
+        // Arbitrary status edits can move a reservation in or out of the queue; rebuild it from MongoDB
+        reservationQueueService.invalidate(savedReservation.getBookID());
+        
+        return savedReservation;
     }
     
     public void cancelReservation(String id) {
-        reservationRepository.deleteById(id);
+        Reservation removed = mongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(id)), Reservation.class);
+        if (removed != null) {
+            reservationQueueService.remove(removed);
+            if (isReady(removed)) {
+                releaseCopy(removed.getBookID());
+            }
+        }
+    }
+    
+    /**
+     * Set a reservation's status in one findAndModify and release its held copy if it had one
+     * 
+     * A ready hold that moves to any status but FULFILLED (collected) gives
+     * its copy back. Reading the previous state from the same atomic update
+     * means a concurrent change can never release the copy twice.
+     * 
+     * @return the reservation as it was before the change
+     */
+    private Reservation setStatus(String id, String status) {
+        Reservation previous = mongoTemplate.findAndModify(new Query(Criteria.where("_id").is(id)),
+            new Update().set("status", status), FindAndModifyOptions.options().returnNew(false), Reservation.class);
+        if (previous == null) {
+            throw new RuntimeException("Reservation not found");
+        }
+        if (isReady(previous) && !"APPROVED".equals(status) && !"FULFILLED".equals(status)) {
+            releaseCopy(previous.getBookID());
+        }
+        return previous;
+    }
+    
+    // APPROVED with a copy allocated: a hold the member can collect
+    private static boolean isReady(Reservation reservation) {
+        return "APPROVED".equals(reservation.getStatus()) && reservation.getNotifiedDate() != null;
     }
 }
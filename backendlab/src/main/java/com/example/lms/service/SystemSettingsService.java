@@ -5,6 +5,7 @@ import com.example.lms.repository.SystemSettingsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 
 @Service
@@ -64,6 +65,18 @@ public class SystemSettingsService {
         if (newSettings.getOverdueReminderDays() != null) {
             currentSettings.setOverdueReminderDays(newSettings.getOverdueReminderDays());
         }
+        if (newSettings.getNotificationRetentionDays() != null) {
+            currentSettings.setNotificationRetentionDays(newSettings.getNotificationRetentionDays());
+        }
+        if (newSettings.getNotificationRetentionByCategory() != null) {
+            currentSettings.setNotificationRetentionByCategory(newSettings.getNotificationRetentionByCategory());
+        }
+        if (newSettings.getNotificationArchiveEnabled() != null) {
+            currentSettings.setNotificationArchiveEnabled(newSettings.getNotificationArchiveEnabled());
+        }
+        if (newSettings.getNotificationArchiveDirectory() != null) {
+            currentSettings.setNotificationArchiveDirectory(newSettings.getNotificationArchiveDirectory());
+        }
         if (newSettings.getEmailHost() != null) {
             currentSettings.setEmailHost(newSettings.getEmailHost());
         }
@@ -119,6 +132,10 @@ public class SystemSettingsService {
         currentSettings.setSmsNotificationsEnabled(false);
         currentSettings.setDueDateReminderDays(2);
         currentSettings.setOverdueReminderDays(1);
+        currentSettings.setNotificationRetentionDays(90);
+        currentSettings.setNotificationRetentionByCategory(new HashMap<>());
+        currentSettings.setNotificationArchiveEnabled(false);
+        currentSettings.setNotificationArchiveDirectory("notification-archive");
         
         currentSettings.setLastUpdated(LocalDateTime.now());
         currentSettings.setUpdatedBy(updatedBy);
@@ -0,0 +1,143 @@
+package com.example.lms.service.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * NearCache - Bounded in-process cache with least-recently-used and time-to-live eviction
+ *
+ * Holds at most maxEntries values; adding one more evicts the least recently
+ * read. An entry also expires ttlMillis after it was loaded, which bounds
+ * how stale it can get when an invalidation is missed.
+ *
+ * get(key, loader) never caches a value loaded while an invalidation was in
+ * flight: a load that started before invalidate() returns its value to the
+ * caller but does not store it, so a concurrent write cannot be overwritten
+ * by the older document.
+ *
+ * Misses are not cached (a null from the loader is returned as is).
+ *
+ * Thread-safe: one lock guards the map; loaders run outside it.
+ */
+public class NearCache<K, V> {
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    // Bumped by every invalidation; loads only store their value if it did not change
+    private long generation = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public NearCache(String name, int maxEntries, long ttlMillis) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        // Access order: iteration starts at the least recently read entry
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * The cached value, or the loader's value (cached when not null)
+     */
+    public V get(K key, Function<K, V> loader) {
+        long loadGeneration;
+        synchronized (lock) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > System.currentTimeMillis()) {
+                    hits.incrementAndGet();
+                    return entry.value;
+                }
+                entries.remove(key);
+                expirations.incrementAndGet();
+            }
+            loadGeneration = generation;
+        }
+        misses.incrementAndGet();
+        V value = loader.apply(key);
+        if (value != null) {
+            synchronized (lock) {
+                if (generation == loadGeneration) {
+                    entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+                    evictOverflow();
+                }
+            }
+        }
+        return value;
+    }
+
+    public void invalidate(K key) {
+        synchronized (lock) {
+            generation++;
+            if (entries.remove(key) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            generation++;
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return Size, limits and hit, miss and eviction counters since startup
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("size", size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    // Drop least recently read entries beyond maxEntries (called with the lock held)
+    private void evictOverflow() {
+        Iterator<Entry<V>> oldest = entries.values().iterator();
+        while (entries.size() > maxEntries && oldest.hasNext()) {
+            oldest.next();
+            oldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
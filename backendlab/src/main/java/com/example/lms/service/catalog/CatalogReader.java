@@ -0,0 +1,66 @@
+package com.example.lms.service.catalog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CatalogReader - Reads a catalog file one record at a time
+ *
+ * Implementations hold no more than the current record, so the memory used
+ * by an import does not depend on the size of the file. close() does not
+ * close the underlying stream.
+ */
+public interface CatalogReader extends Closeable {
+
+    List<String> FORMATS = List.of("csv", "jsonl", "marc");
+
+    // Column names accepted for each Book property (lower case)
+    Map<String, String> FIELD_ALIASES = Map.ofEntries(
+        Map.entry("title", "title"),
+        Map.entry("author", "author"),
+        Map.entry("authors", "author"),
+        Map.entry("category", "category"),
+        Map.entry("genre", "category"),
+        Map.entry("isbn", "isbn"),
+        Map.entry("isbn13", "isbn"),
+        Map.entry("totalcopies", "totalCopies"),
+        Map.entry("copies", "totalCopies"),
+        Map.entry("copiesavailable", "copiesAvailable"),
+        Map.entry("available", "copiesAvailable"));
+
+    /**
+     * @return the next record, or null at the end of the input
+     */
+    CatalogRecord next() throws IOException;
+
+    /**
+     * Reader for "csv", "jsonl" or "marc" (MARC 21, ISO 2709)
+     */
+    static CatalogReader create(String format, InputStream in) {
+        switch (format) {
+            case "csv":
+                return new CsvCatalogReader(in);
+            case "jsonl":
+                return new JsonLinesCatalogReader(in);
+            case "marc":
+                return new MarcCatalogReader(in);
+            default:
+                throw new IllegalArgumentException("Unsupported catalog format: " + format);
+        }
+    }
+
+    /**
+     * The Book property a column or key names, or null if it is not imported
+     */
+    static String fieldOf(String name) {
+        return name != null ? FIELD_ALIASES.get(name.toLowerCase(Locale.ROOT).replaceAll("[\\s_-]", "")) : null;
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.lms.service.catalog;
+
+import java.util.Map;
+
+/**
+ * CatalogRecord - One row of a catalog file, before validation
+ *
+ * Fields use the Book property names (title, author, category, isbn,
+ * totalCopies, copiesAvailable); values are the raw text of the file.
+ * A row that could not be parsed carries an error instead of fields.
+ */
+public class CatalogRecord {
+
+    private final long row;
+    private final Map<String, String> fields;
+    private final String error;
+
+    private CatalogRecord(long row, Map<String, String> fields, String error) {
+        this.row = row;
+        this.fields = fields;
+        this.error = error;
+    }
+
+    public static CatalogRecord of(long row, Map<String, String> fields) {
+        return new CatalogRecord(row, fields, null);
+    }
+
+    public static CatalogRecord failed(long row, String error) {
+        return new CatalogRecord(row, Map.of(), error);
+    }
+
+    /**
+     * Position of the row in the file, starting at 1 (header lines not counted)
+     */
+    public long getRow() { return row; }
+
+    public String get(String field) { return fields.get(field); }
+
+    public String getError() { return error; }
+}
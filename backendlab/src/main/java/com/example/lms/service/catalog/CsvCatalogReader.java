@@ -0,0 +1,122 @@
+package com.example.lms.service.catalog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CsvCatalogReader - Catalog rows from CSV (RFC 4180) with a header row
+ *
+ * The header names the columns (see CatalogReader.FIELD_ALIASES); other
+ * columns are ignored. Quoted values may contain commas, doubled quotes and
+ * line breaks. A UTF-8 byte order mark is skipped.
+ */
+class CsvCatalogReader implements CatalogReader {
+
+    private final BufferedReader reader;
+    private String[] columns;
+    private long row = 0;
+    private boolean first = true;
+
+    CsvCatalogReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    @Override
+    public CatalogRecord next() throws IOException {
+        if (columns == null) {
+            List<String> header = readRow();
+            if (header == null) {
+                return null;
+            }
+            columns = new String[header.size()];
+            boolean hasTitle = false;
+            for (int i = 0; i < header.size(); i++) {
+                columns[i] = CatalogReader.fieldOf(header.get(i));
+                hasTitle |= "title".equals(columns[i]);
+            }
+            if (!hasTitle) {
+                throw new IOException("The CSV header must have a title column");
+            }
+        }
+
+        List<String> values;
+        do {
+            values = readRow();
+            if (values == null) {
+                return null;
+            }
+        } while (values.size() == 1 && values.get(0).isBlank()); // Empty lines
+        row++;
+        if (values.size() > columns.length) {
+            return CatalogRecord.failed(row, "Row has " + values.size() + " values, header has " + columns.length);
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            if (columns[i] != null) {
+                fields.put(columns[i], values.get(i));
+            }
+        }
+        return CatalogRecord.of(row, fields);
+    }
+
+    /**
+     * Values of the next row, or null at the end of the input
+     */
+    private List<String> readRow() throws IOException {
+        int c = reader.read();
+        if (first && c == '\uFEFF') {
+            c = reader.read();
+        }
+        first = false;
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted value after row " + row);
+                }
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        value.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    value.append((char) c);
+                }
+            } else if (c == '"' && value.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                break;
+            } else if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                break;
+            } else {
+                value.append((char) c);
+            }
+            c = reader.read();
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
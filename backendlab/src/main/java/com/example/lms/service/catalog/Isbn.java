@@ -0,0 +1,64 @@
+package com.example.lms.service.catalog;
+
+import java.util.Locale;
+
+/**
+ * Isbn - Normalization and check-digit validation of ISBN-10 and ISBN-13
+ *
+ * ISBNs are stored without hyphens or spaces and with an upper-case check
+ * character, so "978-0-306-40615-7" and "9780306406157" are the same key for
+ * the unique index on books.isbn. ISBN-10s are not converted to ISBN-13.
+ */
+public final class Isbn {
+
+    private Isbn() {
+    }
+
+    /**
+     * @return the ISBN without separators, or null if it is blank
+     */
+    public static String normalize(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        String normalized = isbn.replaceAll("[\\s-]", "").toUpperCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Whether a normalized ISBN has the right length and check digit
+     */
+    public static boolean isValid(String isbn) {
+        if (isbn == null) {
+            return false;
+        }
+        if (isbn.length() == 10) {
+            int sum = 0;
+            for (int i = 0; i < 10; i++) {
+                char c = isbn.charAt(i);
+                int digit;
+                if (c >= '0' && c <= '9') {
+                    digit = c - '0';
+                } else if (c == 'X' && i == 9) {
+                    digit = 10;
+                } else {
+                    return false;
+                }
+                sum += digit * (10 - i);
+            }
+            return sum % 11 == 0;
+        }
+        if (isbn.length() == 13) {
+            int sum = 0;
+            for (int i = 0; i < 13; i++) {
+                char c = isbn.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+                sum += (c - '0') * (i % 2 == 0 ? 1 : 3);
+            }
+            return sum % 10 == 0;
+        }
+        return false;
+    }
+}
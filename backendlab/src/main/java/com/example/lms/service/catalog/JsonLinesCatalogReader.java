@@ -0,0 +1,76 @@
+package com.example.lms.service.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * JsonLinesCatalogReader - Catalog rows from JSON Lines, one object per line
+ *
+ * Keys name the fields like CSV columns (see CatalogReader.FIELD_ALIASES);
+ * other keys are ignored. A line that is not a JSON object is reported as a
+ * failed row and reading continues with the next line.
+ */
+class JsonLinesCatalogReader implements CatalogReader {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final BufferedReader reader;
+    private long row = 0;
+
+    JsonLinesCatalogReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    @Override
+    public CatalogRecord next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        row++;
+
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(line);
+        } catch (JsonProcessingException e) {
+            return CatalogRecord.failed(row, "Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (node == null || !node.isObject()) {
+            return CatalogRecord.failed(row, "Line is not a JSON object");
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            String field = CatalogReader.fieldOf(entry.getKey());
+            if (field != null && !entry.getValue().isNull()) {
+                fields.put(field, entry.getValue().isArray() ? joined(entry.getValue()) : entry.getValue().asText());
+            }
+        }
+        return CatalogRecord.of(row, fields);
+    }
+
+    // ["A", "B"] -> "A, B" (e.g. a list of authors)
+    private static String joined(JsonNode array) {
+        StringBuilder text = new StringBuilder();
+        for (JsonNode item : array) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(item.asText());
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.lms.service.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MarcCatalogReader - Catalog rows from MARC 21 bibliographic records (ISO 2709)
+ *
+ * Each record is a 24-byte leader, a directory of 12-byte entries (tag,
+ * length, offset) and the variable fields. Fields used:
+ * - isbn: 020 $a (the first one; qualifiers such as "(pbk.)" are dropped)
+ * - title: 245 $a and $b
+ * - author: 100 $a, else 110 $a, 111 $a or the first 700 $a
+ * - category: the first 650 $a, else 655 $a
+ *
+ * Records flagged as Unicode in leader position 9 are read as UTF-8, others
+ * as ISO-8859-1 (MARC-8 diacritics are not decoded). Copies are not part of
+ * MARC; the import's default applies. A record with a broken leader or
+ * directory ends the file, since the next record cannot be located.
+ */
+class MarcCatalogReader implements CatalogReader {
+
+    private static final byte FIELD_TERMINATOR = 0x1E;
+    private static final byte SUBFIELD_DELIMITER = 0x1F;
+
+    private final BufferedInputStream in;
+    private long row = 0;
+    private boolean broken = false;
+
+    MarcCatalogReader(InputStream in) {
+        this.in = new BufferedInputStream(in, 1 << 16);
+    }
+
+    @Override
+    public CatalogRecord next() throws IOException {
+        if (broken || !skipSeparators()) {
+            return null;
+        }
+        row++;
+        byte[] lengthBytes = in.readNBytes(5);
+        int length = number(lengthBytes, 0, 5);
+        if (length < 24) {
+            broken = true;
+            return CatalogRecord.failed(row, "Invalid MARC record length");
+        }
+        byte[] record = new byte[length];
+        System.arraycopy(lengthBytes, 0, record, 0, 5);
+        if (in.readNBytes(record, 5, length - 5) != length - 5) {
+            broken = true;
+            return CatalogRecord.failed(row, "Truncated MARC record");
+        }
+
+        Charset charset = record[9] == 'a' ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+        int base = number(record, 12, 5);
+        if (base < 25 || base > length) {
+            broken = true;
+            return CatalogRecord.failed(row, "Invalid MARC base address");
+        }
+
+        Map<String, String> fields = new HashMap<>();
+        String corporateAuthor = null;
+        String addedAuthor = null;
+        String genre = null;
+        for (int entry = 24; entry + 12 <= base - 1; entry += 12) {
+            String tag = new String(record, entry, 3, StandardCharsets.US_ASCII);
+            int fieldLength = number(record, entry + 3, 4);
+            int start = base + number(record, entry + 7, 5);
+            if (fieldLength < 0 || start < base || start + fieldLength > length) {
+                return CatalogRecord.failed(row, "Invalid MARC directory entry for tag " + tag);
+            }
+            switch (tag) {
+                case "020":
+                    if (!fields.containsKey("isbn")) {
+                        String isbn = subfield(record, start, fieldLength, 'a', charset);
+                        if (isbn != null) {
+                            fields.put("isbn", isbn.trim().split("[\\s(]", 2)[0]);
+                        }
+                    }
+                    break;
+                case "245":
+                    String title = subfield(record, start, fieldLength, 'a', charset);
+                    String subtitle = subfield(record, start, fieldLength, 'b', charset);
+                    if (title != null) {
+                        fields.put("title", trimPunctuation(subtitle != null
+                            ? trimPunctuation(title) + ": " + subtitle
+                            : title));
+                    }
+                    break;
+                case "100":
+                    putIfPresent(fields, "author", subfield(record, start, fieldLength, 'a', charset));
+                    break;
+                case "110":
+                case "111":
+                    if (corporateAuthor == null) {
+                        corporateAuthor = subfield(record, start, fieldLength, 'a', charset);
+                    }
+                    break;
+                case "700":
+                    if (addedAuthor == null) {
+                        addedAuthor = subfield(record, start, fieldLength, 'a', charset);
+                    }
+                    break;
+                case "650":
+                    if (!fields.containsKey("category")) {
+                        putIfPresent(fields, "category", heading(subfield(record, start, fieldLength, 'a', charset)));
+                    }
+                    break;
+                case "655":
+                    if (genre == null) {
+                        genre = subfield(record, start, fieldLength, 'a', charset);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (!fields.containsKey("author")) {
+            putIfPresent(fields, "author", corporateAuthor != null ? corporateAuthor : addedAuthor);
+        }
+        if (!fields.containsKey("category")) {
+            putIfPresent(fields, "category", heading(genre));
+        }
+        return CatalogRecord.of(row, fields);
+    }
+
+    // Skip line breaks some exports put between records; false at the end of the input
+    private boolean skipSeparators() throws IOException {
+        while (true) {
+            in.mark(1);
+            int c = in.read();
+            if (c == -1) {
+                return false;
+            }
+            if (c != '\n' && c != '\r' && c != ' ') {
+                in.reset();
+                return true;
+            }
+        }
+    }
+
+    // First value of a subfield in a data field (two indicators, then subfields)
+    private static String subfield(byte[] record, int start, int length, char code, Charset charset) {
+        int end = start + length;
+        if (end > start && record[end - 1] == FIELD_TERMINATOR) {
+            end--;
+        }
+        for (int i = start; i < end; i++) {
+            if (record[i] == SUBFIELD_DELIMITER && i + 1 < end && record[i + 1] == code) {
+                int valueStart = i + 2;
+                int valueEnd = valueStart;
+                while (valueEnd < end && record[valueEnd] != SUBFIELD_DELIMITER) {
+                    valueEnd++;
+                }
+                String value = new String(record, valueStart, valueEnd - valueStart, charset).trim();
+                return value.isEmpty() ? null : value;
+            }
+        }
+        return null;
+    }
+
+    private static void putIfPresent(Map<String, String> fields, String field, String value) {
+        if (value != null) {
+            fields.put(field, trimPunctuation(value));
+        }
+    }
+
+    // Subject headings end with a period ("Fantasy.")
+    private static String heading(String value) {
+        return value != null && value.endsWith(".") ? value.substring(0, value.length() - 1) : value;
+    }
+
+    // ISBD punctuation at the end of a MARC value, e.g. "Tolkien, J. R. R.," or "The hobbit /"
+    private static String trimPunctuation(String value) {
+        String trimmed = value.trim();
+        while (!trimmed.isEmpty() && " /:;,=".indexOf(trimmed.charAt(trimmed.length() - 1)) >= 0) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
+    // ASCII digits as a number, or -1
+    private static int number(byte[] bytes, int offset, int length) {
+        if (bytes.length < offset + length) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < '0' || bytes[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (bytes[i] - '0');
+        }
+        return value;
+    }
+}
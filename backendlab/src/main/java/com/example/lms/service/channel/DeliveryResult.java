@@ -0,0 +1,27 @@
+package com.example.lms.service.channel;
+
+/**
+ * DeliveryResult - Outcome of delivering one notification over one channel
+ */
+public class DeliveryResult {
+    
+    private final boolean success;
+    private final String errorMessage;
+    
+    private DeliveryResult(boolean success, String errorMessage) {
+        this.success = success;
+        this.errorMessage = errorMessage;
+    }
+    
+    public static DeliveryResult sent() {
+        return new DeliveryResult(true, null);
+    }
+    
+    public static DeliveryResult failed(String errorMessage) {
+        return new DeliveryResult(false, errorMessage);
+    }
+    
+    public boolean isSuccess() { return success; }
+    
+    public String getErrorMessage() { return errorMessage; }
+}
@@ -0,0 +1,143 @@
+package com.example.lms.service.channel;
+
+import com.example.lms.model.Notification;
+import com.example.lms.model.SystemSettings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LocalNotificationChannel - Stand-in channel for load tests and offline development
+ * 
+ * When enabled (lms.notifications.local-channel.enabled=true) it replaces every
+ * real provider for both EMAIL and SMS. Deliveries never leave the process:
+ * the most recent ones are kept in memory and, if a file is configured, every
+ * delivery is appended to it as a JSON line. An optional per-batch latency
+ * simulates a slow provider.
+ */
+@Component
+public class LocalNotificationChannel implements NotificationChannel {
+    
+    // Number of recent deliveries kept in memory
+    private static final int RECENT_CAPACITY = 1000;
+    
+    @Value("${lms.notifications.local-channel.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${lms.notifications.local-channel.file:}")
+    private String file;
+    
+    @Value("${lms.notifications.local-channel.latency-ms:0}")
+    private long latencyMs;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Deque<Map<String, Object>> recent = new ArrayDeque<>();
+    private final AtomicLong delivered = new AtomicLong();
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    @Override
+    public String getName() {
+        return "LOCAL";
+    }
+    
+    @Override
+    public boolean supports(String medium) {
+        return "EMAIL".equals(medium) || "SMS".equals(medium);
+    }
+    
+    @Override
+    public boolean isAvailable(SystemSettings settings) {
+        return enabled;
+    }
+    
+    @Override
+    public int getMaxBatchSize() {
+        return 500;
+    }
+    
+    @Override
+    public int getMaxConcurrency() {
+        return 16;
+    }
+    
+    @Override
+    public List<DeliveryResult> sendBatch(List<Notification> notifications, String medium, SystemSettings settings) throws Exception {
+        if (latencyMs > 0) {
+            Thread.sleep(latencyMs);
+        }
+        
+        List<Map<String, Object>> records = new ArrayList<>();
+        List<DeliveryResult> results = new ArrayList<>();
+        for (Notification notification : notifications) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("deliveredAt", LocalDateTime.now().toString());
+            record.put("medium", medium);
+            record.put("notificationId", notification.getId());
+            record.put("to", "SMS".equals(medium) ? notification.getMemberContact() : notification.getMemberEmail());
+            record.put("subject", notification.getSubject());
+            record.put("message", notification.getMessage());
+            records.add(record);
+            results.add(DeliveryResult.sent());
+        }
+        
+        if (file != null && !file.isEmpty()) {
+            appendToFile(records);
+        }
+        synchronized (recent) {
+            for (Map<String, Object> record : records) {
+                if (recent.size() >= RECENT_CAPACITY) {
+                    recent.pollFirst();
+                }
+                recent.addLast(record);
+            }
+        }
+        delivered.addAndGet(records.size());
+        return results;
+    }
+    
+    /**
+     * Most recent deliveries, oldest first
+     */
+    public List<Map<String, Object>> getRecentDeliveries() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+    
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+    
+    private synchronized void appendToFile(List<Map<String, Object>> records) throws IOException {
+        Path path = Paths.get(file);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Map<String, Object> record : records) {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.lms.service.channel;
+
+import com.example.lms.model.Notification;
+import com.example.lms.model.SystemSettings;
+
+import java.util.List;
+
+/**
+ * NotificationChannel - Delivery provider for one notification medium
+ * 
+ * A channel delivers notifications over EMAIL or SMS through one provider
+ * (SMTP, Twilio, ...). Channels are Spring beans picked up by
+ * NotificationChannelRegistry, which adds per-channel concurrency limits and
+ * a circuit breaker around every call.
+ * 
+ * Failure contract:
+ * - Problems with a single notification (bad address, rejected recipient) are
+ *   reported as a failed DeliveryResult for that notification
+ * - Problems with the provider itself (connection refused, authentication,
+ *   not implemented) are thrown, fail the whole batch and count towards the
+ *   channel's circuit breaker
+ */
+public interface NotificationChannel {
+    
+    /**
+     * Unique channel name, e.g. "SMTP" or "TWILIO"
+     */
+    String getName();
+    
+    /**
+     * Whether this channel delivers the given medium ("EMAIL" or "SMS")
+     */
+    boolean supports(String medium);
+    
+    /**
+     * Whether the channel is selected and configured in the current settings
+     */
+    boolean isAvailable(SystemSettings settings);
+    
+    /**
+     * Maximum number of notifications handed to one sendBatch call
+     * Providers without a batch API send one message per call
+     */
+    default int getMaxBatchSize() {
+        return 1;
+    }
+    
+    /**
+     * Maximum number of sendBatch calls running at the same time
+     */
+    default int getMaxConcurrency() {
+        return 4;
+    }
+    
+    /**
+     * Deliver a batch of notifications
+     * 
+     * @param notifications At most getMaxBatchSize() notifications of a supported medium
+     * @param medium        The medium being delivered ("EMAIL" or "SMS")
+     * @param settings      Current system settings (provider configuration)
+     * @return one result per notification, in the same order
+     * @throws Exception if the provider itself failed and nothing was delivered
+     */
+    List<DeliveryResult> sendBatch(List<Notification> notifications, String medium, SystemSettings settings) throws Exception;
+}
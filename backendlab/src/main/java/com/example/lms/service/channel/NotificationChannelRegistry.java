@@ -0,0 +1,155 @@
+package com.example.lms.service.channel;
+
+import com.example.lms.model.Notification;
+import com.example.lms.model.SystemSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NotificationChannelRegistry - Selects a channel per medium and guards every call to it
+ *
+ * Every channel gets:
+ * - a semaphore limiting concurrent sendBatch calls to getMaxConcurrency()
+ * - a circuit breaker that stops calling the channel for a minute after
+ *   five consecutive provider failures
+ *
+ * Notifications are split into batches of the channel's getMaxBatchSize().
+ * A rejected or failed batch marks all of its notifications as failed; it is
+ * never retried here, the notification stays FAILED and can be resent.
+ */
+@Service
+public class NotificationChannelRegistry {
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_MILLIS = 60_000;
+
+    // How long a batch waits for a free slot on a busy channel
+    private static final long PERMIT_TIMEOUT_SECONDS = 30;
+
+    @Autowired
+    private List<NotificationChannel> channels;
+
+    @Autowired
+    private LocalNotificationChannel localChannel;
+
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Channel delivering the given medium under the current settings
+     *
+     * The local stand-in wins whenever it is enabled, so load tests never
+     * reach a real provider.
+     *
+     * @param medium "EMAIL" or "SMS"
+     * @return the channel, or null if no channel is configured for the medium
+     */
+    public NotificationChannel resolve(String medium, SystemSettings settings) {
+        if (localChannel.isEnabled()) {
+            return localChannel;
+        }
+        for (NotificationChannel channel : channels) {
+            if (channel != localChannel && channel.supports(medium) && channel.isAvailable(settings)) {
+                return channel;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Deliver notifications over one channel in batches
+     *
+     * @return one result per notification, in the same order
+     */
+    public List<DeliveryResult> deliver(NotificationChannel channel, List<Notification> notifications,
+                                        String medium, SystemSettings settings) {
+        List<DeliveryResult> results = new ArrayList<>(notifications.size());
+        int batchSize = Math.max(1, channel.getMaxBatchSize());
+        for (int from = 0; from < notifications.size(); from += batchSize) {
+            List<Notification> batch = notifications.subList(from, Math.min(from + batchSize, notifications.size()));
+            results.addAll(deliverBatch(channel, batch, medium, settings));
+        }
+        return results;
+    }
+
+    private List<DeliveryResult> deliverBatch(NotificationChannel channel, List<Notification> batch,
+                                              String medium, SystemSettings settings) {
+        Semaphore semaphore = getPermits(channel);
+        try {
+            if (!semaphore.tryAcquire(PERMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return failAll(batch, channel.getName() + " channel is busy");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failAll(batch, "Interrupted while waiting for " + channel.getName() + " channel");
+        }
+
+        try {
+            CircuitBreaker breaker = getBreaker(channel);
+            if (!breaker.tryAcquire()) {
+                return failAll(batch, channel.getName() + " channel is unavailable (circuit open)");
+            }
+            try {
+                List<DeliveryResult> results = channel.sendBatch(batch, medium, settings);
+                if (results == null || results.size() != batch.size()) {
+                    throw new IllegalStateException(channel.getName() + " channel returned "
+                        + (results == null ? 0 : results.size()) + " results for " + batch.size() + " notifications");
+                }
+                breaker.recordSuccess();
+                return results;
+            } catch (Exception e) {
+                breaker.recordFailure();
+                System.err.println("Notification channel " + channel.getName() + " failed: " + e.getMessage());
+                return failAll(batch, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            }
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private List<DeliveryResult> failAll(List<Notification> batch, String errorMessage) {
+        return new ArrayList<>(Collections.nCopies(batch.size(), DeliveryResult.failed(errorMessage)));
+    }
+
+    private Semaphore getPermits(NotificationChannel channel) {
+        return permits.computeIfAbsent(channel.getName(), name -> new Semaphore(Math.max(1, channel.getMaxConcurrency())));
+    }
+
+    private CircuitBreaker getBreaker(NotificationChannel channel) {
+        return breakers.computeIfAbsent(channel.getName(), name -> new CircuitBreaker(FAILURE_THRESHOLD, OPEN_MILLIS));
+    }
+
+    /**
+     * State of every registered channel for the admin dashboard
+     */
+    public List<Map<String, Object>> getChannelStatus(SystemSettings settings) {
+        List<Map<String, Object>> status = new ArrayList<>();
+        for (NotificationChannel channel : channels) {
+            CircuitBreaker breaker = getBreaker(channel);
+            Semaphore semaphore = getPermits(channel);
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", channel.getName());
+            entry.put("available", channel.isAvailable(settings));
+            entry.put("maxBatchSize", channel.getMaxBatchSize());
+            entry.put("maxConcurrency", channel.getMaxConcurrency());
+            entry.put("inFlight", channel.getMaxConcurrency() - semaphore.availablePermits());
+            entry.put("circuitState", breaker.getState().name());
+            entry.put("consecutiveFailures", breaker.getConsecutiveFailures());
+            if (channel == localChannel) {
+                entry.put("delivered", localChannel.getDeliveredCount());
+            }
+            status.add(entry);
+        }
+        return status;
+    }
+}
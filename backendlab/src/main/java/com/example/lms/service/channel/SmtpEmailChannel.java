@@ -0,0 +1,97 @@
+package com.example.lms.service.channel;
+
+import com.example.lms.model.Notification;
+import com.example.lms.model.SystemSettings;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * SmtpEmailChannel - Email delivery over SMTP (JavaMail)
+ * 
+ * A batch is sent over a single authenticated SMTP connection, so the TLS and
+ * login handshake is paid once per batch instead of once per message.
+ */
+@Component
+public class SmtpEmailChannel implements NotificationChannel {
+    
+    private static final String EMAIL_REGEX = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
+    
+    @Override
+    public String getName() {
+        return "SMTP";
+    }
+    
+    @Override
+    public boolean supports(String medium) {
+        return "EMAIL".equals(medium);
+    }
+    
+    @Override
+    public boolean isAvailable(SystemSettings settings) {
+        return settings.getEmailUsername() != null && !settings.getEmailUsername().isEmpty()
+            && settings.getEmailPassword() != null && !settings.getEmailPassword().isEmpty();
+    }
+    
+    @Override
+    public int getMaxBatchSize() {
+        return 50;
+    }
+    
+    @Override
+    public int getMaxConcurrency() {
+        return 2;
+    }
+    
+    @Override
+    public List<DeliveryResult> sendBatch(List<Notification> notifications, String medium, SystemSettings settings) throws Exception {
+        String host = settings.getEmailHost() != null ? settings.getEmailHost() : "smtp.gmail.com";
+        int port = settings.getEmailPort() != null ? settings.getEmailPort() : 587;
+        
+        Properties props = new Properties();
+        props.put("mail.smtp.auth", "true");
+        props.put("mail.smtp.starttls.enable", "true");
+        props.put("mail.smtp.host", host);
+        props.put("mail.smtp.port", String.valueOf(port));
+        Session session = Session.getInstance(props);
+        
+        List<DeliveryResult> results = new ArrayList<>();
+        try (Transport transport = session.getTransport("smtp")) {
+            // Connection or authentication failure fails the whole batch
+            transport.connect(host, port, settings.getEmailUsername(), settings.getEmailPassword());
+            
+            for (Notification notification : notifications) {
+                String email = notification.getMemberEmail();
+                if (email == null || email.isEmpty()) {
+                    results.add(DeliveryResult.failed("Member doesn't have an email address"));
+                    continue;
+                }
+                if (!email.matches(EMAIL_REGEX)) {
+                    results.add(DeliveryResult.failed("Email address is invalid"));
+                    continue;
+                }
+                try {
+                    Message message = new MimeMessage(session);
+                    message.setFrom(new InternetAddress(settings.getEmailUsername()));
+                    message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(email));
+                    message.setSubject(notification.getSubject());
+                    message.setText(notification.getMessage());
+                    message.saveChanges();
+                    transport.sendMessage(message, message.getAllRecipients());
+                    results.add(DeliveryResult.sent());
+                } catch (MessagingException e) {
+                    results.add(DeliveryResult.failed(e.getMessage()));
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.lms.service.channel;
+
+import com.example.lms.model.Notification;
+import com.example.lms.model.SystemSettings;
+import com.twilio.exception.ApiException;
+import com.twilio.http.TwilioRestClient;
+import com.twilio.rest.api.v2010.account.Message;
+import com.twilio.type.PhoneNumber;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TwilioSmsChannel - SMS delivery through Twilio
+ * 
+ * Selected when SystemSettings.smsProvider is "TWILIO". smsUsername holds the
+ * Account SID, smsApiKey the Auth Token and smsFromNumber the sending number.
+ * A message Twilio rejects (invalid or unreachable number) fails on its own;
+ * errors reaching Twilio are thrown, so the channel's circuit breaker opens.
+ */
+@Component
+public class TwilioSmsChannel implements NotificationChannel {
+    
+    // REST client for the credentials it was built with; rebuilt when the settings change
+    private volatile CachedClient cachedClient;
+    
+    @Override
+    public String getName() {
+        return "TWILIO";
+    }
+    
+    @Override
+    public boolean supports(String medium) {
+        return "SMS".equals(medium);
+    }
+    
+    @Override
+    public boolean isAvailable(SystemSettings settings) {
+        return "TWILIO".equalsIgnoreCase(settings.getSmsProvider()) && settings.getSmsApiKey() != null;
+    }
+    
+    @Override
+    public List<DeliveryResult> sendBatch(List<Notification> notifications, String medium, SystemSettings settings) throws Exception {
+        String accountSid = settings.getSmsUsername();   // Twilio Account SID
+        String authToken = settings.getSmsApiKey();      // Twilio Auth Token
+        String fromNumber = settings.getSmsFromNumber(); // Twilio phone number
+        if (accountSid == null || authToken == null || fromNumber == null) {
+            throw new Exception("Twilio configuration incomplete");
+        }
+        TwilioRestClient client = getClient(accountSid, authToken);
+        
+        List<DeliveryResult> results = new ArrayList<>();
+        for (Notification notification : notifications) {
+            if (notification.getMemberContact() == null || notification.getMemberContact().isEmpty()) {
+                results.add(DeliveryResult.failed("Member contact is not available"));
+                continue;
+            }
+            
+            try {
+                Message message = Message.creator(
+                    new PhoneNumber(notification.getMemberContact()),
+                    new PhoneNumber(fromNumber),
+                    notification.getMessage()
+                ).create(client);
+                
+                if (message.getStatus() == Message.Status.FAILED || message.getStatus() == Message.Status.UNDELIVERED) {
+                    results.add(DeliveryResult.failed("Twilio error " + message.getErrorCode() + ": " + message.getErrorMessage()));
+                } else {
+                    results.add(DeliveryResult.sent());
+                }
+            } catch (ApiException e) {
+                // Rejected by Twilio for this message only
+                results.add(DeliveryResult.failed("Twilio error " + e.getCode() + ": " + e.getMessage()));
+            }
+        }
+        return results;
+    }
+    
+    private TwilioRestClient getClient(String accountSid, String authToken) {
+        CachedClient cached = cachedClient;
+        if (cached == null || !cached.accountSid.equals(accountSid) || !cached.authToken.equals(authToken)) {
+            cached = new CachedClient(accountSid, authToken, new TwilioRestClient.Builder(accountSid, authToken).build());
+            cachedClient = cached;
+        }
+        return cached.client;
+    }
+    
+    private static class CachedClient {
+        private final String accountSid;
+        private final String authToken;
+        private final TwilioRestClient client;
+        
+        CachedClient(String accountSid, String authToken, TwilioRestClient client) {
+            this.accountSid = accountSid;
+            this.authToken = authToken;
+            this.client = client;
+        }
+    }
+}
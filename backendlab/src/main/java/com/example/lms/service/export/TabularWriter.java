@@ -0,0 +1,41 @@
+package com.example.lms.service.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * TabularWriter - Writes report rows to an output stream one row at a time
+ * 
+ * Implementations hold no more than the current row, so the memory used by
+ * an export does not depend on the number of rows. close() finishes the
+ * document but does not close the underlying stream.
+ * 
+ * Cell values may be Strings, Numbers, Booleans, dates or null.
+ */
+public interface TabularWriter extends Closeable {
+    
+    void writeHeader(List<String> columns) throws IOException;
+    
+    void writeRow(List<?> values) throws IOException;
+    
+    /**
+     * Push buffered bytes to the client, so the transfer is sent in chunks
+     */
+    void flush() throws IOException;
+    
+    /**
+     * Writer for "csv" or "xlsx"
+     */
+    static TabularWriter create(String format, OutputStream out, String sheetName) throws IOException {
+        switch (format) {
+            case "csv":
+                return new CsvTabularWriter(out);
+            case "xlsx":
+                return new XlsxTabularWriter(out, sheetName);
+            default:
+                throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.lms.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * XlsxTabularWriter - Streaming Office Open XML workbook
+ * 
+ * An .xlsx file is a zip of XML parts. The sheet XML is written row by row
+ * into its zip entry, so rows are compressed and sent as they are produced.
+ * Text uses inline strings instead of a shared-string table, which would have
+ * to be kept in memory until the end. Dates are written as ISO text.
+ * 
+ * A sheet holds at most 1,048,576 rows; when it is full the export continues
+ * on a new sheet (sheet2.xml, ...) that repeats the header row. The workbook
+ * parts that list the sheets are written when the writer is closed, once
+ * the number of sheets is known; zip readers locate parts through the
+ * central directory, so their position in the file does not matter.
+ */
+public class XlsxTabularWriter implements TabularWriter {
+    
+    // Excel's sheet size limit
+    private static final int MAX_ROWS = 1_048_576;
+    
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private final String title;
+    private List<String> header;
+    private int sheets = 0;
+    private int rowNumber = 0;
+    
+    public XlsxTabularWriter(OutputStream out, String sheetName) throws IOException {
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        this.writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+        this.title = sheetTitle(sheetName);
+        startSheet();
+    }
+    
+    private void startSheet() throws IOException {
+        sheets++;
+        rowNumber = 0;
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheets + ".xml"));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+    }
+    
+    private void endSheet() throws IOException {
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+    }
+    
+    // Content types, package and workbook relationships and the sheet list
+    private void writeWorkbook() throws IOException {
+        StringBuilder types = new StringBuilder(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+            + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+            + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+            + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        StringBuilder sheetList = new StringBuilder();
+        StringBuilder relationships = new StringBuilder();
+        for (int sheet = 1; sheet <= sheets; sheet++) {
+            types.append("<Override PartName=\"/xl/worksheets/sheet").append(sheet)
+                .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            sheetList.append("<sheet name=\"").append(escape(sheetName(sheet)))
+                .append("\" sheetId=\"").append(sheet).append("\" r:id=\"rId").append(sheet).append("\"/>");
+            relationships.append("<Relationship Id=\"rId").append(sheet)
+                .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\"")
+                .append(" Target=\"worksheets/sheet").append(sheet).append(".xml\"/>");
+        }
+        types.append("</Types>");
+        
+        writePart("[Content_Types].xml", types.toString());
+        writePart("_rels/.rels",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+            + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+            + "</Relationships>");
+        writePart("xl/workbook.xml",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+            + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+            + "<sheets>" + sheetList + "</sheets>"
+            + "</workbook>");
+        writePart("xl/_rels/workbook.xml.rels",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+            + relationships
+            + "</Relationships>");
+    }
+    
+    private void writePart(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write(content);
+        writer.flush();
+        zip.closeEntry();
+    }
+    
+    @Override
+    public void writeHeader(List<String> columns) throws IOException {
+        header = columns;
+        writeRow(columns);
+    }
+    
+    @Override
+    public void writeRow(List<?> values) throws IOException {
+        if (rowNumber >= MAX_ROWS) {
+            endSheet();
+            startSheet();
+            if (header != null) {
+                writeCells(header);
+            }
+        }
+        writeCells(values);
+    }
+    
+    /**
+     * Number of sheets the rows were spread over
+     */
+    public int getSheetCount() {
+        return sheets;
+    }
+    
+    private void writeCells(List<?> values) throws IOException {
+        rowNumber++;
+        writer.write("<row r=\"");
+        writer.write(Integer.toString(rowNumber));
+        writer.write("\">");
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            String ref = columnName(i) + rowNumber;
+            if (value instanceof Number && Double.isFinite(((Number) value).doubleValue())) {
+                writer.write("<c r=\"" + ref + "\"><v>");
+                writer.write(value.toString());
+                writer.write("</v></c>");
+            } else if (value instanceof Boolean) {
+                writer.write("<c r=\"" + ref + "\" t=\"b\"><v>");
+                writer.write((Boolean) value ? "1" : "0");
+                writer.write("</v></c>");
+            } else {
+                writer.write("<c r=\"" + ref + "\" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+                writer.write(escape(value.toString()));
+                writer.write("</t></is></c>");
+            }
+        }
+        writer.write("</row>");
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+        zip.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        endSheet();
+        writeWorkbook();
+        zip.finish();
+    }
+    
+    // 0 -> A, 25 -> Z, 26 -> AA
+    private static String columnName(int index) {
+        StringBuilder name = new StringBuilder();
+        for (int n = index + 1; n > 0; n = (n - 1) / 26) {
+            name.insert(0, (char) ('A' + (n - 1) % 26));
+        }
+        return name.toString();
+    }
+    
+    // "Title", then "Title (2)", "Title (3)", ... kept within the 31 character limit
+    private String sheetName(int sheet) {
+        if (sheet == 1) {
+            return title;
+        }
+        String suffix = " (" + sheet + ")";
+        return title.substring(0, Math.min(title.length(), 31 - suffix.length())) + suffix;
+    }
+    
+    // Sheet names are limited to 31 characters and may not contain : \ / ? * [ ]
+    private static String sheetTitle(String name) {
+        String title = name != null ? name.replaceAll("[:\\\\/?*\\[\\]]", "_") : "Report";
+        return title.isEmpty() ? "Report" : title.substring(0, Math.min(31, title.length()));
+    }
+    
+    // Escape XML markup and drop characters XML 1.0 does not allow
+    private static String escape(String text) {
+        StringBuilder out = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = null;
+            switch (c) {
+                case '<': replacement = "&lt;"; break;
+                case '>': replacement = "&gt;"; break;
+                case '&': replacement = "&amp;"; break;
+                case '"': replacement = "&quot;"; break;
+                default:
+                    if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') {
+                        replacement = "";
+                    }
+            }
+            if (replacement != null) {
+                if (out == null) {
+                    out = new StringBuilder(text.length() + 16).append(text, 0, i);
+                }
+                out.append(replacement);
+            } else if (out != null) {
+                out.append(c);
+            }
+        }
+        return out != null ? out.toString() : text;
+    }
+}
@@ -0,0 +1,538 @@
+package com.example.lms.service.search;
+
+import com.example.lms.model.Book;
+import com.example.lms.service.catalog.Isbn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * BookSearchIndex - In-memory inverted index of the catalog with BM25F ranking
+ *
+ * Each book gets an internal document number; every term maps to a postings
+ * list of (document, term counts per field). Term counts and field lengths
+ * are packed into one int, 8 bits per field, so a million titles take about
+ * 8 bytes per posting plus the book IDs.
+ *
+ * Scoring is BM25 over a weighted sum of the fields (BM25F): a term in the
+ * title counts more than one in the category. Query terms are expanded to
+ * other indexed terms at a lower weight:
+ * - the last query term, which may still be being typed, and every term
+ *   missing from the index match the indexed terms they are a prefix of, so
+ *   "hob" finds "hobbit" and "97801" finds ISBNs starting with it
+ * - terms missing from the index also match indexed terms within edit
+ *   distance 1 (2 for terms of eight letters or more) that start with the
+ *   same letter
+ *
+ * Scores are summed in a hash table of the matched documents, so a query
+ * allocates in proportion to its matches, not to the size of the index.
+ *
+ * Updating a book adds a new document and marks the old one deleted, so
+ * changes are cheap; the owner rebuilds the index periodically to reclaim
+ * them (see BookSearchService). Document frequencies count deleted documents
+ * until then.
+ *
+ * Thread-safe: searches share a read lock, changes take the write lock.
+ */
+public class BookSearchIndex {
+
+    public static final int TITLE = 0;
+    public static final int AUTHOR = 1;
+    public static final int CATEGORY = 2;
+    public static final int ISBN = 3;
+    public static final int ALL_FIELDS = 0b1111;
+
+    private static final float[] FIELD_WEIGHTS = {3.0f, 2.0f, 1.0f, 4.0f};
+    private static final int FIELDS = FIELD_WEIGHTS.length;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Indexed terms a misspelled or partial query term may expand to
+    private static final int MAX_EXPANSIONS = 8;
+
+    // Shortest query term completed to the indexed terms it is a prefix of
+    private static final int MIN_PREFIX = 2;
+
+    // Completions of one prefix considered, in term order, before picking the most frequent
+    private static final int MAX_PREFIX_SCAN = 1000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    // Terms by first letter and length, the candidates of fuzzy matching
+    private final Map<Integer, List<String>> termsByShape = new HashMap<>();
+    // Terms in sorted order, the candidates of prefix matching
+    private final TreeSet<String> sortedTerms = new TreeSet<>();
+    private final Map<String, Integer> documentOf = new HashMap<>();
+
+    private String[] bookIds = new String[1024];
+    private int[] fieldLengths = new int[1024];
+    private final BitSet live = new BitSet();
+    private final long[] fieldLengthSums = new long[FIELDS];
+    private int documents = 0;
+    private int liveDocuments = 0;
+
+    /**
+     * A search result: book ID and relevance score
+     */
+    public static class Hit {
+        private final String bookId;
+        private final float score;
+
+        Hit(String bookId, float score) {
+            this.bookId = bookId;
+            this.score = score;
+        }
+
+        public String getBookId() { return bookId; }
+
+        public float getScore() { return score; }
+    }
+
+    /**
+     * Index a book, replacing the previous version with the same ID
+     */
+    public void add(Book book) {
+        if (book.getId() == null) {
+            return;
+        }
+        List<List<String>> fieldTerms = List.of(
+            TextAnalyzer.terms(book.getTitle()),
+            TextAnalyzer.terms(book.getAuthor()),
+            TextAnalyzer.terms(book.getCategory()),
+            isbnTerms(book.getIsbn()));
+
+        Map<String, int[]> counts = new HashMap<>();
+        int packedLengths = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            List<String> terms = fieldTerms.get(field);
+            packedLengths |= Math.min(255, terms.size()) << (8 * field);
+            for (String term : terms) {
+                counts.computeIfAbsent(term, t -> new int[FIELDS])[field]++;
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(book.getId());
+            int document = documents++;
+            if (document == bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, document * 2);
+                fieldLengths = Arrays.copyOf(fieldLengths, document * 2);
+            }
+            bookIds[document] = book.getId();
+            fieldLengths[document] = packedLengths;
+            for (int field = 0; field < FIELDS; field++) {
+                fieldLengthSums[field] += (packedLengths >>> (8 * field)) & 255;
+            }
+            for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+                int packedCounts = 0;
+                for (int field = 0; field < FIELDS; field++) {
+                    packedCounts |= Math.min(255, entry.getValue()[field]) << (8 * field);
+                }
+                postingsFor(entry.getKey()).add(document, packedCounts);
+            }
+            documentOf.put(book.getId(), document);
+            live.set(document);
+            liveDocuments++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String bookId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Books matching any query term, best first
+     *
+     * @param query     Free text; a valid ISBN (with or without hyphens) matches exactly
+     * @param fieldMask Fields to match, e.g. 1 << TITLE or ALL_FIELDS
+     * @param limit     Maximum number of hits
+     */
+    public List<Hit> search(String query, int fieldMask, int limit) {
+        List<String> queryTerms = TextAnalyzer.terms(query);
+        String last = queryTerms.isEmpty() ? null : queryTerms.get(queryTerms.size() - 1);
+        Set<String> terms = termsOf(query, queryTerms, fieldMask);
+
+        lock.readLock().lock();
+        try {
+            if (terms.isEmpty() || liveDocuments == 0 || limit <= 0) {
+                return new ArrayList<>();
+            }
+            float averageLength = 0;
+            for (int field = 0; field < FIELDS; field++) {
+                if ((fieldMask & (1 << field)) != 0) {
+                    averageLength += FIELD_WEIGHTS[field] * fieldLengthSums[field] / (float) liveDocuments;
+                }
+            }
+            averageLength = Math.max(averageLength, 1.0f);
+
+            Scores scores = new Scores();
+            for (String term : terms) {
+                for (Map.Entry<String, Float> expansion : expand(term, term.equals(last)).entrySet()) {
+                    Postings list = postings.get(expansion.getKey());
+                    int df = Math.min(list.size, liveDocuments);
+                    float idf = (float) Math.log(1 + (liveDocuments - df + 0.5) / (df + 0.5));
+                    float weight = expansion.getValue() * idf;
+                    for (int i = 0; i < list.size; i++) {
+                        int document = list.documents[i];
+                        if (!live.get(document)) {
+                            continue;
+                        }
+                        float tf = weighted(list.counts[i], fieldMask);
+                        if (tf == 0) {
+                            continue;
+                        }
+                        float length = weighted(fieldLengths[document], fieldMask);
+                        scores.add(document, weight * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength)));
+                    }
+                }
+            }
+
+            // Keep the best `limit` documents in a min-heap of table slots
+            Comparator<Integer> byScore = Comparator.<Integer>comparingDouble(scores::score)
+                .thenComparing(Comparator.<Integer>comparingInt(scores::document).reversed());
+            PriorityQueue<Integer> best = new PriorityQueue<>(byScore);
+            for (int slot = 0; slot < scores.capacity(); slot++) {
+                if (!scores.used(slot)) {
+                    continue;
+                }
+                best.add(slot);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<Hit> hits = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                int slot = best.poll();
+                hits.add(new Hit(bookIds[scores.document(slot)], scores.score(slot)));
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * IDs of every book search would match, unranked and without a limit
+     *
+     * For the total and facet counts of a query, which must not stop at the
+     * number of ranked results.
+     */
+    public List<String> matchingBookIds(String query, int fieldMask) {
+        List<String> queryTerms = TextAnalyzer.terms(query);
+        String last = queryTerms.isEmpty() ? null : queryTerms.get(queryTerms.size() - 1);
+        Set<String> terms = termsOf(query, queryTerms, fieldMask);
+
+        lock.readLock().lock();
+        try {
+            CompressedBitmap matched = new CompressedBitmap();
+            for (String term : terms) {
+                for (String expansion : expand(term, term.equals(last)).keySet()) {
+                    Postings list = postings.get(expansion);
+                    for (int i = 0; i < list.size; i++) {
+                        int document = list.documents[i];
+                        if (live.get(document) && weighted(list.counts[i], fieldMask) != 0) {
+                            matched.add(document);
+                        }
+                    }
+                }
+            }
+            List<String> ids = new ArrayList<>(matched.cardinality());
+            matched.forEach(document -> ids.add(bookIds[document]));
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Share of document numbers taken by replaced or removed books
+     */
+    public double deletedRatio() {
+        lock.readLock().lock();
+        try {
+            return documents == 0 ? 0 : (documents - liveDocuments) / (double) documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(String bookId) {
+        Integer document = documentOf.remove(bookId);
+        if (document == null) {
+            return;
+        }
+        live.clear(document);
+        liveDocuments--;
+        for (int field = 0; field < FIELDS; field++) {
+            fieldLengthSums[field] -= (fieldLengths[document] >>> (8 * field)) & 255;
+        }
+    }
+
+    private Postings postingsFor(String term) {
+        Postings list = postings.get(term);
+        if (list == null) {
+            list = new Postings();
+            postings.put(term, list);
+            termsByShape.computeIfAbsent(shape(term.charAt(0), term.length()), k -> new ArrayList<>()).add(term);
+            sortedTerms.add(term);
+        }
+        return list;
+    }
+
+    /**
+     * The indexed terms a query term stands for, with their weight: the term
+     * itself if it is indexed, its completions if it is the last term or not
+     * indexed, and its closest spelling variants if it is not indexed
+     *
+     * @param last Whether the term ends the query and may be incomplete
+     */
+    private Map<String, Float> expand(String term, boolean last) {
+        Map<String, Float> expansions = new HashMap<>();
+        boolean indexed = postings.containsKey(term);
+        if (indexed) {
+            expansions.put(term, 1.0f);
+        }
+        if ((last || !indexed) && term.length() >= MIN_PREFIX) {
+            addCompletions(term, expansions);
+        }
+        if (!indexed && term.length() >= 4 && !Character.isDigit(term.charAt(0))) {
+            addSpellingVariants(term, expansions);
+        }
+        return expansions;
+    }
+
+    /**
+     * Add the most frequent indexed terms starting with the prefix; a
+     * completion weighs more the less of it is missing
+     */
+    private void addCompletions(String prefix, Map<String, Float> expansions) {
+        List<String> candidates = new ArrayList<>();
+        for (String candidate : sortedTerms.tailSet(prefix, false)) {
+            if (!candidate.startsWith(prefix) || candidates.size() == MAX_PREFIX_SCAN) {
+                break;
+            }
+            candidates.add(candidate);
+        }
+        candidates.sort(Comparator.comparingInt(candidate -> -postings.get(candidate).size));
+        for (String candidate : candidates.subList(0, Math.min(MAX_EXPANSIONS, candidates.size()))) {
+            expansions.merge(candidate, 0.5f + 0.5f * prefix.length() / candidate.length(), Math::max);
+        }
+    }
+
+    /**
+     * Add the indexed terms closest in spelling, up to MAX_EXPANSIONS
+     */
+    private void addSpellingVariants(String term, Map<String, Float> expansions) {
+        int maxEdits = term.length() >= 8 ? 2 : 1;
+        List<String> candidates = new ArrayList<>();
+        List<Integer> distances = new ArrayList<>();
+        for (int length = term.length() - maxEdits; length <= term.length() + maxEdits; length++) {
+            for (String candidate : termsByShape.getOrDefault(shape(term.charAt(0), length), List.of())) {
+                int distance = editDistance(term, candidate, maxEdits);
+                if (distance <= maxEdits) {
+                    candidates.add(candidate);
+                    distances.add(distance);
+                }
+            }
+        }
+        // Closest first, then the most frequent
+        Integer[] order = new Integer[candidates.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(distances::get)
+            .thenComparing(i -> -postings.get(candidates.get(i)).size));
+        for (int i = 0; i < Math.min(MAX_EXPANSIONS, order.length); i++) {
+            int distance = distances.get(order[i]);
+            expansions.merge(candidates.get(order[i]), 1.0f - distance / (float) term.length(), Math::max);
+        }
+    }
+
+    // Distinct query terms, plus the normalized ISBN when the query is one
+    private static Set<String> termsOf(String query, List<String> queryTerms, int fieldMask) {
+        Set<String> terms = new LinkedHashSet<>(queryTerms);
+        String isbn = Isbn.normalize(query);
+        if ((fieldMask & (1 << ISBN)) != 0 && Isbn.isValid(isbn)) {
+            terms.add(isbn.toLowerCase(Locale.ROOT));
+        }
+        return terms;
+    }
+
+    private static float weighted(int packed, int fieldMask) {
+        float sum = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            if ((fieldMask & (1 << field)) != 0) {
+                sum += FIELD_WEIGHTS[field] * ((packed >>> (8 * field)) & 255);
+            }
+        }
+        return sum;
+    }
+
+    private static List<String> isbnTerms(String isbn) {
+        String normalized = Isbn.normalize(isbn);
+        return normalized == null ? List.of() : List.of(normalized.toLowerCase(Locale.ROOT));
+    }
+
+    private static int shape(char first, int length) {
+        return (first << 8) | Math.min(length, 255);
+    }
+
+    /**
+     * Damerau-Levenshtein distance (adjacent transpositions count once),
+     * or maxEdits + 1 as soon as it must exceed maxEdits
+     */
+    static int editDistance(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return maxEdits + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMinimum = Math.min(rowMinimum, value);
+            }
+            if (rowMinimum > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], maxEdits + 1);
+    }
+
+    /**
+     * Running scores of the documents a query matched: an open-addressing
+     * hash table from document number to score, doubled when half full
+     */
+    private static class Scores {
+        // Document number + 1 per slot, 0 for an empty slot
+        private int[] keys = new int[64];
+        private float[] values = new float[64];
+        private int size = 0;
+
+        void add(int document, float score) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            int slot = slotOf(keys, document);
+            if (keys[slot] == 0) {
+                keys[slot] = document + 1;
+                size++;
+            }
+            values[slot] += score;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        boolean used(int slot) {
+            return keys[slot] != 0;
+        }
+
+        int document(int slot) {
+            return keys[slot] - 1;
+        }
+
+        float score(int slot) {
+            return values[slot];
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            float[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new float[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slotOf(keys, oldKeys[i] - 1);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        // The slot holding the document, or the empty slot where it goes
+        private static int slotOf(int[] keys, int document) {
+            int mask = keys.length - 1;
+            int hash = document * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] != 0 && keys[slot] != document + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    // Growable (document, packed field counts) arrays of one term, in document order
+    private static class Postings {
+        int[] documents = new int[2];
+        int[] counts = new int[2];
+        int size = 0;
+
+        void add(int document, int packedCounts) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            documents[size] = document;
+            counts[size] = packedCounts;
+            size++;
+        }
+    }
+}
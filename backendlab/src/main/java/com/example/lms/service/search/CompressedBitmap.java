@@ -0,0 +1,424 @@
+package com.example.lms.service.search;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * CompressedBitmap - Set of non-negative ints stored as Roaring-style containers
+ *
+ * Values are split by their high 16 bits into chunks of 65536. A chunk holds
+ * either a sorted array of its low 16 bits (up to ARRAY_MAX values, 2 bytes
+ * each) or a plain 8 KB bitmap, whichever is smaller, so a facet value with
+ * a handful of books costs a few bytes while one with half the catalog costs
+ * one bit per book. and/or/andNot/andCardinality work chunk by chunk and
+ * skip chunks that only one side has.
+ *
+ * Not thread-safe; FacetIndex guards its bitmaps with its lock.
+ */
+public class CompressedBitmap {
+
+    // Above this many values a chunk is stored as a bitmap (4096 * 2 bytes = 8 KB)
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    // High 16 bits of each chunk, ascending; containers[i] is char[] (array) or long[] (bitmap)
+    private char[] keys = new char[4];
+    private Object[] containers = new Object[4];
+    private int[] cardinalities = new int[4];
+    private int size = 0;
+
+    public void add(int value) {
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        int index = find(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new char[4], 0);
+        }
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            long[] words = (long[]) container;
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                cardinalities[index]++;
+            }
+            return;
+        }
+        char[] values = (char[]) container;
+        int cardinality = cardinalities[index];
+        int position = Arrays.binarySearch(values, 0, cardinality, low);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (cardinality == ARRAY_MAX) {
+            long[] words = toWords(values, cardinality);
+            words[low >>> 6] |= 1L << low;
+            containers[index] = words;
+            cardinalities[index]++;
+            return;
+        }
+        if (cardinality == values.length) {
+            values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            containers[index] = values;
+        }
+        System.arraycopy(values, position, values, position + 1, cardinality - position);
+        values[position] = low;
+        cardinalities[index]++;
+    }
+
+    public void remove(int value) {
+        int index = find((char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            long[] words = (long[]) container;
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                return;
+            }
+            words[low >>> 6] &= ~bit;
+            if (--cardinalities[index] <= ARRAY_MAX) {
+                containers[index] = toValues(words, cardinalities[index]);
+            }
+            return;
+        }
+        char[] values = (char[]) container;
+        int cardinality = cardinalities[index];
+        int position = Arrays.binarySearch(values, 0, cardinality, low);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+        if (--cardinalities[index] == 0) {
+            removeContainer(index);
+        }
+    }
+
+    public boolean contains(int value) {
+        int index = find((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, cardinalities[index], low) >= 0;
+    }
+
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Values in both bitmaps, as a new bitmap
+     */
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendAnd(keys[i], containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of values in both bitmaps, without building the intersection
+     */
+    public int andCardinality(CompressedBitmap other) {
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                total += andCount(containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]);
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Values in either bitmap, as a new bitmap
+     */
+    public CompressedBitmap or(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendCopy(keys[i], containers[i], cardinalities[i]);
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.appendCopy(other.keys[j], other.containers[j], other.cardinalities[j]);
+                j++;
+            } else {
+                long[] words = toWords(containers[i], cardinalities[i]);
+                Object theirs = other.containers[j];
+                if (theirs instanceof long[]) {
+                    long[] otherWords = (long[]) theirs;
+                    for (int w = 0; w < BITMAP_WORDS; w++) {
+                        words[w] |= otherWords[w];
+                    }
+                } else {
+                    char[] values = (char[]) theirs;
+                    for (int v = 0; v < other.cardinalities[j]; v++) {
+                        words[values[v] >>> 6] |= 1L << values[v];
+                    }
+                }
+                int cardinality = bitCount(words);
+                result.append(keys[i], cardinality <= ARRAY_MAX ? toValues(words, cardinality) : words, cardinality);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Values of this bitmap that are not in the other, as a new bitmap
+     */
+    public CompressedBitmap andNot(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendAndNot(keys[i], containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]);
+            } else {
+                result.appendCopy(keys[i], containers[i], cardinalities[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Call the action for every value, in ascending order
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof long[]) {
+                long[] words = (long[]) container;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        action.accept(high | (w << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) container;
+                for (int v = 0; v < cardinalities[i]; v++) {
+                    action.accept(high | values[v]);
+                }
+            }
+        }
+    }
+
+    private void appendAnd(char key, Object left, int leftCardinality, Object right, int rightCardinality) {
+        if (left instanceof long[] && right instanceof long[]) {
+            long[] words = new long[BITMAP_WORDS];
+            long[] a = (long[]) left;
+            long[] b = (long[]) right;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] = a[w] & b[w];
+            }
+            int cardinality = bitCount(words);
+            if (cardinality > 0) {
+                append(key, cardinality <= ARRAY_MAX ? toValues(words, cardinality) : words, cardinality);
+            }
+            return;
+        }
+        // At least one side is an array: the result fits in an array of its size
+        boolean leftIsArray = left instanceof char[];
+        char[] values = (char[]) (leftIsArray ? left : right);
+        int count = leftIsArray ? leftCardinality : rightCardinality;
+        Object probe = leftIsArray ? right : left;
+        int probeCardinality = leftIsArray ? rightCardinality : leftCardinality;
+        char[] result = new char[count];
+        int cardinality = 0;
+        for (int v = 0; v < count; v++) {
+            if (containsLow(probe, probeCardinality, values[v])) {
+                result[cardinality++] = values[v];
+            }
+        }
+        if (cardinality > 0) {
+            append(key, result, cardinality);
+        }
+    }
+
+    private void appendAndNot(char key, Object left, int leftCardinality, Object right, int rightCardinality) {
+        if (left instanceof char[]) {
+            char[] values = (char[]) left;
+            char[] result = new char[leftCardinality];
+            int cardinality = 0;
+            for (int v = 0; v < leftCardinality; v++) {
+                if (!containsLow(right, rightCardinality, values[v])) {
+                    result[cardinality++] = values[v];
+                }
+            }
+            if (cardinality > 0) {
+                append(key, result, cardinality);
+            }
+            return;
+        }
+        long[] words = ((long[]) left).clone();
+        if (right instanceof long[]) {
+            long[] removed = (long[]) right;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] &= ~removed[w];
+            }
+        } else {
+            char[] removed = (char[]) right;
+            for (int v = 0; v < rightCardinality; v++) {
+                words[removed[v] >>> 6] &= ~(1L << removed[v]);
+            }
+        }
+        int cardinality = bitCount(words);
+        if (cardinality > 0) {
+            append(key, cardinality <= ARRAY_MAX ? toValues(words, cardinality) : words, cardinality);
+        }
+    }
+
+    private static int andCount(Object left, int leftCardinality, Object right, int rightCardinality) {
+        if (left instanceof long[] && right instanceof long[]) {
+            long[] a = (long[]) left;
+            long[] b = (long[]) right;
+            int count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                count += Long.bitCount(a[w] & b[w]);
+            }
+            return count;
+        }
+        boolean leftIsArray = left instanceof char[];
+        // Probe the larger side with the values of the smaller array
+        if (leftIsArray && right instanceof char[] && rightCardinality < leftCardinality) {
+            leftIsArray = false;
+        }
+        char[] values = (char[]) (leftIsArray ? left : right);
+        int count = leftIsArray ? leftCardinality : rightCardinality;
+        Object probe = leftIsArray ? right : left;
+        int probeCardinality = leftIsArray ? rightCardinality : leftCardinality;
+        int matches = 0;
+        for (int v = 0; v < count; v++) {
+            if (containsLow(probe, probeCardinality, values[v])) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static boolean containsLow(Object container, int cardinality, char low) {
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, cardinality, low) >= 0;
+    }
+
+    private void appendCopy(char key, Object container, int cardinality) {
+        Object copy = container instanceof long[]
+            ? ((long[]) container).clone()
+            : Arrays.copyOf((char[]) container, cardinality);
+        append(key, copy, cardinality);
+    }
+
+    // Add a container after the last one (keys ascending)
+    private void append(char key, Object container, int cardinality) {
+        insertContainer(size, key, container, cardinality);
+    }
+
+    private void insertContainer(int index, char key, Object container, int cardinality) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+            cardinalities = Arrays.copyOf(cardinalities, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        cardinalities[index] = cardinality;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        System.arraycopy(cardinalities, index + 1, cardinalities, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private static long[] toWords(Object container, int cardinality) {
+        if (container instanceof long[]) {
+            return ((long[]) container).clone();
+        }
+        return toWords((char[]) container, cardinality);
+    }
+
+    private static long[] toWords(char[] values, int cardinality) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int v = 0; v < cardinality; v++) {
+            words[values[v] >>> 6] |= 1L << values[v];
+        }
+        return words;
+    }
+
+    private static char[] toValues(long[] words, int cardinality) {
+        char[] values = new char[Math.max(cardinality, 1)];
+        int position = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[position++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    private static int bitCount(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
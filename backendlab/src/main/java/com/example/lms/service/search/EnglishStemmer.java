@@ -0,0 +1,138 @@
+package com.example.lms.service.search;
+
+/**
+ * EnglishStemmer - Step 1 of the Porter stemmer (plurals and -ed / -ing)
+ *
+ * Maps inflected forms to one stem, so "wizards", "wizard" and "wizardry"
+ * stay distinct but "dragons" finds "dragon" and "running" finds "run":
+ *
+ * - 1a: caresses -> caress, ponies -> poni, cats -> cat
+ * - 1b: agreed -> agree, hopping -> hop, filing -> file
+ * - 1c: happy -> happi
+ *
+ * The derivational suffixes of steps 2 to 5 (-ational, -ness, -ment ...) are
+ * left alone: titles are short and over-stemming merges unrelated words.
+ * Input must be lower case; words with digits or under three letters are
+ * returned unchanged.
+ */
+final class EnglishStemmer {
+
+    private EnglishStemmer() {
+    }
+
+    static String stem(String word) {
+        if (word.length() < 3) {
+            return word;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 'a' || c > 'z') {
+                return word;
+            }
+        }
+        String stem = step1c(step1b(step1a(word)));
+        return stem.isEmpty() ? word : stem;
+    }
+
+    private static String step1a(String w) {
+        if (w.endsWith("sses") || w.endsWith("ies")) {
+            return w.substring(0, w.length() - 2);
+        }
+        if (w.endsWith("ss")) {
+            return w;
+        }
+        if (w.endsWith("s")) {
+            return w.substring(0, w.length() - 1);
+        }
+        return w;
+    }
+
+    private static String step1b(String w) {
+        if (w.endsWith("eed")) {
+            return measure(w, w.length() - 3) > 0 ? w.substring(0, w.length() - 1) : w;
+        }
+        String stem;
+        if (w.endsWith("ed") && hasVowel(w, w.length() - 2)) {
+            stem = w.substring(0, w.length() - 2);
+        } else if (w.endsWith("ing") && hasVowel(w, w.length() - 3)) {
+            stem = w.substring(0, w.length() - 3);
+        } else {
+            return w;
+        }
+        if (stem.endsWith("at") || stem.endsWith("bl") || stem.endsWith("iz")) {
+            return stem + "e";
+        }
+        int n = stem.length();
+        if (n >= 2 && stem.charAt(n - 1) == stem.charAt(n - 2) && isConsonant(stem, n - 1)) {
+            char last = stem.charAt(n - 1);
+            return last == 'l' || last == 's' || last == 'z' ? stem : stem.substring(0, n - 1);
+        }
+        if (measure(stem, n) == 1 && endsCvc(stem)) {
+            return stem + "e";
+        }
+        return stem;
+    }
+
+    private static String step1c(String w) {
+        if (w.endsWith("y") && hasVowel(w, w.length() - 1)) {
+            return w.substring(0, w.length() - 1) + "i";
+        }
+        return w;
+    }
+
+    private static boolean isConsonant(String w, int i) {
+        switch (w.charAt(i)) {
+            case 'a':
+            case 'e':
+            case 'i':
+            case 'o':
+            case 'u':
+                return false;
+            case 'y':
+                return i == 0 || !isConsonant(w, i - 1);
+            default:
+                return true;
+        }
+    }
+
+    // Number of vowel-consonant sequences in w[0, end)
+    private static int measure(String w, int end) {
+        int m = 0;
+        int i = 0;
+        while (i < end && isConsonant(w, i)) {
+            i++;
+        }
+        while (i < end) {
+            while (i < end && !isConsonant(w, i)) {
+                i++;
+            }
+            if (i >= end) {
+                break;
+            }
+            m++;
+            while (i < end && isConsonant(w, i)) {
+                i++;
+            }
+        }
+        return m;
+    }
+
+    private static boolean hasVowel(String w, int end) {
+        for (int i = 0; i < end; i++) {
+            if (!isConsonant(w, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // consonant-vowel-consonant ending, the last not w, x or y (hop, not snow)
+    private static boolean endsCvc(String w) {
+        int n = w.length();
+        if (n < 3 || !isConsonant(w, n - 1) || isConsonant(w, n - 2) || !isConsonant(w, n - 3)) {
+            return false;
+        }
+        char last = w.charAt(n - 1);
+        return last != 'w' && last != 'x' && last != 'y';
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.lms.service.search;
+
+import com.example.lms.model.Book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * FacetIndex - Bitmap indexes of the catalog for facet counts
+ *
+ * Every book gets a stable ordinal (reused after it is removed). Each value
+ * of each facet - category, author and availability - has a
+ * CompressedBitmap of the ordinals of its books, so the books matching a
+ * set of filters are a bitwise AND of the selected values' bitmaps (OR
+ * within one facet), and a facet count is one andCardinality.
+ *
+ * Counts follow the usual multi-select rule: the counts of a facet apply
+ * the filters of the other facets but not its own, so selecting "Fiction"
+ * still shows how many books the other categories would add.
+ *
+ * Books without a category or author are not counted in that facet.
+ * Availability is AVAILABLE when copiesAvailable > 0, UNAVAILABLE otherwise.
+ *
+ * Thread-safe: counts share a read lock, changes take the write lock.
+ */
+public class FacetIndex {
+
+    public static final String CATEGORY = "category";
+    public static final String AUTHOR = "author";
+    public static final String AVAILABILITY = "availability";
+    public static final List<String> FACETS = List.of(CATEGORY, AUTHOR, AVAILABILITY);
+
+    public static final String AVAILABLE = "AVAILABLE";
+    public static final String UNAVAILABLE = "UNAVAILABLE";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ordinalOf = new HashMap<>();
+    private int[] freeOrdinals = new int[16];
+    private int freeCount = 0;
+    private int nextOrdinal = 0;
+    private final CompressedBitmap all = new CompressedBitmap();
+    private final Facet[] facets = {new Facet(CATEGORY), new Facet(AUTHOR), new Facet(AVAILABILITY)};
+
+    /**
+     * Facet counts and, for a ranked query, the matching books in rank order
+     */
+    public static class Counts {
+        private final int total;
+        private final Map<String, List<Map<String, Object>>> facets;
+        private final List<String> matches;
+
+        Counts(int total, Map<String, List<Map<String, Object>>> facets, List<String> matches) {
+            this.total = total;
+            this.facets = facets;
+            this.matches = matches;
+        }
+
+        /**
+         * Books matching the filters (and the query, if any)
+         */
+        public int getTotal() { return total; }
+
+        /**
+         * Per facet: value, count and whether it is selected, highest count first
+         */
+        public Map<String, List<Map<String, Object>>> getFacets() { return facets; }
+
+        /**
+         * IDs of the query results that pass the filters, in the query's order; null without a query
+         */
+        public List<String> getMatches() { return matches; }
+    }
+
+    /**
+     * Add a book or move it to its current facet values
+     */
+    public void put(Book book) {
+        if (book.getId() == null) {
+            return;
+        }
+        String[] values = valuesOf(book);
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinalOf.get(book.getId());
+            int ordinal = existing != null ? existing : newOrdinal(book.getId());
+            for (int f = 0; f < facets.length; f++) {
+                facets[f].set(ordinal, values[f]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String bookId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalOf.remove(bookId);
+            if (ordinal == null) {
+                return;
+            }
+            for (Facet facet : facets) {
+                facet.set(ordinal, null);
+            }
+            all.remove(ordinal);
+            if (freeCount == freeOrdinals.length) {
+                freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+            }
+            freeOrdinals[freeCount++] = ordinal;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Count the books matching the filters, per facet value
+     *
+     * @param restrictTo Book IDs of a ranked query, best first, or null for the whole catalog
+     * @param filters    Selected values per facet name; values of one facet are ORed
+     * @param facetLimit Values returned per facet (selected values are always returned)
+     */
+    public Counts count(List<String> restrictTo, Map<String, ? extends Collection<String>> filters, int facetLimit) {
+        return count(restrictTo, restrictTo, filters, facetLimit);
+    }
+
+    /**
+     * Count the books matching a query and the filters, per facet value
+     *
+     * The total and the counts cover every book the query matches, while
+     * only the ranked books, usually the best few of them, are returned as
+     * matches.
+     *
+     * @param ranked     Book IDs of the ranked results, best first, or null for the whole catalog
+     * @param matching   Book IDs of every book the query matches, in any order; null with ranked null
+     * @param filters    Selected values per facet name; values of one facet are ORed
+     * @param facetLimit Values returned per facet (selected values are always returned)
+     */
+    public Counts count(List<String> ranked, Collection<String> matching,
+                        Map<String, ? extends Collection<String>> filters, int facetLimit) {
+        lock.readLock().lock();
+        try {
+            CompressedBitmap base = null;
+            if (matching != null) {
+                base = new CompressedBitmap();
+                for (String bookId : matching) {
+                    Integer ordinal = ordinalOf.get(bookId);
+                    if (ordinal != null) {
+                        base.add(ordinal);
+                    }
+                }
+            }
+            CompressedBitmap[] selected = new CompressedBitmap[facets.length];
+            for (int f = 0; f < facets.length; f++) {
+                Collection<String> values = filters.get(facets[f].name);
+                if (values != null && !values.isEmpty()) {
+                    selected[f] = facets[f].union(values);
+                }
+            }
+
+            CompressedBitmap filtered = intersect(base, selected, -1);
+            int total = filtered != null ? filtered.cardinality() : all.cardinality();
+
+            Map<String, List<Map<String, Object>>> counts = new LinkedHashMap<>();
+            for (int f = 0; f < facets.length; f++) {
+                Collection<String> values = filters.get(facets[f].name);
+                counts.put(facets[f].name, facets[f].top(intersect(base, selected, f), values, facetLimit));
+            }
+
+            List<String> matches = null;
+            if (ranked != null) {
+                matches = new ArrayList<>();
+                for (String bookId : ranked) {
+                    Integer ordinal = ordinalOf.get(bookId);
+                    if (ordinal != null && (filtered == null || filtered.contains(ordinal))) {
+                        matches.add(bookId);
+                    }
+                }
+            }
+            return new Counts(total, counts, matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // AND of the base and the selections except facet `skip`; null when nothing restricts
+    private static CompressedBitmap intersect(CompressedBitmap base, CompressedBitmap[] selected, int skip) {
+        CompressedBitmap result = base;
+        for (int f = 0; f < selected.length; f++) {
+            if (f != skip && selected[f] != null) {
+                result = result == null ? selected[f] : result.and(selected[f]);
+            }
+        }
+        return result;
+    }
+
+    private int newOrdinal(String bookId) {
+        int ordinal = freeCount > 0 ? freeOrdinals[--freeCount] : nextOrdinal++;
+        ordinalOf.put(bookId, ordinal);
+        all.add(ordinal);
+        return ordinal;
+    }
+
+    private static String[] valuesOf(Book book) {
+        Integer available = book.getCopiesAvailable();
+        return new String[] {
+            blankToNull(book.getCategory()),
+            blankToNull(book.getAuthor()),
+            available != null && available > 0 ? AVAILABLE : UNAVAILABLE
+        };
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    // One facet: a bitmap per distinct value and the value of each ordinal
+    private static class Facet {
+        final String name;
+        final Map<String, Integer> valueIds = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+        final List<CompressedBitmap> bitmaps = new ArrayList<>();
+        int[] valueOf = new int[1024];
+
+        Facet(String name) {
+            this.name = name;
+            Arrays.fill(valueOf, -1);
+        }
+
+        void set(int ordinal, String value) {
+            if (ordinal >= valueOf.length) {
+                int previousLength = valueOf.length;
+                valueOf = Arrays.copyOf(valueOf, Math.max(ordinal + 1, previousLength * 2));
+                Arrays.fill(valueOf, previousLength, valueOf.length, -1);
+            }
+            int previous = valueOf[ordinal];
+            int next = value == null ? -1 : valueIds.computeIfAbsent(value, v -> {
+                values.add(v);
+                bitmaps.add(new CompressedBitmap());
+                return values.size() - 1;
+            });
+            if (previous == next) {
+                return;
+            }
+            if (previous >= 0) {
+                bitmaps.get(previous).remove(ordinal);
+            }
+            if (next >= 0) {
+                bitmaps.get(next).add(ordinal);
+            }
+            valueOf[ordinal] = next;
+        }
+
+        CompressedBitmap union(Collection<String> selected) {
+            CompressedBitmap result = new CompressedBitmap();
+            for (String value : selected) {
+                Integer id = valueIds.get(value);
+                if (id != null) {
+                    result = result.or(bitmaps.get(id));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * The values with the most books in the candidates (null: all books)
+         */
+        List<Map<String, Object>> top(CompressedBitmap candidates, Collection<String> selected, int limit) {
+            int[] counts = new int[values.size()];
+            if (candidates == null) {
+                for (int v = 0; v < counts.length; v++) {
+                    counts[v] = bitmaps.get(v).cardinality();
+                }
+            } else if (candidates.cardinality() <= counts.length) {
+                // Fewer candidates than values: tally the candidates' values
+                int[] ordinalValues = valueOf;
+                candidates.forEach(ordinal -> {
+                    int value = ordinal < ordinalValues.length ? ordinalValues[ordinal] : -1;
+                    if (value >= 0) {
+                        counts[value]++;
+                    }
+                });
+            } else {
+                for (int v = 0; v < counts.length; v++) {
+                    counts[v] = candidates.andCardinality(bitmaps.get(v));
+                }
+            }
+
+            // Best `limit` values in a min-heap (a facet like author can have a value per book)
+            Comparator<Integer> byCount = Comparator.<Integer>comparingInt(v -> counts[v])
+                .thenComparing(v -> values.get(v), Comparator.reverseOrder());
+            PriorityQueue<Integer> best = new PriorityQueue<>(byCount);
+            List<Integer> order = new ArrayList<>();
+            for (int v = 0; v < counts.length; v++) {
+                if (selected != null && selected.contains(values.get(v))) {
+                    order.add(v);
+                } else if (counts[v] > 0 && limit > 0) {
+                    best.add(v);
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            order.addAll(best);
+            order.sort(byCount.reversed());
+
+            List<Map<String, Object>> result = new ArrayList<>();
+            for (int v : order) {
+                boolean isSelected = selected != null && selected.contains(values.get(v));
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("value", values.get(v));
+                entry.put("count", counts[v]);
+                entry.put("selected", isSelected);
+                result.add(entry);
+            }
+            return result;
+        }
+    }
+}
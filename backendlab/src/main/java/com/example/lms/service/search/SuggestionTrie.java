@@ -0,0 +1,583 @@
+package com.example.lms.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * SuggestionTrie - Prefix completion of titles and authors, most borrowed first
+ *
+ * A radix trie (edges carry whole substrings, so a chain of single-child
+ * nodes takes one node) over the folded text of every title and author (see
+ * TextAnalyzer.fold). Each node caches the TOP_K heaviest entries below it,
+ * so a lookup walks at most the prefix length and copies a cached list: no
+ * subtree is visited at query time.
+ *
+ * Keys per book:
+ * - the title, and the title without a leading "the", "a" or "an"
+ * - the author, and the author from each later word on, so "tolk" finds
+ *   "J. R. R. Tolkien"
+ *
+ * An entry's weight is the sum over its books of (times borrowed + 1), so
+ * books never borrowed still complete, after the popular ones. Every change
+ * updates the entries of one book and recomputes the cached lists on their
+ * paths only.
+ *
+ * Thread-safe: lookups share a read lock, changes take the write lock.
+ */
+public class SuggestionTrie {
+
+    public static final String TITLE = "TITLE";
+    public static final String AUTHOR = "AUTHOR";
+
+    // Entries cached per node; lookups return at most this many
+    public static final int TOP_K = 16;
+
+    // Later author words that also start a key
+    private static final int MAX_AUTHOR_WORDS = 4;
+
+    private static final Set<String> ARTICLES = Set.of("the", "a", "an");
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private static final Comparator<Entry> HEAVIEST_FIRST = Comparator.<Entry>comparingLong(e -> -e.weight)
+        .thenComparing(e -> e.text);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private final Map<String, BookState> books = new HashMap<>();
+    private int entries = 0;
+
+    // While loading, cached lists are computed once at the end instead of per change
+    private boolean loading = false;
+
+    /**
+     * A completion: the title or author text and how it ranks
+     */
+    public static class Suggestion {
+        private final String text;
+        private final String type;
+        private final String bookId;
+        private final int books;
+        private final long weight;
+
+        Suggestion(Entry entry) {
+            this.text = entry.text;
+            this.type = entry.type;
+            this.bookId = entry.bookId;
+            this.books = entry.books;
+            this.weight = entry.weight;
+        }
+
+        public String getText() { return text; }
+
+        public String getType() { return type; }
+
+        /**
+         * The book of a title, or null for authors and titles shared by several books
+         */
+        public String getBookId() { return bookId; }
+
+        public int getBooks() { return books; }
+
+        public long getWeight() { return weight; }
+    }
+
+    /**
+     * Add a book or replace its title and author, keeping its popularity
+     * when popularity is null
+     */
+    public void put(String bookId, String title, String author, Long popularity) {
+        lock.writeLock().lock();
+        try {
+            BookState previous = books.get(bookId);
+            long borrows = popularity != null ? popularity : previous != null ? previous.popularity : 0;
+            if (previous != null) {
+                apply(bookId, previous, -1);
+            }
+            BookState state = new BookState(clean(title), clean(author), borrows);
+            books.put(bookId, state);
+            apply(bookId, state, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stop maintaining the cached lists until finishLoading(), to fill a new
+     * trie with a whole catalog; lookups in between miss entries
+     */
+    public void startLoading() {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishLoading() {
+        lock.writeLock().lock();
+        try {
+            loading = false;
+            recomputeAll(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String bookId) {
+        lock.writeLock().lock();
+        try {
+            BookState previous = books.remove(bookId);
+            if (previous != null) {
+                apply(bookId, previous, -1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Count borrows of a book, raising its title and author
+     */
+    public void addPopularity(String bookId, long borrows) {
+        lock.writeLock().lock();
+        try {
+            BookState state = books.get(bookId);
+            if (state == null || borrows == 0) {
+                return;
+            }
+            state.popularity += borrows;
+            for (Entry entry : entriesOf(state)) {
+                entry.weight += borrows;
+                recompute(pathTo(entry.key));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Heaviest titles and authors starting with the prefix
+     *
+     * @param prefix Typed text; folded like the keys, so case and accents do not matter
+     * @param limit  Maximum suggestions, at most TOP_K
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = TextAnalyzer.fold(prefix);
+        List<Suggestion> suggestions = new ArrayList<>();
+        if (key.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int matched = 0;
+            while (matched < key.length()) {
+                Node child = child(node, key.charAt(matched));
+                if (child == null) {
+                    return suggestions;
+                }
+                int common = commonPrefix(child.label, key, matched);
+                if (common < child.label.length() && matched + common < key.length()) {
+                    return suggestions;
+                }
+                matched += common;
+                node = child;
+            }
+            // The same text can complete through two keys (e.g. "r r tolkien" and "r tolkien")
+            Set<String> seen = new HashSet<>();
+            for (Entry entry : node.top) {
+                if (suggestions.size() >= limit) {
+                    break;
+                }
+                if (seen.add(entry.type + "|" + entry.text)) {
+                    suggestions.add(new Suggestion(entry));
+                }
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of distinct title and author keys
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // =============================================================================
+    // ENTRIES
+    // =============================================================================
+
+    // Add (direction 1) or withdraw (-1) a book's weight from each of its keys
+    private void apply(String bookId, BookState state, int direction) {
+        for (String[] key : keysOf(state)) {
+            List<Node> path = direction > 0 ? insert(key[0]) : pathTo(key[0]);
+            if (path == null) {
+                continue;
+            }
+            Node node = path.get(path.size() - 1);
+            Entry entry = node.entry(key[1]);
+            if (direction > 0) {
+                if (entry == null) {
+                    entry = new Entry(key[0], key[2], key[1]);
+                    entry.bookId = bookId;
+                    node.entries = append(node.entries, entry);
+                    entries++;
+                } else {
+                    share(entry, bookId);
+                }
+                entry.books++;
+                entry.weight += state.popularity + 1;
+            } else if (entry != null) {
+                entry.books--;
+                entry.weight -= state.popularity + 1;
+                if (entry.books <= 0) {
+                    node.entries = without(node.entries, entry);
+                    entries--;
+                    prune(path);
+                } else {
+                    unshare(entry, bookId);
+                }
+            }
+            recompute(path);
+        }
+    }
+
+    // Another book gets the entry's key: a title remembers its books so the last one can be restored
+    private static void share(Entry entry, String bookId) {
+        if (TITLE.equals(entry.type)) {
+            if (entry.sharedBy == null) {
+                entry.sharedBy = new HashSet<>();
+                entry.sharedBy.add(entry.bookId);
+            }
+            entry.sharedBy.add(bookId);
+        }
+        entry.bookId = null;
+    }
+
+    // A book left a shared entry; a title left with one book points to it again
+    private static void unshare(Entry entry, String bookId) {
+        if (entry.sharedBy == null) {
+            return;
+        }
+        entry.sharedBy.remove(bookId);
+        if (entry.sharedBy.size() == 1) {
+            entry.bookId = entry.sharedBy.iterator().next();
+            entry.sharedBy = null;
+        }
+    }
+
+    private List<Entry> entriesOf(BookState state) {
+        List<Entry> found = new ArrayList<>();
+        for (String[] key : keysOf(state)) {
+            List<Node> path = pathTo(key[0]);
+            Entry entry = path != null ? path.get(path.size() - 1).entry(key[1]) : null;
+            if (entry != null) {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+
+    // (key, type, display text) of a book, without repeats
+    private static List<String[]> keysOf(BookState state) {
+        List<String[]> keys = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        String title = TextAnalyzer.fold(state.title);
+        if (!title.isEmpty()) {
+            addKey(keys, seen, title, TITLE, state.title);
+            int space = title.indexOf(' ');
+            if (space > 0 && ARTICLES.contains(title.substring(0, space))) {
+                addKey(keys, seen, title.substring(space + 1), TITLE, state.title);
+            }
+        }
+        String author = TextAnalyzer.fold(state.author);
+        if (!author.isEmpty()) {
+            addKey(keys, seen, author, AUTHOR, state.author);
+            int start = 0;
+            for (int word = 0; word < MAX_AUTHOR_WORDS; word++) {
+                int space = author.indexOf(' ', start);
+                if (space < 0) {
+                    break;
+                }
+                start = space + 1;
+                addKey(keys, seen, author.substring(start), AUTHOR, state.author);
+            }
+        }
+        return keys;
+    }
+
+    private static void addKey(List<String[]> keys, Set<String> seen, String key, String type, String text) {
+        if (seen.add(type + "|" + key)) {
+            keys.add(new String[] {key, type, text});
+        }
+    }
+
+    private static String clean(String text) {
+        return text == null ? null : text.trim().replaceAll("\\s+", " ");
+    }
+
+    // =============================================================================
+    // RADIX TRIE
+    // =============================================================================
+
+    // Path from the root to the node of the key, creating and splitting nodes as needed
+    private List<Node> insert(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int matched = 0;
+        while (matched < key.length()) {
+            Node child = child(node, key.charAt(matched));
+            if (child == null) {
+                child = new Node(key.substring(matched));
+                node.children = insertChild(node.children, child);
+                path.add(child);
+                return path;
+            }
+            int common = commonPrefix(child.label, key, matched);
+            if (common < child.label.length()) {
+                // Split the edge: node -> middle (common part) -> child (rest)
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[] {child};
+                middle.top = child.top;
+                replaceChild(node, child, middle);
+                child = middle;
+            }
+            matched += common;
+            node = child;
+            path.add(node);
+        }
+        return path;
+    }
+
+    // Path from the root to the node of the key, or null if the key has no node
+    private List<Node> pathTo(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int matched = 0;
+        while (matched < key.length()) {
+            Node child = child(node, key.charAt(matched));
+            if (child == null || commonPrefix(child.label, key, matched) < child.label.length()) {
+                return null;
+            }
+            matched += child.label.length();
+            node = child;
+            path.add(node);
+        }
+        return path;
+    }
+
+    /**
+     * Remove the last node of the path if it holds nothing, and merge a
+     * node left with one child and no entries into that child
+     */
+    private void prune(List<Node> path) {
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            Node parent = path.get(i - 1);
+            if (node.entries.length == 0 && node.children.length == 0) {
+                parent.children = withoutChild(parent.children, node);
+                path.remove(i);
+            } else if (node.entries.length == 0 && node.children.length == 1) {
+                Node only = node.children[0];
+                only.label = node.label + only.label;
+                replaceChild(parent, node, only);
+                path.set(i, only);
+                break;
+            } else {
+                break;
+            }
+        }
+    }
+
+    // Rebuild the cached top entries from the deepest node of the path up to the root
+    private void recompute(List<Node> path) {
+        if (loading) {
+            return;
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            recompute(path.get(i));
+        }
+    }
+
+    private void recomputeAll(Node node) {
+        for (Node child : node.children) {
+            recomputeAll(child);
+        }
+        recompute(node);
+    }
+
+    private static void recompute(Node node) {
+        int candidates = node.entries.length;
+        for (Node child : node.children) {
+            candidates += child.top.length;
+        }
+        Entry[] merged = new Entry[candidates];
+        int size = 0;
+        for (Entry entry : node.entries) {
+            merged[size++] = entry;
+        }
+        for (Node child : node.children) {
+            for (Entry entry : child.top) {
+                merged[size++] = entry;
+            }
+        }
+        Arrays.sort(merged, HEAVIEST_FIRST);
+        node.top = merged.length > TOP_K ? Arrays.copyOf(merged, TOP_K) : merged;
+    }
+
+    private static Node child(Node node, char first) {
+        Node[] children = node.children;
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char c = children[middle].label.charAt(0);
+            if (c < first) {
+                low = middle + 1;
+            } else if (c > first) {
+                high = middle - 1;
+            } else {
+                return children[middle];
+            }
+        }
+        return null;
+    }
+
+    private static Node[] insertChild(Node[] children, Node child) {
+        char first = child.label.charAt(0);
+        int position = 0;
+        while (position < children.length && children[position].label.charAt(0) < first) {
+            position++;
+        }
+        Node[] grown = new Node[children.length + 1];
+        System.arraycopy(children, 0, grown, 0, position);
+        grown[position] = child;
+        System.arraycopy(children, position, grown, position + 1, children.length - position);
+        return grown;
+    }
+
+    // The replacement starts with the same character, so the order is kept
+    private static void replaceChild(Node parent, Node child, Node replacement) {
+        for (int i = 0; i < parent.children.length; i++) {
+            if (parent.children[i] == child) {
+                parent.children[i] = replacement;
+                return;
+            }
+        }
+    }
+
+    private static Node[] withoutChild(Node[] children, Node child) {
+        if (children.length == 1) {
+            return NO_CHILDREN;
+        }
+        Node[] shrunk = new Node[children.length - 1];
+        int size = 0;
+        for (Node candidate : children) {
+            if (candidate != child) {
+                shrunk[size++] = candidate;
+            }
+        }
+        return shrunk;
+    }
+
+    private static Entry[] append(Entry[] entries, Entry entry) {
+        Entry[] grown = Arrays.copyOf(entries, entries.length + 1);
+        grown[entries.length] = entry;
+        return grown;
+    }
+
+    private static Entry[] without(Entry[] entries, Entry entry) {
+        if (entries.length == 1) {
+            return NO_ENTRIES;
+        }
+        Entry[] shrunk = new Entry[entries.length - 1];
+        int size = 0;
+        for (Entry candidate : entries) {
+            if (candidate != entry) {
+                shrunk[size++] = candidate;
+            }
+        }
+        return shrunk;
+    }
+
+    // Length of the common prefix of label and key[from...]
+    private static int commonPrefix(String label, String key, int from) {
+        int length = Math.min(label.length(), key.length() - from);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(from + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        String label;
+        Node[] children = NO_CHILDREN;
+        // Usually none or one; a title and an author can share a key
+        Entry[] entries = NO_ENTRIES;
+        Entry[] top = NO_ENTRIES;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Entry entry(String type) {
+            for (Entry entry : entries) {
+                if (entry.type.equals(type)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Entry {
+        final String key;
+        final String text;
+        final String type;
+        String bookId;
+        // Books of a title shared by several books, null otherwise
+        Set<String> sharedBy;
+        int books;
+        long weight;
+
+        Entry(String key, String text, String type) {
+            this.key = key;
+            this.text = text;
+            this.type = type;
+        }
+    }
+
+    private static final class BookState {
+        final String title;
+        final String author;
+        long popularity;
+
+        BookState(String title, String author, long popularity) {
+            this.title = title;
+            this.author = author;
+            this.popularity = popularity;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.lms.service.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * TextAnalyzer - Splits catalog text into index terms
+ *
+ * The same analysis runs on indexed fields and on queries:
+ * - Text is lower-cased and accents are folded, so "Bronte" finds the
+ *   accented spelling
+ * - Text is split on anything but letters and digits
+ * - Common English stop words are dropped, so a query for "the lord of the
+ *   rings" does not walk the postings of every title starting with "The"
+ * - Words are stemmed with EnglishStemmer
+ */
+public final class TextAnalyzer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is",
+        "it", "of", "on", "or", "the", "to", "with");
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * @return the terms of the text in order, with repeats; empty for null
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        for (String word : SEPARATORS.split(fold(text))) {
+            if (!word.isEmpty() && !STOP_WORDS.contains(word)) {
+                terms.add(EnglishStemmer.stem(word));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Lower-cased text without accents, with every run of other characters
+     * than letters and digits turned into one space: "Brave  New World!" ->
+     * "brave new world". Empty for null.
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("")
+            .toLowerCase(Locale.ROOT);
+        return SEPARATORS.matcher(folded).replaceAll(" ").trim();
+    }
+}
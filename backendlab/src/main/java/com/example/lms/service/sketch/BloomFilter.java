@@ -0,0 +1,77 @@
+package com.example.lms.service.sketch;
+
+/**
+ * BloomFilter - Fixed-size set membership test with false positives only
+ *
+ * mightContain() never answers false for a value that was added; it answers
+ * true for a value that was not added with about the configured probability.
+ * A positive therefore has to be confirmed against the real data, while a
+ * negative needs no lookup at all.
+ *
+ * - Sized from the expected number of values and false-positive rate:
+ *   about 9.6 bits per value at 1%
+ * - The k bit positions come from one 64-bit hash split into two 32-bit
+ *   halves (h1 + i * h2), see Kirsch and Mitzenmacher
+ *
+ * Not thread-safe; callers synchronize on the filter.
+ */
+public class BloomFilter {
+
+    private final long[] words;
+    private final long bitCount;
+    private final int hashCount;
+
+    private BloomFilter(long bitCount, int hashCount) {
+        this.words = new long[(int) ((bitCount + 63) / 64)];
+        this.bitCount = words.length * 64L;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * @param expectedValues    Number of values the filter is sized for
+     * @param falsePositiveRate Wanted false-positive probability at that size, e.g. 0.01
+     */
+    public static BloomFilter create(long expectedValues, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1");
+        }
+        long n = Math.max(1, expectedValues);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        if (bits > Integer.MAX_VALUE * 64L) {
+            throw new IllegalArgumentException("Bloom filter too large for " + expectedValues + " values");
+        }
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(bits, hashes);
+    }
+
+    public void add(String value) {
+        long hash = HyperLogLog.hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = HyperLogLog.hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+}
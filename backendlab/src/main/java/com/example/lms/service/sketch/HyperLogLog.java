@@ -0,0 +1,134 @@
+package com.example.lms.service.sketch;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog - Fixed-size estimator of the number of distinct values in a set
+ *
+ * Every value is hashed to 64 bits; the first PRECISION bits select one of
+ * 2^PRECISION registers and the register keeps the longest run of leading
+ * zeros seen in the remaining bits. The estimate is derived from the harmonic
+ * mean of the registers, with linear counting for small cardinalities.
+ *
+ * - Memory is 16 KB per sketch however many values are added
+ * - Standard error is 1.04 / sqrt(16384), about 0.8%
+ * - Adding a value twice has no effect, and merging takes the register-wise
+ *   maximum, so sketches of different days can be merged into the sketch of
+ *   a range, and merging the same sketch twice is harmless
+ *
+ * Not thread-safe; callers synchronize on the sketch.
+ */
+public class HyperLogLog {
+
+    public static final int PRECISION = 14;
+    public static final int REGISTERS = 1 << PRECISION;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * Restore a sketch from its stored registers
+     */
+    public static HyperLogLog fromBytes(byte[] registers) {
+        if (registers == null || registers.length != REGISTERS) {
+            throw new IllegalArgumentException("A sketch has exactly " + REGISTERS + " registers, got "
+                + (registers == null ? 0 : registers.length));
+        }
+        return new HyperLogLog(registers.clone());
+    }
+
+    public byte[] toBytes() {
+        return registers.clone();
+    }
+
+    public HyperLogLog copy() {
+        return new HyperLogLog(registers.clone());
+    }
+
+    /**
+     * Add a value
+     *
+     * @return true if the sketch changed
+     */
+    public boolean add(String value) {
+        if (value == null) {
+            return false;
+        }
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Leading zeros of the remaining bits, plus one; all-zero bits give the maximum rank
+        long remaining = hash << PRECISION;
+        int rank = Math.min(64 - PRECISION, Long.numberOfLeadingZeros(remaining)) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Fold another sketch into this one
+     */
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimated number of distinct values added
+     */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        // Small range: linear counting on the empty registers is more accurate
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer
+    // so that the high bits used for the register index are well distributed
+    // (also used by BloomFilter)
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe53d4a63L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.lms.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * MoneyTest - Decimal amounts round half up to the nearest cent
+ *
+ * Amounts such as 2.675 have no exact double; multiplying by 100 and
+ * rounding would give 267. Both conversions must read them as the decimal
+ * the client meant.
+ */
+class MoneyTest {
+
+    @Test
+    void toCentsRoundsTheDecimalHalfUp() {
+        assertEquals(268L, Money.toCents(2.675));
+        assertEquals(101L, Money.toCents(1.005));
+        assertEquals(250L, Money.toCents(2.5));
+        assertEquals(30L, Money.toCents(0.1 + 0.2), "0.30000000000000004 is still 30 cents");
+        assertEquals(1L, Money.toCents(0.005));
+        assertEquals(0L, Money.toCents(0.004));
+        assertEquals(-268L, Money.toCents(-2.675), "half up rounds away from zero");
+        assertEquals(0L, Money.toCents(null));
+    }
+
+    @Test
+    void parseCentsReadsNumbersAndStrings() {
+        assertEquals(268L, Money.parseCents("2.675"));
+        assertEquals(268L, Money.parseCents(2.675));
+        assertEquals(1250L, Money.parseCents(" 12.50 "));
+        assertEquals(1200L, Money.parseCents(12));
+        assertEquals(101L, Money.parseCents("1.005"));
+        assertEquals(100L, Money.parseCents("1.0049999"), "rounded once, from the full decimal");
+        assertEquals(123456789012L, Money.parseCents("1234567890.12"));
+    }
+
+    @Test
+    void parseCentsRejectsMissingAndInvalidAmounts() {
+        assertEquals("Amount is required", assertThrows(RuntimeException.class, () -> Money.parseCents(null)).getMessage());
+        assertEquals("Invalid amount: abc", assertThrows(RuntimeException.class, () -> Money.parseCents("abc")).getMessage());
+        assertThrows(RuntimeException.class, () -> Money.parseCents(""));
+    }
+
+    @Test
+    void toAmountIsTheInverseForWholeCents() {
+        assertEquals(2.68, Money.toAmount(268L), 0.0);
+        assertEquals(0.3, Money.toAmount(30L), 0.0);
+        for (long cents = -1000; cents <= 1000; cents++) {
+            assertEquals(cents, Money.toCents(Money.toAmount(cents)));
+        }
+    }
+}
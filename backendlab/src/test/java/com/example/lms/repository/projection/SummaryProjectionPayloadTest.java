@@ -0,0 +1,125 @@
+package com.example.lms.repository.projection;
+
+import com.example.lms.model.Admin;
+import com.example.lms.model.Librarian;
+import com.example.lms.model.Member;
+import com.example.lms.repository.AdminRepository;
+import com.example.lms.repository.LibrarianRepository;
+import com.example.lms.repository.MemberRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SummaryProjectionPayloadTest - List endpoints serialize summaries without secrets or photos
+ *
+ * Each test fills every field of an account, serializes the entity and its
+ * summary projection the way a list endpoint returns them, and checks that
+ * the password hash and profile photo are gone and the payload shrank. The
+ * MongoDB projection of findAllSummaries must exclude the same fields, so
+ * they are not even read from the database.
+ */
+class SummaryProjectionPayloadTest {
+
+    // bcrypt hash of "password"
+    private static final String PASSWORD_HASH = "$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+    @Test
+    void adminSummaryDropsPasswordAndProfilePhoto() throws Exception {
+        Admin admin = new Admin();
+        admin.setId("admin1");
+        admin.setUsername("admin");
+        admin.setPassword(PASSWORD_HASH);
+        admin.setEmail("admin@library.org");
+        admin.setFullName("Ada Admin");
+        admin.setPhone("+15550100");
+        admin.setRole("SUPER_ADMIN");
+        admin.setPermissions(List.of("MANAGE_USERS", "MANAGE_SETTINGS"));
+        admin.setActive(true);
+        admin.setCreatedDate(LocalDateTime.now().minusDays(30));
+        admin.setLastLogin(LocalDateTime.now());
+        admin.setCreatedBy("system");
+        admin.setProfilePhoto("data:image/png;base64," + "A".repeat(200_000));
+
+        JsonNode summary = assertSmallerSummary(admin, AdminSummary.class);
+        assertEquals("Ada Admin", summary.get("fullName").asText());
+        assertEquals(2, summary.get("permissions").size());
+        assertExcludedByQuery(AdminRepository.class, "password", "profilePhoto");
+    }
+
+    @Test
+    void memberSummaryDropsPassword() throws Exception {
+        Member member = new Member();
+        member.setId("member1");
+        member.setName("Mia Member");
+        member.setUsername("mia");
+        member.setEmail("mia@example.com");
+        member.setPassword(PASSWORD_HASH);
+        member.setContact("+15550101");
+        member.setMembershipID("M-0001");
+        member.setActive(true);
+        member.setRole("MEMBER");
+        member.setDigestReminders(false);
+        member.setCreatedAt(new Date());
+        member.setUpdatedAt(new Date());
+
+        JsonNode summary = assertSmallerSummary(member, MemberSummary.class);
+        assertEquals("M-0001", summary.get("membershipID").asText());
+        assertEquals("+15550101", summary.get("contact").asText());
+        assertExcludedByQuery(MemberRepository.class, "password");
+    }
+
+    @Test
+    void librarianSummaryDropsPassword() throws Exception {
+        Librarian librarian = new Librarian();
+        librarian.setId("librarian1");
+        librarian.setUsername("lee");
+        librarian.setPassword(PASSWORD_HASH);
+        librarian.setName("Lee Librarian");
+        librarian.setEmail("lee@library.org");
+        librarian.setPhone("+15550102");
+        librarian.setActive(true);
+        librarian.setCreatedAt(new Date());
+        librarian.setUpdatedAt(new Date());
+
+        JsonNode summary = assertSmallerSummary(librarian, LibrarianSummary.class);
+        assertEquals("Lee Librarian", summary.get("name").asText());
+        assertExcludedByQuery(LibrarianRepository.class, "password");
+    }
+
+    // Serialize the entity and its projection; returns the projection's JSON
+    private JsonNode assertSmallerSummary(Object entity, Class<?> projection) throws Exception {
+        String entityJson = objectMapper.writeValueAsString(entity);
+        String summaryJson = objectMapper.writeValueAsString(projectionFactory.createProjection(projection, entity));
+        JsonNode summary = objectMapper.readTree(summaryJson);
+
+        assertTrue(entityJson.contains(PASSWORD_HASH), "the entity itself still carries the hash");
+        assertFalse(summaryJson.contains(PASSWORD_HASH));
+        assertFalse(summary.has("password"));
+        assertFalse(summary.has("profilePhoto"));
+        assertTrue(summaryJson.length() < entityJson.length(),
+            "summary " + summaryJson.length() + " bytes, entity " + entityJson.length() + " bytes");
+        return summary;
+    }
+
+    private static void assertExcludedByQuery(Class<?> repository, String... fields) throws Exception {
+        String projection = repository.getMethod("findAllSummaries").getAnnotation(Query.class).fields();
+        for (String field : fields) {
+            assertTrue(projection.contains("'" + field + "': 0"), repository.getSimpleName() + " must not read " + field);
+        }
+    }
+}
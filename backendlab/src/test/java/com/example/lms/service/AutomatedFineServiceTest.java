@@ -0,0 +1,153 @@
+package com.example.lms.service;
+
+import com.example.lms.model.BorrowRecord;
+import com.example.lms.model.Fine;
+import com.example.lms.model.Member;
+import com.example.lms.model.SystemSettings;
+import com.example.lms.repository.BorrowRecordRepository;
+import com.example.lms.repository.FineRepository;
+import com.example.lms.repository.MemberRepository;
+import com.example.lms.repository.OverdueCheckpointRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * AutomatedFineServiceTest - The nightly overdue run resolves fined members one batch at a time
+ *
+ * processOverdueBooks runs the overdue pipeline over many loans; the leases
+ * are mocked to hand every partition to this node. Each checkpointed batch
+ * of new fines should cost one member lookup, never one per fine.
+ */
+@ExtendWith(MockitoExtension.class)
+class AutomatedFineServiceTest {
+
+    private static final int LOANS = 1000;
+
+    @Mock
+    private BorrowRecordRepository borrowRecordRepository;
+
+    @Mock
+    private FineRepository fineRepository;
+
+    @Mock
+    private MemberRepository memberRepository;
+
+    @Mock
+    private OverdueCheckpointRepository checkpointRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private SystemSettingsService systemSettingsService;
+
+    @Mock
+    private JobLeaseService jobLeaseService;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private CirculationRollupService circulationRollupService;
+
+    @Mock
+    private DistinctCountService distinctCountService;
+
+    @Mock
+    private MemberBalanceService memberBalanceService;
+
+    @InjectMocks
+    private OverduePipelineService overduePipelineService;
+
+    @Test
+    void overdueRunLooksMembersUpOncePerBatch() {
+        AutomatedFineService automatedFineService = new AutomatedFineService();
+        ReflectionTestUtils.setField(automatedFineService, "overduePipelineService", overduePipelineService);
+
+        // 400 members with two or three overdue loans each
+        List<BorrowRecord> records = new ArrayList<>();
+        int[] perPartition = new int[OverduePipelineService.PARTITIONS];
+        for (int i = 0; i < LOANS; i++) {
+            BorrowRecord record = new BorrowRecord();
+            record.setId(String.format("record%04d", i));
+            record.setMemberID("member" + (i % 400));
+            record.setBookID("book" + (i % 50));
+            record.setStatus("APPROVED");
+            record.setDueDate(LocalDate.now().minusDays(1 + i % 10));
+            records.add(record);
+            perPartition[OverduePipelineService.partitionOf(record.getMemberID())]++;
+        }
+        int batches = 0;
+        for (int count : perPartition) {
+            batches += (count + 99) / 100;
+        }
+
+        List<Integer> batchSizes = new ArrayList<>();
+        when(borrowRecordRepository.findNewlyOverdue(any())).thenReturn(records);
+        when(systemSettingsService.getSettings()).thenReturn(new SystemSettings());
+        when(jobLeaseService.runPartitioned(eq(OverduePipelineService.JOB_NAME), anyString(),
+                eq(OverduePipelineService.PARTITIONS), any(ExecutorService.class), any()))
+            .thenAnswer(invocation -> {
+                BiConsumer<Integer, JobLeaseService.Lease> work = invocation.getArgument(4);
+                for (int partition = 0; partition < OverduePipelineService.PARTITIONS; partition++) {
+                    String name = JobLeaseService.partitionLeaseName(OverduePipelineService.JOB_NAME, partition);
+                    work.accept(partition, new JobLeaseService.Lease(name, invocation.getArgument(1), 1));
+                }
+                return OverduePipelineService.PARTITIONS;
+            });
+        when(fineRepository.save(any(Fine.class))).thenAnswer(invocation -> {
+            Fine fine = invocation.getArgument(0);
+            fine.setId("fine-" + fine.getBorrowRecordID());
+            return fine;
+        });
+        when(memberRepository.findContactsByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            batchSizes.add(ids.size());
+            return members(ids);
+        });
+
+        automatedFineService.processOverdueBooks();
+
+        verify(memberRepository, times(batches)).findContactsByIdIn(anyCollection());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 100), "one lookup per checkpointed batch of 100");
+        verify(memberRepository, never()).findById(any());
+        verify(fineRepository, times(LOANS)).save(any(Fine.class));
+        verify(notificationService, times(LOANS)).createFineNotification(any(Fine.class), any(Member.class));
+        assertEquals(batches, batchSizes.size());
+    }
+
+    private static List<Member> members(Collection<String> ids) {
+        List<Member> members = new ArrayList<>();
+        for (String id : ids) {
+            Member member = new Member();
+            member.setId(id);
+            member.setName("Member " + id);
+            member.setEmail(id + "@example.com");
+            members.add(member);
+        }
+        return members;
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Fine;
+import com.example.lms.model.Money;
+import com.example.lms.model.Payment;
+import com.example.lms.repository.FineRepository;
+import com.example.lms.repository.PaymentRepository;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * FineServiceConcurrencyTest - Many threads paying, editing and waiving one fine never lose an update
+ *
+ * Every accepted edit of the fine is reported to the balance ledger as a
+ * (before, after) pair. If a change overwrote another one, the sum of the
+ * reported deltas would drift from the fine's final amount due.
+ *
+ * Payments run in transactions, so the payment tests check the stored
+ * payments against the fine instead of the (mocked, non-transactional)
+ * ledger: retried transactions would report their ledger change twice.
+ *
+ * Needs a MongoDB replica set (transactions): set LMS_TEST_MONGODB_URI, for
+ * example mongodb://localhost:27017/?replicaSet=rs0. The test uses its own
+ * database and drops it.
+ */
+@EnabledIfEnvironmentVariable(named = "LMS_TEST_MONGODB_URI", matches = ".+")
+class FineServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int EDITS_PER_THREAD = 25;
+    private static final long INITIAL_CENTS = 10_000;
+    private static final int PAYMENTS_PER_THREAD = 10;
+    private static final long PAYMENT_CENTS = 100;
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private FineService fineService;
+
+    // Amount due according to the changes reported to the balance ledger
+    private final AtomicLong ledger = new AtomicLong();
+    private final AtomicInteger reported = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        client = MongoClients.create(System.getenv("LMS_TEST_MONGODB_URI"));
+        SimpleMongoClientDatabaseFactory factory = new SimpleMongoClientDatabaseFactory(client, "lms_fine_concurrency_test");
+        mongoTemplate = new MongoTemplate(factory);
+        mongoTemplate.getDb().drop();
+        // Collections cannot be created implicitly inside every server version's transactions
+        mongoTemplate.createCollection(Fine.class);
+        mongoTemplate.createCollection(Payment.class);
+        mongoTemplate.indexOps(Payment.class).ensureIndex(
+            new Index("idempotencyKey", Sort.Direction.ASC).unique().sparse());
+        MongoRepositoryFactory repositories = new MongoRepositoryFactory(mongoTemplate);
+
+        MemberBalanceService memberBalanceService = mock(MemberBalanceService.class);
+        doAnswer(invocation -> {
+            MemberBalanceService.FineState before = invocation.getArgument(0);
+            Fine after = invocation.getArgument(1);
+            ledger.addAndGet(MemberBalanceService.FineState.of(after).getOutstanding() - before.getOutstanding());
+            reported.incrementAndGet();
+            return null;
+        }).when(memberBalanceService).recordFineChange(any(), any());
+
+        fineService = new FineService();
+        ReflectionTestUtils.setField(fineService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(fineService, "fineRepository", repositories.getRepository(FineRepository.class));
+        ReflectionTestUtils.setField(fineService, "paymentRepository", repositories.getRepository(PaymentRepository.class));
+        ReflectionTestUtils.setField(fineService, "transactionManager", new MongoTransactionManager(factory));
+        ReflectionTestUtils.setField(fineService, "memberBalanceService", memberBalanceService);
+        ReflectionTestUtils.setField(fineService, "circulationRollupService", mock(CirculationRollupService.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    void concurrentEditsAreNeverLost() throws Exception {
+        Fine fine = insertFine();
+        AtomicInteger applied = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < EDITS_PER_THREAD; i++) {
+                try {
+                    fineService.updateFine(fine.getId(), 5_000 + thread * 100 + i, "Edit " + thread + "/" + i);
+                    applied.incrementAndGet();
+                } catch (RuntimeException e) {
+                    // Lost the race against another edit: rejected, not overwritten
+                }
+            }
+        });
+
+        Fine stored = mongoTemplate.findById(fine.getId(), Fine.class);
+        assertTrue(applied.get() > 0, "at least one edit must succeed");
+        assertEquals(applied.get(), reported.get(), "every applied edit is reported exactly once");
+        assertEquals(stored.getAmountDueCents(), ledger.get(), "ledger matches the stored fine");
+    }
+
+    @Test
+    void waiverRacingEditsLeavesNothingOutstanding() throws Exception {
+        Fine fine = insertFine();
+
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                // The waiver is retried until it wins
+                while (true) {
+                    try {
+                        fineService.waiveFine(fine.getId(), "Goodwill");
+                        return;
+                    } catch (RuntimeException e) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }
+            for (int i = 0; i < EDITS_PER_THREAD; i++) {
+                try {
+                    fineService.updateFine(fine.getId(), 5_000 + thread * 100 + i, "Edit " + thread + "/" + i);
+                } catch (RuntimeException e) {
+                    // Conflicting edit, or the fine is already waived
+                }
+            }
+        });
+
+        Fine stored = mongoTemplate.findById(fine.getId(), Fine.class);
+        assertEquals("WAIVED", stored.getStatus());
+        assertEquals(0L, ledger.get(), "a waived fine leaves nothing outstanding in the ledger");
+    }
+
+    @Test
+    void concurrentPaymentsNeverOverpay() throws Exception {
+        Fine fine = insertFine();
+        AtomicInteger accepted = new AtomicInteger();
+
+        // 16 threads offer 16000 cents in total against a 10000 cent fine
+        runConcurrently(thread -> {
+            for (int i = 0; i < PAYMENTS_PER_THREAD; i++) {
+                try {
+                    fineService.recordPayment(fine.getId(), PAYMENT_CENTS, "CASH", "Thread " + thread);
+                    accepted.incrementAndGet();
+                } catch (RuntimeException e) {
+                    // Would overpay, already settled, or retries used up
+                }
+            }
+        });
+
+        Fine stored = mongoTemplate.findById(fine.getId(), Fine.class);
+        List<Payment> payments = paymentsOf(fine);
+        long paid = payments.stream().mapToLong(Payment::getAmountCents).sum();
+        assertEquals(accepted.get(), payments.size(), "a payment exists exactly when it was accepted");
+        assertEquals(paid, stored.getAmountPaidCents(), "every payment was added to the fine once");
+        assertTrue(stored.getAmountPaidCents() <= stored.getAmountCents(), "never paid beyond the amount");
+        assertEquals(stored.getAmountPaidCents() == stored.getAmountCents() ? "PAID" : "PARTIALLY_PAID",
+            stored.getStatus());
+    }
+
+    @Test
+    void paymentsRetriedWithOneKeyAreRecordedOnce() throws Exception {
+        Fine fine = insertFine();
+        Set<String> returned = ConcurrentHashMap.newKeySet();
+
+        // Every thread retries the same client request
+        runConcurrently(thread -> {
+            try {
+                Payment payment = fineService.recordPayment(fine.getId(), 2_500, "CARD", "Retry " + thread, "request-1");
+                returned.add(payment.getId());
+            } catch (RuntimeException e) {
+                // Retries used up; the client would send the request again
+            }
+        });
+
+        List<Payment> payments = paymentsOf(fine);
+        Fine stored = mongoTemplate.findById(fine.getId(), Fine.class);
+        assertEquals(1, payments.size(), "one payment for one key");
+        assertEquals("request-1", payments.get(0).getIdempotencyKey());
+        assertEquals(2_500L, stored.getAmountPaidCents(), "the fine was paid once");
+        assertEquals(Set.of(payments.get(0).getId()), returned, "every caller got the same payment");
+    }
+
+    @Test
+    void partialPaymentsAddingUpToTheAmountSettleTheFine() {
+        Fine fine = insertFine();
+
+        // Thirds of 100.00 as a clerk would enter them; as doubles they would not add up exactly
+        for (String amount : List.of("33.33", "33.33")) {
+            fineService.recordPayment(fine.getId(), Money.parseCents(amount), "CASH", null);
+        }
+        assertEquals("PARTIALLY_PAID", mongoTemplate.findById(fine.getId(), Fine.class).getStatus());
+        fineService.recordPayment(fine.getId(), Money.parseCents("33.34"), "CASH", null);
+
+        Fine stored = mongoTemplate.findById(fine.getId(), Fine.class);
+        assertEquals(INITIAL_CENTS, stored.getAmountPaidCents());
+        assertEquals(0L, stored.getAmountDueCents());
+        assertEquals("PAID", stored.getStatus());
+        assertEquals(LocalDate.now(), stored.getPaidDate());
+        assertEquals(3, paymentsOf(fine).size());
+        assertEquals("Fine is already settled", assertThrows(RuntimeException.class,
+            () -> fineService.recordPayment(fine.getId(), 1, "CASH", null)).getMessage());
+    }
+
+    private List<Payment> paymentsOf(Fine fine) {
+        return mongoTemplate.find(new Query(Criteria.where("fineID").is(fine.getId())), Payment.class);
+    }
+
+    private Fine insertFine() {
+        Fine fine = new Fine();
+        fine.setMemberID("member-1");
+        fine.setAmountCents(INITIAL_CENTS);
+        fine.setAmountPaidCents(0L);
+        fine.setReason("Overdue return - 5 days late");
+        fine.setStatus("UNPAID");
+        fine.setIssueDate(LocalDate.now());
+        Fine inserted = mongoTemplate.insert(fine);
+        ledger.set(INITIAL_CENTS);
+        return inserted;
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    // Start every thread at once and wait for all of them
+    private static void runConcurrently(Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            pool.submit(() -> {
+                start.await();
+                worker.run(thread);
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS), "workers did not finish");
+    }
+}
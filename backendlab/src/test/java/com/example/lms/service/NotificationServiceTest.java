@@ -0,0 +1,138 @@
+package com.example.lms.service;
+
+import com.example.lms.model.BorrowRecord;
+import com.example.lms.model.Member;
+import com.example.lms.model.Notification;
+import com.example.lms.model.SystemSettings;
+import com.example.lms.repository.BookRepository;
+import com.example.lms.repository.BorrowRecordRepository;
+import com.example.lms.repository.MemberRepository;
+import com.example.lms.repository.NotificationRepository;
+import com.example.lms.repository.SystemSettingsRepository;
+import com.example.lms.service.channel.NotificationChannelRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * NotificationServiceTest - The reminder run resolves members one batch at a time
+ *
+ * The run covers more members than fit in one batch and counts the member
+ * lookups: a per-member findById would show up as one call per member.
+ */
+@ExtendWith(MockitoExtension.class)
+class NotificationServiceTest {
+
+    // Members with open loans; three batches of at most 500
+    private static final int MEMBERS = 1200;
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private SystemSettingsRepository settingsRepository;
+
+    @Mock
+    private BorrowRecordRepository borrowRecordRepository;
+
+    @Mock
+    private MemberRepository memberRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private EntityCacheService entityCacheService;
+
+    @Mock
+    private NotificationStatisticsService notificationStatisticsService;
+
+    @Mock
+    private NotificationStreamService notificationStreamService;
+
+    @Mock
+    private NotificationChannelRegistry notificationChannelRegistry;
+
+    @Mock
+    private NotificationTemplateService notificationTemplateService;
+
+    @InjectMocks
+    private NotificationService notificationService;
+
+    @Test
+    void reminderRunLooksMembersUpOncePerBatch() {
+        SystemSettings settings = new SystemSettings();
+        settings.setEmailNotificationsEnabled(true);
+        LocalDate today = LocalDate.now();
+
+        // Every member has an overdue loan; every other member also has one due soon (a digest)
+        List<BorrowRecord> records = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            records.add(loan("overdue" + i, "member" + i, today.minusDays(3)));
+            if (i % 2 == 0) {
+                records.add(loan("dueSoon" + i, "member" + i, today.plusDays(settings.getDueDateReminderDays())));
+            }
+        }
+        List<Integer> batchSizes = new ArrayList<>();
+        when(settingsRepository.findAll()).thenReturn(List.of(settings));
+        when(borrowRecordRepository.findAll()).thenReturn(records);
+        when(memberRepository.findContactsByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            batchSizes.add(ids.size());
+            return members(ids);
+        });
+        when(notificationTemplateService.render(anyString(), anyMap(), any()))
+            .thenReturn(new NotificationTemplateService.RenderedTemplate("Reminder", "Please return your book"));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(notificationRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        notificationService.sendAutomaticNotifications();
+
+        assertEquals(List.of(500, 500, 200), batchSizes);
+        verify(memberRepository, times(3)).findContactsByIdIn(anyCollection());
+        verify(memberRepository, never()).findById(any());
+        verify(entityCacheService, never()).findMember(any());
+        // 600 digests and 600 single overdue reminders, sent one batch at a time
+        verify(notificationRepository, times(MEMBERS)).save(any(Notification.class));
+        verify(notificationRepository, times(3)).saveAll(any());
+    }
+
+    private static BorrowRecord loan(String id, String memberId, LocalDate dueDate) {
+        BorrowRecord record = new BorrowRecord();
+        record.setId(id);
+        record.setMemberID(memberId);
+        record.setBookID("book" + (id.hashCode() & 63));
+        record.setStatus("APPROVED");
+        record.setDueDate(dueDate);
+        return record;
+    }
+
+    private static List<Member> members(Collection<String> ids) {
+        List<Member> members = new ArrayList<>();
+        for (String id : ids) {
+            Member member = new Member();
+            member.setId(id);
+            member.setName("Member " + id);
+            member.setEmail(id + "@example.com");
+            members.add(member);
+        }
+        return members;
+    }
+}
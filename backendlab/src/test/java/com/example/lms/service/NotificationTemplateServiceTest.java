@@ -0,0 +1,159 @@
+package com.example.lms.service;
+
+import com.example.lms.model.NotificationTemplate;
+import com.example.lms.repository.NotificationTemplateRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * NotificationTemplateServiceTest - Placeholder substitution, missing values, literal text and render throughput
+ *
+ * Templates are compiled once per category; the throughput test renders a
+ * large run of notifications from the compiled form and checks every
+ * message, so a regression to per-render parsing or a wrong substitution
+ * shows up here.
+ */
+@ExtendWith(MockitoExtension.class)
+class NotificationTemplateServiceTest {
+
+    private static final Set<String> FINE_VARIABLES = Set.of("memberName", "amount", "bookTitle", "reason");
+
+    // Notifications rendered by the throughput test
+    private static final int RENDERS = 200_000;
+
+    @Mock
+    private NotificationTemplateRepository templateRepository;
+
+    @InjectMocks
+    private NotificationTemplateService templateService;
+
+    @Test
+    void placeholdersAreSubstituted() {
+        NotificationTemplateService.Template template = NotificationTemplateService.Template.parse(
+            "Dear {{memberName}}, {{ bookTitle }} costs ${{amount|money}}. {{libraryName}}",
+            FINE_VARIABLES, "City Library");
+
+        assertEquals("Dear Jane, The Hobbit costs $2.50. City Library",
+            template.render(Map.of("memberName", "Jane", "bookTitle", "The Hobbit", "amount", 2.5)));
+    }
+
+    @Test
+    void moneyIsRoundedToCents() {
+        NotificationTemplateService.Template template =
+            NotificationTemplateService.Template.parse("{{amount|money}}", FINE_VARIABLES, "Library");
+        Object[][] cases = {
+            { 0, "0.00" }, { 0.1, "0.10" }, { 2.5, "2.50" }, { 10L, "10.00" }, { 99.999, "100.00" },
+            { 1234.5, "1234.50" }, { -3.25, "-3.25" }, { 0.07, "0.07" }
+        };
+        for (Object[] example : cases) {
+            assertEquals(example[1], template.render(Map.of("amount", example[0])), "amount " + example[0]);
+        }
+    }
+
+    @Test
+    void missingValuesRenderEmpty() {
+        NotificationTemplateService.Template template = NotificationTemplateService.Template.parse(
+            "Dear {{memberName}}, you owe ${{amount|money}} for '{{bookTitle}}'.", FINE_VARIABLES, "Library");
+
+        assertEquals("Dear , you owe $ for ''.", template.render(Map.of()));
+        Map<String, Object> partial = new HashMap<>();
+        partial.put("memberName", "Jane");
+        partial.put("bookTitle", null);
+        assertEquals("Dear Jane, you owe $ for ''.", template.render(partial));
+    }
+
+    @Test
+    void valuesAndLibraryNameAreInsertedVerbatim() {
+        NotificationTemplateService.Template template = NotificationTemplateService.Template.parse(
+            "{{memberName}} / {{bookTitle}} / 100% {{libraryName}}", FINE_VARIABLES, "{{memberName}} & Sons $1 %s");
+
+        // Values are never parsed again, and $, %, & and < need no escaping in plain text messages
+        assertEquals("{{reason}} / <b>$5 %d \\n</b> / 100% {{memberName}} & Sons $1 %s",
+            template.render(Map.of("memberName", "{{reason}}", "bookTitle", "<b>$5 %d \\n</b>")));
+    }
+
+    @Test
+    void invalidTemplatesAreRejected() {
+        assertTrue(assertThrows(RuntimeException.class, () -> NotificationTemplateService.Template.parse(
+            "Dear {{memberName", FINE_VARIABLES, null)).getMessage().contains("Unclosed"));
+        assertTrue(assertThrows(RuntimeException.class, () -> NotificationTemplateService.Template.parse(
+            "{{password}}", FINE_VARIABLES, null)).getMessage().contains("Unknown template variable"));
+        assertTrue(assertThrows(RuntimeException.class, () -> NotificationTemplateService.Template.parse(
+            "{{amount|upper}}", FINE_VARIABLES, null)).getMessage().contains("Unknown template filter"));
+    }
+
+    @Test
+    void serviceRendersEditedTemplatesAndFallsBackOnBrokenOnes() {
+        NotificationTemplate edited = new NotificationTemplate();
+        edited.setId("FINE_NOTICE");
+        edited.setSubject("Fine for {{memberName}}");
+        edited.setBody("{{bookTitle}}: ${{amount|money}} ({{reason}}) - {{libraryName}}");
+        edited.setUpdatedAt(LocalDateTime.now());
+        NotificationTemplate broken = new NotificationTemplate();
+        broken.setId("BOOK_RETURN");
+        broken.setSubject("Returned {{isbn}}");
+        broken.setBody("Thanks");
+        when(templateRepository.findAll()).thenReturn(List.of(edited, broken));
+
+        NotificationTemplateService.RenderedTemplate fine = templateService.render("FINE_NOTICE",
+            Map.of("memberName", "Jane", "bookTitle", "The Hobbit", "amount", 4, "reason", "Overdue"), "City Library");
+        assertEquals("Fine for Jane", fine.getSubject());
+        assertEquals("The Hobbit: $4.00 (Overdue) - City Library", fine.getMessage());
+
+        NotificationTemplateService.RenderedTemplate returned = templateService.render("BOOK_RETURN",
+            Map.of("memberName", "Jane", "bookTitle", "The Hobbit", "returnDate", "2025-01-10"), "City Library");
+        assertEquals("Book Return Confirmed", returned.getSubject(), "a stored template that no longer compiles is not used");
+        assertTrue(returned.getMessage().endsWith("Thank you,\nCity Library"));
+    }
+
+    @Test
+    void compiledTemplatesRenderWithoutReparsing() {
+        when(templateRepository.findAll()).thenReturn(List.of());
+
+        long started = System.nanoTime();
+        for (int i = 0; i < RENDERS; i++) {
+            NotificationTemplateService.RenderedTemplate rendered = templateService.render("OVERDUE_REMINDER",
+                Map.of("memberName", "Member " + i, "bookTitle", "Book " + (i % 100), "dueDate", "2025-01-15"),
+                "City Library");
+            if (!rendered.getMessage().startsWith("Dear Member " + i + ",\n")
+                    || !rendered.getMessage().contains("'Book " + (i % 100) + "'")) {
+                throw new AssertionError("Wrong message for render " + i + ": " + rendered.getMessage());
+            }
+        }
+        long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        System.out.println("Rendered " + RENDERS + " notifications in " + elapsedMs + " ms ("
+            + RENDERS * 1000L / elapsedMs + " per second)");
+
+        // Loaded and compiled once for the whole run
+        verify(templateRepository, times(1)).findAll();
+        assertTrue(elapsedMs < 10_000, "rendering " + RENDERS + " notifications took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void libraryNameChangeRecompiles() {
+        when(templateRepository.findAll()).thenReturn(List.of());
+        Map<String, Object> values = Map.of("memberName", "Jane", "bookTitle", "The Hobbit");
+
+        assertTrue(templateService.render("BORROW_REJECTION", values, "Old Library").getMessage().endsWith("Old Library"));
+        assertTrue(templateService.render("BORROW_REJECTION", values, "New Library").getMessage().endsWith("New Library"));
+        verify(templateRepository, times(1)).findAll();
+        verify(templateRepository, times(0)).save(any());
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.lms.service;
+
+import com.example.lms.model.Book;
+import com.example.lms.model.BorrowRecord;
+import com.example.lms.model.Fine;
+import com.example.lms.model.Member;
+import com.example.lms.model.Payment;
+import com.example.lms.repository.BookRepository;
+import com.example.lms.repository.BorrowRecordRepository;
+import com.example.lms.repository.MemberRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * ReportServiceTest - Every report costs a fixed number of database calls, whatever its size
+ *
+ * Each test builds a report of many rows and counts the calls made to
+ * MongoTemplate and the repositories: a per-row findById would show up as
+ * one call per row.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReportServiceTest {
+
+    private static final int ROWS = 50;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BorrowRecordRepository borrowRecordRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private MemberRepository memberRepository;
+
+    @InjectMocks
+    private ReportService reportService;
+
+    @Test
+    void overdueReportUsesThreeQueries() {
+        List<BorrowRecord> records = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            BorrowRecord record = new BorrowRecord();
+            record.setId("record" + i);
+            record.setMemberID("member" + (i % 10));
+            record.setBookID("book" + (i % 20));
+            record.setDueDate(LocalDate.now().minusDays(3));
+            records.add(record);
+        }
+        when(borrowRecordRepository.findByOverdue(true)).thenReturn(records);
+        when(memberRepository.findContactsByIdIn(anyCollection())).thenReturn(members(10));
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(books(20));
+
+        List<Map<String, Object>> report = reportService.getOverdueReport();
+
+        assertEquals(ROWS, report.size());
+        assertEquals("Member 3", report.get(13).get("memberName"));
+        assertEquals("Book 13", report.get(13).get("bookTitle"));
+        verify(borrowRecordRepository, times(1)).findByOverdue(true);
+        verify(memberRepository, times(1)).findContactsByIdIn(anyCollection());
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Book.class));
+        verify(memberRepository, never()).findById(any());
+        verify(bookRepository, never()).findById(any());
+        verifyNoMoreInteractions(mongoTemplate, borrowRecordRepository, memberRepository, bookRepository);
+    }
+
+    @Test
+    void mostBorrowedBooksUsesOneAggregationAndOneQuery() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(BorrowRecord.class), eq(Document.class)))
+            .thenReturn(counts("book", ROWS));
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(books(ROWS));
+
+        List<Map<String, Object>> report = reportService.getMostBorrowedBooks(ROWS);
+
+        assertEquals(ROWS, report.size());
+        assertEquals("Book 0", report.get(0).get("bookTitle"));
+        assertEquals((long) ROWS, report.get(0).get("borrowCount"));
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), eq(BorrowRecord.class), eq(Document.class));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Book.class));
+        verifyNoMoreInteractions(mongoTemplate, borrowRecordRepository, memberRepository, bookRepository);
+    }
+
+    @Test
+    void mostActiveMembersUsesOneAggregationAndOneQuery() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(BorrowRecord.class), eq(Document.class)))
+            .thenReturn(counts("member", ROWS));
+        when(memberRepository.findContactsByIdIn(anyCollection())).thenReturn(members(ROWS));
+
+        List<Map<String, Object>> report = reportService.getMostActiveMembers(ROWS);
+
+        assertEquals(ROWS, report.size());
+        assertEquals("Member 0", report.get(0).get("memberName"));
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), eq(BorrowRecord.class), eq(Document.class));
+        verify(memberRepository, times(1)).findContactsByIdIn(anyCollection());
+        verifyNoMoreInteractions(mongoTemplate, borrowRecordRepository, memberRepository, bookRepository);
+    }
+
+    @Test
+    void recentPaymentsUsesThreeQueries() {
+        List<Payment> payments = new ArrayList<>();
+        List<Fine> fines = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Payment payment = new Payment();
+            payment.setId("payment" + i);
+            payment.setMemberID("member" + (i % 10));
+            payment.setFineID("fine" + i);
+            payment.setAmountCents(100);
+            payment.setPaymentDate(LocalDate.now());
+            payments.add(payment);
+
+            Fine fine = new Fine();
+            fine.setId("fine" + i);
+            fine.setReason("Reason " + i);
+            fines.add(fine);
+        }
+        when(mongoTemplate.find(any(Query.class), eq(Payment.class))).thenReturn(payments);
+        when(mongoTemplate.find(any(Query.class), eq(Fine.class))).thenReturn(fines);
+        when(memberRepository.findContactsByIdIn(anyCollection())).thenReturn(members(10));
+
+        List<Map<String, Object>> report = reportService.getRecentPayments(ROWS);
+
+        assertEquals(ROWS, report.size());
+        assertEquals("Reason 7", report.get(7).get("fineReason"));
+        assertEquals("Member 7", report.get(7).get("memberName"));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Payment.class));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Fine.class));
+        verify(memberRepository, times(1)).findContactsByIdIn(anyCollection());
+        verifyNoMoreInteractions(mongoTemplate, borrowRecordRepository, memberRepository, bookRepository);
+    }
+
+    private static List<Book> books(int count) {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Book book = new Book();
+            book.setId("book" + i);
+            book.setTitle("Book " + i);
+            books.add(book);
+        }
+        return books;
+    }
+
+    private static List<Member> members(int count) {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Member member = new Member();
+            member.setId("member" + i);
+            member.setName("Member " + i);
+            members.add(member);
+        }
+        return members;
+    }
+
+    // Aggregation rows { _id, count }, highest count first
+    private static AggregationResults<Document> counts(String prefix, int rows) {
+        List<Document> results = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            results.add(new Document("_id", prefix + i).append("count", rows - i));
+        }
+        return new AggregationResults<>(results, new Document());
+    }
+}
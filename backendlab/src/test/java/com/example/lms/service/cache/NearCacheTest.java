@@ -0,0 +1,124 @@
+package com.example.lms.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * NearCacheTest - LRU eviction, expiry and the invalidation guard of loads
+ *
+ * Loaders count their calls: a cache hit is a get that did not call the loader.
+ */
+class NearCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<String, String> loader = key -> {
+        loads.incrementAndGet();
+        return key.toUpperCase() + loads.get();
+    };
+
+    @Test
+    void hitsDoNotCallTheLoader() {
+        NearCache<String, String> cache = new NearCache<>("test", 10, 60_000);
+        assertEquals("A1", cache.get("a", loader));
+        assertEquals("A1", cache.get("a", loader));
+        assertEquals(1, loads.get());
+        assertEquals(1L, cache.getStats().get("hits"));
+        assertEquals(1L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    void leastRecentlyReadEntryIsEvicted() {
+        NearCache<String, String> cache = new NearCache<>("test", 3, 60_000);
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("c", loader);
+        // Reading "a" makes "b" the least recently read
+        cache.get("a", loader);
+        cache.get("d", loader);
+
+        assertEquals(3, cache.size());
+        assertEquals(1L, cache.getStats().get("evictions"));
+        int before = loads.get();
+        cache.get("a", loader);
+        cache.get("c", loader);
+        cache.get("d", loader);
+        assertEquals(before, loads.get(), "a, c and d are still cached");
+        cache.get("b", loader);
+        assertEquals(before + 1, loads.get(), "b was evicted");
+    }
+
+    @Test
+    void entriesExpireAfterTheirTimeToLive() throws Exception {
+        NearCache<String, String> cache = new NearCache<>("test", 10, 50);
+        assertEquals("A1", cache.get("a", loader));
+        assertEquals("A1", cache.get("a", loader));
+        Thread.sleep(120);
+        assertEquals("A2", cache.get("a", loader), "reloaded after expiry");
+        assertEquals(1L, cache.getStats().get("expirations"));
+    }
+
+    @Test
+    void missesAreNotCached() {
+        NearCache<String, String> cache = new NearCache<>("test", 10, 60_000);
+        Function<String, String> missing = key -> {
+            loads.incrementAndGet();
+            return null;
+        };
+        assertNull(cache.get("a", missing));
+        assertNull(cache.get("a", missing));
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidateDropsTheEntry() {
+        NearCache<String, String> cache = new NearCache<>("test", 10, 60_000);
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.invalidate("a");
+        assertEquals("A3", cache.get("a", loader));
+        assertEquals("B2", cache.get("b", loader), "other keys stay cached");
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotStored() throws Exception {
+        NearCache<String, String> cache = new NearCache<>("test", 10, 60_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+
+        // The load reads the old document, then a write invalidates the key before the load stores it
+        CompletableFuture<String> slowLoad = CompletableFuture.supplyAsync(() -> cache.get("a", key -> {
+            loading.countDown();
+            await(invalidated);
+            return "stale";
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        cache.invalidate("a");
+        invalidated.countDown();
+
+        assertEquals("stale", slowLoad.get(5, TimeUnit.SECONDS), "the caller still gets its value");
+        assertEquals(0, cache.size(), "but it is not cached");
+        assertEquals("A1", cache.get("a", loader), "the next read loads the new document");
+        assertEquals("A1", cache.get("a", loader));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
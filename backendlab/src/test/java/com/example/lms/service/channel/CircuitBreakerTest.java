@@ -0,0 +1,90 @@
+package com.example.lms.service.channel;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CircuitBreakerTest - Opening after consecutive failures, the half-open trial and closing again
+ *
+ * An open time of 0 lets the next tryAcquire move an open breaker to
+ * HALF_OPEN right away, so the tests do not have to sleep.
+ */
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60_000);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(3, breaker.getConsecutiveFailures());
+        assertFalse(breaker.tryAcquire(), "calls are rejected while open");
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60_000);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "failures are only counted while consecutive");
+        assertEquals(2, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    void halfOpenLetsOneTrialThrough() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        assertTrue(breaker.tryAcquire(), "the open time has passed; one trial call");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(), "no second call while the trial is in flight");
+    }
+
+    @Test
+    void successfulTrialCloses() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 0);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.tryAcquire());
+
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getConsecutiveFailures());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire(), "closed breakers let every call through");
+    }
+
+    @Test
+    void failedTrialOpensAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(5, 0);
+        for (int i = 0; i < 5; i++) {
+            breaker.recordFailure();
+        }
+        assertTrue(breaker.tryAcquire());
+
+        // One failure is enough in HALF_OPEN, below the threshold of five
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void staysOpenUntilTheOpenTimeHasPassed() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 60_000);
+        breaker.recordFailure();
+        for (int i = 0; i < 10; i++) {
+            assertFalse(breaker.tryAcquire());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.lms.service.channel;
+
+import com.example.lms.model.Notification;
+import com.example.lms.model.SystemSettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * NotificationChannelRegistryTest - Channel selection, batch splitting, the circuit breaker and the concurrency limit
+ *
+ * LocalNotificationChannel stands in for a provider; the subclasses below
+ * record the batches they receive, fail on demand or count the calls in
+ * flight.
+ */
+class NotificationChannelRegistryTest {
+
+    private final SystemSettings settings = new SystemSettings();
+
+    private RecordingChannel local;
+    private NotificationChannelRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        local = new RecordingChannel();
+        ReflectionTestUtils.setField(local, "enabled", true);
+        registry = registryOf(local);
+    }
+
+    @Test
+    void localChannelWinsWhileEnabled() {
+        assertSame(local, registry.resolve("EMAIL", settings));
+        assertSame(local, registry.resolve("SMS", settings));
+
+        ReflectionTestUtils.setField(local, "enabled", false);
+        assertNull(registry.resolve("SMS", settings), "no other channel is registered");
+    }
+
+    @Test
+    void notificationsAreSplitIntoBatchesOfTheChannelsSize() {
+        List<DeliveryResult> results = registry.deliver(local, notifications(1201), "EMAIL", settings);
+
+        assertEquals(List.of(500, 500, 201), local.batchSizes);
+        assertEquals(1201, results.size());
+        assertTrue(results.stream().allMatch(DeliveryResult::isSuccess));
+        assertEquals(1201, local.getDeliveredCount());
+        List<Map<String, Object>> recent = local.getRecentDeliveries();
+        assertEquals(1000, recent.size(), "only the most recent deliveries are kept");
+        assertEquals("notification1200", recent.get(recent.size() - 1).get("notificationId"));
+    }
+
+    @Test
+    void breakerOpensAfterFiveFailedBatches() {
+        FailingChannel failing = new FailingChannel();
+        registry = registryOf(failing);
+
+        List<DeliveryResult> results = registry.deliver(failing, notifications(7), "SMS", settings);
+
+        assertEquals(5, failing.calls.get(), "the last two batches never reach the provider");
+        assertEquals(7, results.size());
+        assertFalse(results.stream().anyMatch(DeliveryResult::isSuccess));
+        assertEquals("Provider down", results.get(4).getErrorMessage());
+        assertTrue(results.get(5).getErrorMessage().contains("circuit open"));
+        assertEquals("OPEN", statusOf(failing).get("circuitState"));
+        assertEquals(5, statusOf(failing).get("consecutiveFailures"));
+    }
+
+    @Test
+    void successfulBatchResetsTheBreaker() {
+        FailingChannel failing = new FailingChannel();
+        registry = registryOf(failing);
+
+        registry.deliver(failing, notifications(4), "SMS", settings);
+        failing.failing = false;
+        registry.deliver(failing, notifications(1), "SMS", settings);
+        failing.failing = true;
+        registry.deliver(failing, notifications(4), "SMS", settings);
+
+        assertEquals(9, failing.calls.get(), "four failures, a success and four failures never open the breaker");
+        assertEquals("CLOSED", statusOf(failing).get("circuitState"));
+    }
+
+    @Test
+    void wrongNumberOfResultsFailsTheBatch() {
+        RecordingChannel broken = new RecordingChannel() {
+            @Override
+            public List<DeliveryResult> sendBatch(List<Notification> notifications, String medium, SystemSettings settings) {
+                return List.of(DeliveryResult.sent());
+            }
+        };
+        registry = registryOf(broken);
+
+        List<DeliveryResult> results = registry.deliver(broken, notifications(3), "EMAIL", settings);
+
+        assertEquals(3, results.size());
+        assertFalse(results.get(0).isSuccess(), "a partial answer cannot be matched to notifications");
+        assertEquals(1, statusOf(broken).get("consecutiveFailures"));
+    }
+
+    @Test
+    void concurrentBatchesAreLimitedByTheSemaphore() {
+        SlowChannel slow = new SlowChannel();
+        registry = registryOf(slow);
+
+        ExecutorService executor = Executors.newFixedThreadPool(12);
+        try {
+            List<CompletableFuture<List<DeliveryResult>>> deliveries = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                deliveries.add(CompletableFuture.supplyAsync(
+                    () -> registry.deliver(slow, notifications(1), "EMAIL", settings), executor));
+            }
+            for (CompletableFuture<List<DeliveryResult>> delivery : deliveries) {
+                assertTrue(delivery.join().get(0).isSuccess(), "batches wait for a permit instead of failing");
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(12, slow.getDeliveredCount());
+        assertTrue(slow.maxInFlight.get() <= SlowChannel.MAX_CONCURRENCY,
+            "at most " + SlowChannel.MAX_CONCURRENCY + " calls at once, saw " + slow.maxInFlight.get());
+        assertEquals(0, statusOf(slow).get("inFlight"));
+    }
+
+    private NotificationChannelRegistry registryOf(LocalNotificationChannel channel) {
+        NotificationChannelRegistry registry = new NotificationChannelRegistry();
+        ReflectionTestUtils.setField(registry, "channels", List.of(channel));
+        ReflectionTestUtils.setField(registry, "localChannel", channel);
+        return registry;
+    }
+
+    private Map<String, Object> statusOf(NotificationChannel channel) {
+        return registry.getChannelStatus(settings).stream()
+            .filter(entry -> channel.getName().equals(entry.get("name")))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private static List<Notification> notifications(int count) {
+        List<Notification> notifications = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Notification notification = new Notification();
+            notification.setId("notification" + i);
+            notification.setMemberContact("+1555000" + i);
+            notifications.add(notification);
+        }
+        return notifications;
+    }
+
+    private static class RecordingChannel extends LocalNotificationChannel {
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public List<DeliveryResult> sendBatch(List<Notification> notifications, String medium, SystemSettings settings) throws Exception {
+            batchSizes.add(notifications.size());
+            return super.sendBatch(notifications, medium, settings);
+        }
+    }
+
+    // One notification per call, failing while "failing" is set
+    private static class FailingChannel extends LocalNotificationChannel {
+        final AtomicInteger calls = new AtomicInteger();
+        volatile boolean failing = true;
+
+        @Override
+        public String getName() {
+            return "FAILING";
+        }
+
+        @Override
+        public int getMaxBatchSize() {
+            return 1;
+        }
+
+        @Override
+        public List<DeliveryResult> sendBatch(List<Notification> notifications, String medium, SystemSettings settings) throws Exception {
+            calls.incrementAndGet();
+            if (failing) {
+                throw new Exception("Provider down");
+            }
+            return super.sendBatch(notifications, medium, settings);
+        }
+    }
+
+    // Holds every call for a while and records how many ran at once
+    private static class SlowChannel extends LocalNotificationChannel {
+        static final int MAX_CONCURRENCY = 2;
+
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public String getName() {
+            return "SLOW";
+        }
+
+        @Override
+        public int getMaxConcurrency() {
+            return MAX_CONCURRENCY;
+        }
+
+        @Override
+        public List<DeliveryResult> sendBatch(List<Notification> notifications, String medium, SystemSettings settings) throws Exception {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return super.sendBatch(notifications, medium, settings);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.lms.service.search;
+
+import com.example.lms.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BookSearchIndexTest - Ranking, typo tolerance and prefix matching of the catalog index
+ */
+class BookSearchIndexTest {
+
+    private static final int TITLE_ONLY = 1 << BookSearchIndex.TITLE;
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.add(book("hobbit", "The Hobbit", "J.R.R. Tolkien", "Fantasy", "978-0-261-10334-4"));
+        index.add(book("rings", "The Lord of the Rings", "J.R.R. Tolkien", "Fantasy", "9780618640157"));
+        index.add(book("dragons", "A Field Guide to Dragons", "Mary Hobson", "Dragons", "9781402736674"));
+        index.add(book("dune", "Dune", "Frank Herbert", "Science Fiction", "9780441172719"));
+        index.add(book("hobbies", "Hobbies for Dragon Keepers", "Anne Smith", "Crafts", "9780140449136"));
+    }
+
+    @Test
+    void titleMatchesOutrankOtherFields() {
+        // "dragon" is in the title of two books, and only in the category of one of them
+        List<String> ids = ids(index.search("dragons", BookSearchIndex.ALL_FIELDS, 10));
+        assertEquals("dragons", ids.get(0), "title and category beat title alone");
+        assertTrue(ids.contains("hobbies"));
+
+        List<BookSearchIndex.Hit> hits = index.search("tolkien rings", BookSearchIndex.ALL_FIELDS, 10);
+        assertEquals("rings", hits.get(0).getBookId(), "matching both terms beats matching one");
+        assertEquals("hobbit", hits.get(1).getBookId());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+    }
+
+    @Test
+    void fieldMaskRestrictsTheMatch() {
+        assertTrue(index.search("tolkien", TITLE_ONLY, 10).isEmpty());
+        assertEquals(List.of("dune"), ids(index.search("herbert", 1 << BookSearchIndex.AUTHOR, 10)));
+    }
+
+    @Test
+    void misspelledTermsFindTheirClosestSpelling() {
+        assertEquals("hobbit", ids(index.search("hobit", TITLE_ONLY, 10)).get(0), "deletion");
+        assertEquals("dune", ids(index.search("herbret", BookSearchIndex.ALL_FIELDS, 10)).get(0), "transposition");
+        assertEquals("rings", ids(index.search("lord of the rinsg", BookSearchIndex.ALL_FIELDS, 10)).get(0));
+
+        // An exact match outranks a spelling variant
+        List<BookSearchIndex.Hit> hits = index.search("hobbit", BookSearchIndex.ALL_FIELDS, 10);
+        assertEquals("hobbit", hits.get(0).getBookId());
+    }
+
+    @Test
+    void partialTermsMatchByPrefix() {
+        // Too short for spelling variants, but a prefix of "hobbit" and "hobbi(es)"
+        List<String> ids = ids(index.search("hob", TITLE_ONLY, 10));
+        assertTrue(ids.contains("hobbit"));
+        assertTrue(ids.contains("hobbies"));
+        assertFalse(ids.contains("dragons"), "author prefixes do not count in a title search");
+
+        // Only the last term of a query may be incomplete
+        assertEquals("rings", ids(index.search("lord of the ri", TITLE_ONLY, 10)).get(0));
+    }
+
+    @Test
+    void isbnPrefixesMatch() {
+        assertEquals(List.of("dragons"), ids(index.search("97814", 1 << BookSearchIndex.ISBN, 10)));
+        List<String> ids = ids(index.search("978026", BookSearchIndex.ALL_FIELDS, 10));
+        assertEquals(List.of("hobbit"), ids);
+
+        // A full ISBN, hyphenated or not, matches exactly
+        assertEquals("hobbit", ids(index.search("978-0-261-10334-4", BookSearchIndex.ALL_FIELDS, 10)).get(0));
+    }
+
+    @Test
+    void replacedAndRemovedBooksAreNotFound() {
+        index.add(book("dune", "Dune Messiah", "Frank Herbert", "Science Fiction", "9780441172696"));
+        assertEquals(List.of("dune"), ids(index.search("messiah", BookSearchIndex.ALL_FIELDS, 10)));
+        assertTrue(index.search("9780441172719", BookSearchIndex.ALL_FIELDS, 10).isEmpty());
+
+        index.remove("hobbit");
+        assertFalse(ids(index.search("hobbit", BookSearchIndex.ALL_FIELDS, 10)).contains("hobbit"));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void manyMatchesKeepTheBestWithinTheLimit() {
+        BookSearchIndex large = new BookSearchIndex();
+        for (int i = 0; i < 2000; i++) {
+            // Shorter titles score higher; book 0 has the shortest
+            StringBuilder title = new StringBuilder("Atlas");
+            for (int word = 0; word < 1 + i % 7; word++) {
+                title.append(" volume");
+            }
+            large.add(book("atlas-" + i, title.toString(), "Cartographer " + i, "Maps", null));
+        }
+        List<BookSearchIndex.Hit> hits = large.search("atlas", TITLE_ONLY, 25);
+        assertEquals(25, hits.size());
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).getScore() >= hits.get(i).getScore(), "best first");
+        }
+        assertEquals("atlas-0", hits.get(0).getBookId(), "ties are broken by insertion order");
+        for (BookSearchIndex.Hit hit : hits) {
+            assertEquals(0, Integer.parseInt(hit.getBookId().substring("atlas-".length())) % 7);
+        }
+        // The unranked matches are not cut at the limit
+        assertEquals(2000, large.matchingBookIds("atlas", TITLE_ONLY).size());
+        assertTrue(large.matchingBookIds("atlas", 1 << BookSearchIndex.AUTHOR).isEmpty());
+    }
+
+    private static Book book(String id, String title, String author, String category, String isbn) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setCategory(category);
+        book.setIsbn(isbn);
+        return book;
+    }
+
+    private static List<String> ids(List<BookSearchIndex.Hit> hits) {
+        List<String> ids = new ArrayList<>();
+        hits.forEach(hit -> ids.add(hit.getBookId()));
+        return ids;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.lms.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CompressedBitmapTest - Set operations agree with a brute-force TreeSet
+ *
+ * The random sets mix sparse chunks (array containers) with dense ones
+ * (bitmap containers) and chunks only one side has, so every container
+ * pairing of and, or and andNot is covered. The seed is fixed.
+ */
+class CompressedBitmapTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void addRemoveAndContainsMatchASet() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            // Chunk 0 goes dense, chunk 1 stays sparse, so containers convert both ways
+            int value = random.nextBoolean() ? random.nextInt(9000) : 65536 + random.nextInt(200_000);
+            if (random.nextInt(3) == 0) {
+                bitmap.remove(value);
+                expected.remove(value);
+            } else {
+                bitmap.add(value);
+                expected.add(value);
+            }
+        }
+        assertSame(expected, bitmap);
+        for (int value = 0; value < 10_000; value++) {
+            assertEquals(expected.contains(value), bitmap.contains(value), "contains " + value);
+        }
+
+        // Emptied down to nothing
+        for (int value : expected) {
+            bitmap.remove(value);
+        }
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.cardinality());
+    }
+
+    @Test
+    void setOperationsMatchBruteForce() {
+        for (int round = 0; round < 20; round++) {
+            TreeSet<Integer> left = randomSet();
+            TreeSet<Integer> right = randomSet();
+            CompressedBitmap a = bitmapOf(left);
+            CompressedBitmap b = bitmapOf(right);
+
+            TreeSet<Integer> and = new TreeSet<>(left);
+            and.retainAll(right);
+            TreeSet<Integer> or = new TreeSet<>(left);
+            or.addAll(right);
+            TreeSet<Integer> andNot = new TreeSet<>(left);
+            andNot.removeAll(right);
+
+            assertSame(and, a.and(b));
+            assertSame(or, a.or(b));
+            assertSame(andNot, a.andNot(b));
+            assertEquals(and.size(), a.andCardinality(b));
+            assertEquals(and.size(), b.andCardinality(a));
+
+            // The operands are left as they were
+            assertSame(left, a);
+            assertSame(right, b);
+        }
+    }
+
+    @Test
+    void operationsWithAnEmptyBitmap() {
+        TreeSet<Integer> values = randomSet();
+        CompressedBitmap bitmap = bitmapOf(values);
+        CompressedBitmap empty = new CompressedBitmap();
+        assertTrue(bitmap.and(empty).isEmpty());
+        assertSame(values, bitmap.or(empty));
+        assertSame(values, empty.or(bitmap));
+        assertSame(values, bitmap.andNot(empty));
+        assertTrue(empty.andNot(bitmap).isEmpty());
+        assertTrue(bitmap.andNot(bitmap).isEmpty());
+    }
+
+    // Up to six chunks, each absent, sparse or dense
+    private TreeSet<Integer> randomSet() {
+        TreeSet<Integer> values = new TreeSet<>();
+        for (int chunk = 0; chunk < 6; chunk++) {
+            int kind = random.nextInt(3);
+            int count = kind == 0 ? 0 : kind == 1 ? 1 + random.nextInt(300) : 5000 + random.nextInt(30_000);
+            for (int i = 0; i < count; i++) {
+                values.add(chunk * 65536 + random.nextInt(65536));
+            }
+        }
+        return values;
+    }
+
+    private static CompressedBitmap bitmapOf(TreeSet<Integer> values) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        values.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    private static void assertSame(TreeSet<Integer> expected, CompressedBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        assertEquals(new ArrayList<>(expected), values);
+        assertEquals(expected.size(), bitmap.cardinality());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.lms.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SuggestionTrieTest - Cached top-K lists stay right as books are reweighted and removed
+ *
+ * The cached lists are checked against the heaviest entries computed by
+ * brute force over every title the test added.
+ */
+class SuggestionTrieTest {
+
+    private static final int TITLES = 40;
+
+    @Test
+    void suggestsTheHeaviestTitlesFirst() {
+        SuggestionTrie trie = new SuggestionTrie();
+        long[] weights = new long[TITLES];
+        for (int i = 0; i < TITLES; i++) {
+            trie.put("book" + i, "Star Log " + i, null, (long) i * 3);
+            weights[i] = i * 3 + 1;
+        }
+        assertEquals(expected(weights, SuggestionTrie.TOP_K), titles(trie.suggest("star", SuggestionTrie.TOP_K)));
+        assertEquals(expected(weights, 5), titles(trie.suggest("STAR lo", 5)), "folded like the keys");
+    }
+
+    @Test
+    void reweightingAndRemovalUpdateTheCachedLists() {
+        SuggestionTrie trie = new SuggestionTrie();
+        long[] weights = new long[TITLES];
+        for (int i = 0; i < TITLES; i++) {
+            trie.put("book" + i, "Star Log " + i, null, (long) i);
+            weights[i] = i + 1;
+        }
+
+        // A title below the cached lists climbs to the top
+        trie.addPopularity("book2", 100);
+        weights[2] += 100;
+        assertEquals(expected(weights, SuggestionTrie.TOP_K), titles(trie.suggest("star", SuggestionTrie.TOP_K)));
+        assertEquals("Star Log 2", trie.suggest("s", 1).get(0).getText());
+
+        // Removing cached titles lets the next heaviest in
+        for (int i : new int[] {2, 39, 38, 20}) {
+            trie.remove("book" + i);
+            weights[i] = -1;
+        }
+        assertEquals(expected(weights, SuggestionTrie.TOP_K), titles(trie.suggest("star", SuggestionTrie.TOP_K)));
+
+        // Replacing a title moves it in the trie and keeps its popularity
+        trie.put("book37", "Moon Log", null, null);
+        weights[37] = -1;
+        assertEquals(expected(weights, SuggestionTrie.TOP_K), titles(trie.suggest("star log", SuggestionTrie.TOP_K)));
+        assertEquals(38, trie.suggest("moon", 1).get(0).getWeight());
+        assertEquals(TITLES - 4, trie.size());
+    }
+
+    @Test
+    void sharedTitlePointsToItsBookAgainWhenOneIsLeft() {
+        SuggestionTrie trie = new SuggestionTrie();
+        trie.put("first", "Emma", "Jane Austen", 5L);
+        trie.put("second", "Emma", "Jane Austen", 2L);
+        trie.put("third", "Emma", "Jane Austen", 0L);
+
+        SuggestionTrie.Suggestion shared = trie.suggest("emma", 1).get(0);
+        assertNull(shared.getBookId());
+        assertEquals(3, shared.getBooks());
+        assertEquals(10, shared.getWeight());
+
+        trie.remove("first");
+        assertNull(trie.suggest("emma", 1).get(0).getBookId(), "still shared by two books");
+
+        trie.put("third", "Persuasion", "Jane Austen", null);
+        SuggestionTrie.Suggestion single = trie.suggest("emma", 1).get(0);
+        assertEquals("second", single.getBookId());
+        assertEquals(1, single.getBooks());
+        assertEquals(3, single.getWeight());
+
+        trie.remove("second");
+        assertTrue(trie.suggest("emma", 1).isEmpty());
+        assertEquals("third", trie.suggest("pers", 1).get(0).getBookId());
+    }
+
+    // The `limit` heaviest titles; a negative weight marks a removed title
+    private static List<String> expected(long[] weights, int limit) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] >= 0) {
+                order.add(i);
+            }
+        }
+        order.sort(Comparator.<Integer>comparingLong(i -> -weights[i]).thenComparing(i -> "Star Log " + i));
+        List<String> titles = new ArrayList<>();
+        for (int i : order.subList(0, Math.min(limit, order.size()))) {
+            titles.add("Star Log " + i);
+        }
+        return titles;
+    }
+
+    private static List<String> titles(List<SuggestionTrie.Suggestion> suggestions) {
+        List<String> titles = new ArrayList<>();
+        suggestions.forEach(suggestion -> titles.add(suggestion.getText()));
+        return titles;
+    }
+}
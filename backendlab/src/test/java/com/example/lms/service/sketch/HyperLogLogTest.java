@@ -0,0 +1,83 @@
+package com.example.lms.service.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HyperLogLogTest - Estimates stay within the documented error bounds
+ *
+ * The standard error is 1.04 / sqrt(16384), about 0.8%; estimates are
+ * checked against three standard errors. The hash is deterministic, so the
+ * results do not vary between runs.
+ */
+class HyperLogLogTest {
+
+    private static final double STANDARD_ERROR = 1.04 / Math.sqrt(HyperLogLog.REGISTERS);
+
+    @Test
+    void emptySketchEstimatesZero() {
+        HyperLogLog sketch = new HyperLogLog();
+        assertTrue(sketch.isEmpty());
+        assertEquals(0, sketch.estimate());
+    }
+
+    @Test
+    void smallCardinalitiesUseLinearCounting() {
+        for (int count : new int[] {1, 10, 100, 1000}) {
+            HyperLogLog sketch = sketchOf("member-", 0, count);
+            assertEquals(count, sketch.estimate(), Math.max(1, count * 3 * STANDARD_ERROR), "estimate of " + count);
+        }
+    }
+
+    @Test
+    void largeCardinalitiesStayWithinThreeStandardErrors() {
+        for (int count : new int[] {10_000, 50_000, 200_000, 1_000_000}) {
+            HyperLogLog sketch = sketchOf("member-", 0, count);
+            assertEquals(count, sketch.estimate(), count * 3 * STANDARD_ERROR, "estimate of " + count);
+        }
+    }
+
+    @Test
+    void duplicatesDoNotChangeTheEstimate() {
+        HyperLogLog sketch = sketchOf("book-", 0, 5000);
+        long estimate = sketch.estimate();
+        for (int i = 0; i < 5000; i++) {
+            assertFalse(sketch.add("book-" + i));
+        }
+        assertEquals(estimate, sketch.estimate());
+    }
+
+    @Test
+    void mergeEstimatesTheUnion() {
+        // Two overlapping days: 0..59999 and 40000..99999, 100000 distinct in total
+        HyperLogLog first = sketchOf("member-", 0, 60_000);
+        HyperLogLog second = sketchOf("member-", 40_000, 60_000);
+        first.merge(second);
+        assertEquals(100_000, first.estimate(), 100_000 * 3 * STANDARD_ERROR);
+
+        // Merging the same sketch again is harmless
+        long estimate = first.estimate();
+        first.merge(second);
+        assertEquals(estimate, first.estimate());
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        HyperLogLog sketch = sketchOf("title-", 0, 20_000);
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+        assertEquals(sketch.estimate(), restored.estimate());
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[16]));
+    }
+
+    private static HyperLogLog sketchOf(String prefix, int first, int count) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = first; i < first + count; i++) {
+            sketch.add(prefix + i);
+        }
+        return sketch;
+    }
+}
@@ -28,6 +28,8 @@ export const API_ENDPOINTS = {
         BASE: `${API_BASE_URL}/books`,
         BY_ID: (id) => `${API_BASE_URL}/books/${id}`,
         SEARCH: `${API_BASE_URL}/books/search`,
+        SUGGEST: `${API_BASE_URL}/books/suggest`,
+        BROWSE: `${API_BASE_URL}/books/browse`,
         AVAILABLE: `${API_BASE_URL}/books/available`,
     },
 
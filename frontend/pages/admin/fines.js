@@ -34,6 +34,7 @@ export default function FinesManagement() {
     const [paymentMethod, setPaymentMethod] = useState('CASH');
     const [paymentNotes, setPaymentNotes] = useState('');
     const [processingPayment, setProcessingPayment] = useState(false);
+    const [paymentKey, setPaymentKey] = useState(null);
 
     // Manual fine modal state
     const [showManualFineModal, setShowManualFineModal] = useState(false);
@@ -89,7 +90,7 @@ export default function FinesManagement() {
 
         try {
             setProcessingPayment(true);
-            await recordPayment(selectedFine.id, parseFloat(paymentAmount), paymentMethod, paymentNotes);
+            await recordPayment(selectedFine.id, parseFloat(paymentAmount), paymentMethod, paymentNotes, paymentKey);
             setSuccess('Payment recorded successfully!');
             setShowPaymentModal(false);
             resetPaymentForm();
@@ -145,6 +146,8 @@ export default function FinesManagement() {
     const openPaymentModal = (fine) => {
         setSelectedFine(fine);
         setPaymentAmount(fine.amount - (fine.amountPaid || 0));
+        // One key per payment dialog, so a double submit records a single payment
+        setPaymentKey(`${fine.id}-${Date.now()}-${Math.random().toString(36).slice(2)}`);
         setShowPaymentModal(true);
         setError(null);
     };
@@ -234,11 +234,11 @@ export default function NotificationsManagement() {
     };
 
     const handleDeleteOld = async () => {
-        if (!confirm('Delete all notifications older than 90 days?')) return;
+        if (!confirm('Remove all sent notifications past their retention period?')) return;
 
         try {
             const result = await deleteOldNotifications();
-            alert(`Deleted ${result.count} old notifications`);
+            alert(`${result.count} old notifications expired and will be removed`);
             loadData();
         } catch (error) {
             console.error('Error deleting old notifications:', error);
@@ -376,6 +376,7 @@ export default function NotificationsManagement() {
         const colors = {
             DUE_DATE_REMINDER: { bg: '#dbeafe', color: '#1e40af', border: '#bfdbfe' },
             OVERDUE_REMINDER: { bg: '#fee2e2', color: '#991b1b', border: '#fecaca' },
+            REMINDER_DIGEST: { bg: '#ffe4e6', color: '#9f1239', border: '#fecdd3' },
             RESERVATION_READY: { bg: '#e9d5ff', color: '#6b21a8', border: '#d8b4fe' },
             FINE_NOTICE: { bg: '#fed7aa', color: '#9a3412', border: '#fdba74' },
             GENERAL: { bg: '#f1f5f9', color: '#475569', border: '#e2e8f0' }
@@ -479,6 +480,7 @@ export default function NotificationsManagement() {
                         <option value="ALL">All</option>
                         <option value="DUE_DATE_REMINDER">Due Date Reminder</option>
                         <option value="OVERDUE_REMINDER">Overdue Reminder</option>
+                        <option value="REMINDER_DIGEST">Reminder Digest</option>
                         <option value="RESERVATION_READY">Reservation Ready</option>
                         <option value="FINE_NOTICE">Fine Notice</option>
                         <option value="GENERAL">General</option>
@@ -10,11 +10,25 @@ import {
     getOverdueReport,
     getOverdueStatistics,
     getFineReport,
-    getRecentPayments
+    getRecentPayments,
+    getReportExportUrl
 } from '../../services/reportService';
 
+const EXPORT_REPORTS = [
+    { id: 'borrows', label: 'All Borrow Records' },
+    { id: 'overdue', label: 'Overdue Books' },
+    { id: 'fines', label: 'All Fines' },
+    { id: 'payments', label: 'All Payments' },
+    { id: 'most-borrowed', label: 'Most Borrowed Books' },
+    { id: 'least-borrowed', label: 'Least Borrowed Books' },
+    { id: 'most-active', label: 'Most Active Members' },
+    { id: 'recent-payments', label: 'Recent Payments' },
+    { id: 'trends', label: 'Monthly Trends (12 months)' }
+];
+
 export default function ReportsAnalytics() {
     const [activeTab, setActiveTab] = useState('books');
+    const [exportReport, setExportReport] = useState('borrows');
     const [loading, setLoading] = useState(true);
 
     // Book Reports
@@ -494,13 +508,38 @@ export default function ReportsAnalytics() {
                                     Deep dive into your library's performance metrics
                                 </p>
                             </div>
+                            <div style={{ display: 'flex', alignItems: 'center', gap: '0.5rem', flexWrap: 'wrap' }}>
+                            <select
+                                value={exportReport}
+                                onChange={(e) => setExportReport(e.target.value)}
+                                className="rpt-export-select"
+                            >
+                                {EXPORT_REPORTS.map(r => (
+                                    <option key={r.id} value={r.id}>{r.label}</option>
+                                ))}
+                            </select>
+                            <a href={getReportExportUrl(exportReport, 'csv')} className="rpt-export-btn">CSV</a>
+                            <a href={getReportExportUrl(exportReport, 'xlsx')} className="rpt-export-btn">XLSX</a>
                             <button onClick={loadAllReports} className="rpt-refresh-btn">
                                 <svg width="18" height="18" fill="none" stroke="currentColor" viewBox="0 0 24 24"><path strokeLinecap="round" strokeLinejoin="round" strokeWidth={2.5} d="M4 4v5h.582m15.356 2A8.001 8.001 0 004.582 9m0 0H9m11 11v-5h-.581m0 0a8.003 8.003 0 01-15.357-2m15.357 2H15" /></svg>
                                 Refresh
                             </button>
+                            </div>
                         </div>
 
-                        {/* ── Tabs ── */}
+                        {/* ── Export Controls ── */
+.rpt-export-select {
+    padding: 0.55rem 0.75rem; border: 1px solid #e5e7eb; border-radius: 10px;
+    font-weight: 600; font-size: 0.82rem; color: #374151; background: white;
+}
+.rpt-export-btn {
+    padding: 0.55rem 0.9rem; border: 1px solid #c7d2fe; border-radius: 10px;
+    font-weight: 700; font-size: 0.8rem; color: #4338ca; background: #eef2ff;
+    text-decoration: none; transition: all 0.2s ease;
+}
+.rpt-export-btn:hover { background: #e0e7ff; }
+
+/* ── Tabs ── */}
                         <div className="rpt-tabs-wrapper">
                             {tabs.map(tab => (
                                 <button
@@ -318,8 +318,6 @@ export default function SystemSettings() {
                 >
                     <option value="">Select Provider</option>
                     <option value="twilio">Twilio</option>
-                    <option value="nexmo">Nexmo</option>
-                    <option value="aws-sns">AWS SNS</option>
                 </select>
             </div>
 
@@ -1,6 +1,6 @@
 import { useState, useEffect } from 'react';
 import Navbar from '../../components/Navbar';
-import { getAllNotifications, getNotificationsByMember } from '../../services/notificationService';
+import { getAllNotifications, getNotificationsByMember, subscribeToMemberNotifications } from '../../services/notificationService';
 
 export default function MemberNotifications() {
     const [notifications, setNotifications] = useState([]);
@@ -17,7 +17,14 @@ export default function MemberNotifications() {
             loadNotifications(storedMemberId);
         } else {
             setLoading(false);
+            return undefined;
         }
+
+        // New notifications are pushed by the server instead of re-fetching the list
+        const source = subscribeToMemberNotifications(storedMemberId, (notification) => {
+            setNotifications(prev => [notification, ...prev.filter(n => n.id !== notification.id)]);
+        });
+        return () => source.close();
     }, []);
 
     const loadNotifications = async (memberIdParam) => {
@@ -71,6 +78,7 @@ export default function MemberNotifications() {
         const colors = {
             DUE_DATE_REMINDER: '#3498db',
             OVERDUE_REMINDER: '#e74c3c',
+            REMINDER_DIGEST: '#c0392b',
             RESERVATION_READY: '#9b59b6',
             RESERVATION_APPROVAL: '#8e44ad',
             RESERVATION_CANCELLATION: '#e67e22',
@@ -95,6 +103,7 @@ export default function MemberNotifications() {
         const names = {
             DUE_DATE_REMINDER: 'Due Date Reminder',
             OVERDUE_REMINDER: 'Overdue Reminder',
+            REMINDER_DIGEST: 'Reminder Digest',
             RESERVATION_READY: 'Reservation Ready',
             RESERVATION_APPROVAL: 'Reservation Approved',
             RESERVATION_CANCELLATION: 'Reservation Cancelled',
@@ -168,6 +177,7 @@ export default function MemberNotifications() {
                             <option value="ALL">All</option>
                             <option value="DUE_DATE_REMINDER">Due Date Reminders</option>
                             <option value="OVERDUE_REMINDER">Overdue Reminders</option>
+                            <option value="REMINDER_DIGEST">Reminder Digests</option>
                             <option value="RESERVATION_READY">Reservation Ready</option>
                             <option value="RESERVATION_APPROVAL">Reservation Approved</option>
                             <option value="FINE_NOTICE">Fine Notices</option>
@@ -2,14 +2,15 @@ import { useState, useEffect } from 'react';
 import Navbar from '../../components/Navbar';
 import Sidebar from '../../components/Sidebar';
 import BookCard from '../../components/BookCard';
-import { getAllBooks, searchBooks } from '../../services/bookService';
+import { getAllBooks, searchBooks, suggestBooks } from '../../services/bookService';
 import { createReservation } from '../../services/borrowService';
 
 export default function SearchBooks() {
     const [books, setBooks] = useState([]);
     const [searchQuery, setSearchQuery] = useState('');
-    const [searchType, setSearchType] = useState('title');
+    const [searchType, setSearchType] = useState('q');
     const [message, setMessage] = useState('');
+    const [suggestions, setSuggestions] = useState([]);
     const memberID = 'MEMBER_ID_PLACEHOLDER'; // In real app, get from auth
 
     useEffect(() => {
@@ -25,6 +26,20 @@ export default function SearchBooks() {
         }
     };
 
+    const handleQueryChange = async (value) => {
+        setSearchQuery(value);
+        if (value.trim().length < 2 || searchType === 'category') {
+            setSuggestions([]);
+            return;
+        }
+        try {
+            const data = await suggestBooks(value);
+            setSuggestions(data.filter((s) => searchType === 'q' || s.type.toLowerCase() === searchType));
+        } catch (error) {
+            setSuggestions([]);
+        }
+    };
+
     const handleSearch = async (e) => {
         e.preventDefault();
         try {
@@ -62,17 +77,24 @@ export default function SearchBooks() {
                             onChange={(e) => setSearchType(e.target.value)}
                             style={styles.select}
                         >
+                            <option value="q">All fields</option>
                             <option value="title">Title</option>
                             <option value="author">Author</option>
                             <option value="category">Category</option>
                         </select>
                         <input
                             type="text"
-                            placeholder={`Search by ${searchType}...`}
+                            placeholder={searchType === 'q' ? 'Search title, author, category or ISBN...' : `Search by ${searchType}...`}
                             value={searchQuery}
-                            onChange={(e) => setSearchQuery(e.target.value)}
+                            onChange={(e) => handleQueryChange(e.target.value)}
+                            list="book-suggestions"
                             style={styles.input}
                         />
+                        <datalist id="book-suggestions">
+                            {suggestions.map((s) => (
+                                <option key={`${s.type}-${s.text}`} value={s.text} />
+                            ))}
+                        </datalist>
                         <button type="submit" style={styles.btnSearch}>Search</button>
                         <button type="button" onClick={loadBooks} style={styles.btnReset}>
                             Show All
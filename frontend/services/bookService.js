@@ -31,6 +31,22 @@ export const searchBooks = async (query) => {
     return response.data;
 };
 
+export const suggestBooks = async (q, limit = 8) => {
+    const response = await axios.get(`${API_URL}/suggest`, { params: { q, limit } });
+    return response.data;
+};
+
+// filters: { category: [...], author: [...], availability: ['AVAILABLE'] }
+export const browseBooks = async (q, filters = {}, page = 0, size = 20) => {
+    const params = new URLSearchParams();
+    if (q) params.append('q', q);
+    Object.entries(filters).forEach(([facet, values]) => values.forEach((value) => params.append(facet, value)));
+    params.append('page', page);
+    params.append('size', size);
+    const response = await axios.get(`${API_URL}/browse`, { params });
+    return response.data;
+};
+
 export const getAvailableBooks = async () => {
     const response = await axios.get(`${API_URL}/available`);
     return response.data;
@@ -37,12 +37,13 @@ export const createManualFine = async (memberID, amount, reason) => {
     return response.data;
 };
 
-export const recordPayment = async (fineID, amount, paymentMethod, notes = '') => {
+// idempotencyKey: resubmitting with the same key never records the payment twice
+export const recordPayment = async (fineID, amount, paymentMethod, notes = '', idempotencyKey = null) => {
     const response = await axios.post(`${API_URL}/${fineID}/payment`, {
         amount,
         paymentMethod,
         notes
-    });
+    }, idempotencyKey ? { headers: { 'Idempotency-Key': idempotencyKey } } : undefined);
     return response.data;
 };
 
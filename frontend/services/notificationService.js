@@ -12,6 +12,16 @@ export const getNotificationsByMember = async (memberId) => {
     return response.data;
 };
 
+// Opens a Server-Sent Events stream of the member's new notifications.
+// Returns the EventSource; call close() on it to unsubscribe.
+export const subscribeToMemberNotifications = (memberId, onNotification) => {
+    const source = new EventSource(`${API_URL}/member/${memberId}/stream`);
+    source.addEventListener('notification', (event) => {
+        onNotification(JSON.parse(event.data));
+    });
+    return source;
+};
+
 export const getNotificationsByStatus = async (status) => {
     const response = await axios.get(`${API_URL}/status/${status}`);
     return response.data;
@@ -61,3 +61,8 @@ export const getDashboardSummary = async () => {
     const response = await axios.get(`${API_URL}/dashboard-summary`);
     return response.data;
 };
+
+// Export URL of a report; the browser downloads the streamed CSV/XLSX file
+export const getReportExportUrl = (report, format = 'csv') => {
+    return `${API_URL}/export/${report}?format=${format}`;
+};